@@ -19,12 +19,14 @@
 package org.apache.aries.blueprint.compendium.cm;
 
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.aries.blueprint.utils.JavaUtils;
 import org.osgi.framework.BundleContext;
@@ -53,6 +55,9 @@ public abstract class BaseManagedServiceFactory<T> implements ManagedServiceFact
     private final ExecutorService executor;
     private final Map<String, Pair<T, ServiceRegistration>> services;
     private final Map<ServiceRegistration, T> registrations;
+    // configurations waiting for the executor, a newer update for the same pid replaces the queued one
+    // and a deletion discards it, guarded by the map itself
+    private final Map<String, AtomicReference<Dictionary>> pendingUpdates;
 
     public BaseManagedServiceFactory(BundleContext context, String name) {
         this(context, name, DEFAULT_TIMEOUT_BEFORE_INTERRUPT);
@@ -66,6 +71,7 @@ public abstract class BaseManagedServiceFactory<T> implements ManagedServiceFact
         this.executor = Executors.newSingleThreadExecutor();
         this.services = new ConcurrentHashMap<String, Pair<T, ServiceRegistration>>();
         this.registrations = new ConcurrentHashMap<ServiceRegistration, T>();
+        this.pendingUpdates = new HashMap<String, AtomicReference<Dictionary>>();
     }
 
     public String getName() {
@@ -81,10 +87,32 @@ public abstract class BaseManagedServiceFactory<T> implements ManagedServiceFact
             return;
         }
         checkConfiguration(pid, properties);
+        final AtomicReference<Dictionary> pending;
+        synchronized (pendingUpdates) {
+            AtomicReference<Dictionary> queued = pendingUpdates.get(pid);
+            if (queued != null) {
+                // an update for this pid is already queued and will apply these properties
+                queued.set(properties);
+                return;
+            }
+            pending = new AtomicReference<Dictionary>(properties);
+            pendingUpdates.put(pid, pending);
+        }
         executor.submit(new Runnable() {
             public void run() {
                 try {
-                    internalUpdate(pid, properties);
+                    boolean current;
+                    synchronized (pendingUpdates) {
+                        // the update has been discarded if the configuration was deleted in the meantime,
+                        // a later update is then queued after the deletion with its own entry
+                        current = pendingUpdates.get(pid) == pending;
+                        if (current) {
+                            pendingUpdates.remove(pid);
+                        }
+                    }
+                    if (current) {
+                        internalUpdate(pid, pending.get());
+                    }
                 } catch (Throwable t) {
                     LOGGER.warn("Error destroying service for ManagedServiceFactory " + getName(), t);
                 }
@@ -96,6 +124,9 @@ public abstract class BaseManagedServiceFactory<T> implements ManagedServiceFact
         if (destroyed.get()) {
             return;
         }
+        synchronized (pendingUpdates) {
+            pendingUpdates.remove(pid);
+        }
         executor.submit(new Runnable() {
             public void run() {
                 try {
@@ -26,7 +26,6 @@ import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -63,7 +62,9 @@ public class CmManagedProperties implements ManagedObject, BeanProcessor {
     private String beanName;
 
     private final Object lock = new Object();
-    private final Set<Object> beans = new HashSet<Object>();
+    // the properties last injected into each bean, used to only inject the changed ones
+    private final Map<Object, Map<String, Object>> beans = new HashMap<Object, Map<String, Object>>();
+    private final Map<Class<?>, Map<String, List<Method>>> setters = new HashMap<Class<?>, Map<String, List<Method>>>();
     private Dictionary<String,Object> properties;
     private boolean initialized;
 
@@ -154,7 +155,7 @@ public class CmManagedProperties implements ManagedObject, BeanProcessor {
         LOGGER.debug("Configuration updated for bean={} / pid={}", beanName, persistentId);
         synchronized (lock) {
             properties = props;
-            for (Object bean : beans) {
+            for (Object bean : beans.keySet()) {
                 updated(bean, properties);
             }
         }
@@ -174,7 +175,7 @@ public class CmManagedProperties implements ManagedObject, BeanProcessor {
         if (beanName != null && beanName.equals(this.beanName)) {
             LOGGER.debug("Adding bean for bean={} / pid={}", beanName, persistentId);
             synchronized (lock) {
-                beans.add(bean);
+                beans.put(bean, null);
                 inject(bean, true);
             }
         }
@@ -200,41 +201,42 @@ public class CmManagedProperties implements ManagedObject, BeanProcessor {
     private void inject(Object bean, boolean initial) {
         LOGGER.debug("Injecting bean for bean={} / pid={}", beanName, persistentId);
         LOGGER.debug("Configuration: {}", properties);
+        Map<String, Object> current = toMap(properties);
+        Map<String, Object> previous = beans.get(bean);
+        if (beans.containsKey(bean)) {
+            beans.put(bean, current);
+        }
+        if (!initial && previous != null && current != null && sameValues(previous, current)) {
+            LOGGER.debug("Configuration unchanged for bean={} / pid={}", beanName, persistentId);
+            return;
+        }
         if (initial || "container-managed".equals(updateStrategy)) {
-            if (properties != null) {
-                for (Enumeration<String> e = properties.keys(); e.hasMoreElements();) {
-                    String key = e.nextElement();
-                    Object val = properties.get(key);
-                    String setterName = "set" + Character.toUpperCase(key.charAt(0));
-                    if (key.length() > 0) {
-                        setterName += key.substring(1);
+            if (current != null) {
+                for (Map.Entry<String, Object> entry : current.entrySet()) {
+                    String key = entry.getKey();
+                    Object val = entry.getValue();
+                    if (!initial && previous != null && previous.containsKey(key) && sameValue(previous.get(key), val)) {
+                        continue;
                     }
                     Set<Method> validSetters = new LinkedHashSet<Method>();
-                    List<Method> methods = new ArrayList<Method>(Arrays.asList(bean.getClass().getMethods()));
-                    methods.addAll(Arrays.asList(bean.getClass().getDeclaredMethods()));
-                    for (Method method : methods) {
-                        if (method.getName().equals(setterName)) {
-                            if (shouldSkip(method)) {
-                                continue;
-                            }
-                            Class methodParameterType = method.getParameterTypes()[0];
-                            Object propertyValue;
+                    for (Method method : getSetters(bean.getClass(), key)) {
+                        Class methodParameterType = method.getParameterTypes()[0];
+                        Object propertyValue;
+                        try {
+                            propertyValue = blueprintContainer.getConverter().convert(val, new ReifiedType(methodParameterType));
+                        } catch (Throwable t) {
+                            LOGGER.debug("Unable to convert value for setter: " + method, t);
+                            continue;
+                        }
+                        if (methodParameterType.isPrimitive() && propertyValue == null) {
+                            LOGGER.debug("Null can not be assigned to {}: {}", methodParameterType.getName(), method);
+                            continue;
+                        }
+                        if (validSetters.add(method)) {
                             try {
-                                propertyValue = blueprintContainer.getConverter().convert(val, new ReifiedType(methodParameterType));
-                            } catch (Throwable t) {
-                                LOGGER.debug("Unable to convert value for setter: " + method, t);
-                                continue;
-                            }
-                            if (methodParameterType.isPrimitive() && propertyValue == null) {
-                                LOGGER.debug("Null can not be assigned to {}: {}", methodParameterType.getName(), method);
-                                continue;
-                            }
-                            if (validSetters.add(method)) {
-                                try {
-                                    method.invoke(bean, propertyValue);
-                                } catch (Exception t) {
-                                    LOGGER.debug("Setter can not be invoked: " + method, getRealCause(t));
-                                }
+                                method.invoke(bean, propertyValue);
+                            } catch (Exception t) {
+                                LOGGER.debug("Setter can not be invoked: " + method, getRealCause(t));
                             }
                         }
                     }
@@ -245,15 +247,7 @@ public class CmManagedProperties implements ManagedObject, BeanProcessor {
             }
         } else if ("component-managed".equals(updateStrategy) && updateMethod != null) {
             List<Method> methods = ReflectionUtils.findCompatibleMethods(bean.getClass(), updateMethod, new Class[] { Map.class });
-            Map map = null;
-            if (properties != null) {
-                map = new HashMap();
-                for (Enumeration<String> e = properties.keys(); e.hasMoreElements();) {
-                    String key = e.nextElement();
-                    Object val = properties.get(key);
-                    map.put(key, val);
-                }
-            }
+            Map map = current != null ? new HashMap(current) : null;
             for (Method method : methods) {
                 try {
                     method.invoke(bean, map);
@@ -264,6 +258,65 @@ public class CmManagedProperties implements ManagedObject, BeanProcessor {
         }
     }
 
+    /**
+     * Returns the setters which may be used for the given property, looking them up
+     * only once per bean class and property.
+     */
+    private List<Method> getSetters(Class<?> clazz, String key) {
+        Map<String, List<Method>> classSetters = setters.get(clazz);
+        if (classSetters == null) {
+            classSetters = new HashMap<String, List<Method>>();
+            setters.put(clazz, classSetters);
+        }
+        List<Method> result = classSetters.get(key);
+        if (result == null) {
+            String setterName = "set" + Character.toUpperCase(key.charAt(0));
+            if (key.length() > 0) {
+                setterName += key.substring(1);
+            }
+            Set<Method> candidates = new LinkedHashSet<Method>();
+            List<Method> methods = new ArrayList<Method>(Arrays.asList(clazz.getMethods()));
+            methods.addAll(Arrays.asList(clazz.getDeclaredMethods()));
+            for (Method method : methods) {
+                if (method.getName().equals(setterName) && !shouldSkip(method)) {
+                    candidates.add(method);
+                }
+            }
+            result = new ArrayList<Method>(candidates);
+            classSetters.put(key, result);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> toMap(Dictionary<String, Object> props) {
+        if (props == null) {
+            return null;
+        }
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (Enumeration<String> e = props.keys(); e.hasMoreElements();) {
+            String key = e.nextElement();
+            map.put(key, props.get(key));
+        }
+        return map;
+    }
+
+    private static boolean sameValues(Map<String, Object> previous, Map<String, Object> current) {
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            if (!previous.containsKey(entry.getKey()) || !sameValue(previous.get(entry.getKey()), entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameValue(Object previous, Object current) {
+        // configuration values may be arrays, which need to be compared element by element
+        return Arrays.deepEquals(new Object[] { previous }, new Object[] { current });
+    }
+
     private boolean shouldSkip(Method method) {
         String msg = null;
         if (method.getParameterTypes().length == 0) {
@@ -18,9 +18,14 @@
  */
 package org.apache.aries.blueprint.compendium.cm;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import org.apache.aries.blueprint.ext.PropertyPlaceholder;
 import org.apache.aries.blueprint.services.ExtendedBlueprintContainer;
@@ -45,8 +50,10 @@ public class CmPropertyPlaceholder extends PropertyPlaceholder implements Manage
     private String persistentId;
     private String updateStrategy;
     private ManagedObjectManager managedObjectManager;
-    private Dictionary<String,Object> properties;
+    private volatile Dictionary<String,Object> properties;
     private boolean initialized;
+    // the keys looked up so far, only changes to those require a reload
+    private final Set<String> retrievedKeys = Collections.synchronizedSet(new HashSet<String>());
 
     public ExtendedBlueprintContainer getBlueprintContainer() {
         return blueprintContainer;
@@ -105,6 +112,7 @@ public class CmPropertyPlaceholder extends PropertyPlaceholder implements Manage
 
     protected String getProperty(String val) {
         LOGGER.debug("Retrieving property value {} from configuration with pid {}", val, persistentId);
+        retrievedKeys.add(val);
         Object v = null;
         if (properties != null) {
             v = properties.get(val);
@@ -131,6 +139,12 @@ public class CmPropertyPlaceholder extends PropertyPlaceholder implements Manage
             return;
         }
         if ("reload".equalsIgnoreCase(updateStrategy) && !equals(properties, props)) {
+            if (!hasRetrievedKeyChanged(properties, props)) {
+                // the values retrieved so far are unchanged, the other ones will use the new configuration
+                LOGGER.debug("Configuration updated for pid={} without changing the placeholders in use", persistentId);
+                properties = props;
+                return;
+            }
             LOGGER.debug("Configuration updated for pid={}", persistentId);
             // Run in a separate thread to avoid re-entrance
             new Thread() {
@@ -141,6 +155,21 @@ public class CmPropertyPlaceholder extends PropertyPlaceholder implements Manage
         }
     }
 
+    private boolean hasRetrievedKeyChanged(Dictionary<String,Object> d1, Dictionary<String,Object> d2) {
+        List<String> keys;
+        synchronized (retrievedKeys) {
+            keys = new ArrayList<String>(retrievedKeys);
+        }
+        for (String key : keys) {
+            Object v1 = d1 != null ? d1.get(key) : null;
+            Object v2 = d2 != null ? d2.get(key) : null;
+            if (v1 == null ? v2 != null : !v1.equals(v2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private <T,U> boolean equals(Dictionary<T,U> d1, Dictionary<T,U> d2) {
         if (d1 == null || d1.isEmpty()) {
             return d2 == null || d2.isEmpty();
@@ -41,14 +41,21 @@ public class ManagedObjectManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ManagedObjectManager.class);
 
+    /**
+     * Framework or system property giving the number of milliseconds configuration updates
+     * are collected for before being applied, only the last update of the window is applied.
+     */
+    public static final String UPDATE_WINDOW = "org.apache.aries.blueprint.cm.updateWindow";
+
     private HashMap<String, ConfigurationWatcher> map = new HashMap<String, ConfigurationWatcher>();
                
     public synchronized void register(ManagedObject cm, Properties props) {
         String key = cm.getPersistentId();
         ConfigurationWatcher reg = map.get(key);
         if (reg == null) {
-            reg = new ConfigurationWatcher(); 
-            ServiceRegistration registration = cm.getBundle().getBundleContext().registerService(ManagedService.class.getName(), reg, (Dictionary) props);
+            BundleContext context = cm.getBundle().getBundleContext();
+            reg = new ConfigurationWatcher(getUpdateWindow(context));
+            ServiceRegistration registration = context.registerService(ManagedService.class.getName(), reg, (Dictionary) props);
             reg.setRegistration(registration);            
             map.put(key, reg);
         }
@@ -74,20 +81,69 @@ public class ManagedObjectManager {
         }
     }
             
-    private static class ConfigurationWatcher implements ManagedService {
+    private static long getUpdateWindow(BundleContext context) {
+        String val = context.getProperty(UPDATE_WINDOW);
+        if (val != null) {
+            try {
+                return Math.max(0, Long.parseLong(val.trim()));
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Invalid value for " + UPDATE_WINDOW + ": " + val);
+            }
+        }
+        return 0;
+    }
+
+    static class ConfigurationWatcher implements ManagedService {
 
         private ServiceRegistration registration;
         private List<ManagedObject> list = new CopyOnWriteArrayList<ManagedObject>();
+        private final long updateWindow;
+        // the last update not yet applied, updates received while one is being applied are coalesced
+        private Dictionary pending;
+        private boolean hasPending;
+        private boolean updating;
         
-        public ConfigurationWatcher() {
+        public ConfigurationWatcher(long updateWindow) {
+            this.updateWindow = updateWindow;
         }
         
         public void updated(final Dictionary props) throws ConfigurationException {
+            synchronized (this) {
+                pending = props;
+                hasPending = true;
+                if (updating) {
+                    return;
+                }
+                updating = true;
+            }
             // Run in a separate thread to avoid re-entrance
             new Thread() {
                 public void run() {
-                    for (ManagedObject cm : list) {
-                        cm.updated(props);
+                    while (true) {
+                        if (updateWindow > 0) {
+                            try {
+                                Thread.sleep(updateWindow);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        Dictionary props;
+                        synchronized (ConfigurationWatcher.this) {
+                            if (!hasPending) {
+                                updating = false;
+                                return;
+                            }
+                            props = pending;
+                            pending = null;
+                            hasPending = false;
+                        }
+                        for (ManagedObject cm : list) {
+                            try {
+                                cm.updated(props);
+                            } catch (Throwable t) {
+                                LOGGER.warn("Error updating configuration for pid " + cm.getPersistentId(), t);
+                            }
+                        }
                     }
                 }
             }.start();
@@ -101,7 +157,7 @@ public class ManagedObjectManager {
             return registration;
         }
         
-        private void add(ManagedObject cm) {
+        void add(ManagedObject cm) {
             list.add(cm);
         }
         
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.compendium.cm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+public class BaseManagedServiceFactoryTest {
+
+    private RecordingFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new RecordingFactory(createContext());
+    }
+
+    @After
+    public void tearDown() {
+        factory.destroy();
+    }
+
+    @Test
+    public void testUpdatesCoalesced() throws Exception {
+        factory.blockOn("blocker");
+        factory.updated("blocker", config("blocker", 0));
+        assertTrue(factory.blocked.await(5, TimeUnit.SECONDS));
+
+        // the executor is busy, the updates for the same pid replace each other
+        factory.updated("pid", config("pid", 1));
+        factory.updated("pid", config("pid", 2));
+        factory.updated("pid", config("pid", 3));
+        factory.release.countDown();
+
+        awaitEvents(2);
+        assertEquals(Arrays.asList("create blocker 0", "create pid 3"), factory.events());
+    }
+
+    @Test
+    public void testUpdateAfterDeleteNotAppliedFirst() throws Exception {
+        factory.updated("pid", config("pid", 0));
+        awaitEvents(1);
+
+        factory.blockOn("blocker");
+        factory.updated("blocker", config("blocker", 0));
+        assertTrue(factory.blocked.await(5, TimeUnit.SECONDS));
+
+        factory.updated("pid", config("pid", 1));
+        factory.deleted("pid");
+        factory.updated("pid", config("pid", 2));
+        factory.release.countDown();
+
+        // the update queued before the deletion is discarded, the one after it creates a new service
+        awaitEvents(4);
+        assertEquals(Arrays.asList("create pid 0", "create blocker 0", "destroy pid 0", "create pid 2"),
+            factory.events());
+        assertEquals(2, factory.getServices().size());
+    }
+
+    @Test
+    public void testUpdatesOfDifferentPidsNotCoalesced() throws Exception {
+        factory.blockOn("blocker");
+        factory.updated("blocker", config("blocker", 0));
+        assertTrue(factory.blocked.await(5, TimeUnit.SECONDS));
+
+        factory.updated("pid1", config("pid1", 1));
+        factory.updated("pid2", config("pid2", 1));
+        factory.updated("pid1", config("pid1", 2));
+        factory.release.countDown();
+
+        awaitEvents(3);
+        assertEquals(Arrays.asList("create blocker 0", "create pid1 2", "create pid2 1"), factory.events());
+    }
+
+    private void awaitEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (factory.events().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // give the executor the chance to apply unexpected changes
+        Thread.sleep(100);
+    }
+
+    private static Dictionary<String, Object> config(String pid, int version) {
+        Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put("pid", pid);
+        props.put("version", version);
+        return props;
+    }
+
+    private static BundleContext createContext() {
+        return proxy(BundleContext.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("registerService")) {
+                    return createRegistration((Dictionary) args[2]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static ServiceRegistration createRegistration(final Dictionary properties) {
+        final ServiceReference reference = proxy(ServiceReference.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getPropertyKeys")) {
+                    List<String> keys = new ArrayList<String>();
+                    for (Object key : Collections.list(properties.keys())) {
+                        keys.add((String) key);
+                    }
+                    return keys.toArray(new String[keys.size()]);
+                } else if (method.getName().equals("getProperty")) {
+                    return properties.get(args[0]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        return proxy(ServiceRegistration.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getReference")) {
+                    return reference;
+                } else if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(BaseManagedServiceFactoryTest.class.getClassLoader(), new Class[] { type }, handler);
+    }
+
+    private static class RecordingFactory extends BaseManagedServiceFactory<Dictionary> {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        private final List<String> events = new ArrayList<String>();
+        private volatile String blockOn;
+
+        RecordingFactory(BundleContext context) {
+            super(context, "test");
+        }
+
+        void blockOn(String pid) {
+            blockOn = pid;
+        }
+
+        List<String> events() {
+            synchronized (events) {
+                return new ArrayList<String>(events);
+            }
+        }
+
+        private void record(String event, Dictionary properties) {
+            synchronized (events) {
+                events.add(event + " " + properties.get("pid") + " " + properties.get("version"));
+            }
+        }
+
+        protected Dictionary doCreate(Dictionary properties) throws Exception {
+            record("create", properties);
+            if (properties.get("pid").equals(blockOn)) {
+                blocked.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return properties;
+        }
+
+        protected Dictionary doUpdate(Dictionary current, Dictionary properties) throws Exception {
+            record("update", properties);
+            return properties;
+        }
+
+        protected void doDestroy(Dictionary current, Dictionary properties, int code) throws Exception {
+            if (code == CONFIGURATION_ADMIN_OBJECT_DELETED) {
+                record("destroy", current);
+            }
+        }
+
+        protected String[] getExposedClasses(Dictionary t) {
+            return new String[] { Dictionary.class.getName() };
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.compendium.cm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.aries.blueprint.services.ExtendedBlueprintContainer;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.blueprint.container.Converter;
+import org.osgi.service.blueprint.container.ReifiedType;
+
+public class CmManagedPropertiesTest {
+
+    private CmManagedProperties managedProperties;
+
+    @Before
+    public void setUp() {
+        managedProperties = new CmManagedProperties();
+        managedProperties.setBlueprintContainer(createContainer());
+        managedProperties.setBeanName("bean");
+        managedProperties.setPersistentId("pid");
+        managedProperties.setUpdateStrategy("container-managed");
+    }
+
+    @Test
+    public void testOnlyChangedPropertiesInjected() {
+        managedProperties.updated(config("name", "a", "size", "1"));
+        TestBean bean = new TestBean();
+        managedProperties.beforeInit(bean, "bean", null, null);
+        assertEquals(Arrays.asList("name=a", "size=1"), sorted(bean.calls));
+
+        bean.calls.clear();
+        managedProperties.updated(config("name", "b", "size", "1"));
+        assertEquals(Arrays.asList("name=b"), bean.calls);
+
+        bean.calls.clear();
+        managedProperties.updated(config("name", "b", "size", "2", "other", "x"));
+        assertEquals(Arrays.asList("size=2"), bean.calls);
+    }
+
+    @Test
+    public void testUnchangedConfigurationNotInjected() {
+        managedProperties.updated(config("name", "a"));
+        TestBean bean = new TestBean();
+        managedProperties.beforeInit(bean, "bean", null, null);
+
+        bean.calls.clear();
+        managedProperties.updated(config("name", "a"));
+        assertEquals(0, bean.calls.size());
+    }
+
+    @Test
+    public void testArrayValuesCompared() {
+        managedProperties.updated(config("values", new String[] { "a", "b" }));
+        TestBean bean = new TestBean();
+        managedProperties.beforeInit(bean, "bean", null, null);
+        assertEquals(1, bean.calls.size());
+
+        bean.calls.clear();
+        managedProperties.updated(config("values", new String[] { "a", "b" }));
+        assertEquals(0, bean.calls.size());
+
+        managedProperties.updated(config("values", new String[] { "a", "c" }));
+        assertEquals(1, bean.calls.size());
+    }
+
+    @Test
+    public void testComponentManagedOnlyCalledOnChange() {
+        managedProperties.setUpdateStrategy("component-managed");
+        managedProperties.setUpdateMethod("update");
+        managedProperties.updated(config("name", "a"));
+        TestBean bean = new TestBean();
+        managedProperties.beforeInit(bean, "bean", null, null);
+        // the initial injection always goes through the setters
+        assertEquals(Arrays.asList("name=a"), bean.calls);
+
+        bean.calls.clear();
+        managedProperties.updated(config("name", "a"));
+        assertEquals(0, bean.calls.size());
+
+        managedProperties.updated(config("name", "b"));
+        assertEquals(Arrays.asList("update"), bean.calls);
+        assertEquals("b", bean.updated.get("name"));
+    }
+
+    @Test
+    public void testSettersLookedUpOncePerClass() throws Exception {
+        managedProperties.updated(config("name", "a", "hidden", "x"));
+        TestBean first = new TestBean();
+        TestBean second = new TestBean();
+        managedProperties.beforeInit(first, "bean", null, null);
+        managedProperties.beforeInit(second, "bean", null, null);
+        assertEquals(Arrays.asList("name=a"), first.calls);
+        assertEquals(Arrays.asList("name=a"), second.calls);
+        // the non public setter is skipped
+        assertNull(first.hidden);
+
+        Map<Class<?>, Map<String, List<Method>>> setters = getSetters();
+        assertEquals(1, setters.size());
+        Map<String, List<Method>> classSetters = setters.get(TestBean.class);
+        assertEquals(1, classSetters.get("name").size());
+        assertEquals(0, classSetters.get("hidden").size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Class<?>, Map<String, List<Method>>> getSetters() throws Exception {
+        Field field = CmManagedProperties.class.getDeclaredField("setters");
+        field.setAccessible(true);
+        return (Map<Class<?>, Map<String, List<Method>>>) field.get(managedProperties);
+    }
+
+    private static Dictionary<String, Object> config(Object... keyValues) {
+        Dictionary<String, Object> props = new Hashtable<String, Object>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            props.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return props;
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> result = new ArrayList<String>(list);
+        Collections.sort(result);
+        return result;
+    }
+
+    private static ExtendedBlueprintContainer createContainer() {
+        final Converter converter = new Converter() {
+            public boolean canConvert(Object sourceObject, ReifiedType targetType) {
+                return true;
+            }
+
+            public Object convert(Object sourceObject, ReifiedType targetType) throws Exception {
+                if (targetType.getRawClass() == int.class) {
+                    return Integer.valueOf(sourceObject.toString());
+                }
+                return targetType.getRawClass().cast(sourceObject);
+            }
+        };
+        return (ExtendedBlueprintContainer) Proxy.newProxyInstance(CmManagedPropertiesTest.class.getClassLoader(),
+            new Class[] { ExtendedBlueprintContainer.class }, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    if (method.getName().equals("getConverter")) {
+                        return converter;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    public static class TestBean {
+        final List<String> calls = new ArrayList<String>();
+        Map<String, Object> updated;
+        String hidden;
+
+        public void setName(String name) {
+            calls.add("name=" + name);
+        }
+
+        public void setSize(int size) {
+            calls.add("size=" + size);
+        }
+
+        public void setValues(String[] values) {
+            calls.add("values=" + Arrays.toString(values));
+        }
+
+        void setHidden(String hidden) {
+            this.hidden = hidden;
+        }
+
+        public void update(Map<String, Object> properties) {
+            calls.add("update");
+            updated = properties;
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.compendium.cm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.aries.blueprint.compendium.cm.ManagedObjectManager.ConfigurationWatcher;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+public class ManagedObjectManagerTest {
+
+    @Test
+    public void testUpdatesCoalescedWhileApplying() throws Exception {
+        ConfigurationWatcher watcher = new ConfigurationWatcher(0);
+        RecordingManagedObject managed = new RecordingManagedObject(2);
+        watcher.add(managed);
+
+        watcher.updated(config(1));
+        assertTrue(managed.started.await(5, TimeUnit.SECONDS));
+        // the first update is being applied, the next ones wait and only the last is kept
+        watcher.updated(config(2));
+        watcher.updated(config(3));
+        watcher.updated(config(4));
+        managed.release.countDown();
+
+        assertTrue(managed.done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(Arrays.asList(1, 4), managed.versions());
+    }
+
+    @Test
+    public void testUpdatesCoalescedWithinWindow() throws Exception {
+        ConfigurationWatcher watcher = new ConfigurationWatcher(200);
+        RecordingManagedObject managed = new RecordingManagedObject(1);
+        managed.release.countDown();
+        watcher.add(managed);
+
+        watcher.updated(config(1));
+        watcher.updated(config(2));
+        watcher.updated(config(3));
+
+        assertTrue(managed.done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(400);
+        assertEquals(Arrays.asList(3), managed.versions());
+    }
+
+    @Test
+    public void testDeletedConfigurationApplied() throws Exception {
+        ConfigurationWatcher watcher = new ConfigurationWatcher(0);
+        RecordingManagedObject managed = new RecordingManagedObject(2);
+        managed.release.countDown();
+        watcher.add(managed);
+
+        watcher.updated(config(1));
+        assertTrue(managed.started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        watcher.updated(null);
+
+        assertTrue(managed.done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, null), managed.versions());
+    }
+
+    private static Dictionary<String, Object> config(int version) {
+        Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put("version", version);
+        return props;
+    }
+
+    private static class RecordingManagedObject implements ManagedObject {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done;
+        private final List<Integer> versions = new ArrayList<Integer>();
+
+        RecordingManagedObject(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        public Bundle getBundle() {
+            return null;
+        }
+
+        public String getPersistentId() {
+            return "pid";
+        }
+
+        public void updated(Dictionary props) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (versions) {
+                versions.add(props != null ? (Integer) props.get("version") : null);
+            }
+            done.countDown();
+        }
+
+        List<Integer> versions() {
+            synchronized (versions) {
+                return new ArrayList<Integer>(versions);
+            }
+        }
+    }
+
+}
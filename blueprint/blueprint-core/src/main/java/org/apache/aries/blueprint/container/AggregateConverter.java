@@ -39,6 +39,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
@@ -88,8 +90,57 @@ public class AggregateConverter implements Converter {
         }
     }
 
+    /**
+     * The built-in conversion to use when no registered converter applies.
+     */
+    private static enum Fallback {
+        ToNumber, FromString, ToArray, ToMap, ToDictionary, ToCollection, None
+    }
+
+    private static class PlanKey {
+
+        private final Class<?> source;
+        private final ReifiedType type;
+
+        public PlanKey(Class<?> source, ReifiedType type) {
+            this.source = source;
+            this.type = type;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return source == other.source && type.equals(other.type);
+        }
+
+        public int hashCode() {
+            return 31 * source.hashCode() + type.hashCode();
+        }
+    }
+
+    /**
+     * What is known about converting any instance of a given class to a given type.
+     * Registered converters decide on the actual value, so they are not part of the plan.
+     */
+    private static class ConversionPlan {
+
+        public final boolean assignable;
+        public final Fallback fallback;
+
+        public ConversionPlan(boolean assignable, Fallback fallback) {
+            this.assignable = assignable;
+            this.fallback = fallback;
+        }
+    }
+
     private ExtendedBlueprintContainer blueprintContainer;
     private List<Converter> converters = new ArrayList<Converter>();
+    private final ConcurrentMap<PlanKey, ConversionPlan> plans = new ConcurrentHashMap<PlanKey, ConversionPlan>();
 
     public AggregateConverter(ExtendedBlueprintContainer blueprintContainer) {
         this.blueprintContainer = blueprintContainer;
@@ -109,7 +160,7 @@ public class AggregateConverter implements Converter {
         } else if (fromValue instanceof UnwrapperedBeanHolder) {
         	fromValue = ((UnwrapperedBeanHolder) fromValue).unwrapperedBean;
         }
-        if (isAssignable(fromValue, toType)) {
+        if (getPlan(fromValue, toType).assignable) {
             return true;
         }
         
@@ -148,12 +199,12 @@ public class AggregateConverter implements Converter {
             return ((Convertible) fromValue).convert(type);
         } else if (fromValue instanceof UnwrapperedBeanHolder) {
         	UnwrapperedBeanHolder holder = (UnwrapperedBeanHolder) fromValue;
-        	if (isAssignable(holder.unwrapperedBean, type)) {
+        	if (getPlan(holder.unwrapperedBean, type).assignable) {
                 return BeanRecipe.wrap(holder, type.getRawClass());
             } else {
             	fromValue = BeanRecipe.wrap(holder, Object.class);
             }
-        } else if (isAssignable(fromValue, type)) {
+        } else if (getPlan(fromValue, type).assignable) {
         	 // If the object is an instance of the type, just return it
             return fromValue;
         }
@@ -171,25 +222,69 @@ public class AggregateConverter implements Converter {
             }, acc);
         }
         if (result == null) {
-            if (fromValue instanceof Number && Number.class.isAssignableFrom(unwrap(toClass(type)))) {
-                return convertToNumber((Number) fromValue, toClass(type));
-            } else if (fromValue instanceof String) {
-                return convertFromString((String) fromValue, toClass(type), blueprintContainer);
-            } else if (toClass(type).isArray() && (fromValue instanceof Collection || fromValue.getClass().isArray())) {
-                return convertToArray(fromValue, type);
-            } else if (Map.class.isAssignableFrom(toClass(type)) && (fromValue instanceof Map || fromValue instanceof Dictionary)) {
-                return convertToMap(fromValue, type);
-            } else if (Dictionary.class.isAssignableFrom(toClass(type)) && (fromValue instanceof Map || fromValue instanceof Dictionary)) {
-                return convertToDictionary(fromValue, type);
-            } else if (Collection.class.isAssignableFrom(toClass(type)) && (fromValue instanceof Collection || fromValue.getClass().isArray())) {
-                return convertToCollection(fromValue, type);
-            } else {
-                throw new Exception("Unable to convert value " + fromValue + " to type " + type);
+            switch (getPlan(fromValue, type).fallback) {
+                case ToNumber:
+                    return convertToNumber((Number) fromValue, toClass(type));
+                case FromString:
+                    return convertFromString((String) fromValue, toClass(type), blueprintContainer);
+                case ToArray:
+                    return convertToArray(fromValue, type);
+                case ToMap:
+                    return convertToMap(fromValue, type);
+                case ToDictionary:
+                    return convertToDictionary(fromValue, type);
+                case ToCollection:
+                    return convertToCollection(fromValue, type);
+                default:
+                    throw new Exception("Unable to convert value " + fromValue + " to type " + type);
             }
         }
         return result.value;
     }
 
+    /**
+     * Returns the conversion plan for the given value, reusing the one computed for
+     * a previous value of the same class when the target type can be used as a key.
+     */
+    private ConversionPlan getPlan(Object source, ReifiedType type) {
+        // plain ReifiedType instances only have identity equality and class values
+        // are checked against their own generic type, so they are not cached
+        if (source == null || source instanceof Class || !(type instanceof GenericType)) {
+            return createPlan(source, type);
+        }
+        PlanKey key = new PlanKey(source.getClass(), type);
+        ConversionPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = createPlan(source, type);
+            plans.putIfAbsent(key, plan);
+        }
+        return plan;
+    }
+
+    private ConversionPlan createPlan(Object source, ReifiedType type) {
+        if (isAssignable(source, type)) {
+            return new ConversionPlan(true, Fallback.None);
+        }
+        Class toClass = toClass(type);
+        Fallback fallback;
+        if (source instanceof Number && Number.class.isAssignableFrom(unwrap(toClass))) {
+            fallback = Fallback.ToNumber;
+        } else if (source instanceof String) {
+            fallback = Fallback.FromString;
+        } else if (toClass.isArray() && (source instanceof Collection || source.getClass().isArray())) {
+            fallback = Fallback.ToArray;
+        } else if (Map.class.isAssignableFrom(toClass) && (source instanceof Map || source instanceof Dictionary)) {
+            fallback = Fallback.ToMap;
+        } else if (Dictionary.class.isAssignableFrom(toClass) && (source instanceof Map || source instanceof Dictionary)) {
+            fallback = Fallback.ToDictionary;
+        } else if (Collection.class.isAssignableFrom(toClass) && (source instanceof Collection || source.getClass().isArray())) {
+            fallback = Fallback.ToCollection;
+        } else {
+            fallback = Fallback.None;
+        }
+        return new ConversionPlan(false, fallback);
+    }
+
     private Converter selectMatchingConverter(Object source, ReifiedType type) {
         for (Converter converter : converters) {
             if (converter.canConvert(source, type)) {
@@ -32,6 +32,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -136,6 +138,12 @@ public class BeanRecipe extends AbstractRecipe {
     private boolean reorderArguments;
     private final boolean allowsFieldInjection;
     private BeanMetadata interceptorLookupKey;
+
+    // Constructors and lifecycle methods resolved for this bean, so that prototype beans created over and
+    // over again do not have to look them up; property descriptors are indexed per class by ReflectionUtils
+    private final ConcurrentMap<Class<?>, Constructor[]> constructors = new ConcurrentHashMap<Class<?>, Constructor[]>();
+    private final ConcurrentMap<Class<?>, Method> initMethods = new ConcurrentHashMap<Class<?>, Method>();
+    private final ConcurrentMap<Class<?>, Method> destroyMethods = new ConcurrentHashMap<Class<?>, Method>();
     
 
     public BeanRecipe(String name, ExtendedBlueprintContainer blueprintContainer, Object type, boolean allowsFieldInjection) {
@@ -529,14 +537,8 @@ public class BeanRecipe extends AbstractRecipe {
 
     private Map<Constructor, List<Object>> findMatchingConstructors(Class type, List<Object> args, List<ReifiedType> types) {
         Map<Constructor, List<Object>> matches = new HashMap<Constructor, List<Object>>();
-        // Get constructors
-        List<Constructor> constructors = new ArrayList<Constructor>(Arrays.asList(type.getConstructors()));
-        // Discard any signature with wrong cardinality
-        for (Iterator<Constructor> it = constructors.iterator(); it.hasNext();) {
-            if (it.next().getParameterTypes().length != args.size()) {
-                it.remove();
-            }
-        }
+        // Get constructors with the right cardinality
+        List<Constructor> constructors = getConstructors(type, args.size());
         // Find a direct match with assignment
         if (matches.size() != 1) {
             Map<Constructor, List<Object>> nmatches = new HashMap<Constructor, List<Object>>();
@@ -633,6 +635,32 @@ public class BeanRecipe extends AbstractRecipe {
         return matches;
     }
 
+    private List<Constructor> getConstructors(Class type, int nbArgs) {
+        Constructor[] cached = constructors.get(type);
+        if (cached == null) {
+            cached = type.getConstructors();
+            constructors.putIfAbsent(type, cached);
+        }
+        List<Constructor> result = new ArrayList<Constructor>(cached.length);
+        for (Constructor cns : cached) {
+            if (cns.getParameterTypes().length == nbArgs) {
+                result.add(cns);
+            }
+        }
+        return result;
+    }
+
+    private static Method getLifecycleMethod(ConcurrentMap<Class<?>, Method> cache, Class<?> clazz, String name) {
+        Method method = cache.get(clazz);
+        if (method == null) {
+            method = ReflectionUtils.getLifecycleMethod(clazz, name);
+            if (method != null) {
+                cache.putIfAbsent(clazz, method);
+            }
+        }
+        return method;
+    }
+
     /**
      * Returns init method (if any). Throws exception if the init-method was set explicitly on the bean
      * and the method is not found on the instance.
@@ -640,7 +668,7 @@ public class BeanRecipe extends AbstractRecipe {
     protected Method getInitMethod(Object instance) throws ComponentDefinitionException {
         Method method = null;        
         if (initMethod != null && initMethod.length() > 0) {
-            method = ReflectionUtils.getLifecycleMethod(instance.getClass(), initMethod);
+            method = getLifecycleMethod(initMethods, instance.getClass(), initMethod);
             if (method == null) {
                 throw new ComponentDefinitionException("Component '" + getName() + "' does not have init-method: " + initMethod);
             }
@@ -655,7 +683,7 @@ public class BeanRecipe extends AbstractRecipe {
     public Method getDestroyMethod(Object instance) throws ComponentDefinitionException {
         Method method = null;        
         if (instance != null && destroyMethod != null && destroyMethod.length() > 0) {
-            method = ReflectionUtils.getLifecycleMethod(instance.getClass(), destroyMethod);
+            method = getLifecycleMethod(destroyMethods, instance.getClass(), destroyMethod);
             if (method == null) {
                 throw new ComponentDefinitionException("Component '" + getName() + "' does not have destroy-method: " + destroyMethod);
             }
@@ -968,10 +996,9 @@ public class BeanRecipe extends AbstractRecipe {
     }
 
     private ReflectionUtils.PropertyDescriptor getPropertyDescriptor(Class<?> clazz, String name) {
-        for (ReflectionUtils.PropertyDescriptor pd : ReflectionUtils.getPropertyDescriptors(clazz, allowsFieldInjection)) {
-            if (pd.getName().equals(name)) {
-                return pd;
-            }
+        PropertyDescriptor pd = ReflectionUtils.getPropertyDescriptor(clazz, name, allowsFieldInjection);
+        if (pd != null) {
+            return pd;
         }
         throw new ComponentDefinitionException("Unable to find property descriptor " + name + " on class " + clazz.getName());
     }
@@ -152,6 +152,10 @@ public class BlueprintContainerImpl
     private List<Processor> processors;
     private final Object satisfiablesLock = new Object();
     private Map<String, List<SatisfiableRecipe>> satisfiables;
+    // inverted index of satisfiables: satisfiable recipe name -> names of the recipes depending on it
+    private Map<String, List<String>> satisfiableDependents;
+    // satisfiables currently known to be unsatisfied, maintained from the satisfaction notifications
+    private final Set<SatisfiableRecipe> unsatisfied = new HashSet<SatisfiableRecipe>();
     private long timeout = 5 * 60 * 1000;
     private boolean waitForDependencies = true;
     private String xmlValidation;
@@ -616,10 +620,19 @@ public class BlueprintContainerImpl
         synchronized (satisfiablesLock) {
             if ((recompute || satisfiables == null) && repository != null) {
                 satisfiables = new HashMap<String, List<SatisfiableRecipe>>();
+                satisfiableDependents = new HashMap<String, List<String>>();
                 for (Recipe r : repository.getAllRecipes()) {
                     List<SatisfiableRecipe> recipes = repository.getAllRecipes(SatisfiableRecipe.class, r.getName());
                     if (!recipes.isEmpty()) {
                         satisfiables.put(r.getName(), recipes);
+                        for (SatisfiableRecipe recipe : recipes) {
+                            List<String> dependents = satisfiableDependents.get(recipe.getName());
+                            if (dependents == null) {
+                                dependents = new ArrayList<String>();
+                                satisfiableDependents.put(recipe.getName(), dependents);
+                            }
+                            dependents.add(r.getName());
+                        }
                     }
                 }
             }
@@ -627,6 +640,16 @@ public class BlueprintContainerImpl
         }
     }
 
+    private List<String> getSatisfiableDependents(SatisfiableRecipe satisfiable) {
+        synchronized (satisfiablesLock) {
+            if (satisfiableDependents == null) {
+                return Collections.emptyList();
+            }
+            List<String> dependents = satisfiableDependents.get(satisfiable.getName());
+            return dependents != null ? dependents : Collections.<String>emptyList();
+        }
+    }
+
     private void trackServiceReferences() {
         Map<String, List<SatisfiableRecipe>> dependencies = getSatisfiableDependenciesMap();
         Set<String> satisfiables = new HashSet<String>();
@@ -637,8 +660,33 @@ public class BlueprintContainerImpl
                 }
             }
         }
+        // initial state of the satisfiables, notifications will keep it up to date from now on
+        synchronized (satisfiablesLock) {
+            unsatisfied.clear();
+            for (List<SatisfiableRecipe> recipes : dependencies.values()) {
+                for (SatisfiableRecipe satisfiable : recipes) {
+                    if (!satisfiable.isSatisfied()) {
+                        unsatisfied.add(satisfiable);
+                    }
+                }
+            }
+        }
         LOGGER.debug("Tracking service references: {}", satisfiables);
     }
+
+    private void updateSatisfaction(SatisfiableRecipe satisfiable) {
+        synchronized (satisfiablesLock) {
+            if (satisfiableDependents == null || !satisfiableDependents.containsKey(satisfiable.getName())) {
+                return;
+            }
+            // the state is read while holding the lock, so that the last notification always wins
+            if (satisfiable.isSatisfied()) {
+                unsatisfied.remove(satisfiable);
+            } else {
+                unsatisfied.add(satisfiable);
+            }
+        }
+    }
     
     private void untrackServiceReferences() {
         Map<String, List<SatisfiableRecipe>> dependencies = getSatisfiableDependenciesMap();
@@ -653,6 +701,8 @@ public class BlueprintContainerImpl
 
         synchronized (satisfiablesLock) {
             satisfiables = null;
+            satisfiableDependents = null;
+            unsatisfied.clear();
         }
     }
 
@@ -676,16 +726,18 @@ public class BlueprintContainerImpl
         }
         LOGGER.debug("Notified satisfaction {} in bundle {}/{}: {}",
                 satisfiable.getName(), bundle.getSymbolicName(), getBundle().getVersion(), satisfiable.isSatisfied());
+        updateSatisfaction(satisfiable);
         if (state == State.Create || state == State.Created ) {
+            // only the services depending on this satisfiable can be affected
             Map<String, List<SatisfiableRecipe>> dependencies = getSatisfiableDependenciesMap();
-            for (Map.Entry<String, List<SatisfiableRecipe>> entry : dependencies.entrySet()) {
-                String name = entry.getKey();
+            for (String name : getSatisfiableDependents(satisfiable)) {
                 ComponentMetadata metadata = componentDefinitionRegistry.getComponentDefinition(name);
-                if (metadata instanceof ServiceMetadata) {
+                List<SatisfiableRecipe> recipes = dependencies.get(name);
+                if (metadata instanceof ServiceMetadata && recipes != null) {
                     ServiceRecipe reg = (ServiceRecipe) repository.getRecipe(name);
                     synchronized (reg) {
                         boolean satisfied = true;
-                        for (SatisfiableRecipe recipe : entry.getValue()) {
+                        for (SatisfiableRecipe recipe : recipes) {
                             if (!recipe.isSatisfied()) {
                                 satisfied = false;
                                 break;
@@ -768,14 +820,9 @@ public class BlueprintContainerImpl
 
     private String[] getMissingDependencies() {
         List<String> missing = new ArrayList<String>();
-        Map<String, List<SatisfiableRecipe>> dependencies = getSatisfiableDependenciesMap();
-        Set<SatisfiableRecipe> recipes = new HashSet<SatisfiableRecipe>();
-        for (List<SatisfiableRecipe> deps : dependencies.values()) {
-            for (SatisfiableRecipe recipe : deps) {
-                if (!recipe.isSatisfied()) {
-                    recipes.add(recipe);
-                }
-            }
+        List<SatisfiableRecipe> recipes;
+        synchronized (satisfiablesLock) {
+            recipes = new ArrayList<SatisfiableRecipe>(unsatisfied);
         }
         for (SatisfiableRecipe recipe : recipes) {
             missing.add(recipe.getOsgiFilter());
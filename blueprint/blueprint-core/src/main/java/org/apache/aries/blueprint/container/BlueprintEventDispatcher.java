@@ -19,10 +19,15 @@
 package org.apache.aries.blueprint.container;
 
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -33,8 +38,10 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -49,6 +56,7 @@ import org.osgi.util.tracker.ServiceTrackerCustomizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.aries.blueprint.services.BlueprintEventDispatchMetrics;
 import org.apache.aries.blueprint.utils.JavaUtils;
 import org.apache.aries.blueprint.utils.threading.ScheduledExecutorServiceWrapper;
 import org.apache.aries.blueprint.utils.threading.ScheduledExecutorServiceWrapper.ScheduledExecutorServiceFactory;
@@ -57,16 +65,32 @@ import org.apache.aries.blueprint.utils.threading.ScheduledExecutorServiceWrappe
  * The delivery of {@link BlueprintEvent}s is complicated.  The blueprint extender and its containers use this class to
  * deliver {@link BlueprintEvent}s.
  *
+ * By default, each event is delivered to each listener in turn, waiting for the listener to return.  When the
+ * <code>org.apache.aries.blueprint.event.queueSize</code> framework property is set, events are instead put in a
+ * bounded queue per listener and delivered in batches by threads of the dispatcher, at most one per listener, so
+ * that a slow listener does not hold back the others.  Events are always delivered to a given listener in the order
+ * they have been sent, and a listener which does not return within 60 seconds is removed.  In queued mode the thread
+ * delivering to a timed out listener is interrupted and left to it: a listener ignoring the interrupt keeps that
+ * thread until it returns, but neither the other listeners nor the extender depend on it.
+ *
  * @version $Rev$, $Date$
  */
-class BlueprintEventDispatcher implements BlueprintListener {
+class BlueprintEventDispatcher implements BlueprintListener, BlueprintEventDispatchMetrics {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BlueprintEventDispatcher.class);
 
+    static final String QUEUE_SIZE_PROPERTY = "org.apache.aries.blueprint.event.queueSize";
+
+    private static final long LISTENER_TIMEOUT = 60000L;
+
     private final Set<BlueprintListener> listeners = new CopyOnWriteArraySet<BlueprintListener>();
     private final Map<Bundle, BlueprintEvent> states = new ConcurrentHashMap<Bundle, BlueprintEvent>();
-    private final ExecutorService executor;
+    private final Map<BlueprintListener, ListenerQueue> queues = new ConcurrentHashMap<BlueprintListener, ListenerQueue>();
+    private final DispatchStatistics statistics = new DispatchStatistics();
+    private final int queueSize;
+    private final ScheduledExecutorService executor;
     private final ExecutorService sharedExecutor;
+    private final ExecutorService listenerExecutor;
     private final EventAdminListener eventAdminListener;
     private final ServiceTracker containerListenerTracker;
 
@@ -86,6 +110,10 @@ class BlueprintEventDispatcher implements BlueprintListener {
 //        executor = Executors.newSingleThreadExecutor(new BlueprintThreadFactory("Blueprint Event Dispatcher"));
         
         this.sharedExecutor = sharedExecutor;
+        this.queueSize = getQueueSize(bundleContext);
+        // threads are created as needed, so a listener hanging in spite of the timeout only holds its own
+        this.listenerExecutor = queueSize > 0
+                ? Executors.newCachedThreadPool(new BlueprintThreadFactory("Blueprint Event Listener")) : null;
 
         EventAdminListener listener = null;
         try {
@@ -102,6 +130,9 @@ class BlueprintEventDispatcher implements BlueprintListener {
                 BlueprintListener listener = (BlueprintListener) bundleContext.getService(reference);
 
                 synchronized (listeners) {
+                    if (queueSize > 0) {
+                        queues.put(listener, createQueue(listener));
+                    }
                     sendInitialEvents(listener);
                     listeners.add(listener);
                 }
@@ -114,12 +145,42 @@ class BlueprintEventDispatcher implements BlueprintListener {
 
             public void removedService(ServiceReference reference, Object service) {
                 listeners.remove(service);
+                queues.remove(service);
                 bundleContext.ungetService(reference);
             }
         });
         this.containerListenerTracker.open();
     }
 
+    private static int getQueueSize(BundleContext bundleContext) {
+        String value = bundleContext.getProperty(QUEUE_SIZE_PROPERTY);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid value for " + QUEUE_SIZE_PROPERTY + ": " + value + ", events will be delivered synchronously");
+            return 0;
+        }
+    }
+
+    private ListenerQueue createQueue(final BlueprintListener listener) {
+        // the dispatcher thread is not used to call the listeners in this mode, only to time them out
+        return new ListenerQueue(listener, listenerExecutor, queueSize, statistics, executor, LISTENER_TIMEOUT) {
+            @Override
+            protected void listenerFailed(Exception e) {
+                if (e instanceof TimeoutException) {
+                    LOGGER.warn("Listener timed out, will be ignored", e);
+                } else {
+                    LOGGER.warn("Listener caused an exception, will be ignored", e);
+                }
+                listeners.remove(listener);
+                queues.remove(listener);
+            }
+        };
+    }
+
     private void sendInitialEvents(BlueprintListener listener) {
         for (Map.Entry<Bundle, BlueprintEvent> entry : states.entrySet()) {
             try {
@@ -195,13 +256,20 @@ class BlueprintEventDispatcher implements BlueprintListener {
     }
 
     private void callListener(final BlueprintListener listener, final BlueprintEvent event) throws RejectedExecutionException {
+        if (queueSize > 0) {
+            ListenerQueue queue = queues.get(listener);
+            if (queue != null) {
+                queue.add(event);
+            }
+            return;
+        }
         try {
             executor.invokeAny(Collections.<Callable<Void>>singleton(new Callable<Void>() {
                 public Void call() throws Exception {
                     listener.blueprintEvent(event);
                     return null;
                 }
-            }), 60L, TimeUnit.SECONDS);
+            }), LISTENER_TIMEOUT, TimeUnit.MILLISECONDS);
         } catch (InterruptedException ie) {
             LOGGER.warn("Thread interrupted", ie);
             Thread.currentThread().interrupt();
@@ -222,6 +290,9 @@ class BlueprintEventDispatcher implements BlueprintListener {
         } catch (InterruptedException e) {
             // ignore
         }
+        if (listenerExecutor != null) {
+            listenerExecutor.shutdown();
+        }
         containerListenerTracker.close();
         // clean up the EventAdmin tracker if we're using that
         if (eventAdminListener != null) {
@@ -233,6 +304,281 @@ class BlueprintEventDispatcher implements BlueprintListener {
         states.remove(bundle);
     }
 
+    public int getBacklog() {
+        int backlog = 0;
+        for (ListenerQueue queue : queues.values()) {
+            backlog += queue.size();
+        }
+        return backlog;
+    }
+
+    public long getDeliveredEvents() {
+        return statistics.getDeliveredEvents();
+    }
+
+    public long getCoalescedEvents() {
+        return statistics.getCoalescedEvents();
+    }
+
+    public long getDroppedEvents() {
+        return statistics.getDroppedEvents();
+    }
+
+    public long getTimedOutEvents() {
+        return statistics.getTimedOutEvents();
+    }
+
+    public long getAverageLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(statistics.getAverageLatency());
+    }
+
+    public long getMaxLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(statistics.getMaxLatency());
+    }
+
+    /**
+     * Counters about the events delivered through the listener queues.
+     */
+    static class DispatchStatistics {
+
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong totalLatency = new AtomicLong();
+        private final AtomicLong maxLatency = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong timedOut = new AtomicLong();
+
+        void delivered(long latency) {
+            delivered.incrementAndGet();
+            totalLatency.addAndGet(latency);
+            long max = maxLatency.get();
+            while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+                max = maxLatency.get();
+            }
+        }
+
+        void coalesced() {
+            coalesced.incrementAndGet();
+        }
+
+        void dropped() {
+            dropped.incrementAndGet();
+        }
+
+        void timedOut() {
+            timedOut.incrementAndGet();
+        }
+
+        long getDeliveredEvents() {
+            return delivered.get();
+        }
+
+        long getCoalescedEvents() {
+            return coalesced.get();
+        }
+
+        long getDroppedEvents() {
+            return dropped.get();
+        }
+
+        long getTimedOutEvents() {
+            return timedOut.get();
+        }
+
+        /**
+         * Average time in nanoseconds between the queuing of an event and its delivery.
+         */
+        long getAverageLatency() {
+            long count = delivered.get();
+            return count > 0 ? totalLatency.get() / count : 0;
+        }
+
+        /**
+         * Longest time in nanoseconds between the queuing of an event and its delivery.
+         */
+        long getMaxLatency() {
+            return maxLatency.get();
+        }
+
+    }
+
+    /**
+     * Bounded queue of the events to deliver to a single listener.
+     * At most one task draining the queue is submitted to the executor at a time, which keeps the events in order.
+     * When the queue is full, an older event for the same bundle is replaced as only the latest state of a bundle
+     * really matters, else the oldest superseded event of another bundle, and as a last resort the oldest event.
+     * A listener call which does not return within the timeout is interrupted and reported as a failure, a listener
+     * ignoring the interrupt keeps the thread calling it until it returns.
+     */
+    static class ListenerQueue implements Runnable {
+
+        private final BlueprintListener listener;
+        private final ExecutorService executor;
+        private final int capacity;
+        private final DispatchStatistics statistics;
+        private final ScheduledExecutorService timer;
+        private final long timeout;
+        private final LinkedList<QueuedEvent> events = new LinkedList<QueuedEvent>();
+        private boolean scheduled;
+        // the event being delivered and whether its delivery timed out
+        private QueuedEvent delivering;
+        private boolean timedOut;
+
+        ListenerQueue(BlueprintListener listener, ExecutorService executor, int capacity, DispatchStatistics statistics,
+                      ScheduledExecutorService timer, long timeout) {
+            this.listener = listener;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.statistics = statistics;
+            this.timer = timer;
+            this.timeout = timeout;
+        }
+
+        public synchronized void add(BlueprintEvent event) throws RejectedExecutionException {
+            if (events.size() >= capacity) {
+                if (coalesce(event.getBundle())) {
+                    statistics.coalesced();
+                } else {
+                    events.removeFirst();
+                    statistics.dropped();
+                    LOGGER.warn("Event queue full for listener {}, dropping oldest event", listener);
+                }
+            }
+            events.addLast(new QueuedEvent(event));
+            if (!scheduled) {
+                executor.execute(this);
+                scheduled = true;
+            }
+        }
+
+        public synchronized int size() {
+            return events.size();
+        }
+
+        private boolean coalesce(Bundle bundle) {
+            for (Iterator<QueuedEvent> it = events.iterator(); it.hasNext();) {
+                if (it.next().event.getBundle() == bundle) {
+                    it.remove();
+                    return true;
+                }
+            }
+            // Look for the oldest event which has been superseded by a more recent one for the same bundle
+            Map<Bundle, Integer> counts = new HashMap<Bundle, Integer>();
+            for (QueuedEvent queued : events) {
+                Integer count = counts.get(queued.event.getBundle());
+                counts.put(queued.event.getBundle(), count == null ? 1 : count + 1);
+            }
+            for (Iterator<QueuedEvent> it = events.iterator(); it.hasNext();) {
+                if (counts.get(it.next().event.getBundle()) > 1) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void run() {
+            List<QueuedEvent> batch;
+            synchronized (this) {
+                batch = new ArrayList<QueuedEvent>(events);
+                events.clear();
+            }
+            for (QueuedEvent queued : batch) {
+                Exception failure = null;
+                ScheduledFuture<?> guard = startGuard(queued);
+                try {
+                    listener.blueprintEvent(queued.event);
+                } catch (Exception e) {
+                    failure = e;
+                } finally {
+                    if (guard != null) {
+                        guard.cancel(false);
+                    }
+                }
+                synchronized (this) {
+                    delivering = null;
+                    if (timedOut) {
+                        // the timeout has already been reported, clear the interrupt which was meant for the listener
+                        Thread.interrupted();
+                        events.clear();
+                        scheduled = false;
+                        return;
+                    }
+                    if (failure != null) {
+                        events.clear();
+                        scheduled = false;
+                    }
+                }
+                if (failure != null) {
+                    listenerFailed(failure);
+                    return;
+                }
+                statistics.delivered(System.nanoTime() - queued.time);
+            }
+            synchronized (this) {
+                if (events.isEmpty()) {
+                    scheduled = false;
+                } else {
+                    try {
+                        executor.execute(this);
+                    } catch (RejectedExecutionException ree) {
+                        LOGGER.warn("Executor shut down", ree);
+                        scheduled = false;
+                    }
+                }
+            }
+        }
+
+        private ScheduledFuture<?> startGuard(final QueuedEvent queued) {
+            final Thread thread = Thread.currentThread();
+            synchronized (this) {
+                delivering = queued;
+                timedOut = false;
+            }
+            try {
+                return timer.schedule(new Runnable() {
+                    public void run() {
+                        synchronized (ListenerQueue.this) {
+                            // only interrupt the thread while it is still delivering this event
+                            if (delivering != queued) {
+                                return;
+                            }
+                            timedOut = true;
+                            events.clear();
+                            statistics.timedOut();
+                        }
+                        // report the timeout before the listener gets a chance to return
+                        listenerFailed(new TimeoutException("Listener did not return within " + timeout + " ms"));
+                        synchronized (ListenerQueue.this) {
+                            if (delivering == queued) {
+                                thread.interrupt();
+                            }
+                        }
+                    }
+                }, timeout, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ree) {
+                // the dispatcher is being shut down, deliver without a timeout
+                return null;
+            }
+        }
+
+        protected void listenerFailed(Exception e) {
+            LOGGER.warn("Listener caused an exception", e);
+        }
+
+    }
+
+    private static class QueuedEvent {
+
+        private final BlueprintEvent event;
+        private final long time = System.nanoTime();
+
+        QueuedEvent(BlueprintEvent event) {
+            this.event = event;
+        }
+
+    }
+
     private static class EventAdminListener implements BlueprintListener {
 
         private final ServiceTracker tracker;
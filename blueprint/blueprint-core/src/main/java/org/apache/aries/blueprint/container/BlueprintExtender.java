@@ -34,6 +34,7 @@ import java.util.concurrent.*;
 import org.apache.aries.blueprint.BlueprintConstants;
 import org.apache.aries.blueprint.annotation.service.BlueprintAnnotationScanner;
 import org.apache.aries.blueprint.namespace.NamespaceHandlerRegistryImpl;
+import org.apache.aries.blueprint.services.BlueprintEventDispatchMetrics;
 import org.apache.aries.blueprint.services.BlueprintExtenderService;
 import org.apache.aries.blueprint.services.ParserService;
 import org.apache.aries.blueprint.utils.HeaderParser;
@@ -81,6 +82,7 @@ public class BlueprintExtender implements BundleActivator, BundleTrackerCustomiz
     private ServiceRegistration parserServiceReg;
     private ServiceRegistration blueprintServiceReg;
     private ServiceRegistration quiesceParticipantReg;
+    private ServiceRegistration eventDispatchMetricsReg;
     private SingleServiceTracker<ProxyManager> proxyManager;
     private ExecutorServiceFinder executorServiceFinder;
     private volatile boolean stopping;
@@ -149,6 +151,12 @@ public class BlueprintExtender implements BundleActivator, BundleTrackerCustomiz
                 new BlueprintContainerServiceImpl(),
                 new Hashtable<String, Object>());
 
+        // Publish the blueprint event delivery metrics
+        eventDispatchMetricsReg = ctx.registerService(
+                BlueprintEventDispatchMetrics.class.getName(),
+                eventDispatcher,
+                new Hashtable<String, Object>());
+
         try{
             ctx.getBundle().loadClass(QUIESCE_PARTICIPANT_CLASS);
             //Class was loaded, register
@@ -173,6 +181,7 @@ public class BlueprintExtender implements BundleActivator, BundleTrackerCustomiz
         AriesFrameworkUtil.safeUnregisterService(parserServiceReg);
         AriesFrameworkUtil.safeUnregisterService(blueprintServiceReg);
         AriesFrameworkUtil.safeUnregisterService(quiesceParticipantReg);
+        AriesFrameworkUtil.safeUnregisterService(eventDispatchMetricsReg);
 
         // Orderly shutdown of containers
         while (!containers.isEmpty()) {
@@ -212,6 +212,17 @@ public class GenericType extends ReifiedType {
         }
     }
 
+    public int hashCode() {
+        int result = getRawClass().hashCode();
+        result = 31 * result + boundType.hashCode();
+        if (parameters != null) {
+            for (GenericType parameter : parameters) {
+                result = 31 * result + parameter.hashCode();
+            }
+        }
+        return result;
+    }
+
     static ReifiedType bound(ReifiedType type) {
         if (type instanceof GenericType
                 && ((GenericType) type).boundType != BoundType.Exact) {
@@ -27,6 +27,7 @@ import org.apache.aries.blueprint.ExtendedReferenceListMetadata;
 import org.apache.aries.blueprint.di.Recipe;
 import org.apache.aries.blueprint.di.CollectionRecipe;
 import org.apache.aries.blueprint.utils.DynamicCollection;
+import org.apache.aries.blueprint.utils.SnapshotCollection;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
@@ -47,9 +48,16 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceListRecipe.class);
 
+    /**
+     * Framework property to make reference lists iterate over a snapshot of the services instead of
+     * seeing the changes while iterating, so that iterations never block on service events.
+     */
+    public static final String SNAPSHOT_PROPERTY = "org.apache.aries.blueprint.referenceList.snapshot";
+
     private final ReferenceListMetadata metadata;
     private final List<ManagedCollection> collections = new ArrayList<ManagedCollection>();
-    private final DynamicCollection<ServiceDispatcher> storage = new DynamicCollection<ServiceDispatcher>();
+    private final boolean snapshot;
+    private final DynamicCollection<ServiceDispatcher> storage;
     private final List<ServiceDispatcher> unboundDispatchers = new ArrayList<ServiceDispatcher>();
     private final Object monitor = new Object();
 
@@ -61,6 +69,9 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
                          List<Recipe> explicitDependencies) {
         super(name, blueprintContainer, metadata, filterRecipe, listenersRecipe, explicitDependencies);
         this.metadata = metadata;
+        BundleContext ctx = blueprintContainer.getBundleContext();
+        this.snapshot = ctx != null && Boolean.parseBoolean(ctx.getProperty(SNAPSHOT_PROPERTY));
+        this.storage = snapshot ? new SnapshotCollection<ServiceDispatcher>() : new DynamicCollection<ServiceDispatcher>();
     }
 
     @Override
@@ -124,14 +135,19 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
                             interfaces.addAll(loadAllClasses(ifs));
                         }
                     }
-                    dispatcher.proxy = createProxy(dispatcher, interfaces);
+                    if (snapshot) {
+                        // the proxy is only created when the service object is first needed
+                        dispatcher.interfaces = interfaces;
+                    } else {
+                        dispatcher.proxy = createProxy(dispatcher, interfaces);
+                    }
                     if (!storage.add(dispatcher)) {
                         dispatcher.destroy();
                         return;
                     }
                 }
                 if (listeners != null) {
-                    bind(dispatcher.reference, dispatcher.proxy);                   
+                    bind(dispatcher.reference, dispatcher.getProxy());
                 } else {
                     unboundDispatchers.add(dispatcher);
                 }
@@ -145,7 +161,7 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
         synchronized (monitor) {
             ServiceDispatcher dispatcher = findDispatcher(reference);
             if (dispatcher != null) {
-                unbind(dispatcher.reference, dispatcher.proxy);
+                unbind(dispatcher.reference, dispatcher.getProxy());
                 storage.remove(dispatcher);
                 dispatcher.destroy();
             }
@@ -180,18 +196,44 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
 
         public ServiceReference reference;
         public Object service;
-        public Object proxy;
+        public volatile Object proxy;
+        private Set<Class<?>> interfaces;
+        private boolean destroyed;
         
         public ServiceDispatcher(ServiceReference reference) throws Exception {
             this.reference = reference;
         }
 
+        public Object getProxy() {
+            Object p = proxy;
+            if (p == null) {
+                synchronized (this) {
+                    if (proxy == null && interfaces != null) {
+                        try {
+                            proxy = createProxy(this, interfaces);
+                        } catch (ComponentDefinitionException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            throw new ComponentDefinitionException("Unable to create proxy for service reference " + reference, e);
+                        }
+                    }
+                    p = proxy;
+                }
+            }
+            return p;
+        }
+
         public synchronized void destroy() {
-            if (reference != null) {
+            if (!destroyed) {
+                destroyed = true;
                 ServiceReference ref = reference;
-                reference = null;
                 service = null;
-                proxy = null;
+                if (!snapshot) {
+                    reference = null;
+                    proxy = null;
+                }
+                // in snapshot mode, iterators may still hand out this dispatcher, so the reference
+                // and proxy are kept: the proxy will report the service as unavailable
                 Bundle bundle = ref.getBundle();
                 if (bundle != null) {
                     BundleContext ctx = getBundleContextForServiceLookup();
@@ -207,7 +249,7 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
         }
 
         public synchronized Object call() throws Exception {
-            if (service == null && reference != null) {
+            if (service == null && !destroyed) {
                 service = getServiceSecurely(reference);
             }
             if (service == null) {
@@ -317,7 +359,7 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
         }
 
         public Object get(int index) {
-            return references ? dispatchers.get(index).reference : dispatchers.get(index).proxy;
+            return references ? dispatchers.get(index).reference : dispatchers.get(index).getProxy();
         }
 
         public int indexOf(Object o) {
@@ -387,7 +429,7 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
             }
 
             public Object next() {
-                return references ? iterator.next().reference : iterator.next().proxy;
+                return references ? iterator.next().reference : iterator.next().getProxy();
             }
 
             public boolean hasPrevious() {
@@ -395,7 +437,7 @@ public class ReferenceListRecipe extends AbstractServiceReferenceRecipe {
             }
 
             public Object previous() {
-                return references ? iterator.previous().reference : iterator.previous().proxy;
+                return references ? iterator.previous().reference : iterator.previous().getProxy();
             }
 
             public int nextIndex() {
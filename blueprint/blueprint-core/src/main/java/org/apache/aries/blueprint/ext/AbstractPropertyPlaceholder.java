@@ -19,9 +19,11 @@
 package org.apache.aries.blueprint.ext;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.aries.blueprint.ComponentDefinitionRegistry;
@@ -72,6 +74,10 @@ public abstract class AbstractPropertyPlaceholder implements ComponentDefinition
     private String placeholderPrefix = "${";
     private String placeholderSuffix = "}";
     private Pattern pattern;
+    // parsed templates, keyed by the processed string
+    private final Map<String, Template> templates = new ConcurrentHashMap<String, Template>();
+    // values retrieved for each placeholder key, including the ones which could not be resolved
+    private final Map<String, String> values = new HashMap<String, String>();
 
     private LinkedList<String> processingStack = new LinkedList<String>();
 
@@ -83,6 +89,7 @@ public abstract class AbstractPropertyPlaceholder implements ComponentDefinition
 
     public void setPlaceholderPrefix(String placeholderPrefix) {
         this.placeholderPrefix = placeholderPrefix;
+        templates.clear();
     }
 
     public String getPlaceholderSuffix() {
@@ -91,6 +98,7 @@ public abstract class AbstractPropertyPlaceholder implements ComponentDefinition
 
     public void setPlaceholderSuffix(String placeholderSuffix) {
         this.placeholderSuffix = placeholderSuffix;
+        templates.clear();
     }
 
     public void process(ComponentDefinitionRegistry registry) throws ComponentDefinitionException {
@@ -432,21 +440,112 @@ public abstract class AbstractPropertyPlaceholder implements ComponentDefinition
     
     protected String processString(String str) {
         // TODO: we need to handle escapes on the prefix / suffix
-        Matcher matcher = getPattern().matcher(str);
-        while (matcher.find()) {
-            String n = matcher.group(1);
-            int idx = n.indexOf(placeholderPrefix);
-            if (idx >= 0) {
-                matcher.region(matcher.start(1) + idx, str.length());
+        Template template = templates.get(str);
+        if (template == null) {
+            template = parse(str);
+            templates.put(str, template);
+        }
+        return evaluate(template);
+    }
+
+    /**
+     * Forget the values retrieved so far, so that they are retrieved again the next
+     * time a placeholder using them is processed.
+     */
+    protected void clearRetrievedValues() {
+        synchronized (values) {
+            values.clear();
+        }
+    }
+
+    private String retrieveCachedValue(String key) {
+        synchronized (values) {
+            if (values.containsKey(key)) {
+                return values.get(key);
+            }
+        }
+        String value = retrieveValue(key);
+        synchronized (values) {
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    private String evaluate(Template template) {
+        if (template.text != null) {
+            return template.text;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Object part : template.parts) {
+            if (part instanceof String) {
+                sb.append((String) part);
                 continue;
             }
-            String rep = retrieveValue(matcher.group(1));
+            String key = evaluate((Template) part);
+            // a key still containing a placeholder could not be resolved
+            String rep = key.contains(placeholderPrefix) ? null : retrieveCachedValue(key);
             if (rep != null) {
-                str = str.replace(matcher.group(0), rep);
-                matcher.reset(str);
+                sb.append(processString(rep));
+            } else {
+                sb.append(placeholderPrefix).append(key).append(placeholderSuffix);
+            }
+        }
+        return sb.toString();
+    }
+
+    private Template parse(String str) {
+        List<Object> parts = new ArrayList<Object>();
+        parse(str, 0, false, parts);
+        return new Template(parts);
+    }
+
+    /*
+     * Splits the string into literal text and placeholders, the key of a placeholder being
+     * itself a template so that nested placeholders are resolved first. Returns the index
+     * following the suffix of a nested placeholder, or -1 if there is no suffix.
+     */
+    private int parse(String str, int from, boolean nested, List<Object> parts) {
+        StringBuilder literal = new StringBuilder();
+        int i = from;
+        while (i < str.length()) {
+            // the key of a placeholder is never empty
+            if (nested && i > from && str.startsWith(placeholderSuffix, i)) {
+                addLiteral(parts, literal);
+                return i + placeholderSuffix.length();
+            }
+            if (str.startsWith(placeholderPrefix, i)) {
+                List<Object> key = new ArrayList<Object>();
+                int next = parse(str, i + placeholderPrefix.length(), true, key);
+                if (next >= 0) {
+                    addLiteral(parts, literal);
+                    parts.add(new Template(key));
+                    i = next;
+                } else {
+                    // not terminated, so the prefix is plain text and the rest has been parsed
+                    literal.append(placeholderPrefix);
+                    for (Object part : key) {
+                        if (part instanceof String) {
+                            literal.append((String) part);
+                        } else {
+                            addLiteral(parts, literal);
+                            parts.add(part);
+                        }
+                    }
+                    i = str.length();
+                }
+            } else {
+                literal.append(str.charAt(i++));
             }
         }
-        return str;
+        addLiteral(parts, literal);
+        return nested ? -1 : i;
+    }
+
+    private static void addLiteral(List<Object> parts, StringBuilder literal) {
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+            literal.setLength(0);
+        }
     }
 
     protected String getProperty(String val) {
@@ -486,4 +585,25 @@ public abstract class AbstractPropertyPlaceholder implements ComponentDefinition
             return metadata.getType();
         }
     }
+
+    /**
+     * A string parsed into literal text and placeholders.
+     */
+    private static class Template {
+
+        private final Object[] parts;
+        // the string itself when it contains no placeholder
+        private final String text;
+
+        Template(List<Object> parts) {
+            this.parts = parts.toArray();
+            if (parts.isEmpty()) {
+                text = "";
+            } else if (parts.size() == 1 && parts.get(0) instanceof String) {
+                text = (String) parts.get(0);
+            } else {
+                text = null;
+            }
+        }
+    }
 }
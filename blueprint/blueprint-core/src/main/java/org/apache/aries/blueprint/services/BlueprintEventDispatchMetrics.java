@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aries.blueprint.services;
+
+/**
+ * Metrics about the delivery of blueprint events to the BlueprintListener services, registered
+ * as a service by the blueprint extender.  The counters are only updated when events are queued
+ * per listener, i.e. when the <code>org.apache.aries.blueprint.event.queueSize</code> framework
+ * property is set.
+ */
+public interface BlueprintEventDispatchMetrics {
+
+    /**
+     * @return the number of events waiting to be delivered to the listeners
+     */
+    int getBacklog();
+
+    /**
+     * @return the number of events delivered to the listeners
+     */
+    long getDeliveredEvents();
+
+    /**
+     * @return the number of events replaced by a more recent event for the same bundle because a queue was full
+     */
+    long getCoalescedEvents();
+
+    /**
+     * @return the number of events dropped because a queue was full
+     */
+    long getDroppedEvents();
+
+    /**
+     * @return the number of listener calls which did not return in time, the listener being removed
+     */
+    long getTimedOutEvents();
+
+    /**
+     * @return the average time in milliseconds between the queuing of an event and its delivery
+     */
+    long getAverageLatency();
+
+    /**
+     * @return the longest time in milliseconds between the queuing of an event and its delivery
+     */
+    long getMaxLatency();
+
+}
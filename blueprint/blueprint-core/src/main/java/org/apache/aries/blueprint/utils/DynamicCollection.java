@@ -42,8 +42,15 @@ public class DynamicCollection<E> extends AbstractCollection<E> {
     protected final List<WeakReference<DynamicIterator>> iterators;
 
     public DynamicCollection() {
-        this.storage = new ArrayList<E>();
-        this.iterators = new ArrayList<WeakReference<DynamicIterator>>();
+        this(new ArrayList<E>(), new ArrayList<WeakReference<DynamicIterator>>());
+    }
+
+    /**
+     * Constructor for subclasses which keep their elements and iterators differently.
+     */
+    protected DynamicCollection(List<E> storage, List<WeakReference<DynamicIterator>> iterators) {
+        this.storage = storage;
+        this.iterators = iterators;
     }
 
     public DynamicIterator iterator() {
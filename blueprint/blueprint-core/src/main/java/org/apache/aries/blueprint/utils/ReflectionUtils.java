@@ -57,6 +57,9 @@ public class ReflectionUtils {
 
     private static Map<Class<?>, WeakReference<Method[]>> publicMethods = Collections.synchronizedMap(new WeakHashMap<Class<?>, WeakReference<Method[]>>());
     private static Map<Class<?>, PropertyDescriptor[][]> beanInfos = Collections.synchronizedMap(new WeakHashMap<Class<?>, PropertyDescriptor[][]>());
+    // property descriptors indexed by name, with and without field injection
+    private static Map<Class<?>, Map<String, PropertyDescriptor>> namedProperties = Collections.synchronizedMap(new WeakHashMap<Class<?>, Map<String, PropertyDescriptor>>());
+    private static Map<Class<?>, Map<String, PropertyDescriptor>> namedMethodProperties = Collections.synchronizedMap(new WeakHashMap<Class<?>, Map<String, PropertyDescriptor>>());
 
     public static boolean hasDefaultConstructor(Class type) {
         if (!Modifier.isPublic(type.getModifiers())) {
@@ -281,6 +284,24 @@ public class ReflectionUtils {
         return properties[index];
     }
 
+    /**
+     * Returns the property descriptor with the given name, or null if the class does not have such a property.
+     * The descriptors are indexed by name once per class, so that beans of the same class created over and
+     * over again, for instance prototypes, do not scan them.
+     */
+    public static PropertyDescriptor getPropertyDescriptor(Class clazz, String name, boolean allowFieldInjection) {
+        Map<Class<?>, Map<String, PropertyDescriptor>> cache = allowFieldInjection ? namedProperties : namedMethodProperties;
+        Map<String, PropertyDescriptor> properties = cache.get(clazz);
+        if (properties == null) {
+            properties = new HashMap<String, PropertyDescriptor>();
+            for (PropertyDescriptor pd : getPropertyDescriptors(clazz, allowFieldInjection)) {
+                properties.put(pd.getName(), pd);
+            }
+            cache.put(clazz, properties);
+        }
+        return properties.get(name);
+    }
+
     private static String decapitalize(String name) {
         if (name == null || name.length() == 0) {
             return name;
@@ -437,6 +458,7 @@ public class ReflectionUtils {
         // used as values in a WeakHashMap with the class corresponding to the field as the key
         private final String fieldName;
         private final WeakReference<Class<?>> declaringClass;
+        private volatile WeakReference<Field> field;
         
         public FieldPropertyDescriptor(String name, Field field) {
             super(name);
@@ -453,9 +475,16 @@ public class ReflectionUtils {
         }
         
         private Field getField(ExtendedBlueprintContainer container) throws ClassNotFoundException, NoSuchFieldException {
-            if (declaringClass.get() == null) throw new ClassNotFoundException("Declaring class was garbage collected");
-            
-            return declaringClass.get().getDeclaredField(fieldName);
+            WeakReference<Field> ref = field;
+            Field result = ref != null ? ref.get() : null;
+            if (result == null) {
+                Class<?> clazz = declaringClass.get();
+                if (clazz == null) throw new ClassNotFoundException("Declaring class was garbage collected");
+
+                result = clazz.getDeclaredField(fieldName);
+                field = new WeakReference<Field>(result);
+            }
+            return result;
         }
 
         protected Object internalGet(final ExtendedBlueprintContainer container, final Object instance) throws Exception {
@@ -545,6 +574,9 @@ public class ReflectionUtils {
         private final String methodName;
         private final WeakReference<Class<?>> declaringClass;
         private final List<WeakReference<Class<?>>> argClasses;
+        // the resolved method is only weakly cached so that the class can still be unloaded,
+        // but repeated injections do not need to look it up again
+        private volatile WeakReference<Method> method;
         
         public MethodDescriptor(Method method) {
             methodName = method.getName();
@@ -558,6 +590,16 @@ public class ReflectionUtils {
         }
         
         public Method getMethod(ExtendedBlueprintContainer container) throws ClassNotFoundException, NoSuchMethodException {
+            WeakReference<Method> ref = method;
+            Method result = ref != null ? ref.get() : null;
+            if (result == null) {
+                result = lookupMethod();
+                method = new WeakReference<Method>(result);
+            }
+            return result;
+        }
+
+        private Method lookupMethod() throws ClassNotFoundException, NoSuchMethodException {
             Class<?>[] argumentClasses = new Class<?>[argClasses.size()];
             for (int i=0; i<argClasses.size(); i++) {
                 argumentClasses[i] = argClasses.get(i).get();
@@ -692,7 +734,10 @@ public class ReflectionUtils {
         }
         
         private Collection<Method> getSetters(ExtendedBlueprintContainer container) throws Exception {
-            Collection<Method> result = new ArrayList<Method>();
+            if (setters.size() == 1) {
+                return Collections.singletonList(setters.iterator().next().getMethod(container));
+            }
+            Collection<Method> result = new ArrayList<Method>(setters.size());
             for (MethodDescriptor md : setters) result.add(md.getMethod(container));
             
             return result;
@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+/**
+ * Copy-on-write variant of the {@link DynamicCollection}.
+ * Modifications are serialized and copy the underlying array, but reads never lock:
+ * each iterator works on the snapshot of the elements taken when it was created,
+ * so it does not see additions or removals happening while iterating.
+ *
+ * @version $Rev$, $Date$
+ */
+public class SnapshotCollection<E> extends DynamicCollection<E> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private volatile Object[] elements = EMPTY;
+
+    public SnapshotCollection() {
+        // the elements are kept in the array and the iterators are not tracked
+        super(Collections.<E>emptyList(), Collections.<WeakReference<DynamicCollection<E>.DynamicIterator>>emptyList());
+    }
+
+    @Override
+    public DynamicIterator iterator(int index) {
+        return new SnapshotIterator(elements, index);
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        return indexOf(elements, o) >= 0;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] snapshot = elements;
+        return Arrays.copyOf(snapshot, snapshot.length);
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return Arrays.asList(elements).toArray(a);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        Object[] snapshot = elements;
+        for (Object o : c) {
+            if (indexOf(snapshot, o) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean add(E o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        synchronized (lock) {
+            Object[] snapshot = elements;
+            Object[] newElements = Arrays.copyOf(snapshot, snapshot.length + 1);
+            newElements[snapshot.length] = o;
+            elements = newElements;
+            return true;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        synchronized (lock) {
+            int index = indexOf(elements, o);
+            return index >= 0 && remove(index) != null;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) elements[index];
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            elements = EMPTY;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        synchronized (lock) {
+            Object[] snapshot = elements;
+            Object o = snapshot[index];
+            Object[] newElements = new Object[snapshot.length - 1];
+            System.arraycopy(snapshot, 0, newElements, 0, index);
+            System.arraycopy(snapshot, index + 1, newElements, index, snapshot.length - index - 1);
+            elements = newElements;
+            return (E) o;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E first() {
+        Object[] snapshot = elements;
+        if (snapshot.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return (E) snapshot[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E last() {
+        Object[] snapshot = elements;
+        if (snapshot.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return (E) snapshot[snapshot.length - 1];
+    }
+
+    private static int indexOf(Object[] snapshot, Object o) {
+        for (int i = 0; i < snapshot.length; i++) {
+            if (o.equals(snapshot[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public class SnapshotIterator extends DynamicIterator {
+
+        private final Object[] snapshot;
+
+        public SnapshotIterator(Object[] snapshot, int index) {
+            super(index);
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        protected void removedIndex(int index) {
+        }
+
+        @Override
+        protected void addedIndex(int index) {
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < snapshot.length;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return index > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (index >= snapshot.length) {
+                throw new NoSuchElementException();
+            }
+            last = (E) snapshot[index++];
+            return last;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            if (index <= 0) {
+                throw new NoSuchElementException();
+            }
+            last = (E) snapshot[--index];
+            return last;
+        }
+
+        @Override
+        public int nextIndex() {
+            return index;
+        }
+
+        @Override
+        public int previousIndex() {
+            return index - 1;
+        }
+
+    }
+
+}
@@ -272,7 +272,34 @@ public class AggregateConverterTest extends TestCase {
         obj = service.convert(org, GenericType.parse("java.util.Dictionary<java.lang.String,java.lang.Integer>", getClass().getClassLoader()));
         assertSame(org, obj);;
     }
-    
+
+    public void testRepeatedConversions() throws Exception {
+        ClassLoader loader = getClass().getClassLoader();
+        for (int i = 0; i < 3; i++) {
+            // equal types parsed again each time share the same conversion plans
+            Object obj = service.convert(Arrays.asList("1", "2"), GenericType.parse("java.util.List<java.lang.Integer>", loader));
+            assertEquals(Arrays.asList(1, 2), obj);
+            obj = service.convert(Collections.singletonMap("foo", "1"), GenericType.parse("java.util.Map<java.lang.String,java.lang.Long>", loader));
+            assertEquals(Collections.singletonMap("foo", 1l), obj);
+        }
+        assertEquals(GenericType.parse("java.util.List<java.lang.Integer>", loader).hashCode(),
+                     GenericType.parse("java.util.List<java.lang.Integer>", loader).hashCode());
+
+        // registered converters are still asked for each value
+        service.registerConverter(new Converter() {
+            public boolean canConvert(Object sourceObject, ReifiedType targetType) {
+                return "one".equals(sourceObject);
+            }
+            public Object convert(Object sourceObject, ReifiedType targetType) throws Exception {
+                return 1;
+            }
+        });
+        GenericType type = new GenericType(Integer.class);
+        assertEquals(1, service.convert("one", type));
+        assertEquals(2, service.convert("2", type));
+        assertEquals(1, service.convert("one", type));
+    }
+
     private interface Region {} 
     
     private interface EuRegion extends Region {}
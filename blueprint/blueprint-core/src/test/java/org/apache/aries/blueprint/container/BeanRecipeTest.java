@@ -27,6 +27,7 @@ import java.util.Set;
 
 import org.apache.aries.blueprint.di.ExecutionContext;
 import org.apache.aries.blueprint.di.PassThroughRecipe;
+import org.apache.aries.blueprint.utils.ReflectionUtils;
 import org.junit.Test;
 import org.osgi.service.blueprint.container.ComponentDefinitionException;
 
@@ -298,6 +299,44 @@ public class BeanRecipeTest {
     }
 
 
+    @Test
+    public void prototypeCreation() throws Exception {
+        BlueprintContainerImpl container = new BlueprintContainerImpl(null, null, null, null, null, null, null, null, null, null);
+        BeanRecipe recipe = new BeanRecipe("c", container, C.class, false);
+        recipe.setProperty("a", "x");
+        recipe.setProperty("b", "y");
+        recipe.setInitMethod("init");
+        recipe.setDestroyMethod("init");
+        ExecutionContext.Holder.setContext(new BlueprintRepository(container));
+
+        // the same recipe is used several times, reusing the reflection data it resolved the first time
+        Set<Object> instances = new HashSet<Object>();
+        for (int i = 0; i < 3; i++) {
+            C c = (C) ((BeanRecipe.UnwrapperedBeanHolder) recipe.create()).unwrapperedBean;
+            assertEquals("x", c.getA());
+            assertEquals("y", c.getB());
+            assertEquals("c", c.getC());
+            assertNotNull(recipe.getDestroyMethod(c));
+            instances.add(c);
+        }
+        assertEquals(3, instances.size());
+
+        // another recipe for the same class gets the descriptors already resolved for the class
+        BeanRecipe other = new BeanRecipe("d", container, C.class, false);
+        other.setProperty("a", "z");
+        C c = (C) ((BeanRecipe.UnwrapperedBeanHolder) other.create()).unwrapperedBean;
+        assertEquals("z", c.getA());
+        assertSame(getPropertyDescriptor(recipe, "a"), getPropertyDescriptor(other, "a"));
+        assertSame(ReflectionUtils.getPropertyDescriptor(C.class, "a", false), getPropertyDescriptor(other, "a"));
+    }
+
+    private Object getPropertyDescriptor(BeanRecipe recipe, String name) throws Exception {
+        Method m = BeanRecipe.class.getDeclaredMethod("getPropertyDescriptor", Class.class, String.class);
+        m.setAccessible(true);
+        return m.invoke(recipe, C.class, name);
+    }
+
+
     private Set<Method> applyStaticHidingRules(Collection<Method> methods) {
 		try {
 			Method m = BeanRecipe.class.getDeclaredMethod("applyStaticHidingRules", Collection.class);
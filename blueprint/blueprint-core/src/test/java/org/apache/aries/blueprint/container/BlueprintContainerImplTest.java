@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.aries.blueprint.di.Recipe;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+public class BlueprintContainerImplTest {
+
+    private static final int REFERENCES = 5000;
+
+    private BlueprintContainerImpl container;
+    private TestReferenceRecipe[] references;
+
+    @Before
+    public void setUp() throws Exception {
+        Bundle bundle = EasyMock.createNiceMock(Bundle.class);
+        ExecutorService executor = EasyMock.createNiceMock(ExecutorService.class);
+        EasyMock.replay(bundle, executor);
+        container = new BlueprintContainerImpl(bundle, null, null, null, null, executor, null, null, null, null);
+
+        // every bean depends on two references, every reference is used by two beans
+        BlueprintRepository repository = new BlueprintRepository(container);
+        references = new TestReferenceRecipe[REFERENCES];
+        for (int i = 0; i < REFERENCES; i++) {
+            references[i] = new TestReferenceRecipe("ref" + i, i % 2 == 0);
+            repository.putRecipe(references[i].getName(), references[i]);
+        }
+        for (int i = 0; i < REFERENCES; i++) {
+            TestBeanRecipe bean = new TestBeanRecipe("bean" + i, references[i], references[(i + 1) % REFERENCES]);
+            repository.putRecipe(bean.getName(), bean);
+        }
+        Field field = BlueprintContainerImpl.class.getDeclaredField("repository");
+        field.setAccessible(true);
+        field.set(container, repository);
+
+        invoke("trackServiceReferences");
+    }
+
+    @Test
+    public void testMissingDependencies() throws Exception {
+        Set<String> expected = new HashSet<String>();
+        for (TestReferenceRecipe reference : references) {
+            assertTrue(reference.started);
+            if (!reference.satisfied) {
+                expected.add(reference.getOsgiFilter());
+            }
+        }
+        assertEquals(REFERENCES / 2, expected.size());
+        assertEquals(expected, getMissingDependencies());
+    }
+
+    @Test
+    public void testSatisfactionUpdates() throws Exception {
+        resetCalls();
+        for (TestReferenceRecipe reference : references) {
+            if (!reference.satisfied) {
+                reference.satisfied = true;
+                container.notifySatisfaction(reference);
+            }
+        }
+        assertEquals(Collections.<String>emptySet(), getMissingDependencies());
+
+        TestReferenceRecipe reference = references[REFERENCES / 3];
+        reference.satisfied = false;
+        container.notifySatisfaction(reference);
+        assertEquals(Collections.singleton(reference.getOsgiFilter()), getMissingDependencies());
+
+        reference.satisfied = true;
+        container.notifySatisfaction(reference);
+        assertEquals(Collections.<String>emptySet(), getMissingDependencies());
+
+        // a notification only reads the state of the notifying reference (once more for logging)
+        for (TestReferenceRecipe r : references) {
+            assertTrue(r.getName() + " read " + r.calls + " times", r.calls <= (r == reference ? 6 : 2));
+        }
+    }
+
+    @Test
+    public void testUnknownSatisfiableIsIgnored() throws Exception {
+        TestReferenceRecipe unknown = new TestReferenceRecipe("unknown", false);
+        container.notifySatisfaction(unknown);
+        assertEquals(REFERENCES / 2, getMissingDependencies().size());
+    }
+
+    private void resetCalls() {
+        for (TestReferenceRecipe reference : references) {
+            reference.calls = 0;
+        }
+    }
+
+    private Set<String> getMissingDependencies() throws Exception {
+        return new HashSet<String>(Arrays.asList((String[]) invoke("getMissingDependencies")));
+    }
+
+    private Object invoke(String name) throws Exception {
+        Method m = BlueprintContainerImpl.class.getDeclaredMethod(name);
+        m.setAccessible(true);
+        return m.invoke(container);
+    }
+
+    private static class TestReferenceRecipe implements SatisfiableRecipe {
+        private final String name;
+        private volatile boolean satisfied;
+        private boolean started;
+        private int calls;
+
+        TestReferenceRecipe(String name, boolean satisfied) {
+            this.name = name;
+            this.satisfied = satisfied;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Recipe> getConstructorDependencies() {
+            return Collections.emptyList();
+        }
+
+        public List<Recipe> getDependencies() {
+            return Collections.emptyList();
+        }
+
+        public Object create() {
+            return null;
+        }
+
+        public void destroy(Object instance) {
+        }
+
+        public void start(SatisfactionListener listener) {
+            started = true;
+        }
+
+        public void stop() {
+            started = false;
+        }
+
+        public boolean isSatisfied() {
+            calls++;
+            return satisfied;
+        }
+
+        public String getOsgiFilter() {
+            return "(service.id=" + name + ")";
+        }
+    }
+
+    private static class TestBeanRecipe implements Recipe {
+        private final String name;
+        private final List<Recipe> dependencies;
+
+        TestBeanRecipe(String name, Recipe... dependencies) {
+            this.name = name;
+            this.dependencies = Arrays.asList(dependencies);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Recipe> getConstructorDependencies() {
+            return dependencies;
+        }
+
+        public List<Recipe> getDependencies() {
+            return dependencies;
+        }
+
+        public Object create() {
+            return null;
+        }
+
+        public void destroy(Object instance) {
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.container;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.aries.blueprint.container.BlueprintEventDispatcher.DispatchStatistics;
+import org.apache.aries.blueprint.container.BlueprintEventDispatcher.ListenerQueue;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+
+import static org.junit.Assert.*;
+
+public class BlueprintEventDispatcherTest {
+
+    private Bundle extender;
+    private Bundle bundle1;
+    private Bundle bundle2;
+    private ManualExecutor executor;
+    private ScheduledExecutorService timer;
+    private DispatchStatistics statistics;
+    private List<BlueprintEvent> received;
+    private BlueprintListener listener;
+
+    @Before
+    public void setUp() {
+        extender = EasyMock.createNiceMock(Bundle.class);
+        bundle1 = EasyMock.createNiceMock(Bundle.class);
+        bundle2 = EasyMock.createNiceMock(Bundle.class);
+        EasyMock.replay(extender, bundle1, bundle2);
+        executor = new ManualExecutor();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        statistics = new DispatchStatistics();
+        received = new ArrayList<BlueprintEvent>();
+        listener = new BlueprintListener() {
+            public void blueprintEvent(BlueprintEvent event) {
+                received.add(event);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void eventsAreDeliveredInBatchesAndInOrder() throws Exception {
+        ListenerQueue queue = new ListenerQueue(listener, executor, 10, statistics, timer, 60000);
+        BlueprintEvent e1 = new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender);
+        BlueprintEvent e2 = new BlueprintEvent(BlueprintEvent.CREATING, bundle2, extender);
+        BlueprintEvent e3 = new BlueprintEvent(BlueprintEvent.CREATED, bundle1, extender);
+        queue.add(e1);
+        queue.add(e2);
+        queue.add(e3);
+
+        // only one drain task is submitted for the whole batch
+        assertEquals(1, executor.tasks.size());
+        assertEquals(3, queue.size());
+        executor.runAll();
+
+        assertEquals(0, queue.size());
+        assertEquals(3, received.size());
+        assertSame(e1, received.get(0));
+        assertSame(e2, received.get(1));
+        assertSame(e3, received.get(2));
+        assertEquals(3, statistics.getDeliveredEvents());
+        assertTrue(statistics.getMaxLatency() >= statistics.getAverageLatency());
+
+        queue.add(e1);
+        assertEquals(1, executor.tasks.size());
+    }
+
+    @Test
+    public void fullQueueKeepsLatestStatePerBundle() throws Exception {
+        ListenerQueue queue = new ListenerQueue(listener, executor, 2, statistics, timer, 60000);
+        BlueprintEvent e1 = new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender);
+        BlueprintEvent e2 = new BlueprintEvent(BlueprintEvent.CREATING, bundle2, extender);
+        BlueprintEvent e3 = new BlueprintEvent(BlueprintEvent.CREATED, bundle1, extender);
+        BlueprintEvent e4 = new BlueprintEvent(BlueprintEvent.CREATED, bundle2, extender);
+        queue.add(e1);
+        queue.add(e2);
+        queue.add(e3);
+        queue.add(e4);
+        assertEquals(2, queue.size());
+        executor.runAll();
+
+        assertEquals(2, received.size());
+        assertSame(e3, received.get(0));
+        assertSame(e4, received.get(1));
+        assertEquals(2, statistics.getCoalescedEvents());
+        assertEquals(0, statistics.getDroppedEvents());
+    }
+
+    @Test
+    public void fullQueueDropsOldestEvent() throws Exception {
+        Bundle bundle3 = EasyMock.createNiceMock(Bundle.class);
+        EasyMock.replay(bundle3);
+        ListenerQueue queue = new ListenerQueue(listener, executor, 2, statistics, timer, 60000);
+        BlueprintEvent e1 = new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender);
+        BlueprintEvent e2 = new BlueprintEvent(BlueprintEvent.CREATING, bundle2, extender);
+        BlueprintEvent e3 = new BlueprintEvent(BlueprintEvent.CREATING, bundle3, extender);
+        queue.add(e1);
+        queue.add(e2);
+        queue.add(e3);
+        executor.runAll();
+
+        assertEquals(2, received.size());
+        assertSame(e2, received.get(0));
+        assertSame(e3, received.get(1));
+        assertEquals(1, statistics.getDroppedEvents());
+    }
+
+    @Test
+    public void failingListenerIsReported() throws Exception {
+        final List<Exception> failures = new ArrayList<Exception>();
+        BlueprintListener failing = new BlueprintListener() {
+            public void blueprintEvent(BlueprintEvent event) {
+                throw new IllegalStateException();
+            }
+        };
+        ListenerQueue queue = new ListenerQueue(failing, executor, 10, statistics, timer, 60000) {
+            @Override
+            protected void listenerFailed(Exception e) {
+                failures.add(e);
+            }
+        };
+        queue.add(new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender));
+        queue.add(new BlueprintEvent(BlueprintEvent.CREATED, bundle1, extender));
+        executor.runAll();
+
+        assertEquals(1, failures.size());
+        assertEquals(0, queue.size());
+        assertEquals(0, statistics.getDeliveredEvents());
+    }
+
+    @Test
+    public void fullQueueRemovesOldestSupersededEvent() throws Exception {
+        Bundle bundle3 = EasyMock.createNiceMock(Bundle.class);
+        EasyMock.replay(bundle3);
+        ListenerQueue queue = new ListenerQueue(listener, executor, 3, statistics, timer, 60000);
+        BlueprintEvent e1 = new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender);
+        BlueprintEvent e2 = new BlueprintEvent(BlueprintEvent.CREATING, bundle2, extender);
+        BlueprintEvent e3 = new BlueprintEvent(BlueprintEvent.CREATED, bundle1, extender);
+        BlueprintEvent e4 = new BlueprintEvent(BlueprintEvent.CREATING, bundle3, extender);
+        queue.add(e1);
+        queue.add(e2);
+        queue.add(e3);
+        queue.add(e4);
+        executor.runAll();
+
+        assertEquals(3, received.size());
+        assertSame(e2, received.get(0));
+        assertSame(e3, received.get(1));
+        assertSame(e4, received.get(2));
+        assertEquals(1, statistics.getCoalescedEvents());
+        assertEquals(0, statistics.getDroppedEvents());
+    }
+
+    @Test
+    public void hungListenerTimesOut() throws Exception {
+        final List<Exception> failures = new ArrayList<Exception>();
+        final CountDownLatch release = new CountDownLatch(1);
+        BlueprintListener hung = new BlueprintListener() {
+            public void blueprintEvent(BlueprintEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // interrupted by the timeout
+                }
+            }
+        };
+        ListenerQueue queue = new ListenerQueue(hung, executor, 10, statistics, timer, 100) {
+            @Override
+            protected void listenerFailed(Exception e) {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            }
+        };
+        queue.add(new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender));
+        queue.add(new BlueprintEvent(BlueprintEvent.CREATED, bundle1, extender));
+
+        // the thread draining the queue is given back once the listener timed out
+        Thread drain = new Thread() {
+            public void run() {
+                executor.runAll();
+            }
+        };
+        drain.start();
+        drain.join(10000);
+        assertFalse(drain.isAlive());
+
+        synchronized (failures) {
+            assertEquals(1, failures.size());
+            assertTrue(failures.get(0) instanceof TimeoutException);
+        }
+        assertEquals(1, statistics.getTimedOutEvents());
+        assertEquals(0, statistics.getDeliveredEvents());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void listenerIgnoringInterruptOnlyHoldsItsThread() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(2);
+        BlueprintListener hung = new BlueprintListener() {
+            public void blueprintEvent(BlueprintEvent event) {
+                while (true) {
+                    try {
+                        release.await();
+                        return;
+                    } catch (InterruptedException e) {
+                        // ignored
+                    }
+                }
+            }
+        };
+        BlueprintListener other = new BlueprintListener() {
+            public void blueprintEvent(BlueprintEvent event) {
+                delivered.countDown();
+            }
+        };
+        // the listeners are called from a pool creating threads as needed, as the dispatcher does
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            ListenerQueue hungQueue = new ListenerQueue(hung, pool, 10, statistics, timer, 100);
+            ListenerQueue otherQueue = new ListenerQueue(other, pool, 10, statistics, timer, 100);
+            hungQueue.add(new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender));
+            otherQueue.add(new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender));
+            Thread.sleep(300);
+            assertEquals(1, statistics.getTimedOutEvents());
+
+            // the hung listener still holds its thread, the other listener keeps receiving events
+            otherQueue.add(new BlueprintEvent(BlueprintEvent.CREATED, bundle1, extender));
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void timeoutOnlyAppliesToSlowListeners() throws Exception {
+        ListenerQueue queue = new ListenerQueue(listener, executor, 10, statistics, timer, 100);
+        for (int i = 0; i < 5; i++) {
+            queue.add(new BlueprintEvent(BlueprintEvent.CREATING, bundle1, extender));
+            executor.runAll();
+        }
+        Thread.sleep(300);
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(5, received.size());
+        assertEquals(0, statistics.getTimedOutEvents());
+    }
+
+    private static class ManualExecutor extends AbstractExecutorService {
+
+        private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.removeFirst().run();
+            }
+        }
+
+        public void shutdown() {
+        }
+
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<Runnable>(tasks);
+        }
+
+        public boolean isShutdown() {
+            return false;
+        }
+
+        public boolean isTerminated() {
+            return false;
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.container;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.aries.blueprint.reflect.ReferenceListMetadataImpl;
+import org.apache.aries.blueprint.services.ExtendedBlueprintContainer;
+import org.apache.aries.proxy.ProxyManager;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.blueprint.container.ServiceUnavailableException;
+import org.osgi.service.blueprint.reflect.ReferenceListMetadata;
+import org.osgi.service.blueprint.reflect.ReferenceMetadata;
+
+public class ReferenceListRecipeTest {
+
+    private final AtomicInteger proxies = new AtomicInteger();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private BundleContext context;
+    private ServiceReference ref1;
+    private ServiceReference ref2;
+    private ReferenceListRecipe recipe;
+
+    @Before
+    public void setUp() throws Exception {
+        Bundle bundle = EasyMock.createNiceMock(Bundle.class);
+        ref1 = createReference(bundle);
+        ref2 = createReference(bundle);
+
+        context = EasyMock.createNiceMock(BundleContext.class);
+        EasyMock.expect(context.getBundle()).andStubReturn(bundle);
+        EasyMock.expect(context.getProperty(ReferenceListRecipe.SNAPSHOT_PROPERTY)).andStubReturn("true");
+        EasyMock.expect(context.getServiceReferences((String) EasyMock.isNull(), EasyMock.<String>anyObject()))
+            .andStubReturn(new ServiceReference[] { ref1 });
+        EasyMock.expect(context.getService(ref1)).andStubReturn(new CountingRunnable());
+        EasyMock.expect(context.getService(ref2)).andStubReturn(new CountingRunnable());
+        // each service is released once, when it goes away
+        EasyMock.expect(context.ungetService(ref1)).andReturn(true).once();
+        EasyMock.expect(context.ungetService(ref2)).andReturn(true).once();
+        context.addServiceListener(EasyMock.<ServiceListener>anyObject(), EasyMock.<String>anyObject());
+        EasyMock.expectLastCall().asStub();
+
+        ProxyManager proxyManager = EasyMock.createNiceMock(ProxyManager.class);
+        EasyMock.expect(proxyManager.createDelegatingProxy(EasyMock.<Bundle>anyObject(),
+            EasyMock.<Collection<Class<?>>>anyObject(), EasyMock.<Callable<Object>>anyObject(), EasyMock.anyObject()))
+            .andStubAnswer(new IAnswer<Object>() {
+                @SuppressWarnings("unchecked")
+                public Object answer() throws Throwable {
+                    proxies.incrementAndGet();
+                    final Callable<Object> dispatcher = (Callable<Object>) EasyMock.getCurrentArguments()[2];
+                    return new Runnable() {
+                        public void run() {
+                            try {
+                                ((Runnable) dispatcher.call()).run();
+                            } catch (RuntimeException e) {
+                                throw e;
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    };
+                }
+            });
+
+        ExtendedBlueprintContainer container = EasyMock.createNiceMock(ExtendedBlueprintContainer.class);
+        EasyMock.expect(container.getBundleContext()).andStubReturn(context);
+        EasyMock.expect(container.getProxyManager()).andStubReturn(proxyManager);
+        EasyMock.replay(bundle, context, proxyManager, container);
+
+        ReferenceListMetadataImpl metadata = new ReferenceListMetadataImpl();
+        metadata.setId("list");
+        metadata.setInterface(Runnable.class.getName());
+        metadata.setRuntimeInterface(Runnable.class);
+        metadata.setAvailability(ReferenceMetadata.AVAILABILITY_OPTIONAL);
+        metadata.setMemberType(ReferenceListMetadata.USE_SERVICE_OBJECT);
+        recipe = new ReferenceListRecipe("list", container, metadata, null, null, null);
+        recipe.start(new SatisfiableRecipe.SatisfactionListener() {
+            public void notifySatisfaction(SatisfiableRecipe satisfiable) {
+            }
+        });
+    }
+
+    @Test
+    public void testProxiesCreatedLazily() throws Exception {
+        Collection<?> list = recipe.getManagedCollection(false);
+        assertEquals(1, list.size());
+        assertEquals(0, proxies.get());
+
+        Runnable service = (Runnable) list.iterator().next();
+        assertSame(service, list.iterator().next());
+        assertEquals(1, proxies.get());
+        service.run();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testIterationOverSnapshot() throws Exception {
+        Collection<?> list = recipe.getManagedCollection(false);
+        Iterator<?> it = list.iterator();
+
+        recipe.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, ref2));
+        recipe.serviceChanged(new ServiceEvent(ServiceEvent.UNREGISTERING, ref1));
+
+        // the iterator still hands out the services present when it was created
+        assertTrue(it.hasNext());
+        Runnable removed = (Runnable) it.next();
+        assertFalse(it.hasNext());
+        try {
+            removed.run();
+            fail("The service has been unregistered");
+        } catch (ServiceUnavailableException e) {
+            // expected
+        }
+
+        // a new iteration sees the current services
+        it = list.iterator();
+        ((Runnable) it.next()).run();
+        assertFalse(it.hasNext());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testStopReleasesServices() throws Exception {
+        Collection<?> list = recipe.getManagedCollection(false);
+        recipe.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, ref2));
+        Iterator<?> it = list.iterator();
+        for (Object service : list) {
+            ((Runnable) service).run();
+        }
+        assertEquals(2, calls.get());
+
+        recipe.stop();
+        assertEquals(0, list.size());
+        EasyMock.verify(context);
+
+        // the services of an iteration started before stopping are released as well
+        while (it.hasNext()) {
+            try {
+                ((Runnable) it.next()).run();
+                fail("The service has been released");
+            } catch (ServiceUnavailableException e) {
+                // expected
+            }
+        }
+        assertEquals(2, calls.get());
+    }
+
+    private static ServiceReference createReference(Bundle bundle) {
+        ServiceReference reference = EasyMock.createNiceMock(ServiceReference.class);
+        EasyMock.expect(reference.getBundle()).andStubReturn(bundle);
+        EasyMock.replay(reference);
+        return reference;
+    }
+
+    private class CountingRunnable implements Runnable {
+        public void run() {
+            calls.incrementAndGet();
+        }
+    }
+
+}
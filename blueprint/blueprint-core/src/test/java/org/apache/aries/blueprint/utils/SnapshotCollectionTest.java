@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.blueprint.utils;
+
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class SnapshotCollectionTest extends TestCase {
+
+    protected static final Object O0 = new Object();
+    protected static final Object O1 = new Object();
+    protected static final Object O2 = new Object();
+
+    protected SnapshotCollection<Object> collection;
+
+    protected void setUp() {
+        collection = new SnapshotCollection<Object>();
+    }
+
+    public void testAddRemove() throws Exception {
+        assertEquals(0, collection.size());
+        assertTrue(collection.isEmpty());
+        collection.add(O0);
+        assertEquals(1, collection.size());
+        assertTrue(collection.contains(O0));
+        assertFalse(collection.contains(O1));
+        collection.add(O1);
+        collection.add(O2);
+        assertEquals(O0, collection.first());
+        assertEquals(O2, collection.last());
+        assertEquals(O1, collection.get(1));
+        assertTrue(collection.remove(O1));
+        assertFalse(collection.remove(O1));
+        assertEquals(2, collection.size());
+        assertEquals(O2, collection.get(1));
+        collection.clear();
+        assertTrue(collection.isEmpty());
+    }
+
+    public void testIteratorUsesSnapshot() throws Exception {
+        collection.add(O0);
+        collection.add(O1);
+
+        Iterator iterator = collection.iterator();
+        collection.remove(O0);
+        collection.add(O2);
+        assertTrue(iterator.hasNext());
+        assertEquals(O0, iterator.next());
+        assertEquals(O1, iterator.next());
+        assertFalse(iterator.hasNext());
+
+        iterator = collection.iterator();
+        assertEquals(O1, iterator.next());
+        assertEquals(O2, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    public void testListIterator() throws Exception {
+        collection.add(O0);
+        collection.add(O1);
+
+        ListIterator iterator = collection.iterator(2);
+        assertFalse(iterator.hasNext());
+        assertTrue(iterator.hasPrevious());
+        assertEquals(1, iterator.previousIndex());
+        assertEquals(O1, iterator.previous());
+        assertEquals(O0, iterator.previous());
+        assertFalse(iterator.hasPrevious());
+        assertEquals(0, iterator.nextIndex());
+    }
+
+    public void testIterateUnderChurn() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            collection.add(new Object());
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread churn = new Thread() {
+            public void run() {
+                try {
+                    while (!done.get()) {
+                        Object o = new Object();
+                        collection.add(o);
+                        collection.remove(o);
+                        collection.remove(0);
+                        collection.add(new Object());
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        churn.start();
+        try {
+            for (int i = 0; i < 10000; i++) {
+                int count = 0;
+                for (Object o : collection) {
+                    assertNotNull(o);
+                    count++;
+                }
+                assertTrue(count >= 99 && count <= 101);
+            }
+        } finally {
+            done.set(true);
+            churn.join();
+        }
+        assertNull(failure.get());
+        assertEquals(100, collection.size());
+    }
+
+}
@@ -29,11 +29,13 @@ import org.osgi.service.blueprint.reflect.ValueMetadata;
 
 public class PropertyPlaceholderTest extends PropertyPlaceholder {
     private final Map<String,String> values = new HashMap<String,String>();
+    private final Map<String,Integer> lookups = new HashMap<String,Integer>();
     private LateBindingValueMetadata sut;
 
     @Before
     public void setup() {
         values.clear();
+        lookups.clear();
         bind("prop1","hello");
         bind("prop2","world");
         bind("prop3","10");
@@ -94,6 +96,32 @@ public class PropertyPlaceholderTest extends PropertyPlaceholder {
         assertEquals("plain text", sut.getStringValue());
     }
 
+    @Test
+    public void unresolvedProps() {
+        sut = makeProperty("${missing} ${prop-${missing}} ${prop1}");
+        assertEquals("${missing} ${prop-${missing}} hello", sut.getStringValue());
+    }
+
+    @Test
+    public void unterminatedProps() {
+        sut = makeProperty("${prop1 ${prop2} ${");
+        assertEquals("${prop1 world ${", sut.getStringValue());
+    }
+
+    @Test
+    public void valuesRetrievedOnce() {
+        assertEquals("hello hello world", makeProperty("${prop1} ${prop1} ${prop2}").getStringValue());
+        assertEquals("hello nested world!", makeProperty("${prop-${prop5}}").getStringValue());
+        assertEquals("say hello", makeProperty("say ${prop1}").getStringValue());
+        assertEquals(Integer.valueOf(1), lookups.get("prop1"));
+        assertEquals(Integer.valueOf(1), lookups.get("prop5"));
+
+        bind("prop1", "bye");
+        clearRetrievedValues();
+        assertEquals("say bye", makeProperty("say ${prop1}").getStringValue());
+        assertEquals(Integer.valueOf(2), lookups.get("prop1"));
+    }
+
 //    @Test
 //    public void evaluateStringProps() {
 //        sut = makeProperty("${prop1+prop2}");
@@ -114,6 +142,8 @@ public class PropertyPlaceholderTest extends PropertyPlaceholder {
 
     // Override to simulate actual property retrieval
     protected String getProperty(String prop) {
+        Integer count = lookups.get(prop);
+        lookups.put(prop, count == null ? 1 : count + 1);
         return values.get(prop);
     }
 
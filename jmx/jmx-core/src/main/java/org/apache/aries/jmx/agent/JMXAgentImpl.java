@@ -32,9 +32,11 @@ import org.apache.aries.jmx.Logger;
 import org.apache.aries.jmx.MBeanHandler;
 import org.apache.aries.jmx.MBeanServiceTracker;
 import org.apache.aries.jmx.cm.ConfigurationAdminMBeanHandler;
+import org.apache.aries.jmx.framework.BundleStateChangesMBeanHandler;
 import org.apache.aries.jmx.framework.BundleStateMBeanHandler;
 import org.apache.aries.jmx.framework.FrameworkMBeanHandler;
 import org.apache.aries.jmx.framework.PackageStateMBeanHandler;
+import org.apache.aries.jmx.framework.ServiceStateChangesMBeanHandler;
 import org.apache.aries.jmx.framework.ServiceStateMBeanHandler;
 import org.apache.aries.jmx.framework.StateConfig;
 import org.apache.aries.jmx.framework.wiring.BundleWiringStateMBeanHandler;
@@ -92,15 +94,21 @@ public class JMXAgentImpl implements JMXAgent {
         MBeanHandler frameworkHandler = new FrameworkMBeanHandler(agentContext);
         mbeansHandlers.put(frameworkHandler, Boolean.FALSE);
         frameworkHandler.open();
-        MBeanHandler bundleStateHandler = new BundleStateMBeanHandler(agentContext, stateConfig);
+        BundleStateMBeanHandler bundleStateHandler = new BundleStateMBeanHandler(agentContext, stateConfig);
         mbeansHandlers.put(bundleStateHandler, Boolean.FALSE);
         bundleStateHandler.open();
+        MBeanHandler bundleStateChangesHandler = new BundleStateChangesMBeanHandler(agentContext, bundleStateHandler);
+        mbeansHandlers.put(bundleStateChangesHandler, Boolean.FALSE);
+        bundleStateChangesHandler.open();
         MBeanHandler revisionsStateHandler = new BundleWiringStateMBeanHandler(agentContext);
         mbeansHandlers.put(revisionsStateHandler, Boolean.FALSE);
         revisionsStateHandler.open();
-        MBeanHandler serviceStateHandler = new ServiceStateMBeanHandler(agentContext, stateConfig);
+        ServiceStateMBeanHandler serviceStateHandler = new ServiceStateMBeanHandler(agentContext, stateConfig);
         mbeansHandlers.put(serviceStateHandler, Boolean.FALSE);
         serviceStateHandler.open();
+        MBeanHandler serviceStateChangesHandler = new ServiceStateChangesMBeanHandler(agentContext, serviceStateHandler);
+        mbeansHandlers.put(serviceStateChangesHandler, Boolean.FALSE);
+        serviceStateChangesHandler.open();
         MBeanHandler packageStateHandler = new PackageStateMBeanHandler(agentContext);
         mbeansHandlers.put(packageStateHandler, Boolean.FALSE);
         packageStateHandler.open();
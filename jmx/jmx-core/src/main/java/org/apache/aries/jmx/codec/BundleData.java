@@ -70,6 +70,7 @@ import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.TabularData;
 import javax.management.openmbean.TabularDataSupport;
 
+import org.apache.aries.jmx.util.BundleWiringGraph;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.jmx.framework.BundleStateMBean;
@@ -192,6 +193,16 @@ public class BundleData {
     }
 
     public BundleData(BundleContext localBundleContext, Bundle bundle, PackageAdmin packageAdmin, StartLevel startLevel) {
+        this(localBundleContext, bundle, packageAdmin, startLevel, null);
+    }
+
+    /**
+     * @param wiring
+     *            snapshot of the wiring of all bundles, shared when building the data of many bundles, or null to
+     *            query packageAdmin
+     */
+    public BundleData(BundleContext localBundleContext, Bundle bundle, PackageAdmin packageAdmin, StartLevel startLevel,
+            BundleWiringGraph wiring) {
         if (bundle == null) {
             throw new IllegalArgumentException("Argument bundle cannot be null");
         }
@@ -209,15 +220,15 @@ public class BundleData {
         }
         this.hosts = getHostIds(bundle, packageAdmin);
         this.identifier = bundle.getBundleId();
-        this.importedPackages = getBundleImportedPackages(localBundleContext, bundle, packageAdmin);
+        this.importedPackages = getBundleImportedPackages(localBundleContext, bundle, packageAdmin, wiring);
         this.lastModified = bundle.getLastModified();
         this.location = bundle.getLocation();
         this.persistentlyStarted = startLevel.isBundlePersistentlyStarted(bundle);
         this.registeredServices = getRegisteredServiceIds(bundle);
-        this.removalPending = isBundlePendingRemoval(bundle, packageAdmin);
-        this.required = isBundleRequiredByOthers(bundle, packageAdmin);
-        this.requiredBundles = getBundleDependencies(localBundleContext, bundle, packageAdmin);
-        this.requiringBundles = getDependentBundles(bundle, packageAdmin);
+        this.removalPending = isBundlePendingRemoval(bundle, packageAdmin, wiring);
+        this.required = isBundleRequiredByOthers(bundle, packageAdmin, wiring);
+        this.requiredBundles = getBundleDependencies(localBundleContext, bundle, packageAdmin, wiring);
+        this.requiringBundles = getDependentBundles(bundle, packageAdmin, wiring);
         this.servicesInUse = getServicesInUseByBundle(bundle);
         this.bundleStartLevel = startLevel.getBundleStartLevel(bundle);
         this.state = getBundleState(bundle);
@@ -225,6 +236,64 @@ public class BundleData {
         this.version = bundle.getVersion().toString();
     }
 
+    /**
+     * Returns a copy of this BundleData with the state, start level and services of the bundle read again. These
+     * change without a <code>BundleEvent</code> being fired for every change, the rest of the data does not.
+     *
+     * @param bundle
+     *            the bundle this data was created for
+     * @param startLevel
+     * @return
+     */
+    public BundleData refresh(Bundle bundle, StartLevel startLevel) {
+        BundleData data = new BundleData();
+        data.exportedPackages = this.exportedPackages;
+        data.fragment = this.fragment;
+        data.fragments = this.fragments;
+        data.headers = this.headers;
+        data.hosts = this.hosts;
+        data.identifier = this.identifier;
+        data.importedPackages = this.importedPackages;
+        data.lastModified = this.lastModified;
+        data.location = this.location;
+        data.removalPending = this.removalPending;
+        data.required = this.required;
+        data.requiredBundles = this.requiredBundles;
+        data.requiringBundles = this.requiringBundles;
+        data.symbolicName = this.symbolicName;
+        data.version = this.version;
+        data.persistentlyStarted = startLevel.isBundlePersistentlyStarted(bundle);
+        data.registeredServices = getRegisteredServiceIds(bundle);
+        data.servicesInUse = getServicesInUseByBundle(bundle);
+        data.bundleStartLevel = startLevel.getBundleStartLevel(bundle);
+        data.state = getBundleState(bundle);
+        return data;
+    }
+
+    /**
+     * Returns a copy of this BundleData like {@link #refresh(Bundle, StartLevel)}, with the imported packages,
+     * dependencies and dependents of the bundle also read again from the wiring. These change without a
+     * <code>BundleEvent</code> when packages are wired through DynamicImport-Package.
+     *
+     * @param localBundleContext
+     * @param bundle
+     *            the bundle this data was created for
+     * @param packageAdmin
+     * @param startLevel
+     * @param wiring
+     *            snapshot of the wiring of all bundles
+     * @return
+     */
+    public BundleData refresh(BundleContext localBundleContext, Bundle bundle, PackageAdmin packageAdmin,
+            StartLevel startLevel, BundleWiringGraph wiring) {
+        BundleData data = refresh(bundle, startLevel);
+        data.importedPackages = getBundleImportedPackages(localBundleContext, bundle, packageAdmin, wiring);
+        data.required = isBundleRequiredByOthers(bundle, packageAdmin, wiring);
+        data.requiredBundles = getBundleDependencies(localBundleContext, bundle, packageAdmin, wiring);
+        data.requiringBundles = getDependentBundles(bundle, packageAdmin, wiring);
+        return data;
+    }
+
     /**
      * Returns CompositeData representing a BundleData complete state typed by {@link BundleStateMBean#BUNDLE_TYPE}
      *
@@ -95,6 +95,24 @@ public class ServiceData {
         }
     }
 
+    /**
+     * Returns a copy of this ServiceData with the bundles using the service read again, as getting and releasing
+     * a service does not fire a <code>ServiceEvent</code>.
+     *
+     * @param serviceReference
+     *            the reference this data was created for
+     * @return
+     */
+    public ServiceData refresh(ServiceReference<?> serviceReference) {
+        ServiceData data = new ServiceData();
+        data.serviceId = this.serviceId;
+        data.bundleId = this.bundleId;
+        data.serviceInterfaces = this.serviceInterfaces;
+        data.properties = this.properties;
+        data.usingBundles = getBundleIds(serviceReference.getUsingBundles());
+        return data;
+    }
+
     /**
      * Returns CompositeData representing a ServiceReference typed by {@link ServiceStateMBean#SERVICE_TYPE}.
      * @return
@@ -34,11 +34,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -60,10 +63,12 @@ import org.apache.aries.jmx.Logger;
 import org.apache.aries.jmx.codec.BundleData;
 import org.apache.aries.jmx.codec.BundleData.Header;
 import org.apache.aries.jmx.codec.BundleEventData;
+import org.apache.aries.jmx.util.BundleWiringGraph;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
+import org.osgi.framework.Constants;
 import org.osgi.jmx.framework.BundleStateMBean;
 import org.osgi.service.log.LogService;
 import org.osgi.service.packageadmin.PackageAdmin;
@@ -71,11 +76,12 @@ import org.osgi.service.startlevel.StartLevel;
 
 /**
  * Implementation of <code>BundleStateMBean</code> which emits JMX <code>Notification</code> on <code>Bundle</code>
- * state changes.
+ * state changes. It also implements the <code>BundleStateChangesMBean</code>, which is registered separately.
  *
  * @version $Rev$ $Date$
  */
-public class BundleState extends NotificationBroadcasterSupport implements BundleStateMBean, MBeanRegistration {
+public class BundleState extends NotificationBroadcasterSupport implements BundleStateMBean, BundleStateChangesMBean,
+        MBeanRegistration {
 
     protected Logger logger;
     protected BundleContext bundleContext;
@@ -89,6 +95,26 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
     private AtomicInteger attributeChangeNotificationSequenceNumber = new AtomicInteger(1);
     private Lock lock = new ReentrantLock();
     private AtomicInteger registrations = new AtomicInteger(0);
+    private final SnapshotCache<BundleData> bundleDataCache = new SnapshotCache<BundleData>();
+    /*
+     * Whether an installed bundle declares DynamicImport-Package, or null until read again after a bundle event
+     */
+    private volatile Boolean dynamicImports;
+    private final ChangeLog changeLog = new ChangeLog(MAX_REMOVED_BUNDLES);
+    private final NotificationDispatcher notificationDispatcher;
+
+    /*
+     * The number of uninstalled bundle ids kept for getRemovedBundles
+     */
+    private static final int MAX_REMOVED_BUNDLES = 1024;
+
+    private static final Comparator<Bundle> BUNDLE_ID_ORDER = new Comparator<Bundle>() {
+        public int compare(Bundle b1, Bundle b2) {
+            long id1 = b1.getBundleId();
+            long id2 = b2.getBundleId();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
 
     // notification type description
     public static String BUNDLE_EVENT = "org.osgi.bundle.event";
@@ -99,6 +125,7 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
         this.startLevel = startLevel;
         this.stateConfig = stateConfig;
         this.logger = logger;
+        this.notificationDispatcher = new NotificationDispatcher(this, stateConfig);
     }
 
     /**
@@ -306,7 +333,12 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
         if (bundle == null)
             return null;
 
-        BundleData data = new BundleData(bundleContext, bundle, packageAdmin, startLevel);
+        BundleData data = bundleDataCache.get(id);
+        if (data != null && !hasDynamicImports()) {
+            data = data.refresh(bundle, startLevel);
+        } else {
+            data = new BundleData(bundleContext, bundle, packageAdmin, startLevel);
+        }
         return data.toCompositeData();
     }
 
@@ -336,11 +368,33 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
     }
 
     private TabularData listBundles(Collection<String> items) throws IOException {
-        Bundle[] containerBundles = bundleContext.getBundles();
+        return listBundles(bundleContext.getBundles(), items);
+    }
+
+    private TabularData listBundles(Bundle[] containerBundles, Collection<String> items) throws IOException {
         List<BundleData> bundleDatas = new ArrayList<BundleData>();
         if (containerBundles != null) {
+            long generation = bundleDataCache.getGeneration();
+            BundleWiringGraph wiring = null;
             for (Bundle containerBundle : containerBundles) {
-                bundleDatas.add(new BundleData(bundleContext, containerBundle, packageAdmin, startLevel));
+                BundleData bundleData = bundleDataCache.get(containerBundle.getBundleId());
+                if (bundleData != null && hasDynamicImports()) {
+                    // packages wired through DynamicImport-Package do not fire a bundle event
+                    if (wiring == null) {
+                        wiring = new BundleWiringGraph(packageAdmin);
+                    }
+                    bundleData = bundleData.refresh(bundleContext, containerBundle, packageAdmin, startLevel, wiring);
+                } else if (bundleData != null) {
+                    bundleData = bundleData.refresh(containerBundle, startLevel);
+                } else {
+                    if (wiring == null) {
+                        // read the wiring of all bundles at once rather than for each bundle
+                        wiring = new BundleWiringGraph(packageAdmin);
+                    }
+                    bundleData = new BundleData(bundleContext, containerBundle, packageAdmin, startLevel, wiring);
+                    bundleDataCache.put(containerBundle.getBundleId(), bundleData, generation);
+                }
+                bundleDatas.add(bundleData);
             }
         }
         TabularData bundleTable = new TabularDataSupport(BUNDLES_TYPE);
@@ -350,6 +404,151 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
         return bundleTable;
     }
 
+    /*
+     * Whether the wiring of a bundle may change without a bundle event, as an installed bundle imports packages
+     * dynamically
+     */
+    private boolean hasDynamicImports() {
+        Boolean result = dynamicImports;
+        if (result == null) {
+            long generation = bundleDataCache.getGeneration();
+            result = Boolean.FALSE;
+            Bundle[] bundles = bundleContext.getBundles();
+            if (bundles != null) {
+                for (Bundle bundle : bundles) {
+                    Dictionary<String, String> headers = bundle.getHeaders("");
+                    if (headers != null && headers.get(Constants.DYNAMICIMPORT_PACKAGE) != null) {
+                        result = Boolean.TRUE;
+                        break;
+                    }
+                }
+            }
+            if (generation == bundleDataCache.getGeneration()) {
+                dynamicImports = result;
+            }
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.BundleStateChangesMBean#getChangeSequenceNumber()
+     */
+    public long getChangeSequenceNumber() throws IOException {
+        return changeLog.getSequenceNumber();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.BundleStateChangesMBean#listChangedBundles(long)
+     */
+    public TabularData listChangedBundles(long sequenceNumber) throws IOException {
+        return listChangedBundles(sequenceNumber, BundleStateMBean.BUNDLE_TYPE.keySet());
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.BundleStateChangesMBean#listChangedBundles(long, String...)
+     */
+    public TabularData listChangedBundles(long sequenceNumber, String... items) throws IOException {
+        return listChangedBundles(sequenceNumber, Arrays.asList(items));
+    }
+
+    private TabularData listChangedBundles(long sequenceNumber, Collection<String> items) throws IOException {
+        Set<Long> changedIds = changeLog.getChanged(sequenceNumber);
+        if (changedIds == null) {
+            return listBundles(items);
+        }
+        List<Bundle> changedBundles = new ArrayList<Bundle>(changedIds.size());
+        for (Long id : changedIds) {
+            Bundle bundle = bundleContext.getBundle(id);
+            if (bundle != null) {
+                changedBundles.add(bundle);
+            }
+        }
+        return listBundles(changedBundles.toArray(new Bundle[changedBundles.size()]), items);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.BundleStateChangesMBean#getRemovedBundles(long)
+     */
+    public long[] getRemovedBundles(long sequenceNumber) throws IOException {
+        return changeLog.getRemoved(sequenceNumber);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.BundleStateChangesMBean#listBundles(long, int)
+     */
+    public TabularData listBundles(long fromBundleId, int maxBundles) throws IOException {
+        return listBundles(fromBundleId, maxBundles, BundleStateMBean.BUNDLE_TYPE.keySet());
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.BundleStateChangesMBean#listBundles(long, int, String...)
+     */
+    public TabularData listBundles(long fromBundleId, int maxBundles, String... items) throws IOException {
+        return listBundles(fromBundleId, maxBundles, Arrays.asList(items));
+    }
+
+    private TabularData listBundles(long fromBundleId, int maxBundles, Collection<String> items) throws IOException {
+        if (maxBundles < 0) {
+            throw new IllegalArgumentException("Argument maxBundles cannot be negative");
+        }
+        List<Bundle> page = new ArrayList<Bundle>();
+        Bundle[] containerBundles = bundleContext.getBundles();
+        if (containerBundles != null) {
+            for (Bundle containerBundle : containerBundles) {
+                if (containerBundle.getBundleId() >= fromBundleId) {
+                    page.add(containerBundle);
+                }
+            }
+        }
+        Collections.sort(page, BUNDLE_ID_ORDER);
+        if (page.size() > maxBundles) {
+            page = page.subList(0, maxBundles);
+        }
+        return listBundles(page.toArray(new Bundle[page.size()]), items);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getDispatchedNotificationCount()
+     */
+    public long getDispatchedNotificationCount() throws IOException {
+        return notificationDispatcher.getDispatchedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getCoalescedNotificationCount()
+     */
+    public long getCoalescedNotificationCount() throws IOException {
+        return notificationDispatcher.getCoalescedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getDroppedNotificationCount()
+     */
+    public long getDroppedNotificationCount() throws IOException {
+        return notificationDispatcher.getDroppedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getQueuedNotificationCount()
+     */
+    public int getQueuedNotificationCount() throws IOException {
+        return notificationDispatcher.getQueuedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getAverageDispatchLatency()
+     */
+    public double getAverageDispatchLatency() throws IOException {
+        return notificationDispatcher.getAverageDispatchLatency();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getMaxDispatchLatency()
+     */
+    public double getMaxDispatchLatency() throws IOException {
+        return notificationDispatcher.getMaxDispatchLatency();
+    }
+
     /**
      * @see javax.management.NotificationBroadcasterSupport#getNotificationInfo()
      */
@@ -381,8 +580,15 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
      */
     public void postRegister(Boolean registrationDone) {
         if (registrationDone && registrations.incrementAndGet() == 1) {
-            eventDispatcher = Executors.newSingleThreadExecutor(new JMXThreadFactory("JMX OSGi Bundle State Event Dispatcher"));
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                    new JMXThreadFactory("JMX OSGi Bundle State Event Dispatcher"));
+            eventDispatcher = executor;
+            notificationDispatcher.setExecutor(executor);
             bundleContext.addBundleListener(bundleListener);
+            // events may have been missed while the listener was not registered
+            changeLog.changedAll();
+            bundleDataCache.setEnabled(true);
+            dynamicImports = null;
         }
     }
 
@@ -402,11 +608,15 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
             if (bundleListener == null) {
                 bundleListener = new BundleListener() {
                     public void bundleChanged(BundleEvent event) {
+                        // any bundle event may change the wiring of other bundles
+                        bundleDataCache.invalidateAll();
+                        dynamicImports = null;
+                        recordChange(event);
                         if (stateConfig != null && !stateConfig.isBundleChangeNotificationEnabled()) {
                             return;
                         }
                         try {
-                            final Notification notification = new Notification(EVENT, OBJECTNAME,
+                            final Notification notification = new Notification(EVENT, BundleStateMBean.OBJECTNAME,
                                     notificationSequenceNumber.getAndIncrement());
                             notification.setUserData(new BundleEventData(event).toCompositeData());
 
@@ -414,13 +624,8 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
                             final AttributeChangeNotification attributeChangeNotification =
                                     getAttributeChangeNotification(event);
 
-                            eventDispatcher.submit(new Runnable() {
-                                public void run() {
-                                    sendNotification(notification);
-                                    if (attributeChangeNotification != null)
-                                        sendNotification(attributeChangeNotification);
-                                }
-                            });
+                            notificationDispatcher.dispatch(event.getBundle().getBundleId(), notification,
+                                    attributeChangeNotification);
                         } catch (RejectedExecutionException re) {
                             logger.log(LogService.LOG_WARNING, "Task rejected for JMX Notification dispatch of event ["
                                     + event + "] - Dispatcher may have been shutdown");
@@ -473,18 +678,39 @@ public class BundleState extends NotificationBroadcasterSupport implements Bundl
                 newIDs[i] = newList.get(i);
             }
 
-            return new AttributeChangeNotification(OBJECTNAME, attributeChangeNotificationSequenceNumber.getAndIncrement(),
+            return new AttributeChangeNotification(BundleStateMBean.OBJECTNAME, attributeChangeNotificationSequenceNumber.getAndIncrement(),
                     System.currentTimeMillis(), "BundleIds changed", "BundleIds", "Array of long", oldIDs, newIDs);
         default:
             return null;
         }
     }
 
+    /*
+     * Records the bundles changed by the event for listChangedBundles and getRemovedBundles
+     */
+    private void recordChange(BundleEvent event) {
+        long id = event.getBundle().getBundleId();
+        switch (event.getType()) {
+        case BundleEvent.RESOLVED:
+        case BundleEvent.UNRESOLVED:
+        case BundleEvent.UPDATED:
+            // the bundles wired to this one report different imports, requirements and dependents
+            changeLog.changedAll();
+            break;
+        case BundleEvent.UNINSTALLED:
+            changeLog.removed(id);
+            break;
+        default:
+            changeLog.changed(id);
+        }
+    }
+
     /*
      * Shuts down the notification dispatcher
      * [ARIES-259] MBeans not getting unregistered reliably
      */
     protected void shutDownDispatcher() {
+        bundleDataCache.setEnabled(false);
         if (bundleListener != null) {
             try {
                bundleContext.removeBundleListener(bundleListener);
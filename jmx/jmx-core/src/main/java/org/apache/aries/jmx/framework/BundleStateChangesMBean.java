@@ -0,0 +1,91 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import java.io.IOException;
+
+import javax.management.openmbean.TabularData;
+
+import org.osgi.jmx.framework.BundleStateMBean;
+
+/**
+ * Aries specific companion of the {@link BundleStateMBean}, returning only the bundles changed since a previous
+ * call, or the bundles one page at a time, so that polling a large framework does not transfer its whole state.
+ * <p>
+ * A client reads {@link #getChangeSequenceNumber()}, lists the bundles, and later passes the sequence number it
+ * read to {@link #listChangedBundles(long)} and {@link #getRemovedBundles(long)}, reading the sequence number
+ * again first. Changes are those signalled by <code>BundleEvent</code>s. As resolving, unresolving and updating a
+ * bundle change what is reported for the bundles wired to it, these events mark every bundle changed.
+ * <p>
+ * The metrics of the dispatch of the notifications of the {@link BundleStateMBean} are exposed as attributes.
+ * <p>
+ * The tables returned are of type {@link BundleStateMBean#BUNDLES_TYPE}.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface BundleStateChangesMBean extends NotificationDispatchMetrics {
+
+    String OBJECTNAME = "org.apache.aries.jmx:type=bundleStateChanges,version=1.0";
+
+    /**
+     * @return the sequence number of the last change recorded
+     * @throws IOException
+     */
+    long getChangeSequenceNumber() throws IOException;
+
+    /**
+     * @param sequenceNumber a sequence number previously returned by {@link #getChangeSequenceNumber()}, or 0 for all
+     *            bundles
+     * @return the installed bundles changed after the sequence number
+     * @throws IOException
+     */
+    TabularData listChangedBundles(long sequenceNumber) throws IOException;
+
+    /**
+     * @param sequenceNumber a sequence number previously returned by {@link #getChangeSequenceNumber()}, or 0 for all
+     *            bundles
+     * @param items the items of {@link BundleStateMBean#BUNDLE_TYPE} to fill in
+     * @return the installed bundles changed after the sequence number
+     * @throws IOException
+     */
+    TabularData listChangedBundles(long sequenceNumber, String... items) throws IOException;
+
+    /**
+     * @param sequenceNumber a sequence number previously returned by {@link #getChangeSequenceNumber()}
+     * @return the sorted ids of the bundles uninstalled after the sequence number
+     * @throws IOException if the uninstallations since the sequence number are no longer known, in which case all
+     *             bundles must be listed again
+     */
+    long[] getRemovedBundles(long sequenceNumber) throws IOException;
+
+    /**
+     * @param fromBundleId the lowest bundle id to return
+     * @param maxBundles the maximum number of bundles to return
+     * @return the bundles with an id of at least <code>fromBundleId</code>, lowest ids first
+     * @throws IOException
+     */
+    TabularData listBundles(long fromBundleId, int maxBundles) throws IOException;
+
+    /**
+     * @param fromBundleId the lowest bundle id to return
+     * @param maxBundles the maximum number of bundles to return
+     * @param items the items of {@link BundleStateMBean#BUNDLE_TYPE} to fill in
+     * @return the bundles with an id of at least <code>fromBundleId</code>, lowest ids first
+     * @throws IOException
+     */
+    TabularData listBundles(long fromBundleId, int maxBundles, String... items) throws IOException;
+}
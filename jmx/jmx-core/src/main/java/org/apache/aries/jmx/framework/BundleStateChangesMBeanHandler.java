@@ -0,0 +1,98 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import static org.apache.aries.jmx.framework.BundleStateChangesMBean.OBJECTNAME;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+
+import org.apache.aries.jmx.Logger;
+import org.apache.aries.jmx.MBeanHandler;
+import org.apache.aries.jmx.agent.JMXAgentContext;
+import org.apache.aries.jmx.util.ObjectNameUtils;
+import org.apache.aries.jmx.util.shared.RegistrableStandardMBean;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.log.LogService;
+
+/**
+ * <p>
+ * Implementation of <code>MBeanHandler</code> which manages the <code>BundleStateChangesMBean</code>, implemented
+ * by the <code>BundleState</code> of the given <code>BundleStateMBeanHandler</code>, which must be opened first
+ * @see MBeanHandler
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ */
+public class BundleStateChangesMBeanHandler implements MBeanHandler {
+
+    private JMXAgentContext agentContext;
+    private BundleStateMBeanHandler bundleStateHandler;
+    private String name;
+    private StandardMBean mbean;
+    private Logger logger;
+
+    public BundleStateChangesMBeanHandler(JMXAgentContext agentContext, BundleStateMBeanHandler bundleStateHandler) {
+        this.agentContext = agentContext;
+        this.bundleStateHandler = bundleStateHandler;
+        this.logger = agentContext.getLogger();
+        BundleContext bundleContext = agentContext.getBundleContext();
+        this.name = ObjectNameUtils.createFullObjectName(bundleContext, OBJECTNAME);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.MBeanHandler#open()
+     */
+    public void open() {
+        BundleState bundleState = bundleStateHandler.getBundleState();
+        if (bundleState == null) {
+            logger.log(LogService.LOG_WARNING, "BundleState is not available, not registering "
+                    + BundleStateChangesMBean.class.getName());
+            return;
+        }
+        try {
+            // registrations are counted by the BundleState, so its listener stays while either MBean is registered
+            mbean = new RegistrableStandardMBean(bundleState, BundleStateChangesMBean.class);
+        } catch (NotCompliantMBeanException e) {
+            logger.log(LogService.LOG_ERROR, "Failed to instantiate MBean for "
+                    + BundleStateChangesMBean.class.getName(), e);
+        }
+        agentContext.registerMBean(this);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.MBeanHandler#getMbean()
+     */
+    public StandardMBean getMbean() {
+        return mbean;
+    }
+
+    /**
+     * @see org.apache.aries.jmx.MBeanHandler#getName()
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @see org.apache.aries.jmx.MBeanHandler#close()
+     */
+    public void close() {
+        agentContext.unregisterMBean(this);
+    }
+
+}
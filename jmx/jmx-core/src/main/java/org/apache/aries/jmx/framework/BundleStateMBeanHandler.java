@@ -88,6 +88,13 @@ public class BundleStateMBeanHandler implements MBeanHandler {
     }
 
 
+    /**
+     * @return the <code>BundleState</code> implementation, or null if the handler is not open
+     */
+    public BundleState getBundleState() {
+        return bundleStateMBean;
+    }
+
     /**
      * @see org.apache.aries.jmx.MBeanHandler#getName()
      */
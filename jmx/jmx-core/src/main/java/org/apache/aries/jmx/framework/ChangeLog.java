@@ -0,0 +1,126 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records, under increasing sequence numbers, the ids of the bundles or services changed or removed, so that the
+ * changes since a sequence number can be returned. Only the last change of each id is kept, and a bounded number
+ * of removals.
+ *
+ * @version $Rev$ $Date$
+ */
+class ChangeLog {
+
+    private final Map<Long, Long> changed = new HashMap<Long, Long>();
+    private final Map<Long, Long> removed;
+
+    private long sequenceNumber;
+
+    /*
+     * Everything counts as changed for sequence numbers before this one, as changes may have been missed
+     */
+    private long allChanged;
+
+    /*
+     * Removals up to this sequence number have been dropped
+     */
+    private long forgotten;
+
+    ChangeLog(final int maxRemoved) {
+        removed = new LinkedHashMap<Long, Long>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                if (size() > maxRemoved) {
+                    forgotten = eldest.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+        changedAll();
+    }
+
+    synchronized long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    synchronized void changed(long id) {
+        changed.put(id, ++sequenceNumber);
+        removed.remove(id);
+    }
+
+    synchronized void removed(long id) {
+        changed.remove(id);
+        removed.remove(id);
+        removed.put(id, ++sequenceNumber);
+    }
+
+    /**
+     * Marks every id as changed, for when the changes could not be followed.
+     */
+    synchronized void changedAll() {
+        allChanged = ++sequenceNumber;
+        changed.clear();
+    }
+
+    /**
+     * @return the ids changed after the given sequence number, or null if every id must be considered changed
+     */
+    synchronized Set<Long> getChanged(long since) {
+        if (since < allChanged) {
+            return null;
+        }
+        Set<Long> result = new HashSet<Long>();
+        for (Map.Entry<Long, Long> entry : changed.entrySet()) {
+            if (entry.getValue() > since) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the sorted ids removed after the given sequence number
+     * @throws IOException if removals after the sequence number have been dropped
+     */
+    synchronized long[] getRemoved(long since) throws IOException {
+        if (since < forgotten) {
+            throw new IOException("Removals before sequence number [" + forgotten
+                    + "] are no longer available, the complete state must be listed again");
+        }
+        long[] ids = new long[removed.size()];
+        int count = 0;
+        for (Map.Entry<Long, Long> entry : removed.entrySet()) {
+            if (entry.getValue() > since) {
+                ids[count++] = entry.getKey();
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+}
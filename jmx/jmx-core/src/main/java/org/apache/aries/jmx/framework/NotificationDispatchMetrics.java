@@ -0,0 +1,67 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import java.io.IOException;
+
+/**
+ * Attributes describing how the notifications of the {@link BundleState} or {@link ServiceState} are dispatched,
+ * exposed by the {@link BundleStateChangesMBean} and {@link ServiceStateChangesMBean}.
+ *
+ * @see StateConfig#getNotificationBatchWindow()
+ * @see StateConfig#getNotificationQueueSize()
+ * @version $Rev$ $Date$
+ */
+public interface NotificationDispatchMetrics {
+
+    /**
+     * @return the number of event notifications sent
+     * @throws IOException
+     */
+    long getDispatchedNotificationCount() throws IOException;
+
+    /**
+     * @return the number of event notifications replaced by a later event of the same bundle or service within a
+     *         batch window
+     * @throws IOException
+     */
+    long getCoalescedNotificationCount() throws IOException;
+
+    /**
+     * @return the number of event notifications dropped as the queue was full
+     * @throws IOException
+     */
+    long getDroppedNotificationCount() throws IOException;
+
+    /**
+     * @return the number of event notifications waiting to be sent
+     * @throws IOException
+     */
+    int getQueuedNotificationCount() throws IOException;
+
+    /**
+     * @return the average time in milliseconds between an event and the sending of its notification
+     * @throws IOException
+     */
+    double getAverageDispatchLatency() throws IOException;
+
+    /**
+     * @return the longest time in milliseconds between an event and the sending of its notification
+     * @throws IOException
+     */
+    double getMaxDispatchLatency() throws IOException;
+}
@@ -0,0 +1,214 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+
+/**
+ * Sends the notifications of bundle or service events on the event dispatcher thread. Depending on the
+ * {@link StateConfig}, the notifications are sent as soon as possible, or collected during a batch window keeping
+ * only the last one of each bundle or service, and those waiting to be sent may be limited in number.
+ *
+ * @version $Rev$ $Date$
+ */
+class NotificationDispatcher implements NotificationDispatchMetrics {
+
+    private final NotificationBroadcasterSupport broadcaster;
+    private final StateConfig stateConfig;
+    private volatile ScheduledExecutorService executor;
+
+    /*
+     * The notifications collected during the current batch window by bundle or service id, guarded by itself
+     */
+    private final Map<Long, PendingNotification> batch = new LinkedHashMap<Long, PendingNotification>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private final Runnable flush = new Runnable() {
+        public void run() {
+            List<PendingNotification> notifications;
+            synchronized (batch) {
+                notifications = new ArrayList<PendingNotification>(batch.values());
+                batch.clear();
+            }
+            queued.addAndGet(-notifications.size());
+            for (PendingNotification notification : notifications) {
+                send(notification);
+            }
+        }
+    };
+
+    NotificationDispatcher(NotificationBroadcasterSupport broadcaster, StateConfig stateConfig) {
+        this.broadcaster = broadcaster;
+        this.stateConfig = stateConfig;
+    }
+
+    /**
+     * @param executor the single threaded executor to send the notifications on
+     */
+    void setExecutor(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues the notification of an event.
+     *
+     * @param id the id of the bundle or service of the event
+     * @param notification the notification of the event
+     * @param attributeChangeNotification the accompanying attribute change notification, may be null
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    void dispatch(long id, Notification notification, AttributeChangeNotification attributeChangeNotification) {
+        final PendingNotification pending = new PendingNotification(notification, attributeChangeNotification);
+        long window = stateConfig != null ? stateConfig.getNotificationBatchWindow() : 0;
+        if (window <= 0) {
+            if (reserve()) {
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            queued.decrementAndGet();
+                            send(pending);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    queued.decrementAndGet();
+                    throw e;
+                }
+            }
+            return;
+        }
+        synchronized (batch) {
+            PendingNotification previous = batch.get(id);
+            if (previous != null) {
+                batch.put(id, pending.replace(previous));
+                coalesced.incrementAndGet();
+                return;
+            }
+            if (!reserve()) {
+                return;
+            }
+            batch.put(id, pending);
+            if (batch.size() > 1) {
+                return;
+            }
+            try {
+                executor.schedule(flush, window, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // nothing would ever send the batch
+                batch.clear();
+                queued.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /*
+     * Counts a notification waiting to be sent, unless the queue is full
+     */
+    private boolean reserve() {
+        int max = stateConfig != null ? stateConfig.getNotificationQueueSize() : 0;
+        while (true) {
+            int current = queued.get();
+            if (max > 0 && current >= max) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void send(PendingNotification pending) {
+        broadcaster.sendNotification(pending.notification);
+        if (pending.attributeChangeNotification != null) {
+            broadcaster.sendNotification(pending.attributeChangeNotification);
+        }
+        dispatched.incrementAndGet();
+        long latency = System.nanoTime() - pending.created;
+        latencyNanos.addAndGet(latency);
+        long max;
+        while ((max = maxLatencyNanos.get()) < latency && !maxLatencyNanos.compareAndSet(max, latency)) {
+            // retry
+        }
+    }
+
+    public long getDispatchedNotificationCount() {
+        return dispatched.get();
+    }
+
+    public long getCoalescedNotificationCount() {
+        return coalesced.get();
+    }
+
+    public long getDroppedNotificationCount() {
+        return dropped.get();
+    }
+
+    public int getQueuedNotificationCount() {
+        return queued.get();
+    }
+
+    public double getAverageDispatchLatency() {
+        long count = dispatched.get();
+        return count == 0 ? 0 : latencyNanos.get() / (count * 1000000d);
+    }
+
+    public double getMaxDispatchLatency() {
+        return maxLatencyNanos.get() / 1000000d;
+    }
+
+    private static class PendingNotification {
+        final Notification notification;
+        AttributeChangeNotification attributeChangeNotification;
+        long created = System.nanoTime();
+
+        PendingNotification(Notification notification, AttributeChangeNotification attributeChangeNotification) {
+            this.notification = notification;
+            this.attributeChangeNotification = attributeChangeNotification;
+        }
+
+        /*
+         * Takes the place of an earlier notification for the same bundle or service, keeping its attribute change
+         * notification if there is no later one, and its creation time to report the latency of the first event
+         */
+        PendingNotification replace(PendingNotification previous) {
+            if (attributeChangeNotification == null) {
+                attributeChangeNotification = previous.attributeChangeNotification;
+            }
+            created = previous.created;
+            return this;
+        }
+    }
+}
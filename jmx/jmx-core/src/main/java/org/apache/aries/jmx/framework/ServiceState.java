@@ -25,9 +25,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -61,11 +64,13 @@ import org.osgi.service.log.LogService;
 
 /**
  * Implementation of <code>ServiceStateMBean</code> which emits JMX <code>Notification</code> for framework
- * <code>ServiceEvent</code> events and changes to the <code>ServiceIds</code> attribute.
+ * <code>ServiceEvent</code> events and changes to the <code>ServiceIds</code> attribute. It also implements the
+ * <code>ServiceStateChangesMBean</code>, which is registered separately.
  *
  * @version $Rev$ $Date$
  */
-public class ServiceState extends NotificationBroadcasterSupport implements ServiceStateMBean, MBeanRegistration {
+public class ServiceState extends NotificationBroadcasterSupport implements ServiceStateMBean,
+        ServiceStateChangesMBean, MBeanRegistration {
 
     protected Logger logger;
     private BundleContext bundleContext;
@@ -77,6 +82,22 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
     private AtomicInteger attributeChangeNotificationSequenceNumber = new AtomicInteger(1);
     private AtomicInteger registrations = new AtomicInteger(0);
     private Lock lock = new ReentrantLock();
+    private final SnapshotCache<ServiceData> serviceDataCache = new SnapshotCache<ServiceData>();
+    private final ChangeLog changeLog = new ChangeLog(MAX_REMOVED_SERVICES);
+    private final NotificationDispatcher notificationDispatcher;
+
+    /*
+     * The number of unregistered service ids kept for getRemovedServices
+     */
+    private static final int MAX_REMOVED_SERVICES = 4096;
+
+    private static final Comparator<ServiceReference<?>> SERVICE_ID_ORDER = new Comparator<ServiceReference<?>>() {
+        public int compare(ServiceReference<?> r1, ServiceReference<?> r2) {
+            long id1 = getServiceId(r1);
+            long id2 = getServiceId(r2);
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
 
     // notification type description
     public static String SERVICE_EVENT = "org.osgi.service.event";
@@ -88,6 +109,7 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
         this.bundleContext = bundleContext;
         this.stateConfig = stateConfig;
         this.logger = logger;
+        this.notificationDispatcher = new NotificationDispatcher(this, stateConfig);
     }
 
     /**
@@ -140,7 +162,8 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
      * @see org.osgi.jmx.framework.ServiceStateMBean#getService(long)
      */
     public CompositeData getService(long serviceId) throws IOException {
-        return new ServiceData(resolveService(bundleContext, serviceId)).toCompositeData();
+        return getServiceData(resolveService(bundleContext, serviceId), serviceDataCache.getGeneration())
+                .toCompositeData();
     }
 
     /**
@@ -165,21 +188,177 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
     }
 
     private TabularData listServices(String clazz, String filter, Collection<String> serviceTypeItems) throws IOException {
-        TabularData servicesTable = new TabularDataSupport(SERVICES_TYPE);
         ServiceReference[] allServiceReferences = null;
         try {
             allServiceReferences = bundleContext.getAllServiceReferences(clazz, filter);
         } catch (InvalidSyntaxException e) {
             throw new IllegalStateException("Failed to retrieve all service references", e);
         }
+        return listServiceReferences(allServiceReferences, serviceTypeItems);
+    }
+
+    private TabularData listServiceReferences(ServiceReference<?>[] allServiceReferences,
+            Collection<String> serviceTypeItems) {
+        TabularData servicesTable = new TabularDataSupport(SERVICES_TYPE);
         if (allServiceReferences != null) {
-            for (ServiceReference reference : allServiceReferences) {
-                servicesTable.put(new ServiceData(reference).toCompositeData(serviceTypeItems));
+            long generation = serviceDataCache.getGeneration();
+            for (ServiceReference<?> reference : allServiceReferences) {
+                servicesTable.put(getServiceData(reference, generation).toCompositeData(serviceTypeItems));
             }
         }
         return servicesTable;
     }
 
+    /*
+     * Returns the cached data of the service if it has not been modified since, otherwise builds it
+     */
+    private ServiceData getServiceData(ServiceReference<?> reference, long generation) {
+        long serviceId = getServiceId(reference);
+        ServiceData serviceData = serviceDataCache.get(serviceId);
+        if (serviceData != null) {
+            return serviceData.refresh(reference);
+        }
+        serviceData = new ServiceData(reference);
+        serviceDataCache.put(serviceId, serviceData, generation);
+        return serviceData;
+    }
+
+    private static long getServiceId(ServiceReference<?> reference) {
+        return (Long) reference.getProperty(Constants.SERVICE_ID);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.ServiceStateChangesMBean#getChangeSequenceNumber()
+     */
+    public long getChangeSequenceNumber() throws IOException {
+        return changeLog.getSequenceNumber();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.ServiceStateChangesMBean#listChangedServices(long)
+     */
+    public TabularData listChangedServices(long sequenceNumber) throws IOException {
+        return listChangedServices(sequenceNumber, ServiceStateMBean.SERVICE_TYPE.keySet());
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.ServiceStateChangesMBean#listChangedServices(long, String...)
+     */
+    public TabularData listChangedServices(long sequenceNumber, String... items) throws IOException {
+        return listChangedServices(sequenceNumber, Arrays.asList(items));
+    }
+
+    private TabularData listChangedServices(long sequenceNumber, Collection<String> items) throws IOException {
+        Set<Long> changedIds = changeLog.getChanged(sequenceNumber);
+        if (changedIds == null) {
+            return listServices(null, null, items);
+        }
+        List<ServiceReference<?>> changedReferences = new ArrayList<ServiceReference<?>>(changedIds.size());
+        if (!changedIds.isEmpty()) {
+            for (ServiceReference<?> reference : getAllServiceReferences()) {
+                if (changedIds.contains(getServiceId(reference))) {
+                    changedReferences.add(reference);
+                }
+            }
+        }
+        return listServiceReferences(changedReferences.toArray(new ServiceReference<?>[changedReferences.size()]),
+                items);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.ServiceStateChangesMBean#getRemovedServices(long)
+     */
+    public long[] getRemovedServices(long sequenceNumber) throws IOException {
+        return changeLog.getRemoved(sequenceNumber);
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.ServiceStateChangesMBean#listServices(long, int)
+     */
+    public TabularData listServices(long fromServiceId, int maxServices) throws IOException {
+        return listServices(fromServiceId, maxServices, ServiceStateMBean.SERVICE_TYPE.keySet());
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.ServiceStateChangesMBean#listServices(long, int, String...)
+     */
+    public TabularData listServices(long fromServiceId, int maxServices, String... items) throws IOException {
+        return listServices(fromServiceId, maxServices, Arrays.asList(items));
+    }
+
+    private TabularData listServices(long fromServiceId, int maxServices, Collection<String> items) throws IOException {
+        if (maxServices < 0) {
+            throw new IllegalArgumentException("Argument maxServices cannot be negative");
+        }
+        List<ServiceReference<?>> page = new ArrayList<ServiceReference<?>>();
+        for (ServiceReference<?> reference : getAllServiceReferences()) {
+            if (getServiceId(reference) >= fromServiceId) {
+                page.add(reference);
+            }
+        }
+        Collections.sort(page, SERVICE_ID_ORDER);
+        if (page.size() > maxServices) {
+            page = page.subList(0, maxServices);
+        }
+        return listServiceReferences(page.toArray(new ServiceReference<?>[page.size()]), items);
+    }
+
+    /*
+     * Returns the references of all services, never null
+     */
+    private ServiceReference<?>[] getAllServiceReferences() throws IOException {
+        try {
+            ServiceReference<?>[] refs = bundleContext.getAllServiceReferences(null, null);
+            return refs == null ? new ServiceReference<?>[0] : refs;
+        } catch (InvalidSyntaxException e) {
+            IOException ioe = new IOException();
+            ioe.initCause(e);
+            throw ioe;
+        }
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getDispatchedNotificationCount()
+     */
+    public long getDispatchedNotificationCount() throws IOException {
+        return notificationDispatcher.getDispatchedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getCoalescedNotificationCount()
+     */
+    public long getCoalescedNotificationCount() throws IOException {
+        return notificationDispatcher.getCoalescedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getDroppedNotificationCount()
+     */
+    public long getDroppedNotificationCount() throws IOException {
+        return notificationDispatcher.getDroppedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getQueuedNotificationCount()
+     */
+    public int getQueuedNotificationCount() throws IOException {
+        return notificationDispatcher.getQueuedNotificationCount();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getAverageDispatchLatency()
+     */
+    public double getAverageDispatchLatency() throws IOException {
+        return notificationDispatcher.getAverageDispatchLatency();
+    }
+
+    /**
+     * @see org.apache.aries.jmx.framework.NotificationDispatchMetrics#getMaxDispatchLatency()
+     */
+    public double getMaxDispatchLatency() throws IOException {
+        return notificationDispatcher.getMaxDispatchLatency();
+    }
+
     /**
      * @see javax.management.NotificationBroadcasterSupport#getNotificationInfo()
      */
@@ -236,8 +415,14 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
      */
     public void postRegister(Boolean registrationDone) {
         if (registrationDone && registrations.incrementAndGet() == 1) {
-            eventDispatcher = Executors.newSingleThreadExecutor(new JMXThreadFactory("JMX OSGi Service State Event Dispatcher"));
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                    new JMXThreadFactory("JMX OSGi Service State Event Dispatcher"));
+            eventDispatcher = executor;
+            notificationDispatcher.setExecutor(executor);
             bundleContext.addServiceListener(serviceListener);
+            // events may have been missed while the listener was not registered
+            changeLog.changedAll();
+            serviceDataCache.setEnabled(true);
         }
     }
 
@@ -254,12 +439,21 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
             if (serviceListener == null) {
                 serviceListener = new AllServiceListener() {
                     public void serviceChanged(ServiceEvent serviceevent) {
+                        long serviceId = getServiceId(serviceevent.getServiceReference());
+                        if (serviceevent.getType() != ServiceEvent.REGISTERED) {
+                            serviceDataCache.invalidate(serviceId);
+                        }
+                        if (serviceevent.getType() == ServiceEvent.UNREGISTERING) {
+                            changeLog.removed(serviceId);
+                        } else {
+                            changeLog.changed(serviceId);
+                        }
                         if (stateConfig != null && !stateConfig.isServiceChangeNotificationEnabled()) {
                             return;
                         }
                         try {
                             // Create a notification for the event
-                            final Notification notification = new Notification(EVENT, OBJECTNAME,
+                            final Notification notification = new Notification(EVENT, ServiceStateMBean.OBJECTNAME,
                                     notificationSequenceNumber.getAndIncrement());
                             notification.setUserData(new ServiceEventData(serviceevent).toCompositeData());
 
@@ -267,13 +461,7 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
                             final AttributeChangeNotification attributeChangeNotification =
                                     getAttributeChangeNotification(serviceevent);
 
-                            eventDispatcher.submit(new Runnable() {
-                                public void run() {
-                                    sendNotification(notification);
-                                    if (attributeChangeNotification != null)
-                                        sendNotification(attributeChangeNotification);
-                                }
-                            });
+                            notificationDispatcher.dispatch(serviceId, notification, attributeChangeNotification);
                         } catch (RejectedExecutionException re) {
                             logger.log(LogService.LOG_WARNING, "Task rejected for JMX Notification dispatch of event ["
                                     + serviceevent + "] - Dispatcher may have been shutdown");
@@ -327,7 +515,7 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
                 newIDs[i] = newList.get(i);
             }
 
-            return new AttributeChangeNotification(OBJECTNAME, attributeChangeNotificationSequenceNumber.getAndIncrement(),
+            return new AttributeChangeNotification(ServiceStateMBean.OBJECTNAME, attributeChangeNotificationSequenceNumber.getAndIncrement(),
                     System.currentTimeMillis(), "ServiceIds changed", "ServiceIds", "Array of long", oldIDs, newIDs);
         default:
             return null;
@@ -339,6 +527,7 @@ public class ServiceState extends NotificationBroadcasterSupport implements Serv
      * [ARIES-259] MBeans not getting unregistered reliably
      */
     protected void shutDownDispatcher() {
+        serviceDataCache.setEnabled(false);
         if (serviceListener != null) {
             try {
                bundleContext.removeServiceListener(serviceListener);
@@ -0,0 +1,91 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import java.io.IOException;
+
+import javax.management.openmbean.TabularData;
+
+import org.osgi.jmx.framework.ServiceStateMBean;
+
+/**
+ * Aries specific companion of the {@link ServiceStateMBean}, returning only the services changed since a previous
+ * call, or the services one page at a time, so that polling a large framework does not transfer its whole state.
+ * <p>
+ * A client reads {@link #getChangeSequenceNumber()}, lists the services, and later passes the sequence number it
+ * read to {@link #listChangedServices(long)} and {@link #getRemovedServices(long)}, reading the sequence number
+ * again first. Changes are those signalled by <code>ServiceEvent</code>s, getting or releasing a service does not
+ * count as a change.
+ * <p>
+ * The metrics of the dispatch of the notifications of the {@link ServiceStateMBean} are exposed as attributes.
+ * <p>
+ * The tables returned are of type {@link ServiceStateMBean#SERVICES_TYPE}.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface ServiceStateChangesMBean extends NotificationDispatchMetrics {
+
+    String OBJECTNAME = "org.apache.aries.jmx:type=serviceStateChanges,version=1.0";
+
+    /**
+     * @return the sequence number of the last change recorded
+     * @throws IOException
+     */
+    long getChangeSequenceNumber() throws IOException;
+
+    /**
+     * @param sequenceNumber a sequence number previously returned by {@link #getChangeSequenceNumber()}, or 0 for all
+     *            services
+     * @return the registered services registered or modified after the sequence number
+     * @throws IOException
+     */
+    TabularData listChangedServices(long sequenceNumber) throws IOException;
+
+    /**
+     * @param sequenceNumber a sequence number previously returned by {@link #getChangeSequenceNumber()}, or 0 for all
+     *            services
+     * @param items the items of {@link ServiceStateMBean#SERVICE_TYPE} to fill in
+     * @return the registered services registered or modified after the sequence number
+     * @throws IOException
+     */
+    TabularData listChangedServices(long sequenceNumber, String... items) throws IOException;
+
+    /**
+     * @param sequenceNumber a sequence number previously returned by {@link #getChangeSequenceNumber()}
+     * @return the sorted ids of the services unregistered after the sequence number
+     * @throws IOException if the unregistrations since the sequence number are no longer known, in which case all
+     *             services must be listed again
+     */
+    long[] getRemovedServices(long sequenceNumber) throws IOException;
+
+    /**
+     * @param fromServiceId the lowest service id to return
+     * @param maxServices the maximum number of services to return
+     * @return the services with an id of at least <code>fromServiceId</code>, lowest ids first
+     * @throws IOException
+     */
+    TabularData listServices(long fromServiceId, int maxServices) throws IOException;
+
+    /**
+     * @param fromServiceId the lowest service id to return
+     * @param maxServices the maximum number of services to return
+     * @param items the items of {@link ServiceStateMBean#SERVICE_TYPE} to fill in
+     * @return the services with an id of at least <code>fromServiceId</code>, lowest ids first
+     * @throws IOException
+     */
+    TabularData listServices(long fromServiceId, int maxServices, String... items) throws IOException;
+}
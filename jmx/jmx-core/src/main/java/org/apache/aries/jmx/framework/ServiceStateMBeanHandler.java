@@ -78,6 +78,13 @@ public class ServiceStateMBeanHandler implements MBeanHandler {
         return mbean;
     }
 
+    /**
+     * @return the <code>ServiceState</code> implementation, or null if the handler is not open
+     */
+    public ServiceState getServiceState() {
+        return serviceStateMBean;
+    }
+
     /**
      * @see org.apache.aries.jmx.MBeanHandler#getName()
      */
@@ -0,0 +1,74 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the data built for bundles or services between listings, by id. Entries are invalidated by the
+ * framework events of the owning MBean, so the cache is only enabled while the MBean listens to them.
+ *
+ * @version $Rev$ $Date$
+ */
+class SnapshotCache<V> {
+
+    private final ConcurrentMap<Long, V> entries = new ConcurrentHashMap<Long, V>();
+
+    /*
+     * Incremented on every invalidation, so that data built before an event is not cached after it
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile boolean enabled;
+
+    long getGeneration() {
+        return generation.get();
+    }
+
+    V get(long id) {
+        return enabled ? entries.get(id) : null;
+    }
+
+    /**
+     * Caches the data, unless an invalidation happened since the given generation was read.
+     */
+    void put(long id, V value, long expectedGeneration) {
+        if (enabled && generation.get() == expectedGeneration) {
+            entries.put(id, value);
+            if (generation.get() != expectedGeneration) {
+                entries.remove(id, value);
+            }
+        }
+    }
+
+    void invalidate(long id) {
+        generation.incrementAndGet();
+        entries.remove(id);
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        invalidateAll();
+    }
+}
@@ -42,9 +42,17 @@ public class StateConfig implements ManagedService {
     private static final String BUNDLE_CHANGE_NOTIFICATION_ENABLED = "bundleChangeNotificationEnabled";
     private static final boolean DEFAULT_BUNDLE_CHANGE_NOTIFICATION_ENABLED = true;
 
+    private static final String NOTIFICATION_BATCH_WINDOW = "notificationBatchWindow";
+    private static final long DEFAULT_NOTIFICATION_BATCH_WINDOW = 0;
+
+    private static final String NOTIFICATION_QUEUE_SIZE = "notificationQueueSize";
+    private static final int DEFAULT_NOTIFICATION_QUEUE_SIZE = 0;
+
     private volatile boolean attributeChangeNotificationEnabled = DEFAULT_ATTRIBUTE_CHANGE_NOTIFICATION_ENABLED;
     private volatile boolean serviceChangeNotificationEnabled = DEFAULT_SERVICE_CHANGE_NOTIFICATION_ENABLED;
     private volatile boolean bundleChangeNotificationEnabled = DEFAULT_BUNDLE_CHANGE_NOTIFICATION_ENABLED;
+    private volatile long notificationBatchWindow = DEFAULT_NOTIFICATION_BATCH_WINDOW;
+    private volatile int notificationQueueSize = DEFAULT_NOTIFICATION_QUEUE_SIZE;
 
     void setAttributeChangeNotificationEnabled(boolean attributeChangeNotificationEnabled) {
         this.attributeChangeNotificationEnabled = attributeChangeNotificationEnabled;
@@ -58,6 +66,14 @@ public class StateConfig implements ManagedService {
         this.bundleChangeNotificationEnabled = bundleChangeNotificationEnabled;
     }
 
+    void setNotificationBatchWindow(long notificationBatchWindow) {
+        this.notificationBatchWindow = notificationBatchWindow;
+    }
+
+    void setNotificationQueueSize(int notificationQueueSize) {
+        this.notificationQueueSize = notificationQueueSize;
+    }
+
     /**
      * Registers this service and returns an instance.
      *
@@ -82,6 +98,8 @@ public class StateConfig implements ManagedService {
                 DEFAULT_SERVICE_CHANGE_NOTIFICATION_ENABLED);
         bundleChangeNotificationEnabled = getBoolean(dictionary, BUNDLE_CHANGE_NOTIFICATION_ENABLED,
                 DEFAULT_BUNDLE_CHANGE_NOTIFICATION_ENABLED);
+        notificationBatchWindow = getLong(dictionary, NOTIFICATION_BATCH_WINDOW, DEFAULT_NOTIFICATION_BATCH_WINDOW);
+        notificationQueueSize = (int) getLong(dictionary, NOTIFICATION_QUEUE_SIZE, DEFAULT_NOTIFICATION_QUEUE_SIZE);
     }
 
     /**
@@ -111,6 +129,46 @@ public class StateConfig implements ManagedService {
         return bundleChangeNotificationEnabled;
     }
 
+    /**
+     * The time in milliseconds during which bundle and service events are collected before their notifications are
+     * sent, keeping only the last event of each bundle or service. With 0, a notification is sent for every event.
+     *
+     * @return the batch window in milliseconds
+     */
+    public long getNotificationBatchWindow() {
+        return notificationBatchWindow;
+    }
+
+    /**
+     * The maximum number of bundle or service notifications waiting to be sent, further notifications are dropped.
+     * With 0, the number is not limited.
+     *
+     * @return the maximum number of notifications waiting to be sent
+     */
+    public int getNotificationQueueSize() {
+        return notificationQueueSize;
+    }
+
+    private static long getLong(Dictionary<String, ?> dictionary, String propertyName, long defaultValue)
+            throws ConfigurationException {
+        Object object = (dictionary != null) ? dictionary.get(propertyName) : null;
+        if (object == null) {
+            return defaultValue;
+        } else if (object instanceof Number) {
+            return ((Number) object).longValue();
+        } else {
+            String string = object.toString().trim();
+            if (string.isEmpty()) {
+                return defaultValue;
+            }
+            try {
+                return Long.parseLong(string);
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException(propertyName, "Not a number: " + string, e);
+            }
+        }
+    }
+
     private static boolean getBoolean(Dictionary<String, ?> dictionary, String propertyName, boolean defaultValue) {
         Object object = (dictionary != null) ? dictionary.get(propertyName) : null;
         if (object == null) {
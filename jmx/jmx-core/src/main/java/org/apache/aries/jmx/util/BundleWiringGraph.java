@@ -0,0 +1,105 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.packageadmin.ExportedPackage;
+import org.osgi.service.packageadmin.PackageAdmin;
+import org.osgi.service.packageadmin.RequiredBundle;
+
+/**
+ * A snapshot of the package and bundle wiring of all bundles, read from the <code>PackageAdmin</code> in a
+ * single pass. Looking up the imports or the required bundles of a bundle is then a map lookup rather than a
+ * scan of all exported packages, which keeps listing all bundles linear in the number of bundles.
+ *
+ * @version $Rev$ $Date$
+ */
+public class BundleWiringGraph {
+
+    private final Map<Bundle, List<ExportedPackage>> importedPackages = new HashMap<Bundle, List<ExportedPackage>>();
+    private final Map<Bundle, List<RequiredBundle>> requiredBundles = new HashMap<Bundle, List<RequiredBundle>>();
+    private final Map<Bundle, List<RequiredBundle>> bundleRequirements = new HashMap<Bundle, List<RequiredBundle>>();
+
+    public BundleWiringGraph(PackageAdmin packageAdmin) {
+        if (packageAdmin == null) {
+            throw new IllegalArgumentException("Argument packageAdmin cannot be null");
+        }
+        ExportedPackage[] exportedPackages = packageAdmin.getExportedPackages((Bundle) null);
+        if (exportedPackages != null) {
+            for (ExportedPackage exportedPackage : exportedPackages) {
+                Bundle[] importingBundles = exportedPackage.getImportingBundles();
+                if (importingBundles != null) {
+                    for (Bundle importingBundle : importingBundles) {
+                        add(importedPackages, importingBundle, exportedPackage);
+                    }
+                }
+            }
+        }
+        RequiredBundle[] allRequiredBundles = packageAdmin.getRequiredBundles(null);
+        if (allRequiredBundles != null) {
+            for (RequiredBundle requiredBundle : allRequiredBundles) {
+                add(requiredBundles, requiredBundle.getBundle(), requiredBundle);
+                Bundle[] requiringBundles = requiredBundle.getRequiringBundles();
+                if (requiringBundles != null) {
+                    for (Bundle requiringBundle : requiringBundles) {
+                        add(bundleRequirements, requiringBundle, requiredBundle);
+                    }
+                }
+            }
+        }
+    }
+
+    private static <T> void add(Map<Bundle, List<T>> map, Bundle bundle, T value) {
+        List<T> values = map.get(bundle);
+        if (values == null) {
+            values = new ArrayList<T>();
+            map.put(bundle, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * @return the exported packages wired to the given bundle, through imports or required bundles
+     */
+    public List<ExportedPackage> getImportedPackages(Bundle bundle) {
+        List<ExportedPackage> result = importedPackages.get(bundle);
+        return result != null ? result : Collections.<ExportedPackage>emptyList();
+    }
+
+    /**
+     * @return the <code>RequiredBundle</code> entries of the given bundle, as returned by
+     *         {@link PackageAdmin#getRequiredBundles(String)} for its symbolic name
+     */
+    public List<RequiredBundle> getRequiredBundles(Bundle bundle) {
+        List<RequiredBundle> result = requiredBundles.get(bundle);
+        return result != null ? result : Collections.<RequiredBundle>emptyList();
+    }
+
+    /**
+     * @return the <code>RequiredBundle</code> entries the given bundle is wired to through Require-Bundle
+     */
+    public List<RequiredBundle> getBundleRequirements(Bundle bundle) {
+        List<RequiredBundle> result = bundleRequirements.get(bundle);
+        return result != null ? result : Collections.<RequiredBundle>emptyList();
+    }
+}
@@ -250,6 +250,26 @@ public class FrameworkUtils {
      */
     public static String[] getBundleImportedPackages(BundleContext localBundleContext, Bundle bundle,
             PackageAdmin packageAdmin) throws IllegalArgumentException {
+        return getBundleImportedPackages(localBundleContext, bundle, packageAdmin, null);
+    }
+
+    /**
+     * Returns the resolved package imports for the given bundle
+     * 
+     * @param localBundleContext
+     *            BundleContext object of this bundle/caller
+     * @param bundle
+     *            target Bundle object to query imported packages for
+     * @param packageAdmin
+     * @param wiring
+     *            snapshot of the wiring of all bundles to look the imports up in, or null to query packageAdmin
+     * 
+     * @return
+     * @throws IllegalArgumentException
+     *             if fragment or packageAdmin are null
+     */
+    public static String[] getBundleImportedPackages(BundleContext localBundleContext, Bundle bundle,
+            PackageAdmin packageAdmin, BundleWiringGraph wiring) throws IllegalArgumentException {
         if (bundle == null) {
             throw new IllegalArgumentException("Argument bundle cannot be null");
         }
@@ -258,7 +278,7 @@ public class FrameworkUtils {
         }
         
         List<String> result = new ArrayList<String>();
-        for (ExportedPackage ep : getBundleImportedPackagesRaw(localBundleContext, bundle, packageAdmin)) {
+        for (ExportedPackage ep : getBundleImportedPackagesRaw(localBundleContext, bundle, packageAdmin, wiring)) {
           result.add(ep.getName()+";"+ep.getVersion());
         }
         
@@ -266,14 +286,32 @@ public class FrameworkUtils {
     }
     
     @SuppressWarnings("unchecked")
-    private static Collection<ExportedPackage> getBundleImportedPackagesRaw(BundleContext localBundleContext, Bundle bundle, PackageAdmin packageAdmin) throws IllegalArgumentException 
+    private static Collection<ExportedPackage> getBundleImportedPackagesRaw(BundleContext localBundleContext, Bundle bundle, PackageAdmin packageAdmin, BundleWiringGraph wiring) throws IllegalArgumentException 
     {
       List<ExportedPackage> result = new ArrayList<ExportedPackage>();
       Dictionary<String, String> bundleHeaders = bundle.getHeaders();
       String dynamicImportHeader = bundleHeaders.get(Constants.DYNAMICIMPORT_PACKAGE);
       // if DynamicImport-Package used, then do full iteration
       // else means no dynamic import or has dynamic import but no wildcard "*" in it.
-      if (dynamicImportHeader != null && dynamicImportHeader.contains("*")) {
+      if (wiring != null) {
+          Set<String> importPackages = null;
+          if (dynamicImportHeader == null || !dynamicImportHeader.contains("*")) {
+              importPackages = new HashSet<String>();
+              String importPackageHeader = bundleHeaders.get(Constants.IMPORT_PACKAGE);
+              if (importPackageHeader != null && importPackageHeader.length() > 0) {
+                  importPackages.addAll(extractHeaderDeclaration(importPackageHeader));
+              }
+              if (dynamicImportHeader != null) {
+                  importPackages.addAll(extractHeaderDeclaration(dynamicImportHeader));
+              }
+          }
+          for (ExportedPackage exportedPackage : wiring.getImportedPackages(bundle)) {
+              if (importPackages == null ? !bundle.equals(exportedPackage.getExportingBundle())
+                      : importPackages.contains(exportedPackage.getName())) {
+                  result.add(exportedPackage);
+              }
+          }
+      } else if (dynamicImportHeader != null && dynamicImportHeader.contains("*")) {
           Bundle[] bundles = localBundleContext.getBundles();
           for (Bundle candidate : bundles) {
               if (candidate.equals(bundle)) {
@@ -377,6 +415,22 @@ public class FrameworkUtils {
      */
     public static boolean isBundlePendingRemoval(Bundle bundle, PackageAdmin packageAdmin)
             throws IllegalArgumentException {
+        return isBundlePendingRemoval(bundle, packageAdmin, null);
+    }
+
+    /**
+     * Returns the status of pending removal
+     * 
+     * @param bundle
+     * @param packageAdmin
+     * @param wiring
+     *            snapshot of the wiring of all bundles, or null to query packageAdmin
+     * @return true if the bundle is pending removal
+     * @throws IllegalArgumentException
+     *             if bundle or packageAdmin are null
+     */
+    public static boolean isBundlePendingRemoval(Bundle bundle, PackageAdmin packageAdmin, BundleWiringGraph wiring)
+            throws IllegalArgumentException {
         if (bundle == null) {
             throw new IllegalArgumentException("Argument bundle cannot be null");
         }
@@ -394,7 +448,7 @@ public class FrameworkUtils {
             }
         }
         if (!result) {
-            RequiredBundle[] requiredBundles = packageAdmin.getRequiredBundles(bundle.getSymbolicName());
+            RequiredBundle[] requiredBundles = getRequiredBundles(bundle, packageAdmin, wiring);
             if (requiredBundles != null) {
                 for (RequiredBundle requiredBundle : requiredBundles) {
                     Bundle required = requiredBundle.getBundle();
@@ -419,6 +473,22 @@ public class FrameworkUtils {
      */
     public static boolean isBundleRequiredByOthers(Bundle bundle, PackageAdmin packageAdmin)
             throws IllegalArgumentException {
+        return isBundleRequiredByOthers(bundle, packageAdmin, null);
+    }
+
+    /**
+     * Checks if the given bundle is currently required by other bundles
+     * 
+     * @param bundle
+     * @param packageAdmin
+     * @param wiring
+     *            snapshot of the wiring of all bundles, or null to query packageAdmin
+     * @return
+     * @throws IllegalArgumentException
+     *             if bundle or packageAdmin are null
+     */
+    public static boolean isBundleRequiredByOthers(Bundle bundle, PackageAdmin packageAdmin, BundleWiringGraph wiring)
+            throws IllegalArgumentException {
         if (bundle == null) {
             throw new IllegalArgumentException("Argument bundle cannot be null");
         }
@@ -439,7 +509,7 @@ public class FrameworkUtils {
         }
         if (!result) {
             // Check required bundles
-            RequiredBundle[] requiredBundles = packageAdmin.getRequiredBundles(bundle.getSymbolicName());
+            RequiredBundle[] requiredBundles = getRequiredBundles(bundle, packageAdmin, wiring);
             if (requiredBundles != null) {
                 for (RequiredBundle requiredBundle : requiredBundles) {
                     Bundle required = requiredBundle.getBundle();
@@ -476,10 +546,32 @@ public class FrameworkUtils {
      * @throws IllegalArgumentException
      *             if bundle or packageAdmin are null
      */
-    @SuppressWarnings("unchecked")
     public static long[] getBundleDependencies(BundleContext localBundleContext, 
                                                Bundle bundle,
                                                PackageAdmin packageAdmin) throws IllegalArgumentException {
+        return getBundleDependencies(localBundleContext, bundle, packageAdmin, null);
+    }
+
+    /**
+     * Returns an array of ids of bundles the given bundle depends on
+     * 
+     * @param localBundleContext
+     *            BundleContext object of this bundle/caller
+     * @param bundle
+     *            target Bundle object to query dependencies for
+     * @param packageAdmin
+     * @param wiring
+     *            snapshot of the wiring of all bundles, or null to query packageAdmin
+     * 
+     * @return
+     * @throws IllegalArgumentException
+     *             if bundle or packageAdmin are null
+     */
+    @SuppressWarnings("unchecked")
+    public static long[] getBundleDependencies(BundleContext localBundleContext, 
+                                               Bundle bundle,
+                                               PackageAdmin packageAdmin,
+                                               BundleWiringGraph wiring) throws IllegalArgumentException {
         if (bundle == null) {
             throw new IllegalArgumentException("Argument bundle cannot be null");
         }
@@ -488,7 +580,7 @@ public class FrameworkUtils {
         }
         Set<Bundle> dependencies = new HashSet<Bundle>();
         
-        for (ExportedPackage ep : getBundleImportedPackagesRaw(localBundleContext, bundle, packageAdmin)) {
+        for (ExportedPackage ep : getBundleImportedPackagesRaw(localBundleContext, bundle, packageAdmin, wiring)) {
           dependencies.add(ep.getExportingBundle());
         }
         
@@ -497,13 +589,21 @@ public class FrameworkUtils {
         String requireBundleHeader = bundleHeaders.get(Constants.REQUIRE_BUNDLE);
         if (requireBundleHeader != null) { // only check if Require-Bundle is used
         	List<String> bundleSymbolicNames = extractHeaderDeclaration(requireBundleHeader);
-            for (String bundleSymbolicName: bundleSymbolicNames) {
-                RequiredBundle[] candidateRequiredBundles = packageAdmin.getRequiredBundles(bundleSymbolicName);
-                if (candidateRequiredBundles != null) {
-                    for (RequiredBundle candidateRequiredBundle : candidateRequiredBundles) {
-                        Bundle[] bundlesRequiring = candidateRequiredBundle.getRequiringBundles();
-                        if (bundlesRequiring != null && arrayContains(bundlesRequiring, bundle)) {
-                            dependencies.add(candidateRequiredBundle.getBundle());
+            if (wiring != null) {
+                for (RequiredBundle requirement : wiring.getBundleRequirements(bundle)) {
+                    if (bundleSymbolicNames.contains(requirement.getSymbolicName())) {
+                        dependencies.add(requirement.getBundle());
+                    }
+                }
+            } else {
+                for (String bundleSymbolicName: bundleSymbolicNames) {
+                    RequiredBundle[] candidateRequiredBundles = packageAdmin.getRequiredBundles(bundleSymbolicName);
+                    if (candidateRequiredBundles != null) {
+                        for (RequiredBundle candidateRequiredBundle : candidateRequiredBundles) {
+                            Bundle[] bundlesRequiring = candidateRequiredBundle.getRequiringBundles();
+                            if (bundlesRequiring != null && arrayContains(bundlesRequiring, bundle)) {
+                                dependencies.add(candidateRequiredBundle.getBundle());
+                            }
                         }
                     }
                 }
@@ -529,6 +629,21 @@ public class FrameworkUtils {
      *             if bundle or packageAdmin are null
      */
     public static long[] getDependentBundles(Bundle bundle, PackageAdmin packageAdmin) throws IllegalArgumentException {
+        return getDependentBundles(bundle, packageAdmin, null);
+    }
+
+    /**
+     * Returns an array of ids of bundles that depend on the given bundle
+     * 
+     * @param bundle
+     * @param packageAdmin
+     * @param wiring
+     *            snapshot of the wiring of all bundles, or null to query packageAdmin
+     * @return
+     * @throws IllegalArgumentException
+     *             if bundle or packageAdmin are null
+     */
+    public static long[] getDependentBundles(Bundle bundle, PackageAdmin packageAdmin, BundleWiringGraph wiring) throws IllegalArgumentException {
         if (bundle == null) {
             throw new IllegalArgumentException("Argument bundle cannot be null");
         }
@@ -549,7 +664,7 @@ public class FrameworkUtils {
             }
         }
         // Handle required bundles
-        RequiredBundle[] requiredBundles = packageAdmin.getRequiredBundles(bundle.getSymbolicName());
+        RequiredBundle[] requiredBundles = getRequiredBundles(bundle, packageAdmin, wiring);
         if (requiredBundles != null) {
             for (RequiredBundle requiredBundle : requiredBundles) {
                 Bundle required = requiredBundle.getBundle();
@@ -573,6 +688,17 @@ public class FrameworkUtils {
         return getBundleIds(dependencies.toArray(new Bundle[dependencies.size()]));
     }
 
+    /*
+     * Returns the RequiredBundle entries for the symbolic name of the given bundle
+     */
+    private static RequiredBundle[] getRequiredBundles(Bundle bundle, PackageAdmin packageAdmin, BundleWiringGraph wiring) {
+        if (wiring != null) {
+            List<RequiredBundle> requiredBundles = wiring.getRequiredBundles(bundle);
+            return requiredBundles.toArray(new RequiredBundle[requiredBundles.size()]);
+        }
+        return packageAdmin.getRequiredBundles(bundle.getSymbolicName());
+    }
+
     /**
      * Returns a String representation of the bundles state
      * 
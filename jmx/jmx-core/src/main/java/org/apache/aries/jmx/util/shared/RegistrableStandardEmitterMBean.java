@@ -19,14 +19,10 @@ package org.apache.aries.jmx.util.shared;
 import javax.management.ListenerNotFoundException;
 import javax.management.MBeanInfo;
 import javax.management.MBeanNotificationInfo;
-import javax.management.MBeanRegistration;
-import javax.management.MBeanServer;
 import javax.management.NotCompliantMBeanException;
 import javax.management.NotificationEmitter;
 import javax.management.NotificationFilter;
 import javax.management.NotificationListener;
-import javax.management.ObjectName;
-import javax.management.StandardMBean;
 
 /**
  * The <code>StandardMBean</code> does not appear to delegate correctly to the underlying MBean implementation. Due to
@@ -35,7 +31,7 @@ import javax.management.StandardMBean;
  * 
  * @version $Rev$ $Date$
  */
-public class RegistrableStandardEmitterMBean extends StandardMBean implements MBeanRegistration, NotificationEmitter {
+public class RegistrableStandardEmitterMBean extends RegistrableStandardMBean implements NotificationEmitter {
 
     public <T> RegistrableStandardEmitterMBean(T impl, Class<T> intf) throws NotCompliantMBeanException {
         super(impl, intf);
@@ -60,48 +56,6 @@ public class RegistrableStandardEmitterMBean extends StandardMBean implements MB
         return mbeanInfo;
     }
 
-    /**
-     * @see javax.management.MBeanRegistration#postDeregister()
-     */
-    public void postDeregister() {
-        Object impl = getImplementation();
-        if (impl instanceof MBeanRegistration) {
-            ((MBeanRegistration) impl).postDeregister();
-        }
-    }
-
-    /**
-     * @see javax.management.MBeanRegistration#postRegister(java.lang.Boolean)
-     */
-    public void postRegister(Boolean registrationDone) {
-        Object impl = getImplementation();
-        if (impl instanceof MBeanRegistration) {
-            ((MBeanRegistration) impl).postRegister(registrationDone);
-        }
-    }
-
-    /**
-     * @see javax.management.MBeanRegistration#preDeregister()
-     */
-    public void preDeregister() throws Exception {
-        Object impl = getImplementation();
-        if (impl instanceof MBeanRegistration) {
-            ((MBeanRegistration) impl).preDeregister();
-        }
-    }
-
-    /**
-     * @see javax.management.MBeanRegistration#preRegister(javax.management.MBeanServer, javax.management.ObjectName)
-     */
-    public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
-        ObjectName result = name;
-        Object impl = getImplementation();
-        if (impl instanceof MBeanRegistration) {
-            result = ((MBeanRegistration) impl).preRegister(server, name);
-        }
-        return result;
-    }
-
     /**
      * @see javax.management.NotificationEmitter#removeNotificationListener(javax.management.NotificationListener,
      *      javax.management.NotificationFilter, java.lang.Object)
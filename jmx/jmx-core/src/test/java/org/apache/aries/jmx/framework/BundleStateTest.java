@@ -16,6 +16,7 @@
  */
 package org.apache.aries.jmx.framework;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -23,12 +24,23 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.osgi.jmx.framework.BundleStateMBean.IMPORTED_PACKAGES;
 import static org.osgi.jmx.framework.BundleStateMBean.OBJECTNAME;
-
+import static org.osgi.jmx.framework.BundleStateMBean.REQUIRED;
+import static org.osgi.jmx.framework.BundleStateMBean.REQUIRED_BUNDLES;
+import static org.osgi.jmx.framework.BundleStateMBean.REQUIRING_BUNDLES;
+import static org.osgi.jmx.framework.BundleStateMBean.START_LEVEL;
+
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -38,6 +50,7 @@ import javax.management.Notification;
 import javax.management.NotificationListener;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
 
 import org.apache.aries.jmx.Logger;
 import org.apache.aries.jmx.codec.BundleEventData;
@@ -47,6 +60,9 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
+import org.osgi.framework.Constants;
+import org.osgi.framework.Version;
+import org.osgi.service.packageadmin.ExportedPackage;
 import org.osgi.service.packageadmin.PackageAdmin;
 import org.osgi.service.startlevel.StartLevel;
 
@@ -219,6 +235,169 @@ public class BundleStateTest {
 
     }
 
+    @Test
+    public void testListBundlesCachedUntilBundleEvent() throws Exception {
+        BundleContext context = mock(BundleContext.class);
+        PackageAdmin admin = mock(PackageAdmin.class);
+        StartLevel startLevel = mock(StartLevel.class);
+        Logger logger = mock(Logger.class);
+
+        Bundle[] bundles = new Bundle[50];
+        for (int i = 0; i < bundles.length; i++) {
+            Dictionary<String, String> headers = new Hashtable<String, String>();
+            headers.put(Constants.IMPORT_PACKAGE, "org.apache.aries.jmx.p" + i);
+            bundles[i] = mock(Bundle.class);
+            when(bundles[i].getBundleId()).thenReturn(new Long(i));
+            when(bundles[i].getSymbolicName()).thenReturn("bundle" + i);
+            when(bundles[i].getVersion()).thenReturn(Version.emptyVersion);
+            when(bundles[i].getHeaders()).thenReturn(headers);
+        }
+        when(context.getBundles()).thenReturn(bundles);
+
+        BundleState bundleState = new BundleState(context, admin, startLevel, new StateConfig(), logger);
+        bundleState.preRegister(mock(MBeanServer.class), new ObjectName(OBJECTNAME));
+        bundleState.postRegister(true);
+
+        assertEquals(bundles.length, bundleState.listBundles().size());
+
+        // served from the cache, apart from the data which changes without a BundleEvent
+        when(startLevel.getBundleStartLevel(bundles[0])).thenReturn(3);
+        TabularData table = bundleState.listBundles();
+        assertEquals(bundles.length, table.size());
+        assertEquals(3, table.get(new Object[] { new Long(0) }).get(START_LEVEL));
+
+        // the wiring is read once for all bundles rather than looked up per package and bundle
+        verify(admin, times(1)).getExportedPackages((Bundle) null);
+        verify(admin, times(1)).getRequiredBundles(null);
+        verify(admin, never()).getExportedPackages("org.apache.aries.jmx.p0");
+        verify(admin, never()).getRequiredBundles("bundle0");
+
+        ArgumentCaptor<BundleListener> argument = ArgumentCaptor.forClass(BundleListener.class);
+        verify(context).addBundleListener(argument.capture());
+        BundleEvent resolvedEvent = mock(BundleEvent.class);
+        when(resolvedEvent.getBundle()).thenReturn(bundles[0]);
+        when(resolvedEvent.getType()).thenReturn(BundleEvent.RESOLVED);
+        argument.getValue().bundleChanged(resolvedEvent);
+
+        assertEquals(bundles.length, bundleState.listBundles().size());
+        verify(admin, times(2)).getExportedPackages((Bundle) null);
+
+        bundleState.postDeregister();
+    }
+
+    @Test
+    public void testDynamicImportWiringReadWithoutBundleEvent() throws Exception {
+        BundleContext context = mock(BundleContext.class);
+        PackageAdmin admin = mock(PackageAdmin.class);
+        StartLevel startLevel = mock(StartLevel.class);
+        Logger logger = mock(Logger.class);
+
+        Bundle exporter = mock(Bundle.class);
+        when(exporter.getBundleId()).thenReturn(new Long(0));
+        when(exporter.getVersion()).thenReturn(Version.emptyVersion);
+        when(exporter.getHeaders()).thenReturn(new Hashtable<String, String>());
+        Dictionary<String, String> headers = new Hashtable<String, String>();
+        headers.put(Constants.DYNAMICIMPORT_PACKAGE, "*");
+        Bundle importer = mock(Bundle.class);
+        when(importer.getBundleId()).thenReturn(new Long(1));
+        when(importer.getVersion()).thenReturn(Version.emptyVersion);
+        when(importer.getHeaders()).thenReturn(headers);
+        when(importer.getHeaders("")).thenReturn(headers);
+        when(context.getBundles()).thenReturn(new Bundle[] { exporter, importer });
+
+        BundleState bundleState = new BundleState(context, admin, startLevel, new StateConfig(), logger);
+        bundleState.preRegister(mock(MBeanServer.class), new ObjectName(OBJECTNAME));
+        bundleState.postRegister(true);
+
+        TabularData table = bundleState.listBundles();
+        assertArrayEquals(new String[0], (String[]) table.get(new Object[] { new Long(1) }).get(IMPORTED_PACKAGES));
+        assertFalse((Boolean) table.get(new Object[] { new Long(0) }).get(REQUIRED));
+
+        // the package is wired on first use, which fires no BundleEvent
+        ExportedPackage exportedPackage = mock(ExportedPackage.class);
+        when(exportedPackage.getName()).thenReturn("org.apache.aries.jmx.dynamic");
+        when(exportedPackage.getVersion()).thenReturn(Version.emptyVersion);
+        when(exportedPackage.getExportingBundle()).thenReturn(exporter);
+        when(exportedPackage.getImportingBundles()).thenReturn(new Bundle[] { importer });
+        when(admin.getExportedPackages((Bundle) null)).thenReturn(new ExportedPackage[] { exportedPackage });
+        when(admin.getExportedPackages(exporter)).thenReturn(new ExportedPackage[] { exportedPackage });
+
+        table = bundleState.listBundles();
+        assertArrayEquals(new String[] { "org.apache.aries.jmx.dynamic;0.0.0" },
+                (String[]) table.get(new Object[] { new Long(1) }).get(IMPORTED_PACKAGES));
+        assertArrayEquals(new Long[] { new Long(0) }, (Long[]) table.get(new Object[] { new Long(1) }).get(REQUIRED_BUNDLES));
+        assertTrue((Boolean) table.get(new Object[] { new Long(0) }).get(REQUIRED));
+        assertArrayEquals(new Long[] { new Long(1) }, (Long[]) table.get(new Object[] { new Long(0) }).get(REQUIRING_BUNDLES));
+
+        bundleState.postDeregister();
+    }
+
+    @Test
+    public void testChangedBundlesAndPaging() throws Exception {
+        BundleContext context = mock(BundleContext.class);
+        PackageAdmin admin = mock(PackageAdmin.class);
+        StartLevel startLevel = mock(StartLevel.class);
+        Logger logger = mock(Logger.class);
+
+        Bundle[] bundles = new Bundle[5];
+        for (int i = 0; i < bundles.length; i++) {
+            bundles[i] = mock(Bundle.class);
+            when(bundles[i].getBundleId()).thenReturn(new Long(i));
+            when(bundles[i].getSymbolicName()).thenReturn("bundle" + i);
+            when(bundles[i].getVersion()).thenReturn(Version.emptyVersion);
+            when(bundles[i].getHeaders()).thenReturn(new Hashtable<String, String>());
+            when(context.getBundle(i)).thenReturn(bundles[i]);
+        }
+        when(context.getBundles()).thenReturn(new Bundle[] { bundles[3], bundles[1], bundles[4], bundles[0], bundles[2] });
+
+        BundleState bundleState = new BundleState(context, admin, startLevel, new StateConfig(), logger);
+        bundleState.preRegister(mock(MBeanServer.class), new ObjectName(OBJECTNAME));
+        bundleState.postRegister(true);
+
+        // the paged listing is ordered by bundle id
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L)), bundleIds(bundleState.listBundles(1, 2)));
+        assertEquals(new HashSet<Long>(Arrays.asList(4L)), bundleIds(bundleState.listBundles(4, 2)));
+        assertEquals(0, bundleState.listBundles(5, 2).size());
+
+        assertEquals(bundles.length, bundleState.listChangedBundles(0).size());
+        long sequenceNumber = bundleState.getChangeSequenceNumber();
+        assertEquals(0, bundleState.listChangedBundles(sequenceNumber).size());
+
+        ArgumentCaptor<BundleListener> argument = ArgumentCaptor.forClass(BundleListener.class);
+        verify(context).addBundleListener(argument.capture());
+        BundleListener listener = argument.getValue();
+        listener.bundleChanged(bundleEvent(bundles[2], BundleEvent.STARTED));
+        listener.bundleChanged(bundleEvent(bundles[3], BundleEvent.UNINSTALLED));
+        when(context.getBundle(3)).thenReturn(null);
+        when(context.getBundles()).thenReturn(new Bundle[] { bundles[1], bundles[4], bundles[0], bundles[2] });
+
+        assertEquals(new HashSet<Long>(Arrays.asList(2L)), bundleIds(bundleState.listChangedBundles(sequenceNumber)));
+        assertArrayEquals(new long[] { 3 }, bundleState.getRemovedBundles(sequenceNumber));
+
+        // resolving a bundle changes what is reported for the bundles wired to it
+        sequenceNumber = bundleState.getChangeSequenceNumber();
+        listener.bundleChanged(bundleEvent(bundles[1], BundleEvent.RESOLVED));
+        assertEquals(4, bundleState.listChangedBundles(sequenceNumber).size());
+        assertEquals(0, bundleState.getRemovedBundles(sequenceNumber).length);
+
+        bundleState.postDeregister();
+    }
+
+    private BundleEvent bundleEvent(Bundle bundle, int type) {
+        BundleEvent event = mock(BundleEvent.class);
+        when(event.getBundle()).thenReturn(bundle);
+        when(event.getType()).thenReturn(type);
+        return event;
+    }
+
+    private Set<Long> bundleIds(TabularData table) {
+        Set<Long> ids = new HashSet<Long>();
+        for (Object key : table.keySet()) {
+            ids.add((Long) ((List<?>) key).get(0));
+        }
+        return ids;
+    }
+
     @Test
     public void testAttributeNotificationDisabled() throws Exception {
         StateConfig stateConfig = new StateConfig();
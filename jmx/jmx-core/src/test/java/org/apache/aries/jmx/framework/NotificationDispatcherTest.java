@@ -0,0 +1,151 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.aries.jmx.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.jmx.framework.BundleStateMBean;
+
+/**
+ * {@link NotificationDispatcher} test case.
+ *
+ * @version $Rev$ $Date$
+ */
+public class NotificationDispatcherTest {
+
+    private ScheduledExecutorService executor;
+    private NotificationBroadcasterSupport broadcaster;
+    private final List<Notification> received = new CopyOnWriteArrayList<Notification>();
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        broadcaster = new NotificationBroadcasterSupport();
+        broadcaster.addNotificationListener(new NotificationListener() {
+            public void handleNotification(Notification notification, Object handback) {
+                received.add(notification);
+            }
+        }, null, null);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDispatchEachNotification() throws Exception {
+        NotificationDispatcher dispatcher = createDispatcher(new StateConfig());
+        dispatcher.dispatch(1, notification(1), null);
+        dispatcher.dispatch(1, notification(2), attributeChange(3));
+        awaitDispatched(dispatcher);
+
+        assertEquals(3, received.size());
+        assertEquals(2, dispatcher.getDispatchedNotificationCount());
+        assertEquals(0, dispatcher.getCoalescedNotificationCount());
+        assertEquals(0, dispatcher.getQueuedNotificationCount());
+    }
+
+    @Test
+    public void testCoalesceWithinBatchWindow() throws Exception {
+        StateConfig stateConfig = new StateConfig();
+        stateConfig.setNotificationBatchWindow(50);
+        NotificationDispatcher dispatcher = createDispatcher(stateConfig);
+        AttributeChangeNotification installed = attributeChange(2);
+        dispatcher.dispatch(1, notification(1), installed);
+        dispatcher.dispatch(2, notification(3), null);
+        dispatcher.dispatch(1, notification(4), null);
+        dispatcher.dispatch(1, notification(5), null);
+        assertEquals(2, dispatcher.getQueuedNotificationCount());
+        awaitDispatched(dispatcher);
+
+        // the last event of each bundle, in the order the bundles first changed
+        assertEquals(3, received.size());
+        assertEquals(5, received.get(0).getSequenceNumber());
+        assertEquals(installed, received.get(1));
+        assertEquals(3, received.get(2).getSequenceNumber());
+        assertEquals(2, dispatcher.getDispatchedNotificationCount());
+        assertEquals(2, dispatcher.getCoalescedNotificationCount());
+        assertTrue(dispatcher.getMaxDispatchLatency() >= dispatcher.getAverageDispatchLatency());
+    }
+
+    @Test
+    public void testDropWhenQueueFull() throws Exception {
+        StateConfig stateConfig = new StateConfig();
+        stateConfig.setNotificationBatchWindow(50);
+        stateConfig.setNotificationQueueSize(2);
+        NotificationDispatcher dispatcher = createDispatcher(stateConfig);
+        dispatcher.dispatch(1, notification(1), null);
+        dispatcher.dispatch(2, notification(2), null);
+        dispatcher.dispatch(3, notification(3), null);
+        // coalescing does not need room in the queue
+        dispatcher.dispatch(2, notification(4), null);
+        awaitDispatched(dispatcher);
+
+        assertEquals(2, received.size());
+        assertEquals(1, dispatcher.getDroppedNotificationCount());
+        assertEquals(1, dispatcher.getCoalescedNotificationCount());
+
+        // room is made once the batch is sent
+        dispatcher.dispatch(3, notification(5), null);
+        awaitDispatched(dispatcher);
+        assertEquals(3, received.size());
+    }
+
+    private NotificationDispatcher createDispatcher(StateConfig stateConfig) {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(broadcaster, stateConfig);
+        dispatcher.setExecutor(executor);
+        return dispatcher;
+    }
+
+    private void awaitDispatched(NotificationDispatcher dispatcher) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (dispatcher.getQueuedNotificationCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // let the task that took the last notifications finish sending them
+        executor.submit(new Runnable() {
+            public void run() {
+            }
+        }).get();
+        assertEquals(0, dispatcher.getQueuedNotificationCount());
+    }
+
+    private static Notification notification(long sequenceNumber) {
+        return new Notification(BundleStateMBean.EVENT, "source", sequenceNumber);
+    }
+
+    private static AttributeChangeNotification attributeChange(long sequenceNumber) {
+        return new AttributeChangeNotification("source", sequenceNumber, System.currentTimeMillis(),
+                "BundleIds changed", "BundleIds", "Array of long", new long[0], new long[] { 1 });
+    }
+}
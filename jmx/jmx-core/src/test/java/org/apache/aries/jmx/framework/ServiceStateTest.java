@@ -34,8 +34,11 @@ import static org.osgi.jmx.framework.ServiceStateMBean.IDENTIFIER;
 import static org.osgi.jmx.framework.ServiceStateMBean.OBJECTNAME;
 import static org.osgi.jmx.framework.ServiceStateMBean.OBJECT_CLASS;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -45,6 +48,7 @@ import javax.management.Notification;
 import javax.management.NotificationListener;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
 
 import org.apache.aries.jmx.Logger;
 import org.junit.Test;
@@ -234,6 +238,66 @@ public class ServiceStateTest {
 
     }
 
+    @Test
+    public void testChangedServicesAndPaging() throws Exception {
+        BundleContext context = mock(BundleContext.class);
+        Logger logger = mock(Logger.class);
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(new Long(9));
+
+        ServiceReference[] references = new ServiceReference[3];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = mock(ServiceReference.class);
+            when(references[i].getBundle()).thenReturn(bundle);
+            when(references[i].getProperty(Constants.SERVICE_ID)).thenReturn(new Long(44 + i));
+            when(references[i].getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {"org.apache.aries.jmx.Mock"});
+            when(references[i].getPropertyKeys()).thenReturn(new String[0]);
+        }
+        when(context.getAllServiceReferences(null, null)).thenReturn(
+                new ServiceReference[] {references[2], references[0], references[1]});
+
+        ServiceState serviceState = new ServiceState(context, new StateConfig(), logger);
+        serviceState.preRegister(mock(MBeanServer.class), new ObjectName(OBJECTNAME));
+        serviceState.postRegister(true);
+
+        // the paged listing is ordered by service id
+        assertEquals(new HashSet<Long>(Arrays.asList(44L, 45L)), serviceIds(serviceState.listServices(0, 2)));
+        assertEquals(new HashSet<Long>(Arrays.asList(46L)), serviceIds(serviceState.listServices(46, 2)));
+
+        assertEquals(references.length, serviceState.listChangedServices(0).size());
+        long sequenceNumber = serviceState.getChangeSequenceNumber();
+        assertEquals(0, serviceState.listChangedServices(sequenceNumber).size());
+
+        ArgumentCaptor<AllServiceListener> argument = ArgumentCaptor.forClass(AllServiceListener.class);
+        verify(context).addServiceListener(argument.capture());
+        AllServiceListener listener = argument.getValue();
+        listener.serviceChanged(serviceEvent(references[1], ServiceEvent.MODIFIED));
+        listener.serviceChanged(serviceEvent(references[2], ServiceEvent.UNREGISTERING));
+        when(context.getAllServiceReferences(null, null)).thenReturn(
+                new ServiceReference[] {references[0], references[1]});
+
+        assertEquals(new HashSet<Long>(Arrays.asList(45L)), serviceIds(serviceState.listChangedServices(sequenceNumber)));
+        assertArrayEquals(new long[] { 46 }, serviceState.getRemovedServices(sequenceNumber));
+        assertEquals(0, serviceState.getRemovedServices(serviceState.getChangeSequenceNumber()).length);
+
+        serviceState.postDeregister();
+    }
+
+    private ServiceEvent serviceEvent(ServiceReference reference, int type) {
+        ServiceEvent event = mock(ServiceEvent.class);
+        when(event.getServiceReference()).thenReturn(reference);
+        when(event.getType()).thenReturn(type);
+        return event;
+    }
+
+    private Set<Long> serviceIds(TabularData table) {
+        Set<Long> ids = new HashSet<Long>();
+        for (Object key : table.keySet()) {
+            ids.add((Long) ((List<?>) key).get(0));
+        }
+        return ids;
+    }
+
     @Test
     public void testAttributeNotificationDisabled() throws Exception {
         StateConfig stateConfig = new StateConfig();
@@ -20,6 +20,7 @@ import static org.apache.aries.jmx.util.FrameworkUtils.getBundleDependencies;
 import static org.apache.aries.jmx.util.FrameworkUtils.getBundleExportedPackages;
 import static org.apache.aries.jmx.util.FrameworkUtils.getBundleIds;
 import static org.apache.aries.jmx.util.FrameworkUtils.getBundleImportedPackages;
+import static org.apache.aries.jmx.util.FrameworkUtils.getDependentBundles;
 import static org.apache.aries.jmx.util.FrameworkUtils.getRegisteredServiceIds;
 import static org.apache.aries.jmx.util.FrameworkUtils.getServiceIds;
 import static org.apache.aries.jmx.util.FrameworkUtils.getServicesInUseByBundle;
@@ -283,6 +284,63 @@ public class FrameworkUtilsTest {
         assertEquals(toSet(new long[] { 44, 66 }), toSet(getBundleDependencies(context, bundle, admin)));
     }
     
+    @Test
+    public void testWiringGraphMatchesPackageAdminQueries() throws Exception {
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(new Long(11));
+        BundleContext context = mock(BundleContext.class);
+
+        Bundle b1 = mock(Bundle.class);
+        when(b1.getSymbolicName()).thenReturn("b1");
+        when(b1.getBundleId()).thenReturn(new Long(44));
+        Bundle b2 = mock(Bundle.class);
+        when(b2.getSymbolicName()).thenReturn("b2");
+        when(b2.getBundleId()).thenReturn(new Long(55));
+        when(context.getBundles()).thenReturn(new Bundle[] { bundle, b1, b2 });
+
+        ExportedPackage ep1 = mock(ExportedPackage.class);
+        when(ep1.getExportingBundle()).thenReturn(b1);
+        when(ep1.getImportingBundles()).thenReturn(new Bundle[] { bundle, b2 });
+        when(ep1.getName()).thenReturn("org.apache.aries.jmx.b1");
+        when(ep1.getVersion()).thenReturn(Version.emptyVersion);
+        ExportedPackage ep2 = mock(ExportedPackage.class);
+        when(ep2.getExportingBundle()).thenReturn(b2);
+        when(ep2.getImportingBundles()).thenReturn(new Bundle[] { bundle });
+        when(ep2.getName()).thenReturn("org.apache.aries.jmx.b2");
+        when(ep2.getVersion()).thenReturn(Version.parseVersion("2.0.1"));
+        RequiredBundle rb1 = mock(RequiredBundle.class);
+        when(rb1.getBundle()).thenReturn(b1);
+        when(rb1.getSymbolicName()).thenReturn("b1");
+        when(rb1.getRequiringBundles()).thenReturn(new Bundle[] { bundle, b2 });
+
+        PackageAdmin admin = mock(PackageAdmin.class);
+        when(admin.getExportedPackages((Bundle) null)).thenReturn(new ExportedPackage[] { ep1, ep2 });
+        when(admin.getExportedPackages(b1)).thenReturn(new ExportedPackage[] { ep1 });
+        when(admin.getExportedPackages(b2)).thenReturn(new ExportedPackage[] { ep2 });
+        when(admin.getExportedPackages("org.apache.aries.jmx.b1")).thenReturn(new ExportedPackage[] { ep1 });
+        when(admin.getExportedPackages("org.apache.aries.jmx.b2")).thenReturn(new ExportedPackage[] { ep2 });
+        when(admin.getRequiredBundles(null)).thenReturn(new RequiredBundle[] { rb1 });
+        when(admin.getRequiredBundles("b1")).thenReturn(new RequiredBundle[] { rb1 });
+
+        Dictionary<String, String> headers = new Hashtable<String, String>();
+        headers.put(Constants.IMPORT_PACKAGE, "org.apache.aries.jmx.b2;version=2.0");
+        headers.put(Constants.REQUIRE_BUNDLE, "b1");
+        when(bundle.getHeaders()).thenReturn(headers);
+
+        BundleWiringGraph wiring = new BundleWiringGraph(admin);
+        assertArrayEquals(getBundleImportedPackages(context, bundle, admin),
+                getBundleImportedPackages(context, bundle, admin, wiring));
+        assertEquals(toSet(getBundleDependencies(context, bundle, admin)),
+                toSet(getBundleDependencies(context, bundle, admin, wiring)));
+        assertEquals(toSet(getDependentBundles(b1, admin)), toSet(getDependentBundles(b1, admin, wiring)));
+        assertEquals(isBundleRequiredByOthers(b1, admin), isBundleRequiredByOthers(b1, admin, wiring));
+
+        headers.put(Constants.DYNAMICIMPORT_PACKAGE, "*");
+        assertArrayEquals(getBundleImportedPackages(context, bundle, admin),
+                getBundleImportedPackages(context, bundle, admin, wiring));
+        assertEquals(toSet(new long[] { 44, 55 }), toSet(getBundleDependencies(context, bundle, admin, wiring)));
+    }
+
     private static Set<Long> toSet(long[] array) {
         Set<Long> set = new HashSet<Long>();
         for (long value : array) {
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.jpa.container.parser.impl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the runtime visible annotations of a class directly from its class file,
+ * without defining the class. Method bodies, fields and methods are skipped.
+ */
+final class ClassAnnotationReader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private ClassAnnotationReader() {
+    }
+
+    /**
+     * @return the type descriptors (like <code>Ljavax/persistence/Entity;</code>)
+     *         of the annotations present on the class
+     */
+    static Set<String> readClassAnnotations(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        skip(in, 4); // minor and major version
+        String[] utf8 = readConstantPool(in);
+        skip(in, 6); // access flags, this class, super class
+        skip(in, 2 * in.readUnsignedShort()); // interfaces
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+
+        Set<String> annotations = new HashSet<String>();
+        int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            String name = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if (!RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+                skip(in, length);
+                continue;
+            }
+            int count = in.readUnsignedShort();
+            for (int j = 0; j < count; j++) {
+                annotations.add(utf8[in.readUnsignedShort()]);
+                skipElementValuePairs(in);
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * Reads the constant pool, only keeping the UTF-8 entries.
+     */
+    private static String[] readConstantPool(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case 1: // Utf8
+                utf8[i] = in.readUTF();
+                break;
+            case 7: // Class
+            case 8: // String
+            case 16: // MethodType
+            case 19: // Module
+            case 20: // Package
+                skip(in, 2);
+                break;
+            case 15: // MethodHandle
+                skip(in, 3);
+                break;
+            case 3: // Integer
+            case 4: // Float
+            case 9: // Fieldref
+            case 10: // Methodref
+            case 11: // InterfaceMethodref
+            case 12: // NameAndType
+            case 17: // Dynamic
+            case 18: // InvokeDynamic
+                skip(in, 4);
+                break;
+            case 5: // Long
+            case 6: // Double
+                skip(in, 8);
+                i++;
+                break;
+            default:
+                throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return utf8;
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skip(in, 6); // access flags, name, descriptor
+            int attributes = in.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                skip(in, 2);
+                skip(in, in.readInt());
+            }
+        }
+    }
+
+    private static void skipElementValuePairs(DataInputStream in) throws IOException {
+        int pairs = in.readUnsignedShort();
+        for (int i = 0; i < pairs; i++) {
+            skip(in, 2); // element name
+            skipElementValue(in);
+        }
+    }
+
+    private static void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+        case 'e': // enum constant
+            skip(in, 4);
+            break;
+        case '@': // nested annotation
+            skip(in, 2);
+            skipElementValuePairs(in);
+            break;
+        case '[': // array
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                skipElementValue(in);
+            }
+            break;
+        default: // constant or class
+            skip(in, 2);
+        }
+    }
+
+    private static void skip(DataInputStream in, int n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes(n);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -1,69 +1,121 @@
-/*
- * Licensed to the Apache Software Foundation (ASF) under one
- * or more contributor license agreements.  See the NOTICE file
- * distributed with this work for additional information
- * regarding copyright ownership.  The ASF licenses this file
- * to you under the Apache License, Version 2.0 (the
- * "License"); you may not use this file except in compliance
- * with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing,
- * software distributed under the License is distributed on an
- * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
- * KIND, either express or implied.  See the License for the
- * specific language governing permissions and limitations
- * under the License.
- */
-package org.apache.aries.jpa.container.parser.impl;
-
-import java.util.ArrayList;
-import java.util.Collection;
-
-import javax.persistence.Embeddable;
-import javax.persistence.Entity;
-import javax.persistence.MappedSuperclass;
-
-import org.osgi.framework.Bundle;
-import org.osgi.framework.wiring.BundleWiring;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-class JPAAnnotationScanner {
-    private static final Logger LOG = LoggerFactory.getLogger(JPAAnnotationScanner.class);
-    
-    private JPAAnnotationScanner() {
-    }
-    
-    public static Collection<String> findJPAAnnotatedClasses(Bundle b) {
-        BundleWiring bw = b.adapt(BundleWiring.class);
-        Collection<String> resources = bw.listResources("/", "*.class", 
-            BundleWiring.LISTRESOURCES_LOCAL | BundleWiring.LISTRESOURCES_RECURSE);
-        
-        Collection<String> classes = new ArrayList<String>(); 
-        ClassLoader cl = new TempBundleDelegatingClassLoader(b, JPAAnnotationScanner.class.getClassLoader());
-        for(String s : resources) {
-          s = s.replace('/', '.').substring(0, s.length() - 6);
-          try {
-            Class<?> clazz = Class.forName(s, false, cl);
-            
-            if(clazz.isAnnotationPresent(Entity.class) ||
-               clazz.isAnnotationPresent(MappedSuperclass.class) ||
-               clazz.isAnnotationPresent(Embeddable.class)) {
-              classes.add(s);
-            }
-            
-          } catch (ClassNotFoundException e) {
-              logEx(e);
-          } catch (NoClassDefFoundError e) {
-              logEx(e);
-          }
-        }
-        return classes;
-      }
-
-    private static void logEx(Throwable e) {
-        LOG.debug("Exception while scanning for JPA annotations", e);
-    }
-}
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.jpa.container.parser.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWiring;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class JPAAnnotationScanner {
+    private static final Logger LOG = LoggerFactory.getLogger(JPAAnnotationScanner.class);
+    private static final Set<String> JPA_ANNOTATIONS = new HashSet<String>(Arrays.asList(
+        descriptor(Entity.class), descriptor(MappedSuperclass.class), descriptor(Embeddable.class)));
+
+    /**
+     * Scan results per bundle revision. A bundle is only scanned again once it has been updated,
+     * and the entries go away with the revision.
+     */
+    private static final Map<BundleRevision, Collection<String>> SCANNED = 
+        Collections.synchronizedMap(new WeakHashMap<BundleRevision, Collection<String>>());
+    
+    private JPAAnnotationScanner() {
+    }
+    
+    public static Collection<String> findJPAAnnotatedClasses(Bundle b) {
+        BundleWiring bw = b.adapt(BundleWiring.class);
+        BundleRevision revision = bw.getRevision();
+        Collection<String> classes = SCANNED.get(revision);
+        if (classes == null) {
+            classes = Collections.unmodifiableCollection(scan(bw));
+            SCANNED.put(revision, classes);
+        }
+        return classes;
+    }
+
+    /**
+     * Reads the annotations from the class files, so that no class gets defined
+     */
+    private static Collection<String> scan(BundleWiring bw) {
+        Collection<String> resources = bw.listResources("/", "*.class", 
+            BundleWiring.LISTRESOURCES_LOCAL | BundleWiring.LISTRESOURCES_RECURSE);
+        Bundle b = bw.getBundle();
+        ClassLoader cl = bw.getClassLoader();
+        
+        Collection<String> classes = new ArrayList<String>(); 
+        for(String s : resources) {
+            try {
+                if (isJPAAnnotated(getLocalResource(b, cl, s))) {
+                    classes.add(s.replace('/', '.').substring(0, s.length() - 6));
+                }
+            } catch (IOException e) {
+                logEx(e);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * The names are local to the wiring, so the class file is read from the bundle itself rather than through
+     * the class loader, which would look in the imported packages first. Only the entries of embedded jars and
+     * fragments are left to the class loader.
+     */
+    private static URL getLocalResource(Bundle b, ClassLoader cl, String name) {
+        URL url = b.getEntry(name);
+        return url != null ? url : cl.getResource(name);
+    }
+
+    private static boolean isJPAAnnotated(URL url) throws IOException {
+        if (url == null) {
+            return false;
+        }
+        InputStream is = url.openStream();
+        try {
+            Set<String> annotations = ClassAnnotationReader.readClassAnnotations(is);
+            return !Collections.disjoint(annotations, JPA_ANNOTATIONS);
+        } finally {
+            is.close();
+        }
+    }
+
+    private static String descriptor(Class<?> annotation) {
+        return "L" + annotation.getName().replace('.', '/') + ";";
+    }
+
+    private static void logEx(Throwable e) {
+        LOG.debug("Exception while scanning for JPA annotations", e);
+    }
+}
@@ -18,11 +18,9 @@
  */
 package org.apache.aries.jpa.container.weaving.impl;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.Map;
 
 import javax.persistence.Entity;
@@ -45,8 +43,10 @@ public class JPAWeavingHook implements WeavingHook, TransformerRegistry {
     /**
      * With luck we will only have one persistence unit per bundle, but if we don't we'll need to call them
      * until one of them does a transform or we run out.
+     * The map and the arrays are never modified once published, they are copied on each registration change
+     * so that weaving, which happens for every class loaded in the framework, does not need to lock.
      */
-    private final Map<Bundle, LinkedHashSet<ClassTransformer>> registeredTransformers = new HashMap<Bundle, LinkedHashSet<ClassTransformer>>();
+    private volatile Map<Bundle, ClassTransformer[]> registeredTransformers = Collections.emptyMap();
 
     /**
      * This constructor should not be called directly, the {@link JPAWeavingHookFactory} should be used to
@@ -58,25 +58,21 @@ public class JPAWeavingHook implements WeavingHook, TransformerRegistry {
     @Override
     public void weave(WovenClass wovenClass) {
         BundleWiring wiring = wovenClass.getBundleWiring();
-        Bundle bundle = wiring.getBundle();
+        ClassTransformer[] transformersToTry = registeredTransformers.get(wiring.getBundle());
+        if (transformersToTry == null) {
+            Class<?> dClass = wovenClass.getDefinedClass();
+            if (dClass != null && dClass.getAnnotation(Entity.class) != null) {
+                LOGGER.warn("Loading " + wovenClass.getClassName() + " before transformer is present");
+            }
+            return;
+        }
         ClassLoader cl = wiring.getClassLoader();
-        Collection<ClassTransformer> transformersToTry = getTransformers(bundle);
         for (ClassTransformer transformer : transformersToTry) {
             if (transformClass(wovenClass, cl, transformer)) {
                 LOGGER.info("Weaving " + wovenClass.getClassName() + " using " + transformer.getClass().getName());
                 break;
             }
         }
-        Class<?> dClass = wovenClass.getDefinedClass();
-        if (transformersToTry.isEmpty() && dClass != null && dClass.getAnnotation(Entity.class) != null) {
-            LOGGER.warn("Loading " + wovenClass.getClassName() + " before transformer is present");
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private synchronized Collection<ClassTransformer> getTransformers(Bundle bundle) {
-        LinkedHashSet<ClassTransformer> transformers = registeredTransformers.get(bundle);
-        return (Collection<ClassTransformer>)(transformers != null ? new ArrayList<ClassTransformer>(transformers) : Collections.emptyList());
     }
 
     private static boolean transformClass(WovenClass wovenClass, ClassLoader cl, ClassTransformer transformer)
@@ -106,23 +102,46 @@ public class JPAWeavingHook implements WeavingHook, TransformerRegistry {
     @Override
     public synchronized void addTransformer(Bundle pBundle, ClassTransformer transformer) {
         LOGGER.info("Adding transformer " + transformer.getClass().getName());
-        LinkedHashSet<ClassTransformer> transformers = registeredTransformers.get(pBundle);
+        ClassTransformer[] transformers = registeredTransformers.get(pBundle);
         if (transformers == null) {
-            transformers = new LinkedHashSet<ClassTransformer>();
-            registeredTransformers.put(pBundle, transformers);
+            transformers = new ClassTransformer[] {transformer};
+        } else if (indexOf(transformers, transformer) < 0) {
+            transformers = Arrays.copyOf(transformers, transformers.length + 1);
+            transformers[transformers.length - 1] = transformer;
+        } else {
+            return;
         }
-        transformers.add(transformer);
+        Map<Bundle, ClassTransformer[]> newTransformers = new HashMap<Bundle, ClassTransformer[]>(registeredTransformers);
+        newTransformers.put(pBundle, transformers);
+        registeredTransformers = newTransformers;
     }
 
     @Override
     public synchronized void removeTransformer(Bundle pBundle, ClassTransformer transformer) {
-        LinkedHashSet<ClassTransformer> set = registeredTransformers.get(pBundle);
-        if (set == null || !set.remove(transformer)) {
+        ClassTransformer[] transformers = registeredTransformers.get(pBundle);
+        int index = transformers == null ? -1 : indexOf(transformers, transformer);
+        if (index < 0) {
             throw new IllegalStateException("Transformer " + transformer + " not registered");
         }
-        if (set.isEmpty()) {
-            registeredTransformers.remove(pBundle);
+        Map<Bundle, ClassTransformer[]> newTransformers = new HashMap<Bundle, ClassTransformer[]>(registeredTransformers);
+        if (transformers.length == 1) {
+            newTransformers.remove(pBundle);
+        } else {
+            ClassTransformer[] remaining = new ClassTransformer[transformers.length - 1];
+            System.arraycopy(transformers, 0, remaining, 0, index);
+            System.arraycopy(transformers, index + 1, remaining, index, remaining.length - index);
+            newTransformers.put(pBundle, remaining);
+        }
+        registeredTransformers = newTransformers;
+    }
+
+    private static int indexOf(ClassTransformer[] transformers, ClassTransformer transformer) {
+        for (int i = 0; i < transformers.length; i++) {
+            if (transformers[i].equals(transformer)) {
+                return i;
+            }
         }
+        return -1;
     }
 
 }
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.jpa.container.parser.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWiring;
+
+public class JPAAnnotationScannerTest {
+
+    @Deprecated
+    @Entity(name = "car")
+    @Table(name = "CARS", uniqueConstraints = {})
+    public static class Car {
+        @Deprecated
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    @MappedSuperclass
+    public static class Base {
+    }
+
+    @Embeddable
+    public static class Address {
+    }
+
+    public static class NotAnEntity {
+        public Entity entity() {
+            return null;
+        }
+    }
+
+    @Test
+    public void testReadClassAnnotations() throws Exception {
+        Set<String> annotations = read(Car.class);
+        assertEquals(new HashSet<String>(Arrays.asList(
+            "Ljava/lang/Deprecated;", "Ljavax/persistence/Entity;", "Ljavax/persistence/Table;")), annotations);
+        assertTrue(read(NotAnEntity.class).isEmpty());
+    }
+
+    @Test
+    public void testFindAnnotatedClassesOnce() throws Exception {
+        Bundle bundle = mock(Bundle.class);
+        BundleWiring wiring = mock(BundleWiring.class);
+        BundleRevision revision = mock(BundleRevision.class);
+        when(bundle.adapt(BundleWiring.class)).thenReturn(wiring);
+        when(wiring.getRevision()).thenReturn(revision);
+        Collection<String> resources = Arrays.asList(resourceName(Car.class), resourceName(Base.class),
+            resourceName(Address.class), resourceName(NotAnEntity.class), "missing/Missing.class");
+        when(wiring.listResources(Mockito.eq("/"), Mockito.eq("*.class"), Mockito.anyInt())).thenReturn(resources);
+        when(wiring.getBundle()).thenReturn(bundle);
+        when(wiring.getClassLoader()).thenReturn(getClass().getClassLoader());
+        // the bundle's own entries are read directly, the others go through the class loader
+        when(bundle.getEntry(resourceName(Car.class))).thenReturn(
+            getClass().getClassLoader().getResource(resourceName(Car.class)));
+
+        Collection<String> classes = JPAAnnotationScanner.findJPAAnnotatedClasses(bundle);
+        assertEquals(new HashSet<String>(Arrays.asList(Car.class.getName(), Base.class.getName(),
+            Address.class.getName())), new HashSet<String>(classes));
+
+        assertEquals(classes, JPAAnnotationScanner.findJPAAnnotatedClasses(bundle));
+        verify(wiring, times(1)).listResources(Mockito.anyString(), Mockito.anyString(), Mockito.anyInt());
+        // the class files are read from the wiring, not looked up through the bundle's imports
+        verify(bundle, never()).getResource(Mockito.anyString());
+    }
+
+    private static String resourceName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
+
+    private Set<String> read(Class<?> clazz) throws Exception {
+        InputStream is = getClass().getClassLoader().getResourceAsStream(resourceName(clazz));
+        try {
+            return ClassAnnotationReader.readClassAnnotations(is);
+        } finally {
+            is.close();
+        }
+    }
+}
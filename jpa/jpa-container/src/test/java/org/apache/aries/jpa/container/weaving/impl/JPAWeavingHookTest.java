@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.jpa.container.weaving.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.spi.ClassTransformer;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.hooks.weaving.WovenClass;
+import org.osgi.framework.wiring.BundleWiring;
+
+public class JPAWeavingHookTest {
+
+    private static final byte[] WOVEN = new byte[] {1};
+
+    @Test
+    public void testTransformersAreTriedInOrder() {
+        JPAWeavingHook hook = new JPAWeavingHook();
+        Bundle bundle = mock(Bundle.class);
+        CountingTransformer first = new CountingTransformer(null);
+        CountingTransformer second = new CountingTransformer(WOVEN);
+        CountingTransformer third = new CountingTransformer(WOVEN);
+        hook.addTransformer(bundle, first);
+        hook.addTransformer(bundle, second);
+        hook.addTransformer(bundle, third);
+        hook.addTransformer(bundle, second);
+
+        WovenClass wovenClass = wovenClass(bundle);
+        hook.weave(wovenClass);
+        assertEquals(1, first.calls.get());
+        assertEquals(1, second.calls.get());
+        assertEquals(0, third.calls.get());
+
+        hook.removeTransformer(bundle, second);
+        hook.weave(wovenClass);
+        assertEquals(2, first.calls.get());
+        assertEquals(1, second.calls.get());
+        assertEquals(1, third.calls.get());
+
+        hook.removeTransformer(bundle, first);
+        hook.removeTransformer(bundle, third);
+        hook.weave(wovenClass);
+        assertEquals(2, first.calls.get());
+        try {
+            hook.removeTransformer(bundle, first);
+            fail("Transformer should not be registered anymore");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Weaves from several threads while transformers are registered and removed for another bundle.
+     */
+    @Test
+    public void testConcurrentWeaving() throws Exception {
+        final JPAWeavingHook hook = new JPAWeavingHook();
+        final Bundle persistenceBundle = mock(Bundle.class);
+        final Bundle otherBundle = mock(Bundle.class);
+        CountingTransformer transformer = new CountingTransformer(WOVEN);
+        hook.addTransformer(persistenceBundle, transformer);
+
+        final int threads = 4;
+        final int classes = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> loaders = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            Thread loader = new Thread() {
+                public void run() {
+                    try {
+                        WovenClass persistenceClass = wovenClass(persistenceBundle);
+                        WovenClass otherClass = wovenClass(otherBundle);
+                        start.await();
+                        for (int j = 0; j < classes; j++) {
+                            hook.weave(persistenceClass);
+                            hook.weave(otherClass);
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            };
+            loader.start();
+            loaders.add(loader);
+        }
+        start.countDown();
+        ClassTransformer churn = new CountingTransformer(null);
+        for (int i = 0; i < 1000; i++) {
+            hook.addTransformer(otherBundle, churn);
+            hook.removeTransformer(otherBundle, churn);
+        }
+        for (Thread loader : loaders) {
+            loader.join();
+        }
+        assertNull(failure.get());
+        assertEquals(threads * classes, transformer.calls.get());
+    }
+
+    private static WovenClass wovenClass(Bundle bundle) {
+        BundleWiring wiring = mock(BundleWiring.class);
+        when(wiring.getBundle()).thenReturn(bundle);
+        WovenClass wovenClass = mock(WovenClass.class);
+        when(wovenClass.getBundleWiring()).thenReturn(wiring);
+        when(wovenClass.getClassName()).thenReturn("org.acme.Car");
+        when(wovenClass.getDynamicImports()).thenReturn(new ArrayList<String>());
+        return wovenClass;
+    }
+
+    private static class CountingTransformer implements ClassTransformer {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final byte[] result;
+
+        CountingTransformer(byte[] result) {
+            this.result = result;
+        }
+
+        @Override
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                                ProtectionDomain protectionDomain, byte[] classfileBuffer)
+            throws IllegalClassFormatException {
+            calls.incrementAndGet();
+            return result;
+        }
+    }
+}
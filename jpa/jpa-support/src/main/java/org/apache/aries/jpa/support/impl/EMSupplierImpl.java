@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -56,6 +57,18 @@ public class EMSupplierImpl implements EmSupplier {
     private Coordinator coordinator;
     private String unitName;
 
+    /**
+     * Participant holding the EntityManager of each outermost coordination
+     */
+    private final ConcurrentMap<Coordination, EmShutDownParticipant> participants = 
+        new ConcurrentHashMap<Coordination, EmShutDownParticipant>();
+
+    /**
+     * EntityManager last returned on the thread, so that repeated calls inside the same coordination
+     * do not need to look it up again
+     */
+    private final ThreadLocal<EmSlot> lastEm = new ThreadLocal<EmSlot>();
+
     public EMSupplierImpl(String unitName, final EntityManagerFactory emf, Coordinator coordinator) {
         this.unitName = unitName;
         this.emf = emf;
@@ -76,23 +89,38 @@ public class EMSupplierImpl implements EmSupplier {
      */
     @Override
     public EntityManager get() {
-        Coordination coordination = getTopCoordination();
+        Coordination current = coordinator.peek();
+        EmSlot slot = lastEm.get();
+        if (slot != null && slot.coordination == current) {
+            EntityManager em = slot.participant.em;
+            if (em != null) {
+                return em;
+            }
+        }
+        Coordination coordination = getTopCoordination(current);
         if (coordination == null) {
             throw new IllegalStateException("Need active coordination");
         }
-        EntityManager em = getEm(coordination);
+        EmShutDownParticipant participant = participants.get(coordination);
+        EntityManager em = participant != null ? participant.em : null;
         if (em == null) {
             LOG.debug("Creating EntityManager for persistence unit " + unitName + ", coordination " + coordination.getName());
             em = createEm(emf);
             emSet.add(em);
             setEm(coordination, em);
-            coordination.addParticipant(new EmShutDownParticipant());
+            participant = new EmShutDownParticipant(em);
+            participants.put(coordination, participant);
+            coordination.addParticipant(participant);
         }
+        lastEm.set(new EmSlot(current, participant));
         return em;
     }
     
     Coordination getTopCoordination() {
-        Coordination coordination = coordinator.peek();
+        return getTopCoordination(coordinator.peek());
+    }
+
+    private static Coordination getTopCoordination(Coordination coordination) {
         while (coordination != null && coordination.getEnclosingCoordination() != null) {
             coordination = coordination.getEnclosingCoordination();
         }
@@ -107,18 +135,6 @@ public class EMSupplierImpl implements EmSupplier {
         }
     }
 
-    /**
-     * Get EntityManager from outer most Coordination that holds an EM
-     * @param coordination
-     * @return
-     */
-    private EntityManager getEm(Coordination coordination) {
-        Map<Class<?>, Object> vars = coordination.getVariables();
-        synchronized (vars) {
-            return getEmMap(coordination).get(unitName);
-        }
-    }
-
     private EntityManager removeEm(Coordination coordination) {
         Map<Class<?>, Object> vars = coordination.getVariables();
         synchronized (vars) {
@@ -193,7 +209,26 @@ public class EMSupplierImpl implements EmSupplier {
         this.shutdownWaitTimeUnit = shutdownWaitTimeUnit;
     }
 
+    private static final class EmSlot {
+        private final Coordination coordination;
+        private final EmShutDownParticipant participant;
+
+        EmSlot(Coordination coordination, EmShutDownParticipant participant) {
+            this.coordination = coordination;
+            this.participant = participant;
+        }
+    }
+
     private final class EmShutDownParticipant implements Participant {
+        /**
+         * Cleared when the coordination ends, which invalidates the EmSlots referring to it
+         */
+        private volatile EntityManager em;
+
+        EmShutDownParticipant(EntityManager em) {
+            this.em = em;
+        }
+
         @Override
         public void failed(Coordination coordination) throws Exception {
             LOG.debug("Coordination failed " + coordination.getName(), coordination.getFailure());
@@ -203,6 +238,12 @@ public class EMSupplierImpl implements EmSupplier {
         @Override
         public void ended(Coordination coordination) throws Exception {
             LOG.debug("Closing EntityManager for persistence unit " + unitName + " as coordination " + coordination.getName() + " ended.");
+            this.em = null;
+            participants.remove(coordination, this);
+            EmSlot slot = lastEm.get();
+            if (slot != null && slot.participant == this) {
+                lastEm.remove();
+            }
             EntityManager em = removeEm(coordination);
             emSet.remove(em);
             em.close();
@@ -20,6 +20,7 @@ package org.apache.aries.jpa.impl;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.concurrent.Executors;
@@ -57,6 +58,27 @@ public class EmSupplierTest {
     }
 
 
+    @Test
+    public void newEmPerCoordinationTest() {
+        EntityManagerFactory emf = mock(EntityManagerFactory.class);
+        EntityManager em1 = mock(EntityManager.class);
+        EntityManager em2 = mock(EntityManager.class);
+        when(emf.createEntityManager()).thenReturn(em1, em2);
+        Coordinator coordinator = new DummyCoordinator();
+
+        EMSupplierImpl emSupplier = new EMSupplierImpl("myunit", emf, coordinator);
+        coordinator.begin("test", 0);
+        Assert.assertSame(em1, emSupplier.get());
+        Assert.assertSame(em1, emSupplier.get());
+        coordinator.pop().end();
+        verify(em1).close();
+
+        coordinator.begin("test2", 0);
+        Assert.assertSame("Ended coordination must not leave its EM behind", em2, emSupplier.get());
+        coordinator.pop().end();
+        Assert.assertTrue("Shutdown should be clean", emSupplier.close());
+    }
+
     private void assertIllegalState(EMSupplierImpl emSupplier) {
         try {
             emSupplier.get();
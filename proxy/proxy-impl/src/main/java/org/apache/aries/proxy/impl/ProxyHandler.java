@@ -27,12 +27,14 @@ import org.apache.aries.proxy.InvocationListener;
 
 public final class ProxyHandler implements InvocationHandler {
   private final Callable<Object> target;
+  private final InvocationListener listener;
   private final InvocationHandler core;
   private final AbstractProxyManager proxyManager;
 
   public ProxyHandler(AbstractProxyManager abstractProxyManager, Callable<Object> dispatcher, InvocationListener listener)
   {
     target = dispatcher;
+    this.listener = listener;
     proxyManager = abstractProxyManager;
     final InvocationListener nonNullListener;
     if (listener == null) {
@@ -123,4 +125,13 @@ public final class ProxyHandler implements InvocationHandler {
   {
     return target;
   }
+
+  /**
+   * @return the target if calls do not need to go through this handler, that is
+   *         if there is no listener, otherwise null
+   */
+  public Callable<Object> getDirectTarget()
+  {
+    return listener == null ? target : null;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.proxy.impl.common;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A map with weakly referenced keys, compared by identity, which can be read
+ * without taking any locks. Like a {@link java.util.WeakHashMap} the values
+ * must not strongly reference their keys, or the entries will never be
+ * cleared. Null keys are not supported.
+ */
+public final class ConcurrentWeakIdentityMap<K, V> {
+
+  private final ConcurrentMap<Key<K>, V> map = new ConcurrentHashMap<Key<K>, V>();
+
+  private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+
+  public V get(K key) {
+    return key == null ? null : map.get(new Key<K>(key, null));
+  }
+
+  public V putIfAbsent(K key, V value) {
+    expungeStaleEntries();
+    return map.putIfAbsent(new Key<K>(key, queue), value);
+  }
+
+  public boolean replace(K key, V oldValue, V newValue) {
+    expungeStaleEntries();
+    return map.replace(new Key<K>(key, null), oldValue, newValue);
+  }
+
+  public Collection<V> values() {
+    return map.values();
+  }
+
+  private void expungeStaleEntries() {
+    Reference<? extends K> ref;
+    while ((ref = queue.poll()) != null) {
+      map.remove(ref);
+    }
+  }
+
+  private static final class Key<K> extends WeakReference<K> {
+
+    private final int hash;
+
+    Key(K referent, ReferenceQueue<? super K> queue) {
+      super(referent, queue);
+      hash = System.identityHashCode(referent);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Object referent = get();
+      return referent != null && referent == ((Key<?>) o).get();
+    }
+  }
+}
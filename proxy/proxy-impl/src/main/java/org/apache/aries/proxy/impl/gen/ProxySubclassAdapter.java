@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.Callable;
 
 import org.apache.aries.proxy.impl.NLS;
 import org.apache.aries.proxy.impl.ProxyUtils;
@@ -32,6 +33,7 @@ import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -49,9 +51,11 @@ public class ProxySubclassAdapter extends ClassVisitor implements Opcodes
   private static final Type OBJECT_TYPE = Type.getType(Object.class);
   private static final Type METHOD_TYPE = Type.getType(java.lang.reflect.Method.class);
   private static final Type IH_TYPE = Type.getType(InvocationHandler.class);
+  private static final Type DISPATCHER_TYPE = Type.getType(Callable.class);
   private static final Type[] NO_ARGS = new Type[] {};
 
   private static final String IH_FIELD = "ih";
+  private static final String DISPATCHER_FIELD = "dispatcher";
 
   private static Logger LOGGER = LoggerFactory.getLogger(ProxySubclassAdapter.class);
 
@@ -129,6 +133,11 @@ public class ProxySubclassAdapter extends ClassVisitor implements Opcodes
     // proxy
     cv.visitField(ACC_PRIVATE, IH_FIELD, Type.getDescriptor(InvocationHandler.class), null, null);
 
+    // add a private field for a dispatcher to call directly, this is only set
+    // if there is nothing to do in the invocation handler other than call the
+    // target
+    cv.visitField(ACC_PRIVATE, DISPATCHER_FIELD, DISPATCHER_TYPE.getDescriptor(), null, null);
+
     // create a static adapter for generating a static initialiser method in
     // the generated subclass
     staticAdapter = new GeneratorAdapter(ACC_STATIC,
@@ -235,6 +244,15 @@ public class ProxySubclassAdapter extends ClassVisitor implements Opcodes
     methodAdapter.returnValue();
     methodAdapter.endMethod();
 
+    // add a method for setting the direct dispatcher
+    m = new Method("setDirectDispatcher", Type.VOID_TYPE, new Type[] { DISPATCHER_TYPE });
+    methodAdapter = new GeneratorAdapter(ACC_PUBLIC | ACC_FINAL, m, null, null, cv);
+    methodAdapter.loadThis();
+    methodAdapter.loadArgs();
+    methodAdapter.putField(newClassType, DISPATCHER_FIELD, DISPATCHER_TYPE);
+    methodAdapter.returnValue();
+    methodAdapter.endMethod();
+
     // loop through the class hierarchy to get any needed methods off the
     // supertypes
     // start by finding the methods declared on the class of interest (the
@@ -472,8 +490,9 @@ public class ProxySubclassAdapter extends ClassVisitor implements Opcodes
      * methodName_parm1_parm2... = null; static{ methodName_parm1_parm2... =
      * superClass.getDeclaredMethod(methodName,new Class[]{method args}; }
      * 
-     * Stage 2 is to call the ih.invoke(this,methodName_parm1_parm2,args) in
-     * the new subclass methods Stage 3 is to cast the return value to the
+     * Stage 2 is to call the target directly when a dispatcher has been set
+     * Stage 3 is to call the ih.invoke(this,methodName_parm1_parm2,args) in
+     * the new subclass methods Stage 4 is to cast the return value to the
      * correct type
      */
 
@@ -538,7 +557,31 @@ public class ProxySubclassAdapter extends ClassVisitor implements Opcodes
     staticAdapter.putStatic(newClassType, methodStaticFieldName, METHOD_TYPE);
 
     /*
-     * Stage 2 call the ih.invoke(this,supermethod,parms)
+     * Stage 2 if there is a direct dispatcher call the target without
+     * reflection or boxing: return ((SuperClass) dispatcher.call()).method(parms)
+     * equals has to go through the invocation handler to unwrap its argument,
+     * and finalize to stop the target being finalized along with the proxy
+     */
+    if ((access & ACC_PUBLIC) != 0 && !isHandledByInvocationHandler(currentTransformMethod)) {
+      Label noDispatcher = methodAdapter.newLabel();
+      int dispatcher = methodAdapter.newLocal(DISPATCHER_TYPE);
+      methodAdapter.loadThis();
+      methodAdapter.getField(newClassType, DISPATCHER_FIELD, DISPATCHER_TYPE);
+      methodAdapter.storeLocal(dispatcher);
+      methodAdapter.loadLocal(dispatcher);
+      methodAdapter.ifNull(noDispatcher);
+      methodAdapter.loadLocal(dispatcher);
+      methodAdapter.invokeInterface(DISPATCHER_TYPE, new Method("call", OBJECT_TYPE, NO_ARGS));
+      Type superclassType = Type.getType(superclassClass);
+      methodAdapter.checkCast(superclassType);
+      methodAdapter.loadArgs();
+      methodAdapter.invokeVirtual(superclassType, currentTransformMethod);
+      methodAdapter.returnValue();
+      methodAdapter.mark(noDispatcher);
+    }
+
+    /*
+     * Stage 3 call the ih.invoke(this,supermethod,parms)
      */
 
     // load this to get the ih field
@@ -561,7 +604,7 @@ public class ProxySubclassAdapter extends ClassVisitor implements Opcodes
     methodAdapter.invokeInterface(IH_TYPE, invocationHandlerInvokeMethod);
 
     /*
-     * Stage 3 the returned object is now on the top of the stack We need to
+     * Stage 4 the returned object is now on the top of the stack We need to
      * check the type and cast as necessary
      */
     switch (returnType.getSort())
@@ -619,6 +662,14 @@ public class ProxySubclassAdapter extends ClassVisitor implements Opcodes
     LOGGER.debug(Constants.LOG_EXIT, "processMethod");
   }
 
+  private static boolean isHandledByInvocationHandler(Method method)
+  {
+    return (method.getName().equals("equals")
+        && method.getDescriptor().equals("(Ljava/lang/Object;)Z"))
+        || (method.getName().equals("finalize")
+        && method.getDescriptor().equals("()V"));
+  }
+
   private void addClassStaticField(String classBinaryName)
   {
     LOGGER.debug(Constants.LOG_ENTRY, "addClassStaticField",
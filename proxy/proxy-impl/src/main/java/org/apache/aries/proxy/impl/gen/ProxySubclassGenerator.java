@@ -21,6 +21,7 @@ package org.apache.aries.proxy.impl.gen;
 import static java.lang.reflect.Modifier.isFinal;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
@@ -28,16 +29,18 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.security.ProtectionDomain;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.aries.proxy.FinalModifierException;
 import org.apache.aries.proxy.UnableToProxyException;
 import org.apache.aries.proxy.impl.NLS;
+import org.apache.aries.proxy.impl.ProxyHandler;
+import org.apache.aries.proxy.impl.common.ConcurrentWeakIdentityMap;
+import org.apache.aries.proxy.impl.common.OSGiFriendlyClassWriter;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
@@ -51,22 +54,17 @@ public class ProxySubclassGenerator
 
   private final static Logger LOGGER = LoggerFactory.getLogger(ProxySubclassGenerator.class);
 
-  // This map holds references to the names of classes created by this Class
+  // This map holds references to the classes created by this Class
   // It is a weak map (so when a ClassLoader is garbage collected we remove
-  // the map of
-  // Class names to sub-Class names)
-  private static final Map<ClassLoader, ConcurrentMap<String, String>> proxyClassesByClassLoader;
+  // the map of Class names to sub-Classes). The sub-Classes are defined by
+  // the ClassLoader, so they are held through weak references, and failures
+  // are recorded as marked Strings. Looking up an existing sub-Class takes no
+  // locks.
+  private static final ConcurrentWeakIdentityMap<ClassLoader, ConcurrentMap<String, Object>> proxyClassesByClassLoader = 
+      new ConcurrentWeakIdentityMap<ClassLoader, ConcurrentMap<String, Object>>();
   
   private static final ClassLoader defaultClassLoader = new ClassLoader() {};
 
-  static {
-    // Ensure that this is a synchronized map as we may use it from multiple
-    // threads concurrently
-    //
-    proxyClassesByClassLoader = Collections
-        .synchronizedMap(new WeakHashMap<ClassLoader, ConcurrentMap<String, String>>());
-  }
-
   private static final char FINAL_MODIFIER = '!';
   private static final char UNABLE_TO_PROXY = '#';
 
@@ -83,12 +81,12 @@ public class ProxySubclassGenerator
     // this is for subclassing java.* or javax.* packages, so that one will do
     if (loader == null) loader = defaultClassLoader;
 
-    ConcurrentMap<String, String> proxyMap;
-    synchronized (loader) {
-      proxyMap = proxyClassesByClassLoader.get(loader);
-      if (proxyMap == null) {
-        proxyMap = new ConcurrentHashMap<String, String>();
-        proxyClassesByClassLoader.put(loader, proxyMap);
+    ConcurrentMap<String, Object> proxyMap = proxyClassesByClassLoader.get(loader);
+    if (proxyMap == null) {
+      proxyMap = new ConcurrentHashMap<String, Object>();
+      ConcurrentMap<String, Object> existing = proxyClassesByClassLoader.putIfAbsent(loader, proxyMap);
+      if (existing != null) {
+        proxyMap = existing;
       }
     }
 
@@ -96,55 +94,34 @@ public class ProxySubclassGenerator
     // class
     // if we have return the mapped class object
     // if we haven't generate the subclass and return it
-    Class<?> classToReturn = null;
-    synchronized (aClass) {
-      String key = aClass.getName();
-      String className = proxyMap.get(key);
-      if (className != null) {
-
-        LOGGER.debug("Found proxy subclass with key {} and name {}.", key, className);
-
-        if (className.charAt(0) == FINAL_MODIFIER) {
-          String[] exceptionParts = className.substring(1).split(":");
-          if (exceptionParts.length == 1) {
-            throw new FinalModifierException(aClass);
-          } else {
-            throw new FinalModifierException(aClass, exceptionParts[1]);
+    String key = aClass.getName();
+    Class<?> classToReturn = getGeneratedSubclass(aClass, key, proxyMap.get(key));
+    if (classToReturn == null) {
+      synchronized (aClass) {
+        classToReturn = getGeneratedSubclass(aClass, key, proxyMap.get(key));
+        if (classToReturn == null) {
+          LOGGER.debug("Need to generate subclass. Using key {}.", key);
+          try {
+            scanForFinalModifiers(aClass);
+
+            classToReturn = generateAndLoadSubclass(aClass, loader);
+
+            if (classToReturn != null) {
+              proxyMap.put(key, new WeakReference<Class<?>>(classToReturn));
+            } else {
+              proxyMap.put(key, UNABLE_TO_PROXY + aClass.getName());
+              throw new UnableToProxyException(aClass);
+            }
+          } catch (FinalModifierException e) {
+            if (e.isFinalClass()) {
+              proxyMap.put(key, FINAL_MODIFIER + e.getClassName());
+              throw e;
+            } else {
+              proxyMap.put(key, FINAL_MODIFIER + e.getClassName() + ':' + e.getFinalMethods());
+              throw e;
+            }
           }
-        } else if (className.charAt(0) == UNABLE_TO_PROXY) {
-          throw new UnableToProxyException(aClass);
-        }
-
-        try {
-          classToReturn = loader.loadClass(className);
-        } catch (ClassNotFoundException cnfe) {
-          LOGGER.debug(Constants.LOG_EXCEPTION, cnfe);
-          throw new UnableToLoadProxyException(className, cnfe);
         }
-      } else {
-
-        LOGGER.debug("Need to generate subclass. Using key {}.", key);
-        try {
-          scanForFinalModifiers(aClass);
-
-          classToReturn = generateAndLoadSubclass(aClass, loader);
-
-          if (classToReturn != null) {
-            proxyMap.put(key, classToReturn.getName());
-          } else {
-            proxyMap.put(key, UNABLE_TO_PROXY + aClass.getName());
-            throw new UnableToProxyException(aClass);
-          }
-        } catch (FinalModifierException e) {
-          if (e.isFinalClass()) {
-            proxyMap.put(key, FINAL_MODIFIER + e.getClassName());
-            throw e;
-          } else {
-            proxyMap.put(key, FINAL_MODIFIER + e.getClassName() + ':' + e.getFinalMethods());
-            throw e;
-          }
-        }
-
       }
     }
 
@@ -153,6 +130,36 @@ public class ProxySubclassGenerator
     return classToReturn;
   }
 
+  /**
+   * @return the subclass recorded in the proxy map entry, or null if it must
+   *         be generated
+   */
+  private static Class<?> getGeneratedSubclass(Class<?> aClass, String key, Object entry)
+      throws UnableToProxyException
+  {
+    if (entry instanceof WeakReference) {
+      Class<?> subclass = (Class<?>) ((WeakReference<?>) entry).get();
+      LOGGER.debug("Found proxy subclass with key {} and class {}.", key, subclass);
+      return subclass;
+    } else if (entry != null) {
+      String className = (String) entry;
+
+      LOGGER.debug("Found proxy subclass with key {} and name {}.", key, className);
+
+      if (className.charAt(0) == FINAL_MODIFIER) {
+        String[] exceptionParts = className.substring(1).split(":");
+        if (exceptionParts.length == 1) {
+          throw new FinalModifierException(aClass);
+        } else {
+          throw new FinalModifierException(aClass, exceptionParts[1]);
+        }
+      } else {
+        throw new UnableToProxyException(aClass);
+      }
+    }
+    return null;
+  }
+
   public static Object newProxySubclassInstance(Class<?> classToProxy, InvocationHandler ih)
       throws UnableToProxyException
   {
@@ -182,6 +189,12 @@ public class ProxySubclassGenerator
       
       Method setIHMethod = proxySubclassInstance.getClass().getMethod("setInvocationHandler", InvocationHandler.class);
       setIHMethod.invoke(proxySubclassInstance, ih);
+      // if the handler does nothing but call its target let the proxy call it directly
+      Callable<Object> directTarget = (ih instanceof ProxyHandler) ? ((ProxyHandler) ih).getDirectTarget() : null;
+      if (directTarget != null) {
+        Method setDispatcherMethod = proxySubclassInstance.getClass().getMethod("setDirectDispatcher", Callable.class);
+        setDispatcherMethod.invoke(proxySubclassInstance, directTarget);
+      }
       LOGGER.debug("Invoked proxy subclass constructor");
     } catch (NoSuchMethodException nsme) {
       LOGGER.debug(Constants.LOG_EXCEPTION, nsme);
@@ -228,7 +241,8 @@ public class ProxySubclassGenerator
       ClassReader cReader = new ClassReader(loader.getResourceAsStream(aClass.getName().replaceAll(
           "\\.", "/")
           + ".class"));
-      ClassWriter cWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+      // the direct dispatch branches need stack map frames
+      ClassWriter cWriter = new OSGiFriendlyClassWriter(ClassWriter.COMPUTE_FRAMES, loader);
       ClassVisitor dynamicSubclassAdapter = new ProxySubclassAdapter(cWriter, fullNewClassName,
           loader);
       byte[] byteClassData = processClass(cReader, cWriter, dynamicSubclassAdapter);
@@ -313,9 +327,17 @@ public class ProxySubclassGenerator
     // We will always have a proxy map for the class loader of any proxy
     // class, so if
     // this is null we know to return false
-    Map<String, String> proxies = proxyClassesByClassLoader.get(aClass.getClassLoader());
-
-    boolean isProxySubclass = (proxies != null && proxies.containsValue(aClass.getName()));
+    Map<String, Object> proxies = proxyClassesByClassLoader.get(aClass.getClassLoader());
+
+    boolean isProxySubclass = false;
+    if (proxies != null) {
+      for (Object entry : proxies.values()) {
+        if (entry instanceof WeakReference && ((WeakReference<?>) entry).get() == aClass) {
+          isProxySubclass = true;
+          break;
+        }
+      }
+    }
 
     LOGGER.debug(Constants.LOG_EXIT, "isProxySubclass", isProxySubclass);
 
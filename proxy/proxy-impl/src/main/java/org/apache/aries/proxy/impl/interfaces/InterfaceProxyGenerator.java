@@ -24,15 +24,14 @@ import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 
 import org.apache.aries.proxy.FinalModifierException;
 import org.apache.aries.proxy.InvocationListener;
 import org.apache.aries.proxy.UnableToProxyException;
+import org.apache.aries.proxy.impl.common.ConcurrentWeakIdentityMap;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 import org.osgi.framework.Bundle;
@@ -52,8 +51,15 @@ public final class InterfaceProxyGenerator extends ClassVisitor implements Opcod
     
   }
 
-  private static final Map<BundleWiring, WeakReference<ProxyClassLoader>> cache =
-            new WeakHashMap<BundleWiring, WeakReference<ProxyClassLoader>>(128);
+  /**
+   * The proxy class loaders, by bundle wiring. Looking up an existing loader
+   * takes no locks.
+   */
+  private static final ConcurrentWeakIdentityMap<Object, WeakReference<ProxyClassLoader>> cache =
+            new ConcurrentWeakIdentityMap<Object, WeakReference<ProxyClassLoader>>();
+
+  /** The key used in the cache when there is no client bundle */
+  private static final Object NO_WIRING = new Object();
   
   /**
    * Generate a new proxy instance implementing the supplied interfaces and using the supplied
@@ -76,21 +82,22 @@ public final class InterfaceProxyGenerator extends ClassVisitor implements Opcod
     
     SortedSet<Class<?>> interfaces = createSet(ifaces);
     
-    synchronized (cache) {
-      BundleWiring wiring = client == null ? null : (BundleWiring)client.adapt(BundleWiring.class);
-      WeakReference<ProxyClassLoader> ref = cache.get(wiring);
+    BundleWiring wiring = client == null ? null : (BundleWiring)client.adapt(BundleWiring.class);
+    Object key = wiring == null ? NO_WIRING : wiring;
+    while (pcl == null) {
+      WeakReference<ProxyClassLoader> ref = cache.get(key);
       
       if(ref != null)
         pcl = ref.get();
       
-      if (pcl != null && pcl.isInvalid(interfaces)) {
-          pcl = null;
-          cache.remove(wiring);
-      }
-      
-      if(pcl == null) {
+      if (pcl == null || pcl.isInvalid(interfaces)) {
         pcl = new ProxyClassLoader(client);
-        cache.put(wiring, new WeakReference<ProxyClassLoader>(pcl));
+        WeakReference<ProxyClassLoader> newRef = new WeakReference<ProxyClassLoader>(pcl);
+        // Another thread may have replaced the loader first, in which case use theirs
+        boolean installed = (ref == null) ? cache.putIfAbsent(key, newRef) == null
+            : cache.replace(key, ref, newRef);
+        if (!installed)
+          pcl = null;
       }
     }
 
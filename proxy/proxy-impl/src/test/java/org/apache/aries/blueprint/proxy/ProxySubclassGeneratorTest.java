@@ -21,7 +21,9 @@ package org.apache.aries.blueprint.proxy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -34,10 +36,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.aries.proxy.FinalModifierException;
 import org.apache.aries.proxy.InvocationListener;
@@ -122,7 +128,8 @@ public class ProxySubclassGeneratorTest extends AbstractProxyTest
     Method[] ihMethods = new Method[] {
         generatedProxySubclass.getMethod("setInvocationHandler",
             new Class[] { InvocationHandler.class }),
-        generatedProxySubclass.getMethod("getInvocationHandler", new Class[] {}) };
+        generatedProxySubclass.getMethod("getInvocationHandler", new Class[] {}),
+        generatedProxySubclass.getMethod("setDirectDispatcher", new Class[] { Callable.class }) };
     expectedMethods.addMethodArray(ihMethods);
 
     Method[] generatedProxySubclassMethods = generatedProxySubclass.getDeclaredMethods();
@@ -276,6 +283,103 @@ public class ProxySubclassGeneratorTest extends AbstractProxyTest
     assertEquals("hello", returned);
   }
 
+  /**
+   * Test that a proxy without a listener calls its target directly, and that
+   * one with a listener still goes through it
+   */
+  @Test
+  public void testDirectDispatch() throws Exception
+  {
+    final ProxyTestClassGeneral delegate = new ProxyTestClassGeneral();
+    final AtomicInteger calls = new AtomicInteger();
+    Callable<Object> dispatcher = new Callable<Object>() {
+      public Object call() throws Exception {
+        calls.incrementAndGet();
+        return delegate;
+      }
+    };
+
+    ProxyTestClassGeneral direct = (ProxyTestClassGeneral) ProxySubclassGenerator.newProxySubclassInstance(
+        ProxyTestClassGeneral.class, new ProxyHandler(new AsmProxyManager(), dispatcher, null));
+    assertEquals("hello", direct.testMethod("hello", 1, null));
+    assertEquals("c", direct.testArgs(1.0d, (short) 2, 3L, 'c', (byte) 4, true));
+    assertEquals(Integer.valueOf(1), direct.testReturnInteger());
+    assertEquals(3, calls.get());
+    try {
+      direct.testException();
+      fail("The exception should have been thrown");
+    } catch (RuntimeException re) {
+      // expected
+    }
+    assertTrue(direct.equals(delegate));
+
+    // a public finalize is not forwarded, the target must not be finalized along with the proxy
+    final ProxyTestPublicFinalize finalizeDelegate = new ProxyTestPublicFinalize();
+    ProxyTestPublicFinalize finalizeProxy = (ProxyTestPublicFinalize) ProxySubclassGenerator.newProxySubclassInstance(
+        ProxyTestPublicFinalize.class, new ProxyHandler(new AsmProxyManager(), new Callable<Object>() {
+          public Object call() throws Exception {
+            return finalizeDelegate;
+          }
+        }, null));
+    finalizeProxy.finalize();
+    assertFalse(finalizeDelegate.finalizeCalled);
+
+    TestListener listener = new TestListener();
+    ProxyTestClassGeneral listened = (ProxyTestClassGeneral) ProxySubclassGenerator.newProxySubclassInstance(
+        ProxyTestClassGeneral.class, new ProxyHandler(new AsmProxyManager(), dispatcher, listener));
+    assertEquals("hello", listened.testMethod("hello", 1, null));
+    assertTrue(listener.preInvoke);
+    assertTrue(listener.postInvoke);
+    assertEquals("testMethod", listener.getLastMethod().getName());
+  }
+
+  /**
+   * Test that threads looking up the proxy subclass concurrently all get the
+   * same generated class, and that it is still recognised as a proxy.
+   */
+  @Test
+  public void testConcurrentLookup() throws Exception
+  {
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final Set<Class<?>> found = Collections.synchronizedSet(new HashSet<Class<?>>());
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    List<Thread> lookups = new ArrayList<Thread>();
+    for (int i = 0; i < threads; i++) {
+      Thread lookup = new Thread() {
+        public void run() {
+          try {
+            start.await();
+            for (int j = 0; j < 1000; j++) {
+              found.add(ProxySubclassGenerator.getProxySubclass(getTestClass()));
+            }
+          } catch (Throwable t) {
+            failure.set(t);
+          }
+        }
+      };
+      lookup.start();
+      lookups.add(lookup);
+    }
+    start.countDown();
+    for (Thread lookup : lookups) {
+      lookup.join();
+    }
+    assertNull(failure.get());
+    assertEquals(Collections.<Class<?>>singleton(generatedProxySubclass), found);
+    assertTrue(ProxySubclassGenerator.isProxySubclass(generatedProxySubclass));
+    assertFalse(ProxySubclassGenerator.isProxySubclass(getTestClass()));
+  }
+
+  public static class ProxyTestPublicFinalize {
+    public boolean finalizeCalled = false;
+
+    @Override
+    public void finalize() {
+      finalizeCalled = true;
+    }
+  }
+
   private static class LimitedClassLoader extends ClassLoader {
     Set<String> providedPackages;
     Set<String> importedPackages;
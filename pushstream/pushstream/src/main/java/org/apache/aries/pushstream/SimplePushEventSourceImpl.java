@@ -18,12 +18,11 @@
  */
 package org.apache.aries.pushstream;
 
-import static java.util.Collections.emptyList;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
-import static java.util.stream.Collectors.toList;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
@@ -41,6 +40,13 @@ import org.osgi.util.pushstream.SimplePushEventSource;
 public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? extends T>>>
 		implements SimplePushEventSource<T> {
 
+	/**
+	 * The maximum number of events a worker takes from the queue at once
+	 */
+	private static final int							BATCH_SIZE	= 16;
+
+	private static final PushEventConsumer< ? >[]		NONE		= new PushEventConsumer< ? >[0];
+
 	private final Object								lock		= new Object();
 
 	private final Executor								worker;
@@ -55,11 +61,16 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 
 	private final Semaphore								semaphore;
 
-	private final List<PushEventConsumer< ? super T>>	connected	= new ArrayList<>();
+	/**
+	 * The connected consumers, the array is replaced (under the lock) rather
+	 * than modified so that it can be read and iterated without locking
+	 */
+	@SuppressWarnings("unchecked")
+	private volatile PushEventConsumer< ? super T>[]	connected	= (PushEventConsumer< ? super T>[]) NONE;
 
 	private final Runnable								onClose;
 
-	private boolean										closed;
+	private volatile boolean							closed;
 	
 	private Deferred<Void>								connectPromise;
 
@@ -93,7 +104,10 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 			toResolve = connectPromise;
 			connectPromise = null;
 
-			connected.add(pec);
+			PushEventConsumer< ? super T>[] consumers = Arrays
+					.copyOf(connected, connected.length + 1);
+			consumers[consumers.length - 1] = pec;
+			connected = consumers;
 		}
 
 		if (toResolve != null) {
@@ -107,9 +121,20 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 
 	private void closeConsumer(PushEventConsumer< ? super T> pec,
 			PushEvent<T> event) {
-		boolean sendClose;
+		boolean sendClose = false;
 		synchronized (lock) {
-			sendClose = connected.remove(pec);
+			PushEventConsumer< ? super T>[] consumers = connected;
+			for (int i = 0; i < consumers.length; i++) {
+				if (consumers[i].equals(pec)) {
+					PushEventConsumer< ? super T>[] remaining = Arrays
+							.copyOf(consumers, consumers.length - 1);
+					System.arraycopy(consumers, i + 1, remaining, i,
+							remaining.length - i);
+					connected = remaining;
+					sendClose = true;
+					break;
+				}
+			}
 		}
 		if (sendClose) {
 			doSend(pec, event);
@@ -129,24 +154,58 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 		}
 	}
 
-	@SuppressWarnings("boxing")
-	private Promise<Long> doSendWithBackPressure(
-			PushEventConsumer< ? super T> pec, PushEvent<T> event) {
-		Deferred<Long> d = new Deferred<>();
+	private void doSendWithBackPressure(PushEventConsumer< ? super T> pec,
+			PushEvent<T> event, FanOut fanOut) {
+		fanOut.begin();
 		try {
 			worker.execute(
-					() -> d.resolve(System.nanoTime() + safePush(pec, event)));
+					() -> fanOut.done(System.nanoTime() + safePush(pec, event)));
 		} catch (RejectedExecutionException ree) {
 			// TODO log?
 			if (!event.isTerminal()) {
 				close(PushEvent.error(ree));
-				return Promises.resolved(System.nanoTime());
+				fanOut.done(System.nanoTime());
 			} else {
-				return Promises
-						.resolved(System.nanoTime() + safePush(pec, event));
+				fanOut.done(System.nanoTime() + safePush(pec, event));
 			}
 		}
-		return d.getPromise();
+	}
+
+	/**
+	 * Tracks the deliveries of a single event, recording the latest time until
+	 * which a consumer asked for back pressure. A worker reuses the same
+	 * instance for each event that it delivers.
+	 */
+	private static final class FanOut {
+		private int		pending;
+		private long	until;
+
+		synchronized void reset(long now) {
+			pending = 0;
+			until = now;
+		}
+
+		synchronized void begin() {
+			pending++;
+		}
+
+		synchronized void done(long backPressureUntil) {
+			until = Math.max(until, backPressureUntil);
+			if (--pending == 0) {
+				notifyAll();
+			}
+		}
+
+		synchronized void record(long backPressureUntil) {
+			until = Math.max(until, backPressureUntil);
+		}
+
+		synchronized long await() throws InterruptedException {
+			while (pending > 0) {
+				wait();
+			}
+			return until;
+		}
 	}
 
 	private long safePush(PushEventConsumer< ? super T> pec,
@@ -172,15 +231,16 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 		close(PushEvent.close());
 	}
 
+	@SuppressWarnings("unchecked")
 	private void close(PushEvent<T> event) {
-		List<PushEventConsumer< ? super T>> toClose;
+		PushEventConsumer< ? super T>[] toClose;
 		Deferred<Void> toFail = null;
 		synchronized (lock) {
 			if(!closed) {
 				closed = true;
 				
-				toClose = new ArrayList<>(connected);
-				connected.clear();
+				toClose = connected;
+				connected = (PushEventConsumer< ? super T>[]) NONE;
 				queue.clear();
 
 				if(connectPromise != null) {
@@ -188,11 +248,13 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 					connectPromise = null;
 				}
 			} else {
-				toClose = emptyList();
+				toClose = (PushEventConsumer< ? super T>[]) NONE;
 			}
 		}
 
-		toClose.stream().forEach(pec -> doSend(pec, event));
+		for (PushEventConsumer< ? super T> pec : toClose) {
+			doSend(pec, event);
+		}
 
 		if (toFail != null) {
 			toFail.resolveWith(closedConnectPromise());
@@ -217,10 +279,8 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 	}
 
 	private void enqueueEvent(PushEvent<T> event) {
-		synchronized (lock) {
-			if (closed || connected.isEmpty()) {
-				return;
-			}
+		if (closed || connected.length == 0) {
+			return;
 		}
 
 		try {
@@ -239,66 +299,89 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 		}
 	}
 
-	@SuppressWarnings({
-			"unchecked", "boxing"
-	})
 	private void startWorker() {
+		startWorker(new Batch<>());
+	}
+
+	/**
+	 * Start a worker that delivers the events in the batch, then takes further
+	 * events from the queue. When it is the only worker it reads up to
+	 * {@link #BATCH_SIZE} non-terminal events from the queue at once, and
+	 * delivers them to the consumers that were connected at that point. The
+	 * events stay in the queue until they have been delivered, so that they
+	 * still count against its capacity and the queue policy sees the back
+	 * pressure. Parallel workers take one event at a time. If a consumer asks
+	 * for back pressure the rest of the batch is delivered once it has
+	 * elapsed. Events are never delivered to a consumer that has since been
+	 * closed, and the held batch is dropped once the source is closed.
+	 */
+	@SuppressWarnings("unchecked")
+	private void startWorker(Batch<T> batch) {
 		worker.execute(() -> {
 			try {
-				
+				FanOut fanOut = new FanOut();
 				for(;;) {
 					PushEvent<T> event;
-					List<PushEventConsumer< ? super T>> toCall;
 					boolean resetWait = false;
-					synchronized (lock) {
-						if(waitForFinishes) {
-							semaphore.release();
-							while(waitForFinishes) {
-								lock.notifyAll();
-								lock.wait();
+					if (closed) {
+						batch.events.clear();
+					}
+					if (batch.events.isEmpty()) {
+						synchronized (lock) {
+							if(waitForFinishes) {
+								semaphore.release();
+								while(waitForFinishes) {
+									lock.notifyAll();
+									lock.wait();
+								}
+								semaphore.acquire();
 							}
-							semaphore.acquire();
-						}
 
-						event = (PushEvent<T>) queue.poll();
-						
-						if(event == null) {
-							break;
-						}
+							event = parallelism == 1 ? readBatch(batch)
+									: (PushEvent<T>) queue.poll();
+							
+							if(event == null) {
+								break;
+							}
 
-						toCall = new ArrayList<>(connected);
-						if (event.isTerminal()) {
-							waitForFinishes = true;
-							resetWait = true;
-							connected.clear();
-							while (!semaphore.tryAcquire(parallelism - 1)) {
-								lock.wait();
+							batch.consumers = connected;
+							if (event.isTerminal()) {
+								waitForFinishes = true;
+								resetWait = true;
+								connected = (PushEventConsumer< ? super T>[]) NONE;
+								while (!semaphore.tryAcquire(parallelism - 1)) {
+									lock.wait();
+								}
 							}
 						}
+					} else {
+						event = batch.events.poll();
 					}
 					
-					List<Promise<Long>> calls = toCall.stream().map(pec -> {
+					fanOut.reset(System.nanoTime());
+					for (PushEventConsumer< ? super T> pec : batch.consumers) {
+						if (!isDeliverable(pec, event, batch.consumers)) {
+							continue;
+						}
 						if (semaphore.tryAcquire()) {
 							try {
-								return doSendWithBackPressure(pec, event);
+								doSendWithBackPressure(pec, event, fanOut);
 							} finally {
 								semaphore.release();
 							}
 						} else {
-							return Promises.resolved(
-									System.nanoTime() + safePush(pec, event));
+							fanOut.record(System.nanoTime() + safePush(pec, event));
 						}
-					}).collect(toList());
+					}
 
-					long toWait = Promises.<Long,Long>all(calls)
-							.map(l -> l.stream()
-									.max((a,b) -> a.compareTo(b))
-										.orElseGet(() -> System.nanoTime()))
-							.getValue() - System.nanoTime();
+					long toWait = fanOut.await() - System.nanoTime();
 					
+					if (parallelism == 1) {
+						queue.remove(event);
+					}
 					
 					if (toWait > 0) {
-						scheduler.schedule(this::startWorker, toWait,
+						scheduler.schedule(() -> startWorker(batch), toWait,
 								NANOSECONDS);
 						return;
 					}
@@ -326,11 +409,72 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 
 	}
 
+	/**
+	 * Read the events at the head of the queue without taking them, for the
+	 * only worker. A terminal event is read on its own.
+	 * 
+	 * @return the first event, the following ones are added to the batch
+	 */
+	@SuppressWarnings("unchecked")
+	private PushEvent<T> readBatch(Batch<T> batch) {
+		Iterator< ? extends PushEvent< ? extends T>> it = queue.iterator();
+		if (!it.hasNext()) {
+			return null;
+		}
+		PushEvent<T> first = (PushEvent<T>) it.next();
+		if (!first.isTerminal()) {
+			while (batch.events.size() < BATCH_SIZE - 1 && it.hasNext()) {
+				PushEvent<T> next = (PushEvent<T>) it.next();
+				if (next.isTerminal()) {
+					break;
+				}
+				batch.events.add(next);
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * A consumer must not receive data once it has been sent a terminal event,
+	 * either because it was closed or because the source was closed. Terminal
+	 * events taken from the queue are delivered to the consumers they
+	 * disconnected.
+	 * 
+	 * @param consumers the consumers connected when the event was taken
+	 * @return true if the event can be delivered to the consumer
+	 */
+	private boolean isDeliverable(PushEventConsumer< ? super T> pec,
+			PushEvent<T> event, PushEventConsumer< ? super T>[] consumers) {
+		if (event.isTerminal()) {
+			return true;
+		}
+		if (closed) {
+			return false;
+		}
+		PushEventConsumer< ? super T>[] current = connected;
+		if (current == consumers) {
+			return true;
+		}
+		for (PushEventConsumer< ? super T> c : current) {
+			if (c.equals(pec)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The events read from the queue by a worker but not yet delivered, and
+	 * the consumers they are delivered to
+	 */
+	private static final class Batch<T> {
+		final ArrayDeque<PushEvent<T>>		events	= new ArrayDeque<>(BATCH_SIZE);
+		PushEventConsumer< ? super T>[]	consumers;
+	}
+
 	@Override
 	public boolean isConnected() {
-		synchronized (lock) {
-			return !connected.isEmpty();
-		}
+		return connected.length != 0;
 	}
 
 	@Override
@@ -340,7 +484,7 @@ public class SimplePushEventSourceImpl<T, U extends BlockingQueue<PushEvent< ? e
 				return closedConnectPromise();
 			}
 
-			if (connected.isEmpty()) {
+			if (connected.length == 0) {
 				if (connectPromise == null) {
 					connectPromise = new Deferred<>();
 				}
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.pushstream;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ScheduledExecutorService} for large numbers of short timers, such
+ * as window, timeout and back pressure delays. Tasks are hashed into the
+ * buckets of a wheel by their deadline and a single thread expires one bucket
+ * per tick, so scheduling does not contend on a shared heap. Tasks may run up
+ * to one tick later than requested. Cancelled tasks leave the wheel at the
+ * next tick.
+ * <p>
+ * Tasks run on the timer thread, just as they would on a single threaded
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor}.
+ */
+public final class TimerWheelScheduler extends AbstractExecutorService
+		implements ScheduledExecutorService {
+
+	private final long										tickNanos;
+
+	private final List<WheelTask< ? >>[]					wheel;
+
+	private final int										mask;
+
+	/**
+	 * Newly scheduled tasks, only the timer thread adds them to the wheel
+	 */
+	private final ConcurrentLinkedQueue<WheelTask< ? >>		incoming	= new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Cancelled tasks, only the timer thread removes them from the wheel
+	 */
+	private final ConcurrentLinkedQueue<WheelTask< ? >>		cancelled	= new ConcurrentLinkedQueue<>();
+
+	private final Thread									timer;
+
+	private final long										startTime;
+
+	/**
+	 * Set once no more tasks may be scheduled, the tasks already scheduled
+	 * still run
+	 */
+	private volatile boolean								shutdown;
+
+	/**
+	 * Set to stop the timer without running the scheduled tasks
+	 */
+	private volatile boolean								stopped;
+
+	/**
+	 * The number of ticks processed, only used by the timer thread
+	 */
+	private long											tick;
+
+	/**
+	 * @param tick the length of a tick
+	 * @param unit the unit of the tick
+	 * @param wheelSize the number of buckets, rounded up to a power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public TimerWheelScheduler(long tick, TimeUnit unit, int wheelSize) {
+		if (tick <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException(
+					"The tick and wheel size must be positive");
+		}
+		this.tickNanos = unit.toNanos(tick);
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+		this.wheel = new List[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new ArrayList<>();
+		}
+		this.mask = size - 1;
+		this.startTime = System.nanoTime();
+		this.timer = Executors.defaultThreadFactory().newThread(this::run);
+		timer.setName("PushStream Timer Wheel");
+		timer.start();
+	}
+
+	private void run() {
+		while (!stopped) {
+			long wakeUp = startTime + (tick + 1) * tickNanos;
+			long sleep;
+			while ((sleep = wakeUp - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(this, sleep);
+				if (stopped) {
+					return;
+				}
+			}
+			transferIncoming();
+			removeCancelled();
+			expire(wheel[(int) (tick & mask)]);
+			tick++;
+			if (shutdown && incoming.isEmpty() && isWheelEmpty()) {
+				return;
+			}
+		}
+	}
+
+	private boolean isWheelEmpty() {
+		for (List<WheelTask< ? >> bucket : wheel) {
+			if (!bucket.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void transferIncoming() {
+		WheelTask< ? > task;
+		while ((task = incoming.poll()) != null) {
+			if (task.isCancelled()) {
+				continue;
+			}
+			long ticks = Math.max((task.deadline - startTime - 1) / tickNanos,
+					tick);
+			task.rounds = (ticks - tick) / wheel.length;
+			task.bucket = (int) (ticks & mask);
+			wheel[task.bucket].add(task);
+		}
+	}
+
+	private void removeCancelled() {
+		WheelTask< ? > task;
+		while ((task = cancelled.poll()) != null) {
+			if (task.bucket >= 0) {
+				wheel[task.bucket].remove(task);
+				task.bucket = -1;
+			}
+		}
+	}
+
+	private void expire(List<WheelTask< ? >> bucket) {
+		if (bucket.isEmpty()) {
+			return;
+		}
+		List<WheelTask< ? >> due = null;
+		for (Iterator<WheelTask< ? >> it = bucket.iterator(); it.hasNext();) {
+			WheelTask< ? > task = it.next();
+			if (task.isCancelled()) {
+				it.remove();
+				task.bucket = -1;
+			} else if (task.rounds > 0) {
+				task.rounds--;
+			} else {
+				it.remove();
+				task.bucket = -1;
+				if (due == null) {
+					due = new ArrayList<>();
+				}
+				due.add(task);
+			}
+		}
+		if (due != null) {
+			for (WheelTask< ? > task : due) {
+				try {
+					task.run();
+				} catch (Throwable t) {
+					// FutureTask records the failure, this is only reached
+					// for Errors thrown while recording it
+				}
+			}
+		}
+	}
+
+	private <V> WheelTask<V> add(WheelTask<V> task) {
+		if (shutdown) {
+			throw new RejectedExecutionException(
+					"The timer wheel has been shut down");
+		}
+		incoming.add(task);
+		if (!timer.isAlive() && incoming.remove(task)) {
+			throw new RejectedExecutionException(
+					"The timer wheel has been shut down");
+		}
+		return task;
+	}
+
+	@Override
+	public ScheduledFuture< ? > schedule(Runnable command, long delay,
+			TimeUnit unit) {
+		return add(new WheelTask<Void>(command, null, triggerTime(delay, unit),
+				0));
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay,
+			TimeUnit unit) {
+		return add(new WheelTask<V>(callable, triggerTime(delay, unit), 0));
+	}
+
+	@Override
+	public ScheduledFuture< ? > scheduleAtFixedRate(Runnable command,
+			long initialDelay, long period, TimeUnit unit) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("The period must be positive");
+		}
+		return add(new WheelTask<Void>(command, null,
+				triggerTime(initialDelay, unit), unit.toNanos(period)));
+	}
+
+	@Override
+	public ScheduledFuture< ? > scheduleWithFixedDelay(Runnable command,
+			long initialDelay, long delay, TimeUnit unit) {
+		if (delay <= 0) {
+			throw new IllegalArgumentException("The delay must be positive");
+		}
+		return add(new WheelTask<Void>(command, null,
+				triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		schedule(command, 0, NANOSECONDS);
+	}
+
+	private static long triggerTime(long delay, TimeUnit unit) {
+		return System.nanoTime() + unit.toNanos(Math.max(delay, 0));
+	}
+
+	/**
+	 * Stop accepting tasks. As with a
+	 * {@link java.util.concurrent.ScheduledThreadPoolExecutor} the delayed
+	 * tasks which have already been scheduled still run, but periodic tasks
+	 * do not repeat.
+	 */
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		stopped = true;
+		LockSupport.unpark(timer);
+		List<Runnable> pending = new ArrayList<>();
+		WheelTask< ? > task;
+		while ((task = incoming.poll()) != null) {
+			pending.add(task);
+		}
+		if (awaitTimer()) {
+			for (List<WheelTask< ? >> bucket : wheel) {
+				pending.addAll(bucket);
+				bucket.clear();
+			}
+		}
+		return pending;
+	}
+
+	private boolean awaitTimer() {
+		try {
+			timer.join();
+			return true;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && !timer.isAlive();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		timer.join(Math.max(unit.toMillis(timeout), 1));
+		return !timer.isAlive();
+	}
+
+	private final class WheelTask<V> extends FutureTask<V>
+			implements RunnableScheduledFuture<V> {
+
+		/**
+		 * The time to run at, in {@link System#nanoTime()} terms
+		 */
+		private long		deadline;
+
+		/**
+		 * Positive for a fixed rate, negative for a fixed delay, zero for a
+		 * one shot task
+		 */
+		private final long	period;
+
+		/**
+		 * The number of turns of the wheel to wait, only used by the timer
+		 * thread
+		 */
+		long				rounds;
+
+		/**
+		 * The index of the bucket holding the task, or -1, only used by the
+		 * timer thread
+		 */
+		int					bucket	= -1;
+
+		WheelTask(Runnable runnable, V result, long deadline, long period) {
+			super(runnable, result);
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		WheelTask(Callable<V> callable, long deadline, long period) {
+			super(callable);
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o) {
+			return Long.compare(getDelay(NANOSECONDS), o.getDelay(NANOSECONDS));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean result = super.cancel(mayInterruptIfRunning);
+			if (result) {
+				cancelled.add(this);
+			}
+			return result;
+		}
+
+		@Override
+		public void run() {
+			if (!isPeriodic()) {
+				super.run();
+			} else if (runAndReset() && !shutdown) {
+				deadline = period > 0 ? deadline + period
+						: System.nanoTime() - period;
+				incoming.add(this);
+			}
+		}
+	}
+}
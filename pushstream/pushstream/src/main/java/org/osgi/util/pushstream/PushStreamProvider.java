@@ -38,6 +38,7 @@ import java.util.stream.Stream;
 
 import org.apache.aries.pushstream.BufferedPushStreamImpl;
 import org.apache.aries.pushstream.SimplePushEventSourceImpl;
+import org.apache.aries.pushstream.TimerWheelScheduler;
 import org.apache.aries.pushstream.UnbufferedPushStreamImpl;
 
 /**
@@ -46,8 +47,28 @@ import org.apache.aries.pushstream.UnbufferedPushStreamImpl;
  */
 public final class PushStreamProvider {
 
+	/**
+	 * The system property giving the tick, in milliseconds, of a timer wheel
+	 * to use for scheduling window, timeout and back pressure delays. If it is
+	 * not set a {@link java.util.concurrent.ScheduledThreadPoolExecutor} is
+	 * used. A timer wheel scales better to large numbers of streams, at the
+	 * cost of firing timers up to one tick late.
+	 */
+	static final String					TIMER_WHEEL_TICK_PROPERTY	= "org.apache.aries.pushstream.timer.wheel.tick";
+
+	/**
+	 * The system property giving the number of buckets in the timer wheel
+	 */
+	static final String					TIMER_WHEEL_SIZE_PROPERTY	= "org.apache.aries.pushstream.timer.wheel.size";
+
 	private final Lock					lock	= new ReentrantLock(true);
 
+	private final long					timerWheelTick				= Long
+			.getLong(TIMER_WHEEL_TICK_PROPERTY, 0);
+
+	private final int					timerWheelSize				= Integer
+			.getInteger(TIMER_WHEEL_SIZE_PROPERTY, 512);
+
 	private int							schedulerReferences;
 
 	private ScheduledExecutorService	scheduler;
@@ -59,7 +80,10 @@ public final class PushStreamProvider {
 				schedulerReferences += 1;
 
 				if (schedulerReferences == 1) {
-					scheduler = Executors.newSingleThreadScheduledExecutor();
+					scheduler = timerWheelTick > 0
+							? new TimerWheelScheduler(timerWheelTick,
+									MILLISECONDS, timerWheelSize)
+							: Executors.newSingleThreadScheduledExecutor();
 				}
 				return scheduler;
 			} finally {
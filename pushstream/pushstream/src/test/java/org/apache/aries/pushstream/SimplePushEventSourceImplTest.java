@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.pushstream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.osgi.util.pushstream.PushEvent.EventType.CLOSE;
+import static org.osgi.util.pushstream.PushEvent.EventType.DATA;
+import static org.osgi.util.pushstream.PushEvent.EventType.ERROR;
+import static org.osgi.util.pushstream.PushEventConsumer.ABORT;
+import static org.osgi.util.pushstream.PushEventConsumer.CONTINUE;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.osgi.util.pushstream.PushEvent;
+import org.osgi.util.pushstream.PushEventConsumer;
+import org.osgi.util.pushstream.QueuePolicyOption;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SimplePushEventSourceImplTest {
+
+	/**
+	 * The work submitted to the worker executor, run by the test thread
+	 */
+	ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+	@Mock
+	ScheduledExecutorService scheduler;
+
+	SimplePushEventSourceImpl<Integer, ArrayBlockingQueue<PushEvent< ? extends Integer>>> source;
+
+	@Before
+	public void setUp() {
+		source = new SimplePushEventSourceImpl<>(tasks::add, scheduler,
+				QueuePolicyOption.FAIL.getPolicy(), new ArrayBlockingQueue<>(32), 1, () -> {});
+	}
+
+	private void runTasks() {
+		Runnable r;
+		while ((r = tasks.poll()) != null) {
+			r.run();
+		}
+	}
+
+	private void publish(int count) {
+		for (int i = 0; i < count; i++) {
+			source.publish(i);
+		}
+	}
+
+	@Test
+	public void testNoDataAfterConsumerAborts() throws Exception {
+		RecordingConsumer aborting = new RecordingConsumer(ABORT);
+		RecordingConsumer other = new RecordingConsumer(CONTINUE);
+		source.open(aborting);
+		source.open(other);
+
+		// The worker takes all of the events as one batch
+		publish(5);
+		runTasks();
+
+		assertEquals(asList(DATA, CLOSE), aborting.types());
+		assertEquals(asList(0), aborting.data());
+		assertEquals(asList(0, 1, 2, 3, 4), other.data());
+	}
+
+	@Test
+	public void testNoDataAfterConsumerFails() throws Exception {
+		RecordingConsumer failing = new RecordingConsumer(CONTINUE) {
+			@Override
+			public long accept(PushEvent< ? extends Integer> event) throws Exception {
+				super.accept(event);
+				throw new Exception("failed");
+			}
+		};
+		source.open(failing);
+
+		publish(5);
+		runTasks();
+
+		assertEquals(asList(DATA, ERROR), failing.types());
+	}
+
+	@Test
+	public void testHeldBatchDroppedOnClose() throws Exception {
+		RecordingConsumer slow = new RecordingConsumer(1000);
+		source.open(slow);
+
+		publish(5);
+		runTasks();
+
+		// The rest of the batch waits for the back pressure to elapse
+		ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+		Mockito.verify(scheduler).schedule(captor.capture(), Mockito.anyLong(),
+				Mockito.any(TimeUnit.class));
+		assertEquals(asList(0), slow.data());
+
+		source.close();
+		runTasks();
+
+		captor.getValue().run();
+		runTasks();
+
+		assertEquals(asList(DATA, CLOSE), slow.types());
+		Mockito.verify(scheduler, Mockito.times(1)).schedule(Mockito.any(Runnable.class),
+				Mockito.anyLong(), Mockito.any(TimeUnit.class));
+	}
+
+	@Test
+	public void testHeldBatchNotDeliveredToClosedConsumer() throws Exception {
+		RecordingConsumer slow = new RecordingConsumer(1000);
+		RecordingConsumer other = new RecordingConsumer(CONTINUE);
+		AutoCloseable closeSlow = source.open(slow);
+		source.open(other);
+
+		publish(5);
+		runTasks();
+
+		ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+		Mockito.verify(scheduler).schedule(captor.capture(), Mockito.anyLong(),
+				Mockito.any(TimeUnit.class));
+
+		closeSlow.close();
+		runTasks();
+
+		captor.getValue().run();
+		runTasks();
+
+		assertEquals(asList(DATA, CLOSE), slow.types());
+		assertEquals(asList(0, 1, 2, 3, 4), other.data());
+	}
+
+	@Test
+	public void testHeldBatchCountsAgainstQueueCapacity() throws Exception {
+		source = new SimplePushEventSourceImpl<>(tasks::add, scheduler,
+				QueuePolicyOption.FAIL.getPolicy(), new ArrayBlockingQueue<>(4), 1, () -> {});
+		RecordingConsumer slow = new RecordingConsumer(1000);
+		source.open(slow);
+
+		publish(4);
+		runTasks();
+		assertEquals(asList(0), slow.data());
+
+		// Only the delivered event has left the queue
+		source.publish(4);
+		try {
+			source.publish(5);
+			fail("The queue should still be full");
+		} catch (IllegalStateException ise) {
+			// Expected
+		}
+		runTasks();
+
+		assertEquals(asList(DATA, ERROR), slow.types());
+	}
+
+	static class RecordingConsumer implements PushEventConsumer<Integer> {
+
+		final List<PushEvent< ? extends Integer>> events = new ArrayList<>();
+
+		private final long response;
+
+		RecordingConsumer(long response) {
+			this.response = response;
+		}
+
+		@Override
+		public long accept(PushEvent< ? extends Integer> event) throws Exception {
+			synchronized (events) {
+				events.add(event);
+			}
+			return event.isTerminal() ? CONTINUE : response;
+		}
+
+		List<PushEvent.EventType> types() {
+			List<PushEvent.EventType> types = new ArrayList<>();
+			synchronized (events) {
+				events.forEach(e -> types.add(e.getType()));
+			}
+			return types;
+		}
+
+		List<Integer> data() {
+			List<Integer> data = new ArrayList<>();
+			synchronized (events) {
+				events.stream().filter(e -> e.getType() == DATA).forEach(e -> data.add(e.getData()));
+			}
+			return data;
+		}
+	}
+}
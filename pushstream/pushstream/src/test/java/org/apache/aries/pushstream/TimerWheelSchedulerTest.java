@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.pushstream;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.pushstream.PushStreamProvider;
+import org.osgi.util.pushstream.QueuePolicyOption;
+import org.osgi.util.pushstream.SimplePushEventSource;
+
+public class TimerWheelSchedulerTest {
+
+	private static final String TICK_PROPERTY = "org.apache.aries.pushstream.timer.wheel.tick";
+
+	TimerWheelScheduler scheduler;
+
+	@Before
+	public void setUp() {
+		scheduler = new TimerWheelScheduler(5, MILLISECONDS, 64);
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void testTaskFiresAfterDelay() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		long start = System.nanoTime();
+
+		scheduler.schedule(latch::countDown, 50, MILLISECONDS);
+
+		assertTrue(latch.await(5, SECONDS));
+		assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+	}
+
+	@Test
+	public void testTaskBeyondOneTurnOfTheWheel() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		long start = System.nanoTime();
+
+		// 64 buckets of 5 ms turn once every 320 ms
+		scheduler.schedule(latch::countDown, 500, MILLISECONDS);
+
+		assertTrue(latch.await(5, SECONDS));
+		assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) >= 500);
+	}
+
+	@Test
+	public void testCallableResult() throws Exception {
+		ScheduledFuture<String> future = scheduler.schedule(() -> "done", 10, MILLISECONDS);
+
+		assertEquals("done", future.get(5, SECONDS));
+	}
+
+	@Test
+	public void testPeriodicTaskRepeatsUntilCancelled() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(3);
+
+		ScheduledFuture< ? > future = scheduler.scheduleAtFixedRate(() -> {
+			runs.incrementAndGet();
+			latch.countDown();
+		}, 10, 10, MILLISECONDS);
+
+		assertTrue(latch.await(5, SECONDS));
+		assertTrue(future.cancel(false));
+
+		int count = runs.get();
+		Thread.sleep(100);
+		assertTrue(runs.get() <= count + 1);
+	}
+
+	@Test
+	public void testCancelledTaskDoesNotRun() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(1);
+
+		ScheduledFuture< ? > future = scheduler.schedule(runs::incrementAndGet, 50, MILLISECONDS);
+		scheduler.schedule(latch::countDown, 100, MILLISECONDS);
+
+		assertTrue(future.cancel(false));
+		assertTrue(future.isCancelled());
+
+		assertTrue(latch.await(5, SECONDS));
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	public void testCancelledTasksLeaveTheWheel() throws Exception {
+		// The wheel takes almost two minutes to turn
+		scheduler.shutdownNow();
+		scheduler = new TimerWheelScheduler(100, MILLISECONDS, 1024);
+
+		List<ScheduledFuture< ? >> futures = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			futures.add(scheduler.schedule(() -> {}, 1, HOURS));
+		}
+		// Let the timer move the tasks into the wheel
+		Thread.sleep(300);
+		futures.forEach(f -> f.cancel(false));
+
+		// The timer stops after a shut down once the wheel is empty, rather
+		// than waiting for the buckets of the cancelled tasks to come round
+		scheduler.shutdown();
+		assertTrue(scheduler.awaitTermination(5, SECONDS));
+		assertTrue(scheduler.isTerminated());
+	}
+
+	@Test
+	public void testShutdownRunsDelayedTasks() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicInteger periodic = new AtomicInteger();
+
+		scheduler.schedule(latch::countDown, 50, MILLISECONDS);
+		scheduler.scheduleWithFixedDelay(periodic::incrementAndGet, 20, 20, MILLISECONDS);
+		scheduler.shutdown();
+
+		assertTrue(scheduler.isShutdown());
+		try {
+			scheduler.schedule(() -> {}, 10, MILLISECONDS);
+			fail("Tasks must not be accepted after a shut down");
+		} catch (RejectedExecutionException ree) {
+			// expected
+		}
+
+		assertTrue(latch.await(5, SECONDS));
+		assertTrue(scheduler.awaitTermination(5, SECONDS));
+		// periodic tasks do not repeat after a shut down
+		assertTrue(periodic.get() <= 1);
+	}
+
+	@Test
+	public void testShutdownNowReturnsPendingTasks() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+
+		scheduler.schedule(runs::incrementAndGet, 1, SECONDS);
+		scheduler.schedule(runs::incrementAndGet, 2, SECONDS);
+
+		List<Runnable> pending = scheduler.shutdownNow();
+
+		assertEquals(2, pending.size());
+		assertTrue(scheduler.isTerminated());
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	public void testWindowedStreamsAtScale() throws Exception {
+		int streams = 10000;
+		int events = 10;
+
+		PushStreamProvider psp;
+		System.setProperty(TICK_PROPERTY, "5");
+		try {
+			psp = new PushStreamProvider();
+		} finally {
+			System.clearProperty(TICK_PROPERTY);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			SimplePushEventSource<Integer> source = psp
+					.buildSimpleEventSource(Integer.class)
+					.withQueuePolicy(QueuePolicyOption.BLOCK)
+					.withExecutor(executor)
+					.create();
+
+			AtomicLong received = new AtomicLong();
+			AtomicLong windows = new AtomicLong();
+			List<Promise<Void>> done = new ArrayList<>(streams);
+			for (int i = 0; i < streams; i++) {
+				done.add(psp.buildStream(source)
+						.unbuffered()
+						.withExecutor(executor)
+						.create()
+						.window(Duration.ofMillis(20), executor, c -> c.size())
+						.forEach(n -> {
+							received.addAndGet(n);
+							windows.incrementAndGet();
+						}));
+			}
+
+			// The first half of the events is delivered by the window timers
+			for (int i = 0; i < events / 2; i++) {
+				source.publish(i);
+			}
+			long deadline = System.nanoTime() + SECONDS.toNanos(30);
+			while (received.get() < (long) streams * events / 2
+					&& System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals((long) streams * events / 2, received.get());
+
+			for (int i = events / 2; i < events; i++) {
+				source.publish(i);
+			}
+			source.endOfStream();
+
+			for (Promise<Void> p : done) {
+				assertNull(p.getFailure());
+			}
+			assertEquals((long) streams * events, received.get());
+			assertTrue(windows.get() >= streams);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
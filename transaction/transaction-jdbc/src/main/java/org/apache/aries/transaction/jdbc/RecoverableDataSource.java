@@ -21,15 +21,21 @@ package org.apache.aries.transaction.jdbc;
 import org.apache.aries.transaction.AriesTransactionManager;
 import org.apache.aries.transaction.jdbc.internal.AbstractMCFFactory;
 import org.apache.aries.transaction.jdbc.internal.ConnectionManagerFactory;
+import org.apache.aries.transaction.jdbc.internal.ConnectionPoolMetrics;
 import org.apache.aries.transaction.jdbc.internal.DataSourceMCFFactory;
 import org.apache.aries.transaction.jdbc.internal.Recovery;
 import org.apache.aries.transaction.jdbc.internal.XADataSourceMCFFactory;
 import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.sql.CommonDataSource;
 import javax.sql.DataSource;
 import javax.sql.XADataSource;
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
@@ -45,6 +51,8 @@ import java.sql.SQLFeatureNotSupportedException;
  */
 public class RecoverableDataSource implements DataSource {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecoverableDataSource.class);
+
     private CommonDataSource dataSource;
     private AriesTransactionManager transactionManager;
     private String name;
@@ -56,6 +64,7 @@ public class RecoverableDataSource implements DataSource {
     private int connectionMaxWaitMilliseconds = 5000;
     private String partitionStrategy = "none";
     private boolean pooling = true;
+    private String poolStrategy = "default";
     private int poolMaxSize = 10;
     private int poolMinSize = 0;
     private String transaction;
@@ -63,6 +72,8 @@ public class RecoverableDataSource implements DataSource {
     private boolean backgroundValidation = false;
     private int backgroundValidationMilliseconds = 600000;
 
+    private ConnectionManagerFactory cm;
+    private ObjectName objectName;
     private DataSource delegate;
 
     /**
@@ -141,6 +152,21 @@ public class RecoverableDataSource implements DataSource {
         this.pooling = pooling;
     }
 
+    /**
+     * Pool strategy.
+     * Can be default or thread-affine (defaults to default).
+     * With thread-affine, each thread keeps the connection it used last and
+     * reuses it without going through the pool or matching it again. Unless
+     * validation is disabled, the connections kept by threads are validated in
+     * the background, at the background validation interval. As a connection
+     * stays with its thread, the pool must be as large as the number of
+     * threads using it.
+     * Requires xa transactions.
+     */
+    public void setPoolStrategy(String poolStrategy) {
+        this.poolStrategy = poolStrategy;
+    }
+
     /**
      * Maximum pool size (defaults to 10).
      */
@@ -217,7 +243,7 @@ public class RecoverableDataSource implements DataSource {
         mcf.setPassword(password);
         mcf.init();
 
-        ConnectionManagerFactory cm = new ConnectionManagerFactory();
+        cm = new ConnectionManagerFactory();
         cm.setManagedConnectionFactory(mcf.getConnectionFactory());
         cm.setTransactionManager(transactionManager);
         cm.setAllConnectionsEqual(allConnectionsEquals);
@@ -225,6 +251,7 @@ public class RecoverableDataSource implements DataSource {
         cm.setConnectionMaxWaitMilliseconds(connectionMaxWaitMilliseconds);
         cm.setPartitionStrategy(partitionStrategy);
         cm.setPooling(pooling);
+        cm.setPoolStrategy(poolStrategy);
         cm.setPoolMaxSize(poolMaxSize);
         cm.setPoolMinSize(poolMinSize);
         cm.setValidateOnMatch(validateOnMatch);
@@ -236,11 +263,57 @@ public class RecoverableDataSource implements DataSource {
 
         delegate = (DataSource) mcf.getConnectionFactory().createConnectionFactory(cm.getConnectionManager());
 
+        registerMetrics();
+
         if (dataSource instanceof XADataSource) {
             Recovery.recover(name, (XADataSource) dataSource, transactionManager);
         }
     }
 
+    /**
+     * Register the pool metrics with the platform MBeanServer. This is only
+     * informative, so the data source starts even if the registration fails,
+     * for instance because another data source has the same name.
+     */
+    private void registerMetrics() {
+        unregisterMetrics();
+        if (name == null) {
+            return;
+        }
+        try {
+            ObjectName on = ConnectionPoolMetrics.getObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(cm.getMetrics(), on);
+            objectName = on;
+        } catch (Exception e) {
+            LOGGER.warn("Unable to register the connection pool metrics of data source " + name, e);
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (objectName != null) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Unable to unregister the connection pool metrics of data source " + name, e);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * @org.apache.xbean.DestroyMethod
+     */
+    public void stop() throws Exception {
+        unregisterMetrics();
+        if (cm != null) {
+            cm.destroy();
+            cm = null;
+        }
+    }
+
     //---------------------------
     // DataSource implementation
     //---------------------------
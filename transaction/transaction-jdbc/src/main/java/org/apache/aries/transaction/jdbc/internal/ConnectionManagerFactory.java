@@ -19,7 +19,6 @@
 package org.apache.aries.transaction.jdbc.internal;
 
 import org.apache.aries.transaction.AriesTransactionManager;
-import org.apache.geronimo.connector.outbound.GenericConnectionManager;
 import org.apache.geronimo.connector.outbound.SubjectSource;
 import org.apache.geronimo.connector.outbound.connectionmanagerconfig.LocalTransactions;
 import org.apache.geronimo.connector.outbound.connectionmanagerconfig.NoPool;
@@ -49,6 +48,7 @@ public class ConnectionManagerFactory {
 
     private PoolingSupport poolingSupport;
     private boolean pooling = true;
+    private String poolStrategy; //: default, thread-affine
     private String partitionStrategy; //: none, by-subject, by-connector-properties
     private int poolMaxSize = 10;
     private int poolMinSize = 0;
@@ -64,12 +64,17 @@ public class ConnectionManagerFactory {
 
     private ConnectionTrackingCoordinator connectionTracker;
     private TransactionManagerMonitor transactionManagerMonitor;
-    private GenericConnectionManager connectionManager;
+    private MeteredGenericConnectionManager connectionManager;
+    private ConnectionPoolMetrics metrics;
 
     public ConnectionManager getConnectionManager() {
         return connectionManager;
     }
 
+    public ConnectionPoolMetricsMBean getMetrics() {
+        return metrics;
+    }
+
     public void init() throws Exception {
         if (transactionManager == null && ("xa".equals(transaction) || "local".equals(transaction))) {
             throw new IllegalArgumentException("transactionManager must be set");
@@ -77,6 +82,17 @@ public class ConnectionManagerFactory {
         if (managedConnectionFactory == null) {
             throw new IllegalArgumentException("managedConnectionFactory must be set");
         }
+        boolean threadAffine;
+        if (poolStrategy == null || "default".equalsIgnoreCase(poolStrategy)) {
+            threadAffine = false;
+        } else if ("thread-affine".equalsIgnoreCase(poolStrategy)) {
+            threadAffine = true;
+            if (transactionSupport == null && !"xa".equalsIgnoreCase(transaction)) {
+                throw new IllegalArgumentException("The thread-affine pool strategy requires xa transactions");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown pool strategy " + poolStrategy + " (must be default or thread-affine)");
+        }
         // Apply the default value for property if necessary
         if (transactionSupport == null) {
             // No transaction
@@ -85,7 +101,9 @@ public class ConnectionManagerFactory {
             } else if ("none".equalsIgnoreCase(transaction)) {
                 transactionSupport = NoTransactions.INSTANCE;
             } else if ("xa".equalsIgnoreCase(transaction)) {
-                transactionSupport = new XATransactions(true, false);
+                // Connections are shared within a transaction. With thread affinity each thread also
+                // keeps the connection it used last, and reuses it without matching it again
+                transactionSupport = threadAffine ? new ThreadAffineXATransactions() : new XATransactions(true, false);
             } else {
                 throw new IllegalArgumentException("Unknown transaction type " + transaction + " (must be local, none or xa)");
             }
@@ -143,11 +161,15 @@ public class ConnectionManagerFactory {
             transactionManager.addTransactionAssociationListener(transactionManagerMonitor);
         }
         if (connectionManager == null) {
-            if (validateOnMatch || backgroundValidation) {
+            // The connections kept by threads are not matched, so they are validated in the background
+            boolean validateInBackground = backgroundValidation || (threadAffine && validateOnMatch);
+            ValidatingDelegatingManagedConnectionFactory validatingFactory = null;
+            if (validateOnMatch || validateInBackground) {
                 // Wrap the original ManagedConnectionFactory to add validation capability
-                managedConnectionFactory = new ValidatingDelegatingManagedConnectionFactory((UserPasswordManagedConnectionFactory) managedConnectionFactory);
+                validatingFactory = new ValidatingDelegatingManagedConnectionFactory((UserPasswordManagedConnectionFactory) managedConnectionFactory, validateOnMatch);
+                managedConnectionFactory = validatingFactory;
             }
-            if (backgroundValidation) {
+            if (validateInBackground) {
                 // Instantiate the Validating Connection Manager
                 connectionManager = new ValidatingGenericConnectionManager(
                         transactionSupport,
@@ -161,7 +183,7 @@ public class ConnectionManagerFactory {
                         backgroundValidationMilliseconds);
             } else {
                 // Instantiate the Geronimo Connection Manager
-                connectionManager = new GenericConnectionManager(
+                connectionManager = new MeteredGenericConnectionManager(
                         transactionSupport,
                         poolingSupport,
                         subjectSource,
@@ -172,6 +194,8 @@ public class ConnectionManagerFactory {
                         getClass().getClassLoader());
             }
 
+            metrics = new ConnectionPoolMetrics(connectionManager, validatingFactory);
+
             connectionManager.doStart();
         }
     }
@@ -180,6 +204,7 @@ public class ConnectionManagerFactory {
         if (connectionManager != null) {
             connectionManager.doStop();
             connectionManager = null;
+            metrics = null;
         }
         if (transactionManagerMonitor != null && transactionManager != null) {
             transactionManager.removeTransactionAssociationListener(transactionManagerMonitor);
@@ -242,6 +267,14 @@ public class ConnectionManagerFactory {
         this.pooling = pooling;
     }
 
+    public String getPoolStrategy() {
+        return poolStrategy;
+    }
+
+    public void setPoolStrategy(String poolStrategy) {
+        this.poolStrategy = poolStrategy;
+    }
+
     public String getPartitionStrategy() {
         return partitionStrategy;
     }
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc.internal;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+public class ConnectionPoolMetrics implements ConnectionPoolMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = 1000000d;
+
+    private final MeteredGenericConnectionManager connectionManager;
+    private final ValidatingDelegatingManagedConnectionFactory validatingFactory;
+
+    public ConnectionPoolMetrics(MeteredGenericConnectionManager connectionManager, ValidatingDelegatingManagedConnectionFactory validatingFactory) {
+        this.connectionManager = connectionManager;
+        this.validatingFactory = validatingFactory;
+    }
+
+    public static ObjectName getObjectName(String name) throws MalformedObjectNameException {
+        return new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+    }
+
+    @Override
+    public int getActiveConnectionCount() {
+        return connectionManager.getConnectionCount() - connectionManager.getIdleConnectionCount();
+    }
+
+    @Override
+    public int getIdleConnectionCount() {
+        return connectionManager.getIdleConnectionCount();
+    }
+
+    @Override
+    public long getConnectionRequestCount() {
+        return connectionManager.getAllocationCount();
+    }
+
+    @Override
+    public double getAverageWaitMilliseconds() {
+        long count = connectionManager.getAllocationCount();
+        return count == 0 ? 0 : connectionManager.getAllocationNanos() / NANOS_PER_MILLI / count;
+    }
+
+    @Override
+    public double getMaxWaitMilliseconds() {
+        return connectionManager.getMaxAllocationNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getValidationFailureCount() {
+        return validatingFactory != null ? validatingFactory.getValidationFailureCount() : 0;
+    }
+}
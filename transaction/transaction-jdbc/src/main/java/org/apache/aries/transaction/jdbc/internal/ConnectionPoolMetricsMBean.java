@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc.internal;
+
+/**
+ * JMX view of the connection pool of a managed DataSource.
+ */
+public interface ConnectionPoolMetricsMBean {
+
+    String OBJECT_NAME_PREFIX = "org.apache.aries.transaction.jdbc:type=ConnectionPool,name=";
+
+    /**
+     * The number of connections currently handed out, including the ones
+     * held by a thread with the thread-affine pool strategy.
+     */
+    int getActiveConnectionCount();
+
+    /**
+     * The number of connections waiting in the pool.
+     */
+    int getIdleConnectionCount();
+
+    /**
+     * The number of connections requested since the pool was started.
+     */
+    long getConnectionRequestCount();
+
+    /**
+     * The average time taken to obtain a connection, in milliseconds.
+     */
+    double getAverageWaitMilliseconds();
+
+    /**
+     * The longest time taken to obtain a connection, in milliseconds.
+     */
+    double getMaxWaitMilliseconds();
+
+    /**
+     * The number of connections found to be invalid, on match or in the background.
+     */
+    long getValidationFailureCount();
+}
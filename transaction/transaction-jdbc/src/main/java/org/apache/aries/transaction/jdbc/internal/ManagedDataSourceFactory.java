@@ -40,6 +40,7 @@ public class ManagedDataSourceFactory {
     private final Map<String, Object> properties;
 
     private ServiceRegistration<DataSource> registration;
+    private ServiceRegistration<ConnectionPoolMetricsMBean> metricsRegistration;
     private ConnectionManagerFactory cm;
 
     public ManagedDataSourceFactory(ServiceReference reference,
@@ -121,6 +122,7 @@ public class ManagedDataSourceFactory {
         cm.setConnectionMaxWaitMilliseconds(getInt("aries.xa.connectionMaxWaitMilliseconds", 5000));
         cm.setPartitionStrategy(getString("aries.xa.partitionStrategy", null));
         cm.setPooling(getBool("aries.xa.pooling", true));
+        cm.setPoolStrategy(getString("aries.xa.poolStrategy", null));
         cm.setPoolMaxSize(getInt("aries.xa.poolMaxSize", 10));
         cm.setPoolMinSize(getInt("aries.xa.poolMinSize", 0));
         cm.setValidateOnMatch(getBool("aries.xa.validateOnMatch", true));
@@ -134,12 +136,23 @@ public class ManagedDataSourceFactory {
         DataSource ds = (DataSource) mcf.getConnectionFactory().createConnectionFactory(cm.getConnectionManager());
         registration = context.registerService(DataSource.class, ds, props);
 
+        if (getResourceName() != null) {
+            // Picked up by the JMX whiteboard
+            Hashtable<String, Object> metricsProps = new Hashtable<String, Object>();
+            metricsProps.put("jmx.objectname", ConnectionPoolMetrics.getObjectName(getResourceName()).toString());
+            metricsRegistration = context.registerService(ConnectionPoolMetricsMBean.class, cm.getMetrics(), metricsProps);
+        }
+
         if (isXaDataSource) {
             Recovery.recover(getResourceName(), (XADataSource) dataSource, transactionManager);
         }
     }
 
     public void unregister() throws Exception {
+        if (metricsRegistration != null) {
+            metricsRegistration.unregister();
+            metricsRegistration = null;
+        }
         if (registration != null) {
             registration.unregister();
             registration = null;
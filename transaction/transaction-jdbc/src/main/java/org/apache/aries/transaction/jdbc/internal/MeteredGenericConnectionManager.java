@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc.internal;
+
+import org.apache.geronimo.connector.outbound.GenericConnectionManager;
+import org.apache.geronimo.connector.outbound.SubjectSource;
+import org.apache.geronimo.connector.outbound.connectionmanagerconfig.PoolingSupport;
+import org.apache.geronimo.connector.outbound.connectionmanagerconfig.TransactionSupport;
+import org.apache.geronimo.connector.outbound.connectiontracking.ConnectionTracker;
+import org.apache.geronimo.transaction.manager.RecoverableTransactionManager;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.ConnectionRequestInfo;
+import javax.resource.spi.ManagedConnectionFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A GenericConnectionManager recording how long callers wait for a connection.
+ */
+@SuppressWarnings("serial")
+public class MeteredGenericConnectionManager extends GenericConnectionManager {
+
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong allocationNanos = new AtomicLong();
+    private final AtomicLong maxAllocationNanos = new AtomicLong();
+
+    public MeteredGenericConnectionManager(TransactionSupport transactionSupport, PoolingSupport pooling, SubjectSource subjectSource, ConnectionTracker connectionTracker, RecoverableTransactionManager transactionManager, ManagedConnectionFactory mcf, String name, ClassLoader classLoader) {
+        super(transactionSupport, pooling, subjectSource, connectionTracker, transactionManager, mcf, name, classLoader);
+    }
+
+    @Override
+    public Object allocateConnection(ManagedConnectionFactory managedConnectionFactory, ConnectionRequestInfo connectionRequestInfo) throws ResourceException {
+        long start = System.nanoTime();
+        try {
+            return super.allocateConnection(managedConnectionFactory, connectionRequestInfo);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            allocations.incrementAndGet();
+            allocationNanos.addAndGet(elapsed);
+            long max;
+            while (elapsed > (max = maxAllocationNanos.get()) && !maxAllocationNanos.compareAndSet(max, elapsed)) {
+                // retry
+            }
+        }
+    }
+
+    public long getAllocationCount() {
+        return allocations.get();
+    }
+
+    public long getAllocationNanos() {
+        return allocationNanos.get();
+    }
+
+    public long getMaxAllocationNanos() {
+        return maxAllocationNanos.get();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc.internal;
+
+import org.apache.geronimo.connector.outbound.ConnectionInfo;
+import org.apache.geronimo.connector.outbound.ConnectionInterceptor;
+import org.apache.geronimo.connector.outbound.ConnectionReturnAction;
+import org.apache.geronimo.connector.outbound.ManagedConnectionInfo;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.ManagedConnection;
+import javax.resource.spi.ValidatingManagedConnectionFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the connection each thread used last, and hands it back to that thread
+ * without matching it again. The connection stays checked out of the pool, so
+ * the idle cached connections are validated by {@link #validateIdleConnections}
+ * from the background validation of {@link ValidatingGenericConnectionManager}.
+ */
+public final class ThreadAffineConnectionInterceptor implements ConnectionInterceptor {
+
+    // named next, as the connection managers walk the stack through this field
+    private final ConnectionInterceptor next;
+
+    private final Set<Holder> holders = Collections.newSetFromMap(new ConcurrentHashMap<Holder, Boolean>());
+
+    private final ThreadLocal<Holder> holder = new ThreadLocal<Holder>() {
+        @Override
+        protected Holder initialValue() {
+            Holder h = new Holder();
+            holders.add(h);
+            return h;
+        }
+    };
+
+    public ThreadAffineConnectionInterceptor(ConnectionInterceptor next) {
+        this.next = next;
+    }
+
+    public void getConnection(ConnectionInfo connectionInfo) throws ResourceException {
+        if (connectionInfo.isUnshareable()) {
+            next.getConnection(connectionInfo);
+            return;
+        }
+        Holder h = holder.get();
+        if (h.current == null) {
+            // claim the idle connection, so that the background validation leaves it alone
+            h.current = h.idle.getAndSet(null);
+        }
+        if (h.current != null) {
+            connectionInfo.setManagedConnectionInfo(h.current);
+            return;
+        }
+        next.getConnection(connectionInfo);
+        h.current = connectionInfo.getManagedConnectionInfo();
+    }
+
+    public void returnConnection(ConnectionInfo connectionInfo, ConnectionReturnAction connectionReturnAction) {
+        ManagedConnectionInfo mci = connectionInfo.getManagedConnectionInfo();
+        Holder h = holder.get();
+        if (connectionReturnAction == ConnectionReturnAction.DESTROY || connectionInfo.isUnshareable()) {
+            if (h.current == mci) {
+                h.current = null;
+            }
+            next.returnConnection(connectionInfo, connectionReturnAction);
+        } else if (h.current == mci && !mci.hasConnectionHandles()) {
+            h.current = null;
+            if (!h.idle.compareAndSet(null, mci)) {
+                next.returnConnection(connectionInfo, connectionReturnAction);
+            }
+        } else if (h.current != mci) {
+            // not the connection of this thread, it goes back to the pool
+            next.returnConnection(connectionInfo, connectionReturnAction);
+        }
+    }
+
+    /**
+     * Validates the cached connections that no thread is using, destroying the invalid ones.
+     * The connections are claimed while they are validated, and returned to the pool if
+     * their thread has cached another connection in the meantime.
+     */
+    public void validateIdleConnections(ValidatingManagedConnectionFactory mcf) throws ResourceException {
+        Map<ManagedConnection, Holder> claimed = new HashMap<ManagedConnection, Holder>();
+        Map<ManagedConnection, ManagedConnectionInfo> infos = new HashMap<ManagedConnection, ManagedConnectionInfo>();
+        for (Holder h : holders) {
+            ManagedConnectionInfo mci = h.idle.getAndSet(null);
+            if (mci != null) {
+                claimed.put(mci.getManagedConnection(), h);
+                infos.put(mci.getManagedConnection(), mci);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+        Set<?> invalids = null;
+        try {
+            invalids = mcf.getInvalidConnections(claimed.keySet());
+        } finally {
+            for (Map.Entry<ManagedConnection, Holder> entry : claimed.entrySet()) {
+                ManagedConnectionInfo mci = infos.get(entry.getKey());
+                if (invalids != null && invalids.contains(entry.getKey())) {
+                    next.returnConnection(new ConnectionInfo(mci), ConnectionReturnAction.DESTROY);
+                } else if (!entry.getValue().idle.compareAndSet(null, mci)) {
+                    next.returnConnection(new ConnectionInfo(mci), ConnectionReturnAction.RETURN_HANDLE);
+                }
+            }
+        }
+    }
+
+    public void destroy() {
+        for (Holder h : holders) {
+            ManagedConnectionInfo mci = h.idle.getAndSet(null);
+            if (mci != null) {
+                next.returnConnection(new ConnectionInfo(mci), ConnectionReturnAction.DESTROY);
+            }
+        }
+        holders.clear();
+        next.destroy();
+    }
+
+    public void info(StringBuilder s) {
+        s.append(getClass().getName()).append("[cached threads=").append(holders.size()).append("]\n");
+        next.info(s);
+    }
+
+    /**
+     * The connection of a thread: the one it is using, only read by that thread, and the
+     * idle one, which the background validation can claim.
+     */
+    private static final class Holder {
+        ManagedConnectionInfo current;
+        final AtomicReference<ManagedConnectionInfo> idle = new AtomicReference<ManagedConnectionInfo>();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc.internal;
+
+import org.apache.geronimo.connector.outbound.ConnectionInterceptor;
+import org.apache.geronimo.connector.outbound.TransactionCachingInterceptor;
+import org.apache.geronimo.connector.outbound.TransactionEnlistingInterceptor;
+import org.apache.geronimo.connector.outbound.connectionmanagerconfig.XATransactions;
+
+import javax.transaction.TransactionManager;
+
+/**
+ * XA transaction support where each thread keeps the connection it used last,
+ * and reuses it without matching it again. Unlike the thread caching of
+ * {@link XATransactions}, the idle cached connections are still validated, by
+ * the background validation of {@link ValidatingGenericConnectionManager}.
+ */
+@SuppressWarnings("serial")
+public class ThreadAffineXATransactions extends XATransactions {
+
+    public ThreadAffineXATransactions() {
+        super(true, true);
+    }
+
+    @Override
+    public ConnectionInterceptor addTransactionInterceptors(ConnectionInterceptor stack, TransactionManager transactionManager) {
+        stack = new ThreadAffineConnectionInterceptor(stack);
+        stack = new TransactionEnlistingInterceptor(stack, transactionManager);
+        return new TransactionCachingInterceptor(stack, transactionManager);
+    }
+}
@@ -41,6 +41,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @SuppressWarnings({
     "rawtypes", "serial", "unchecked"
@@ -49,9 +50,24 @@ public final class ValidatingDelegatingManagedConnectionFactory implements UserP
 
     private static final Logger LOG = LoggerFactory.getLogger(ValidatingDelegatingManagedConnectionFactory.class);
     private final ManagedConnectionFactory delegate;
+    private final boolean validateOnMatch;
+    private final AtomicLong validationFailures = new AtomicLong();
 
     public ValidatingDelegatingManagedConnectionFactory(ManagedConnectionFactory managedConnectionFactory) {
+        this(managedConnectionFactory, true);
+    }
+
+    /**
+     * @param validateOnMatch false to only validate connections through
+     *                        {@link #getInvalidConnections(Set)}, as done by the background validation
+     */
+    public ValidatingDelegatingManagedConnectionFactory(ManagedConnectionFactory managedConnectionFactory, boolean validateOnMatch) {
         this.delegate = managedConnectionFactory;
+        this.validateOnMatch = validateOnMatch;
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailures.get();
     }
 
     private boolean isValidConnection(Connection c) {
@@ -65,6 +81,7 @@ public final class ValidatingDelegatingManagedConnectionFactory implements UserP
         } catch (SQLException e) {
             // no-op
         }
+        validationFailures.incrementAndGet();
         return false;
     }
 
@@ -121,7 +138,7 @@ public final class ValidatingDelegatingManagedConnectionFactory implements UserP
             if (o instanceof ManagedConnectionHandle) {
                 ManagedConnectionHandle mch = ManagedConnectionHandle.class.cast(o);
                 if (mch.matches(this, subject, cxRequestInfo)) {
-                    if (mch instanceof AbstractManagedConnection) {
+                    if (validateOnMatch && mch instanceof AbstractManagedConnection) {
                         AbstractManagedConnection<Connection, ConnectionHandle> amc = AbstractManagedConnection.class.cast(mch);
                         if (isValidConnection(amc.getPhysicalConnection())) {
                             return amc;
@@ -22,7 +22,6 @@ import org.apache.geronimo.connector.outbound.AbstractSinglePoolConnectionInterc
 import org.apache.geronimo.connector.outbound.ConnectionInfo;
 import org.apache.geronimo.connector.outbound.ConnectionInterceptor;
 import org.apache.geronimo.connector.outbound.ConnectionReturnAction;
-import org.apache.geronimo.connector.outbound.GenericConnectionManager;
 import org.apache.geronimo.connector.outbound.ManagedConnectionInfo;
 import org.apache.geronimo.connector.outbound.MultiPoolConnectionInterceptor;
 import org.apache.geronimo.connector.outbound.SinglePoolConnectionInterceptor;
@@ -49,7 +48,7 @@ import java.util.concurrent.locks.ReadWriteLock;
 @SuppressWarnings({
     "unchecked", "serial"
 })
-public final class ValidatingGenericConnectionManager extends GenericConnectionManager {
+public final class ValidatingGenericConnectionManager extends MeteredGenericConnectionManager {
 
     private static final Timer TIMER = new Timer("ValidatingGenericConnectionManagerTimer", true);
 
@@ -58,6 +57,7 @@ public final class ValidatingGenericConnectionManager extends GenericConnectionM
 
     private final ReadWriteLock lock;
     private final Object pool;
+    private final ThreadAffineConnectionInterceptor threadCache;
 
     public ValidatingGenericConnectionManager(TransactionSupport transactionSupport, PoolingSupport pooling, SubjectSource subjectSource, ConnectionTracker connectionTracker, RecoverableTransactionManager transactionManager, ManagedConnectionFactory mcf, String name, ClassLoader classLoader, long interval) {
         super(transactionSupport, pooling, subjectSource, connectionTracker, transactionManager, mcf, name, classLoader);
@@ -66,8 +66,12 @@ public final class ValidatingGenericConnectionManager extends GenericConnectionM
         ConnectionInterceptor stack = interceptors.getStack();
 
         ReadWriteLock foundLock = null;
+        ThreadAffineConnectionInterceptor foundThreadCache = null;
         ConnectionInterceptor current = stack;
         do {
+            if (current instanceof ThreadAffineConnectionInterceptor) {
+                foundThreadCache = (ThreadAffineConnectionInterceptor) current;
+            }
             if (current instanceof AbstractSinglePoolConnectionInterceptor) {
                 try {
                     foundLock = (ReadWriteLock) Reflections.get(current, "resizeLock");
@@ -86,6 +90,7 @@ public final class ValidatingGenericConnectionManager extends GenericConnectionM
         } while (current != null);
 
         this.lock = foundLock;
+        this.threadCache = foundThreadCache;
 
         Object foundPool = null;
         if (current instanceof AbstractSinglePoolConnectionInterceptor) {
@@ -161,6 +166,15 @@ public final class ValidatingGenericConnectionManager extends GenericConnectionM
                 } catch (ResourceException e) {
                     log.error(e.getMessage(), e);
                 }
+
+                // the connections kept by threads are not in the pool
+                if (threadCache != null) {
+                    try {
+                        threadCache.validateIdleConnections(ValidatingManagedConnectionFactory.class.cast(getManagedConnectionFactory()));
+                    } catch (ResourceException e) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
             } finally {
                 if (lock != null) {
                     lock.writeLock().unlock();
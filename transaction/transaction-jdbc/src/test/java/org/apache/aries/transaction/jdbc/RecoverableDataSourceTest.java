@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+
+import org.apache.aries.transaction.jdbc.internal.ConnectionPoolMetrics;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RecoverableDataSourceTest {
+
+    private static final String NAME = "recoverableDataSourceTest";
+
+    private MBeanServer server;
+    private ObjectName objectName;
+    private RecoverableDataSource first;
+    private RecoverableDataSource second;
+
+    @Before
+    public void setUp() throws Exception {
+        server = ManagementFactory.getPlatformMBeanServer();
+        objectName = ConnectionPoolMetrics.getObjectName(NAME);
+        first = createDataSource();
+        second = createDataSource();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    public void testMetricsRegistered() throws Exception {
+        first.start();
+        assertTrue(server.isRegistered(objectName));
+
+        first.stop();
+        assertFalse(server.isRegistered(objectName));
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        first.start();
+        first.start();
+        assertTrue(server.isRegistered(objectName));
+
+        first.stop();
+        first.start();
+        assertTrue(server.isRegistered(objectName));
+    }
+
+    @Test
+    public void testDuplicateName() throws Exception {
+        first.start();
+        // The metrics are already registered under this name, the data source still starts
+        second.start();
+        assertTrue(server.isRegistered(objectName));
+
+        // Stopping the second data source leaves the metrics of the first one alone
+        second.stop();
+        assertTrue(server.isRegistered(objectName));
+    }
+
+    private RecoverableDataSource createDataSource() {
+        DataSource dataSource = EasyMock.createNiceMock(DataSource.class);
+        EasyMock.replay(dataSource);
+        RecoverableDataSource ds = new RecoverableDataSource();
+        ds.setName(NAME);
+        ds.setDataSource(dataSource);
+        ds.setTransaction("none");
+        return ds;
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.sql.DataSource;
+
+import org.apache.aries.transaction.AriesTransactionManager;
+import org.apache.geronimo.connector.outbound.connectionmanagerconfig.XATransactions;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionManagerFactoryTest {
+
+    private ConnectionManagerFactory cm;
+
+    @Before
+    public void setUp() throws Exception {
+        DataSource dataSource = EasyMock.createNiceMock(DataSource.class);
+        AriesTransactionManager tm = EasyMock.createNiceMock(AriesTransactionManager.class);
+        EasyMock.replay(dataSource, tm);
+
+        DataSourceMCFFactory mcf = new DataSourceMCFFactory();
+        mcf.setDataSource(dataSource);
+        mcf.init();
+
+        cm = new ConnectionManagerFactory();
+        cm.setManagedConnectionFactory(mcf.getConnectionFactory());
+        cm.setTransactionManager(tm);
+        cm.setName("connectionManagerFactoryTest");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cm.destroy();
+    }
+
+    @Test
+    public void testDefaultPoolStrategy() throws Exception {
+        cm.setTransaction("xa");
+        cm.init();
+
+        assertTrue(cm.getTransactionSupport() instanceof XATransactions);
+        assertFalse(cm.getTransactionSupport() instanceof ThreadAffineXATransactions);
+        assertTrue(cm.getManagedConnectionFactory() instanceof ValidatingDelegatingManagedConnectionFactory);
+        assertFalse(cm.getConnectionManager() instanceof ValidatingGenericConnectionManager);
+    }
+
+    @Test
+    public void testThreadAffineValidatesInBackground() throws Exception {
+        cm.setTransaction("xa");
+        cm.setPoolStrategy("thread-affine");
+        cm.init();
+
+        assertTrue(cm.getTransactionSupport() instanceof ThreadAffineXATransactions);
+        // The connection cached for the thread is reused without matching, and validated in the background
+        assertTrue(cm.getManagedConnectionFactory() instanceof ValidatingDelegatingManagedConnectionFactory);
+        assertTrue(cm.getConnectionManager() instanceof ValidatingGenericConnectionManager);
+    }
+
+    @Test
+    public void testNoValidation() throws Exception {
+        cm.setTransaction("xa");
+        cm.setPoolStrategy("thread-affine");
+        cm.setValidateOnMatch(false);
+        cm.init();
+
+        assertFalse(cm.getManagedConnectionFactory() instanceof ValidatingDelegatingManagedConnectionFactory);
+        assertFalse(cm.getConnectionManager() instanceof ValidatingGenericConnectionManager);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThreadAffineRequiresXA() throws Exception {
+        cm.setTransaction("local");
+        cm.setPoolStrategy("thread-affine");
+        cm.init();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPoolStrategy() throws Exception {
+        cm.setTransaction("xa");
+        cm.setPoolStrategy("per-request");
+        cm.init();
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.transaction.jdbc.internal;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.resource.spi.ManagedConnection;
+import javax.resource.spi.ManagedConnectionFactory;
+import javax.resource.spi.ValidatingManagedConnectionFactory;
+
+import org.apache.geronimo.connector.outbound.ConnectionInfo;
+import org.apache.geronimo.connector.outbound.ConnectionInterceptor;
+import org.apache.geronimo.connector.outbound.ConnectionReturnAction;
+import org.apache.geronimo.connector.outbound.ManagedConnectionInfo;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThreadAffineConnectionInterceptorTest {
+
+    private ConnectionInterceptor next;
+    private ManagedConnectionInfo first;
+    private ManagedConnectionInfo second;
+    private ThreadAffineConnectionInterceptor interceptor;
+
+    @Before
+    public void setUp() throws Exception {
+        next = EasyMock.createMock(ConnectionInterceptor.class);
+        first = createInfo();
+        second = createInfo();
+        interceptor = new ThreadAffineConnectionInterceptor(next);
+    }
+
+    private static ManagedConnectionInfo createInfo() {
+        ManagedConnectionInfo mci = new ManagedConnectionInfo(EasyMock.createNiceMock(ManagedConnectionFactory.class), null);
+        mci.setManagedConnection(EasyMock.createNiceMock(ManagedConnection.class));
+        return mci;
+    }
+
+    private void expectFromPool(final ManagedConnectionInfo mci) throws Exception {
+        next.getConnection(EasyMock.anyObject(ConnectionInfo.class));
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                ((ConnectionInfo) EasyMock.getCurrentArguments()[0]).setManagedConnectionInfo(mci);
+                return null;
+            }
+        });
+    }
+
+    private ManagedConnectionInfo useConnection() throws Exception {
+        ConnectionInfo ci = new ConnectionInfo();
+        interceptor.getConnection(ci);
+        interceptor.returnConnection(ci, ConnectionReturnAction.RETURN_HANDLE);
+        return ci.getManagedConnectionInfo();
+    }
+
+    @Test
+    public void testConnectionReusedWithoutPool() throws Exception {
+        expectFromPool(first);
+        EasyMock.replay(next);
+
+        assertSame(first, useConnection());
+        assertSame(first, useConnection());
+
+        EasyMock.verify(next);
+    }
+
+    @Test
+    public void testInvalidConnectionDestroyed() throws Exception {
+        expectFromPool(first);
+        next.returnConnection(EasyMock.anyObject(ConnectionInfo.class), EasyMock.eq(ConnectionReturnAction.DESTROY));
+        expectFromPool(second);
+        ValidatingManagedConnectionFactory mcf = EasyMock.createMock(ValidatingManagedConnectionFactory.class);
+        EasyMock.expect(mcf.getInvalidConnections(Collections.singleton(first.getManagedConnection())))
+            .andReturn((Set) Collections.singleton(first.getManagedConnection()));
+        EasyMock.replay(next, mcf);
+
+        assertSame(first, useConnection());
+        interceptor.validateIdleConnections(mcf);
+        assertSame(second, useConnection());
+
+        EasyMock.verify(next, mcf);
+    }
+
+    @Test
+    public void testValidConnectionKept() throws Exception {
+        expectFromPool(first);
+        ValidatingManagedConnectionFactory mcf = EasyMock.createMock(ValidatingManagedConnectionFactory.class);
+        EasyMock.expect(mcf.getInvalidConnections(Collections.singleton(first.getManagedConnection())))
+            .andReturn(Collections.emptySet());
+        EasyMock.replay(next, mcf);
+
+        assertSame(first, useConnection());
+        interceptor.validateIdleConnections(mcf);
+        assertSame(first, useConnection());
+
+        EasyMock.verify(next, mcf);
+    }
+
+}
@@ -77,6 +77,7 @@ public class PooledConnectionFactory implements ConnectionFactory {
     private long expiryTimeout = 0l;
     private boolean createConnectionOnStartup = true;
     private boolean useAnonymousProducers = true;
+    private int producerCacheSize = 16;
 
     public void initConnectionsPool() {
         if (this.connectionsPool == null) {
@@ -112,6 +113,7 @@ public class PooledConnectionFactory implements ConnectionFactory {
                                 connection.setBlockIfSessionPoolIsFullTimeout(getBlockIfSessionPoolIsFullTimeout());
                             }
                             connection.setUseAnonymousProducers(isUseAnonymousProducers());
+                            connection.setProducerCacheSize(getProducerCacheSize());
 
                             if (LOG.isTraceEnabled()) {
                                 LOG.trace("Created new connection: {}", connection);
@@ -454,6 +456,27 @@ public class PooledConnectionFactory implements ConnectionFactory {
         this.useAnonymousProducers = value;
     }
 
+    /**
+     * @return the number of producers, per destination, that a PooledSession keeps open
+     *          when anonymous producers are not used.
+     */
+    public int getProducerCacheSize() {
+        return this.producerCacheSize;
+    }
+
+    /**
+     * Sets the number of producers that a PooledSession keeps open when anonymous producers
+     * are not used, default is 16.  The producer for a destination is then reused by each
+     * call to create a producer for it, and the least recently used producer is closed
+     * when the cache is full.  A value of zero creates a new MessageProducer for each call.
+     *
+     * @param producerCacheSize
+     *      the maximum number of producers cached by each session.
+     */
+    public void setProducerCacheSize(int producerCacheSize) {
+        this.producerCacheSize = producerCacheSize;
+    }
+
     /**
      * Gets the Pool of ConnectionPool instances which are keyed by different ConnectionKeys.
      *
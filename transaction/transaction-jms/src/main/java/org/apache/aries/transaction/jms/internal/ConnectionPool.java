@@ -46,6 +46,7 @@ public class ConnectionPool {
     private int idleTimeout = 30 * 1000;
     private long expiryTimeout = 0l;
     private boolean useAnonymousProducers = true;
+    private int producerCacheSize = 16;
 
     private final AtomicBoolean started = new AtomicBoolean(false);
     private final GenericKeyedObjectPool<SessionKey, PooledSession> sessionPool;
@@ -73,7 +74,7 @@ public class ConnectionPool {
                     @Override
                     public PooledSession makeObject(SessionKey key) throws Exception {
                         Session session = makeSession(key);
-                        return new PooledSession(key, session, sessionPool, key.isTransacted(), useAnonymousProducers);
+                        return new PooledSession(key, session, sessionPool, key.isTransacted(), useAnonymousProducers, producerCacheSize);
                     }
 
                     @Override
@@ -251,6 +252,14 @@ public class ConnectionPool {
         this.useAnonymousProducers = value;
     }
 
+    public int getProducerCacheSize() {
+        return this.producerCacheSize;
+    }
+
+    public void setProducerCacheSize(int producerCacheSize) {
+        this.producerCacheSize = producerCacheSize;
+    }
+
     /**
      * @return the total number of Pooled session including idle sessions that are not
      *          currently loaned out to any client.
@@ -42,7 +42,7 @@ public class PooledConnection implements TopicConnection, QueueConnection, Poole
     private volatile boolean stopped;
     private final List<TemporaryQueue> connTempQueues = new CopyOnWriteArrayList<TemporaryQueue>();
     private final List<TemporaryTopic> connTempTopics = new CopyOnWriteArrayList<TemporaryTopic>();
-    private final List<PooledSession> loanedSessions = new CopyOnWriteArrayList<PooledSession>();
+    private final CopyOnWriteArrayList<PooledSession> loanedSessions = new CopyOnWriteArrayList<PooledSession>();
 
     /**
      * Creates a new PooledConnection instance that uses the given ConnectionPool to create
@@ -153,7 +153,9 @@ public class PooledConnection implements TopicConnection, QueueConnection, Poole
 
         // Store the session so we can close the sessions that this PooledConnection
         // created in order to ensure that consumers etc are closed per the JMS contract.
-        loanedSessions.add(result);
+        // The session enlisted in a transaction is returned again for each call made in
+        // that transaction, so it is only stored once.
+        loanedSessions.addIfAbsent(result);
 
         // Add a event listener to the session that notifies us when the session
         // creates / destroys temporary destinations and closes etc.
@@ -19,6 +19,8 @@ package org.apache.aries.transaction.jms.internal;
 import java.io.Serializable;
 import java.lang.IllegalStateException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import javax.jms.*;
 import javax.transaction.xa.XAResource;
@@ -36,9 +38,13 @@ public class PooledSession implements Session, TopicSession, QueueSession, XASes
     private final CopyOnWriteArrayList<QueueBrowser> browsers = new CopyOnWriteArrayList<QueueBrowser>();
     private final CopyOnWriteArrayList<PooledSessionEventListener> sessionEventListeners = new CopyOnWriteArrayList<PooledSessionEventListener>();
 
-    private MessageProducer producer;
-    private TopicPublisher publisher;
-    private QueueSender sender;
+    private volatile MessageProducer producer;
+    private volatile TopicPublisher publisher;
+    private volatile QueueSender sender;
+
+    private final ProducerCache<MessageProducer> producers;
+    private final ProducerCache<QueueSender> senders;
+    private final ProducerCache<TopicPublisher> publishers;
 
     private Session session;
     private boolean transactional = true;
@@ -47,11 +53,19 @@ public class PooledSession implements Session, TopicSession, QueueSession, XASes
     private boolean useAnonymousProducers = true;
 
     public PooledSession(SessionKey key, Session session, KeyedObjectPool<SessionKey, PooledSession> sessionPool, boolean transactional, boolean anonymous) {
+        this(key, session, sessionPool, transactional, anonymous, 0);
+    }
+
+    public PooledSession(SessionKey key, Session session, KeyedObjectPool<SessionKey, PooledSession> sessionPool, boolean transactional, boolean anonymous, int producerCacheSize) {
         this.key = key;
         this.session = session;
         this.sessionPool = sessionPool;
         this.transactional = transactional;
         this.useAnonymousProducers = anonymous;
+        boolean cacheProducers = !anonymous && producerCacheSize > 0;
+        this.producers = cacheProducers ? new ProducerCache<MessageProducer>(producerCacheSize) : null;
+        this.senders = cacheProducers ? new ProducerCache<QueueSender>(producerCacheSize) : null;
+        this.publishers = cacheProducers ? new ProducerCache<TopicPublisher>(producerCacheSize) : null;
     }
 
     public void addSessionEventListener(PooledSessionEventListener listener) {
@@ -335,17 +349,17 @@ public class PooledSession implements Session, TopicSession, QueueSession, XASes
     // -------------------------------------------------------------------------
     @Override
     public MessageProducer createProducer(Destination destination) throws JMSException {
-        return new PooledProducer(getMessageProducer(destination), destination);
+        return new PooledProducer(getMessageProducer(destination), destination, producers != null);
     }
 
     @Override
     public QueueSender createSender(Queue queue) throws JMSException {
-        return new PooledQueueSender(getQueueSender(queue), queue);
+        return new PooledQueueSender(getQueueSender(queue), queue, senders != null);
     }
 
     @Override
     public TopicPublisher createPublisher(Topic topic) throws JMSException {
-        return new PooledTopicPublisher(getTopicPublisher(topic), topic);
+        return new PooledTopicPublisher(getTopicPublisher(topic), topic, publishers != null);
     }
 
     public Session getInternalSession() throws IllegalStateException {
@@ -373,6 +387,14 @@ public class PooledSession implements Session, TopicSession, QueueSession, XASes
             }
 
             result = producer;
+        } else if (producers != null) {
+            synchronized (producers) {
+                result = producers.get(destination);
+                if (result == null) {
+                    result = getInternalSession().createProducer(destination);
+                    producers.put(destination, result);
+                }
+            }
         } else {
             result = getInternalSession().createProducer(destination);
         }
@@ -398,6 +420,14 @@ public class PooledSession implements Session, TopicSession, QueueSession, XASes
             }
 
             result = sender;
+        } else if (senders != null) {
+            synchronized (senders) {
+                result = senders.get(destination);
+                if (result == null) {
+                    result = ((QueueSession) getInternalSession()).createSender(destination);
+                    senders.put(destination, result);
+                }
+            }
         } else {
             result = ((QueueSession) getInternalSession()).createSender(destination);
         }
@@ -423,6 +453,14 @@ public class PooledSession implements Session, TopicSession, QueueSession, XASes
             }
 
             result = publisher;
+        } else if (publishers != null) {
+            synchronized (publishers) {
+                result = publishers.get(destination);
+                if (result == null) {
+                    result = ((TopicSession) getInternalSession()).createPublisher(destination);
+                    publishers.put(destination, result);
+                }
+            }
         } else {
             result = ((TopicSession) getInternalSession()).createPublisher(destination);
         }
@@ -475,4 +513,32 @@ public class PooledSession implements Session, TopicSession, QueueSession, XASes
     protected void onConsumerClose(MessageConsumer consumer) {
         consumers.remove(consumer);
     }
+
+    /**
+     * The producers created for each destination, which stay open while the session is
+     * pooled.  The least recently used producer is closed when the cache is full.
+     */
+    private static final class ProducerCache<P extends MessageProducer> extends LinkedHashMap<Destination, P> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        ProducerCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Destination, P> eldest) {
+            if (size() <= maxSize) {
+                return false;
+            }
+            try {
+                eldest.getValue().close();
+            } catch (JMSException e) {
+                LOG.trace("Ignoring exception on close of evicted producer: " + e, e);
+            }
+            return true;
+        }
+    }
 }
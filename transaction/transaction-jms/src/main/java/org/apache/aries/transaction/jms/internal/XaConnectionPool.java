@@ -16,6 +16,9 @@
  */
 package org.apache.aries.transaction.jms.internal;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.Session;
@@ -25,12 +28,15 @@ import javax.jms.XAConnection;
 import javax.transaction.RollbackException;
 import javax.transaction.Status;
 import javax.transaction.SystemException;
+import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
 
 /**
  * An XA-aware connection pool.  When a session is created and an xa transaction is active,
- * the session will automatically be enlisted in the current transaction.
+ * the session will automatically be enlisted in the current transaction.  Further sessions
+ * created in the same transaction reuse the enlisted session, which is returned to the
+ * pool when the transaction completes.
  * 
  * @author gnodet
  */
@@ -38,6 +44,8 @@ public class XaConnectionPool extends ConnectionPool {
 
     private final TransactionManager transactionManager;
 
+    private final Map<Transaction, PooledSession> enlistedSessions = new ConcurrentHashMap<Transaction, PooledSession>();
+
     public XaConnectionPool(Connection connection, TransactionManager transactionManager) {
         super(connection);
         this.transactionManager = transactionManager;
@@ -64,6 +72,13 @@ public class XaConnectionPool extends ConnectionPool {
                     ackMode = Session.AUTO_ACKNOWLEDGE;
                 }
             }
+            Transaction transaction = isXa ? transactionManager.getTransaction() : null;
+            if (transaction != null) {
+                PooledSession enlisted = enlistedSessions.get(transaction);
+                if (enlisted != null) {
+                    return enlisted;
+                }
+            }
             PooledSession session = (PooledSession) super.createSession(transacted, ackMode);
             if (isXa) {
                 session.addSessionEventListener(new PooledSessionEventListener() {
@@ -84,9 +99,10 @@ public class XaConnectionPool extends ConnectionPool {
                 });
                 session.setIgnoreClose(true);
                 session.setIsXa(true);
-                transactionManager.getTransaction().registerSynchronization(new Synchronization(session));
+                transaction.registerSynchronization(new Synchronization(transaction, session));
                 incrementReferenceCount();
-                transactionManager.getTransaction().enlistResource(createXaResource(session));
+                transaction.enlistResource(createXaResource(session));
+                enlistedSessions.put(transaction, session);
             } else {
                 session.setIgnoreClose(false);
             }
@@ -107,9 +123,11 @@ public class XaConnectionPool extends ConnectionPool {
     }
 
     protected class Synchronization implements javax.transaction.Synchronization {
+        private final Transaction transaction;
         private final PooledSession session;
 
-        private Synchronization(PooledSession session) {
+        private Synchronization(Transaction transaction, PooledSession session) {
+            this.transaction = transaction;
             this.session = session;
         }
 
@@ -119,6 +137,7 @@ public class XaConnectionPool extends ConnectionPool {
 
         @Override
         public void afterCompletion(int status) {
+            enlistedSessions.remove(transaction);
             try {
                 // This will return session to the pool.
                 session.setIgnoreClose(false);
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aries.transaction.jms.internal;
+
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PooledSessionTest {
+
+    private Session session;
+    private Queue queue1;
+    private Queue queue2;
+
+    @Before
+    public void setUp() throws Exception {
+        session = EasyMock.createMock(Session.class);
+        queue1 = EasyMock.createNiceMock(Queue.class);
+        queue2 = EasyMock.createNiceMock(Queue.class);
+    }
+
+    private PooledSession createSession(int producerCacheSize) {
+        return new PooledSession(new SessionKey(false, Session.AUTO_ACKNOWLEDGE), session, null, false, false, producerCacheSize);
+    }
+
+    private MessageProducer createProducer(Queue queue) throws Exception {
+        // close() is not expected unless the test asks for it
+        MessageProducer producer = EasyMock.createMock(MessageProducer.class);
+        EasyMock.expect(producer.getDestination()).andStubReturn(queue);
+        EasyMock.expect(producer.getDeliveryMode()).andStubReturn(0);
+        EasyMock.expect(producer.getDisableMessageID()).andStubReturn(false);
+        EasyMock.expect(producer.getDisableMessageTimestamp()).andStubReturn(false);
+        EasyMock.expect(producer.getPriority()).andStubReturn(0);
+        EasyMock.expect(producer.getTimeToLive()).andStubReturn(0L);
+        EasyMock.expect(session.createProducer(queue)).andReturn(producer).once();
+        return producer;
+    }
+
+    @Test
+    public void testCachedProducerNotClosedByWrapper() throws Exception {
+        MessageProducer producer = createProducer(queue1);
+        EasyMock.replay(session, queue1, queue2, producer);
+
+        PooledSession pooled = createSession(16);
+        pooled.createProducer(queue1).close();
+        pooled.createProducer(queue1).close();
+
+        EasyMock.verify(session, producer);
+    }
+
+    @Test
+    public void testEvictedProducerClosed() throws Exception {
+        MessageProducer producer1 = createProducer(queue1);
+        producer1.close();
+        EasyMock.expectLastCall().once();
+        MessageProducer producer2 = createProducer(queue2);
+        EasyMock.replay(session, queue1, queue2, producer1, producer2);
+
+        PooledSession pooled = createSession(1);
+        pooled.createProducer(queue1);
+        pooled.createProducer(queue2);
+
+        EasyMock.verify(session, producer1, producer2);
+    }
+
+    @Test
+    public void testProducerNotCachedWhenDisabled() throws Exception {
+        MessageProducer producer = createProducer(queue1);
+        producer.close();
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(session, queue1, queue2, producer);
+
+        createSession(0).createProducer(queue1).close();
+
+        EasyMock.verify(session, producer);
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.aries.transaction.jms.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import javax.jms.Session;
+import javax.jms.XAConnection;
+import javax.jms.XASession;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import javax.transaction.xa.XAResource;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XaConnectionPoolTest {
+
+    private XAConnection connection;
+    private XAResource xaResource;
+    private TransactionManager tm;
+    private Transaction tx;
+    private XaConnectionPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        xaResource = EasyMock.createNiceMock(XAResource.class);
+        connection = EasyMock.createNiceMock(XAConnection.class);
+        EasyMock.expect(connection.createXASession()).andStubAnswer(new IAnswer<XASession>() {
+            public XASession answer() {
+                XASession session = EasyMock.createNiceMock(XASession.class);
+                EasyMock.expect(session.getXAResource()).andStubReturn(xaResource);
+                EasyMock.replay(session);
+                return session;
+            }
+        });
+        tm = EasyMock.createMock(TransactionManager.class);
+        tx = EasyMock.createMock(Transaction.class);
+    }
+
+    private void createPool() {
+        EasyMock.replay(xaResource, connection, tm, tx);
+        pool = new XaConnectionPool(connection, tm);
+        // the reference held by the connection factory
+        pool.incrementReferenceCount();
+    }
+
+    @Test
+    public void testSessionReusedInTransaction() throws Exception {
+        EasyMock.expect(tm.getStatus()).andStubReturn(Status.STATUS_ACTIVE);
+        EasyMock.expect(tm.getTransaction()).andStubReturn(tx);
+        tx.registerSynchronization(EasyMock.<Synchronization>anyObject());
+        EasyMock.expectLastCall().once();
+        EasyMock.expect(tx.enlistResource(xaResource)).andReturn(true).once();
+        createPool();
+
+        Session first = pool.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Session second = pool.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+        assertSame(first, second);
+        assertEquals(1, pool.getNumActiveSessions());
+        EasyMock.verify(tx);
+    }
+
+    @Test
+    public void testSessionReleasedAfterCompletion() throws Exception {
+        Capture<Synchronization> sync = new Capture<Synchronization>();
+        EasyMock.expect(tm.getStatus()).andStubReturn(Status.STATUS_ACTIVE);
+        EasyMock.expect(tm.getTransaction()).andStubReturn(tx);
+        tx.registerSynchronization(EasyMock.capture(sync));
+        EasyMock.expectLastCall().times(2);
+        EasyMock.expect(tx.enlistResource(xaResource)).andReturn(true).times(2);
+        createPool();
+
+        PooledSession first = (PooledSession) pool.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        sync.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        assertEquals(0, pool.getNumActiveSessions());
+
+        // the completed transaction no longer has a session, a new one is enlisted
+        PooledSession second = (PooledSession) pool.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        assertEquals(1, pool.getNumActiveSessions());
+        assertSame(first, second);
+        EasyMock.verify(tx);
+    }
+
+    @Test
+    public void testConnectionKeepsSessionOnce() throws Exception {
+        EasyMock.expect(tm.getStatus()).andReturn(Status.STATUS_ACTIVE).times(2);
+        EasyMock.expect(tm.getStatus()).andStubReturn(Status.STATUS_NO_TRANSACTION);
+        EasyMock.expect(tm.getTransaction()).andStubReturn(tx);
+        Capture<Synchronization> sync = new Capture<Synchronization>();
+        tx.registerSynchronization(EasyMock.capture(sync));
+        EasyMock.expect(tx.enlistResource(xaResource)).andReturn(true);
+        createPool();
+
+        PooledConnection connection = new PooledConnection(pool);
+        pool.incrementReferenceCount();
+        Session enlisted = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        assertSame(enlisted, connection.createSession(false, Session.AUTO_ACKNOWLEDGE));
+        sync.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+        // the session went back to the pool and is now used outside of the transaction
+        Session other = pool.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        assertSame(enlisted, other);
+        assertFalse(((PooledSession) other).isIgnoreClose());
+
+        // closing the connection must not release a session it no longer uses
+        connection.close();
+        assertEquals(1, pool.getNumActiveSessions());
+    }
+
+}
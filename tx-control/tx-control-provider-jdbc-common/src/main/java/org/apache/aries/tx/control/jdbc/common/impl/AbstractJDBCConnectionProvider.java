@@ -34,8 +34,15 @@ public abstract class AbstractJDBCConnectionProvider implements JDBCConnectionPr
 	
 	protected final DataSource dataSource;
 	
+	protected final StatementCache statements;
+	
 	public AbstractJDBCConnectionProvider(DataSource dataSource) {
+		this(dataSource, StatementCache.DISABLED);
+	}
+
+	public AbstractJDBCConnectionProvider(DataSource dataSource, StatementCache statements) {
 		this.dataSource = dataSource;
+		this.statements = statements;
 	}
 
 	@Override
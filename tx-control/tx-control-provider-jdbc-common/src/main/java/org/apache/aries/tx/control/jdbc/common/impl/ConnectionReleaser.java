@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.tx.control.jdbc.common.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Gives back the connection obtained for a scope once the scope completes.
+ */
+public class ConnectionReleaser {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConnectionReleaser.class);
+
+	private ConnectionReleaser() {
+	}
+
+	/**
+	 * Close the connection, returning it to the pool it came from. A
+	 * connection which was marked read only and cannot be reset must not be
+	 * handed to another scope, so it is evicted from the pool instead.
+	 * 
+	 * @param dataSource the DataSource which supplied the connection
+	 * @param connection the connection to release
+	 * @param readOnly whether the connection was marked read only
+	 */
+	public static void release(DataSource dataSource, Connection connection, boolean readOnly) {
+		if (readOnly) {
+			try {
+				connection.setReadOnly(false);
+			} catch (SQLException sqle) {
+				LOG.warn("Unable to clear the read only flag of a connection from {}, it will be discarded", 
+						dataSource, sqle);
+				evict(dataSource, connection);
+				return;
+			}
+		}
+		try {
+			connection.close();
+		} catch (SQLException sqle) {
+			LOG.warn("An error occurred closing a connection from {}", dataSource, sqle);
+		}
+	}
+
+	/**
+	 * Discard a connection which must not be reused, removing it from its pool
+	 * if it has one
+	 */
+	public static void evict(DataSource dataSource, Connection connection) {
+		try {
+			if (dataSource instanceof HikariDataSource) {
+				// This closes the physical connection as well
+				((HikariDataSource) dataSource).evictConnection(connection);
+			} else {
+				connection.close();
+			}
+		} catch (Exception e) {
+			LOG.warn("An error occurred discarding a connection from {}", dataSource, e);
+		}
+	}
+}
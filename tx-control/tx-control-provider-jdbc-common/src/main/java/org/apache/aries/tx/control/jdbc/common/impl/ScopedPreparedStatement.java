@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.tx.control.jdbc.common.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A prepared statement handed out by a {@link StatementCachingConnection}.
+ * Closing it returns the underlying statement to the cache.
+ */
+public class ScopedPreparedStatement extends PreparedStatementWrapper {
+
+	private final StatementCachingConnection connection;
+	
+	private final String sql;
+
+	private final PreparedStatement delegate;
+	
+	private boolean closed;
+
+	ScopedPreparedStatement(StatementCachingConnection connection, String sql, PreparedStatement delegate) {
+		this.connection = connection;
+		this.sql = sql;
+		this.delegate = delegate;
+	}
+
+	@Override
+	protected final PreparedStatement getDelegate() throws SQLException {
+		if (closed) {
+			throw new SQLException("The statement is closed");
+		}
+		return delegate;
+	}
+
+	PreparedStatement getDelegateUnchecked() {
+		return delegate;
+	}
+
+	String getSql() {
+		return sql;
+	}
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		try {
+			return super.executeQuery();
+		} catch (SQLException sqle) {
+			connection.failed(sqle);
+			throw sqle;
+		}
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		try {
+			return super.executeUpdate();
+		} catch (SQLException sqle) {
+			connection.failed(sqle);
+			throw sqle;
+		}
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		try {
+			return super.execute();
+		} catch (SQLException sqle) {
+			connection.failed(sqle);
+			throw sqle;
+		}
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		try {
+			return super.executeBatch();
+		} catch (SQLException sqle) {
+			connection.failed(sqle);
+			throw sqle;
+		}
+	}
+
+	@Override
+	public long executeLargeUpdate() throws SQLException {
+		try {
+			return super.executeLargeUpdate();
+		} catch (SQLException sqle) {
+			connection.failed(sqle);
+			throw sqle;
+		}
+	}
+
+	@Override
+	public long[] executeLargeBatch() throws SQLException {
+		try {
+			return super.executeLargeBatch();
+		} catch (SQLException sqle) {
+			connection.failed(sqle);
+			throw sqle;
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		getDelegate();
+		return connection;
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return closed || delegate.isClosed();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (!closed) {
+			closed = true;
+			connection.release(this);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.tx.control.jdbc.common.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.osgi.service.transaction.control.TransactionContext;
+
+/**
+ * Holds the prepared statements of the physical connections used by a
+ * resource provider, so that later scopes using the same connection do not
+ * need to prepare the same SQL again. Each connection keeps at most
+ * <code>size</code> idle statements, evicting the least recently used.
+ * <p>
+ * Statements that are still open when a scope completes are released as if
+ * they had been closed, so that none are left open on the physical
+ * connection.
+ */
+public class StatementCache {
+
+	public static final String STATEMENT_CACHE_SIZE = "aries.statement.cache.size";
+	
+	public static final StatementCache DISABLED = new StatementCache(0);
+
+	private final int size;
+
+	/**
+	 * The idle statements for each physical connection, guarded by this
+	 */
+	private final Map<Connection, LinkedHashMap<String, PreparedStatement>> statements = new HashMap<>();
+
+	public StatementCache(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Wrap the connection used by a scope so that its prepared statements
+	 * come from, and return to, this cache.
+	 * 
+	 * @param scoped the connection that will be returned to the client
+	 * @param pooled the connection obtained from the DataSource
+	 * @param dataSource the DataSource, which may have to evict the pooled
+	 *            connection
+	 * @param txContext the scope
+	 * @return a wrapper for the scoped connection, or the scoped connection
+	 *         itself if there is nothing to do
+	 */
+	public Connection wrap(Connection scoped, Connection pooled, DataSource dataSource, 
+			TransactionContext txContext) {
+		if (size <= 0) {
+			return scoped;
+		}
+		
+		StatementCachingConnection conn = new StatementCachingConnection(this, scoped, pooled, 
+				physical(pooled), dataSource);
+		
+		txContext.postCompletion(x -> conn.releaseStatements());
+		
+		return conn;
+	}
+
+	/**
+	 * Pooled connections close the statements created through them when they
+	 * are returned to the pool, so statements must be prepared using the
+	 * connection underneath. The pool does not track these statements, so
+	 * the scope releases any that are left open when it completes, and
+	 * reports the connection errors they raise to the pool.
+	 */
+	private static Connection physical(Connection pooled) {
+		try {
+			return pooled.isWrapperFor(Connection.class) ? pooled.unwrap(Connection.class) : pooled;
+		} catch (SQLException sqle) {
+			return pooled;
+		}
+	}
+
+	PreparedStatement checkout(Connection physical, String sql) throws SQLException {
+		PreparedStatement ps;
+		synchronized (this) {
+			LinkedHashMap<String, PreparedStatement> idle = statements.get(physical);
+			ps = idle == null ? null : idle.remove(sql);
+		}
+		return ps == null || ps.isClosed() ? null : ps;
+	}
+
+	/**
+	 * Return a statement to the cache
+	 * 
+	 * @return the statements which were evicted and must be closed
+	 */
+	List<PreparedStatement> checkin(Connection physical, String sql, PreparedStatement ps) {
+		List<PreparedStatement> evicted = new ArrayList<>(1);
+		synchronized (this) {
+			LinkedHashMap<String, PreparedStatement> idle = statements.get(physical);
+			if (idle == null) {
+				purgeClosedConnections();
+				idle = new LinkedHashMap<>(16, 0.75f, true);
+				statements.put(physical, idle);
+			}
+			PreparedStatement previous = idle.put(sql, ps);
+			if (previous != null && previous != ps) {
+				evicted.add(previous);
+			}
+			for (Iterator<PreparedStatement> it = idle.values().iterator(); idle.size() > size;) {
+				evicted.add(it.next());
+				it.remove();
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Close and forget the idle statements of a connection which is being
+	 * discarded
+	 */
+	void purge(Connection physical) {
+		LinkedHashMap<String, PreparedStatement> idle;
+		synchronized (this) {
+			idle = statements.remove(physical);
+		}
+		if (idle != null) {
+			for (PreparedStatement ps : idle.values()) {
+				try {
+					ps.close();
+				} catch (SQLException sqle) {
+					// The connection is broken anyway
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forget the connections that the pool has discarded. Only called when a
+	 * new connection is seen, which is rare for a pooled resource.
+	 */
+	private void purgeClosedConnections() {
+		for (Iterator<Connection> it = statements.keySet().iterator(); it.hasNext();) {
+			Connection c = it.next();
+			boolean closed;
+			try {
+				closed = c.isClosed();
+			} catch (SQLException sqle) {
+				closed = true;
+			}
+			if (closed) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.tx.control.jdbc.common.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+/**
+ * The connection for a single scope when a {@link StatementCache} is in use.
+ * Statements created other than by {@link #prepareStatement(String)} are not
+ * cached, and come from the pooled connection as usual.
+ */
+public class StatementCachingConnection extends ConnectionWrapper {
+
+	private final StatementCache cache;
+	
+	private final Connection delegate;
+
+	private final Connection pooled;
+
+	private final Connection physical;
+	
+	private final DataSource dataSource;
+	
+	private final Set<ScopedPreparedStatement> open = new LinkedHashSet<>();
+
+	private final AtomicBoolean broken = new AtomicBoolean();
+
+	StatementCachingConnection(StatementCache cache, Connection delegate, Connection pooled, 
+			Connection physical, DataSource dataSource) {
+		this.cache = cache;
+		this.delegate = delegate;
+		this.pooled = pooled;
+		this.physical = physical;
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	protected final Connection getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		PreparedStatement ps = cache.checkout(physical, sql);
+		if (ps == null) {
+			ps = physical.prepareStatement(sql);
+		}
+		ScopedPreparedStatement statement = new ScopedPreparedStatement(this, sql, ps);
+		synchronized (open) {
+			open.add(statement);
+		}
+		return statement;
+	}
+
+	void release(ScopedPreparedStatement statement) throws SQLException {
+		synchronized (open) {
+			open.remove(statement);
+		}
+		
+		PreparedStatement ps = statement.getDelegateUnchecked();
+		if (broken.get()) {
+			ps.close();
+			return;
+		}
+		try {
+			ps.clearParameters();
+			ps.clearWarnings();
+		} catch (SQLException sqle) {
+			ps.close();
+			throw sqle;
+		}
+		
+		for (PreparedStatement evicted : cache.checkin(physical, statement.getSql(), ps)) {
+			evicted.close();
+		}
+	}
+
+	/**
+	 * The pool would evict its connection when a statement reports that the
+	 * connection is broken, but it does not see the cached statements, which
+	 * are prepared underneath it. Do it in its place, and drop the cached
+	 * statements of the connection.
+	 */
+	void failed(SQLException sqle) {
+		String sqlState = sqle.getSQLState();
+		if (sqlState != null && sqlState.startsWith("08") && broken.compareAndSet(false, true)) {
+			cache.purge(physical);
+			ConnectionReleaser.evict(dataSource, pooled);
+		}
+	}
+
+	/**
+	 * Release the statements that the client did not close before the end of
+	 * the scope
+	 */
+	void releaseStatements() {
+		ArrayList<ScopedPreparedStatement> toRelease;
+		synchronized (open) {
+			toRelease = new ArrayList<>(open);
+		}
+		for (ScopedPreparedStatement statement : toRelease) {
+			try {
+				statement.close();
+			} catch (SQLException sqle) {
+				// The statement has been closed, and will not be reused
+			}
+		}
+	}
+}
@@ -24,18 +24,41 @@ import java.sql.Savepoint;
 import java.util.concurrent.Executor;
 
 import org.osgi.service.transaction.control.TransactionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TxConnectionWrapper extends ConnectionWrapper {
 
+	private static final Logger LOG = LoggerFactory.getLogger(TxConnectionWrapper.class);
+
 	private Connection delegate;
 
 	public TxConnectionWrapper(Connection delegate) {
+		this(delegate, false);
+	}
+
+	/**
+	 * @param readOnly if true the delegate is marked read only, allowing the
+	 *            driver and database to optimise the transaction. This is only
+	 *            a hint, and is ignored if the driver refuses it. The caller
+	 *            is responsible for clearing the flag before the delegate is
+	 *            returned to a pool.
+	 */
+	public TxConnectionWrapper(Connection delegate, boolean readOnly) {
 		this.delegate = delegate;
 		try {
 			delegate.setAutoCommit(false);
 		} catch (SQLException e) {
 			throw new TransactionException("Unable to disable autocommit", e);
 		}
+		if (readOnly) {
+			try {
+				delegate.setReadOnly(true);
+			} catch (SQLException e) {
+				// Not all drivers support read only connections
+				LOG.debug("The connection refused to be marked read only", e);
+			}
+		}
 	}
 
 	@Override
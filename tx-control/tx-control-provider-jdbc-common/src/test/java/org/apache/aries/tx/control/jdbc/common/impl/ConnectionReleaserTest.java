@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.tx.control.jdbc.common.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConnectionReleaserTest {
+
+	@Mock
+	DataSource dataSource;
+	
+	@Mock
+	HikariDataSource pool;
+	
+	@Mock
+	Connection conn;
+	
+	@Test
+	public void testRelease() throws SQLException {
+		ConnectionReleaser.release(dataSource, conn, false);
+		
+		Mockito.verify(conn).close();
+		Mockito.verify(conn, Mockito.never()).setReadOnly(Mockito.anyBoolean());
+	}
+
+	@Test
+	public void testReleaseReadOnly() throws SQLException {
+		ConnectionReleaser.release(pool, conn, true);
+		
+		InOrder inOrder = Mockito.inOrder(conn);
+		inOrder.verify(conn).setReadOnly(false);
+		inOrder.verify(conn).close();
+		Mockito.verify(pool, Mockito.never()).evictConnection(conn);
+	}
+
+	@Test
+	public void testReadOnlyResetFailsEvicts() throws SQLException {
+		Mockito.doThrow(new SQLException("Broken")).when(conn).setReadOnly(false);
+		
+		ConnectionReleaser.release(pool, conn, true);
+		
+		Mockito.verify(pool).evictConnection(conn);
+		Mockito.verify(conn, Mockito.never()).close();
+	}
+
+	@Test
+	public void testReadOnlyResetFailsUnpooled() throws SQLException {
+		Mockito.doThrow(new SQLException("Broken")).when(conn).setReadOnly(false);
+		
+		ConnectionReleaser.release(dataSource, conn, true);
+		
+		Mockito.verify(conn).close();
+	}
+
+	@Test
+	public void testCloseFailureIsNotPropagated() throws SQLException {
+		Mockito.doThrow(new SQLException("Broken")).when(conn).close();
+		
+		ConnectionReleaser.release(dataSource, conn, false);
+	}
+}
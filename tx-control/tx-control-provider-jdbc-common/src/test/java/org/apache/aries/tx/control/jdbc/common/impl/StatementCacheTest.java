@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIESOR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.tx.control.jdbc.common.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.osgi.service.transaction.control.TransactionStatus.ACTIVE;
+import static org.osgi.service.transaction.control.TransactionStatus.COMMITTED;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.osgi.service.transaction.control.TransactionContext;
+import org.osgi.service.transaction.control.TransactionStatus;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+@SuppressWarnings("resource")
+public class StatementCacheTest {
+
+	private static final String INSERT = "INSERT INTO TEST_TABLE VALUES ( ? )";
+	private static final String SELECT = "SELECT * FROM TEST_TABLE";
+	
+	@Mock
+	Connection conn;
+	
+	@Mock
+	TransactionContext context;
+	
+	@Mock
+	DataSource dataSource;
+	
+	@Mock
+	HikariDataSource pool;
+	
+	Map<String, PreparedStatement> prepared = new HashMap<>();
+	
+	@Before
+	public void setUp() throws SQLException {
+		Mockito.when(conn.prepareStatement(Mockito.anyString())).thenAnswer(i -> {
+				PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+				prepared.put((String) i.getArguments()[0], ps);
+				return ps;
+			});
+		Mockito.when(context.getTransactionStatus()).thenReturn(ACTIVE);
+	}
+
+	@Test
+	public void testDisabled() throws SQLException {
+		Connection scoped = new TxConnectionWrapper(conn);
+		assertSame(scoped, StatementCache.DISABLED.wrap(scoped, conn, dataSource, context));
+	}
+
+	@Test
+	public void testStatementReusedByLaterScopes() throws SQLException {
+		StatementCache cache = new StatementCache(10);
+		
+		Connection wrapped = cache.wrap(new ScopedConnectionWrapper(conn), conn, dataSource, context);
+		PreparedStatement ps = wrapped.prepareStatement(SELECT);
+		ps.setInt(1, 42);
+		ps.executeQuery();
+		ps.close();
+		
+		assertTrue(ps.isClosed());
+		ps = wrapped.prepareStatement(SELECT);
+		assertSame(wrapped, ps.getConnection());
+		ps.close();
+		
+		wrapped = cache.wrap(new ScopedConnectionWrapper(conn), conn, dataSource, context);
+		wrapped.prepareStatement(SELECT).executeQuery();
+		
+		Mockito.verify(conn, times(1)).prepareStatement(SELECT);
+		
+		PreparedStatement delegate = prepared.get(SELECT);
+		Mockito.verify(delegate, times(2)).executeQuery();
+		Mockito.verify(delegate, times(2)).clearParameters();
+		Mockito.verify(delegate, never()).close();
+	}
+
+	@Test(expected=SQLException.class)
+	public void testClosedStatementCannotBeUsed() throws SQLException {
+		StatementCache cache = new StatementCache(10);
+		
+		PreparedStatement ps = cache.wrap(new ScopedConnectionWrapper(conn), conn, dataSource, context)
+				.prepareStatement(SELECT);
+		ps.close();
+		ps.executeQuery();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedStatementEvicted() throws SQLException {
+		StatementCache cache = new StatementCache(1);
+		
+		Connection wrapped = cache.wrap(new ScopedConnectionWrapper(conn), conn, dataSource, context);
+		wrapped.prepareStatement(SELECT).close();
+		wrapped.prepareStatement(INSERT).close();
+		
+		Mockito.verify(prepared.get(SELECT)).close();
+		Mockito.verify(prepared.get(INSERT), never()).close();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testOpenStatementsReleasedAtEndOfScope() throws SQLException {
+		StatementCache cache = new StatementCache(1);
+		
+		Connection wrapped = cache.wrap(new TxConnectionWrapper(conn), conn, dataSource, context);
+		
+		ArgumentCaptor<Consumer<TransactionStatus>> captor = ArgumentCaptor.forClass((Class) Consumer.class);
+		Mockito.verify(context).postCompletion(captor.capture());
+		
+		PreparedStatement select = wrapped.prepareStatement(SELECT);
+		PreparedStatement insert = wrapped.prepareStatement(INSERT);
+		PreparedStatement closed = wrapped.prepareStatement(SELECT);
+		closed.close();
+		
+		captor.getValue().accept(COMMITTED);
+		
+		assertTrue(select.isClosed());
+		assertTrue(insert.isClosed());
+		
+		// Only one statement fits in the cache, the others must be closed
+		PreparedStatement insertDelegate = prepared.get(INSERT);
+		Mockito.verify(insertDelegate, never()).close();
+		Mockito.verify(insertDelegate).clearParameters();
+		Mockito.verify(conn, times(2)).prepareStatement(SELECT);
+		
+		wrapped = cache.wrap(new TxConnectionWrapper(conn), conn, dataSource, context);
+		wrapped.prepareStatement(INSERT);
+		Mockito.verify(conn, times(1)).prepareStatement(INSERT);
+	}
+
+	@Test
+	public void testUpdateCountReported() throws SQLException {
+		StatementCache cache = new StatementCache(10);
+		
+		Connection wrapped = cache.wrap(new TxConnectionWrapper(conn), conn, dataSource, context);
+		
+		PreparedStatement ps = wrapped.prepareStatement(INSERT);
+		Mockito.when(prepared.get(INSERT).executeUpdate()).thenReturn(1);
+		
+		for (int i = 0; i < 3; i++) {
+			ps.setInt(1, i);
+			assertEquals(1, ps.executeUpdate());
+		}
+		
+		PreparedStatement delegate = prepared.get(INSERT);
+		Mockito.verify(delegate, times(3)).executeUpdate();
+		Mockito.verify(delegate, never()).addBatch();
+		Mockito.verify(context, never()).preCompletion(Mockito.any());
+	}
+
+	@Test
+	public void testConnectionErrorEvictsConnection() throws SQLException {
+		StatementCache cache = new StatementCache(10);
+		
+		Connection wrapped = cache.wrap(new TxConnectionWrapper(conn), conn, pool, context);
+		wrapped.prepareStatement(INSERT).close();
+		
+		PreparedStatement ps = wrapped.prepareStatement(SELECT);
+		Mockito.when(prepared.get(SELECT).executeQuery()).thenThrow(new SQLException("Connection reset", "08006"));
+		try {
+			ps.executeQuery();
+		} catch (SQLException sqle) {
+			// Expected
+		}
+		ps.close();
+		
+		// The pool never saw the error, so the statements report it
+		Mockito.verify(pool).evictConnection(conn);
+		Mockito.verify(prepared.get(SELECT)).close();
+		Mockito.verify(prepared.get(INSERT)).close();
+		
+		wrapped = cache.wrap(new TxConnectionWrapper(conn), conn, pool, context);
+		wrapped.prepareStatement(INSERT);
+		Mockito.verify(conn, times(2)).prepareStatement(INSERT);
+	}
+
+	@Test
+	public void testStatementErrorKeepsConnection() throws SQLException {
+		StatementCache cache = new StatementCache(10);
+		
+		Connection wrapped = cache.wrap(new TxConnectionWrapper(conn), conn, pool, context);
+		PreparedStatement ps = wrapped.prepareStatement(INSERT);
+		Mockito.when(prepared.get(INSERT).executeUpdate()).thenThrow(new SQLException("Duplicate key", "23505"));
+		try {
+			ps.executeUpdate();
+		} catch (SQLException sqle) {
+			// Expected
+		}
+		ps.close();
+		
+		Mockito.verify(pool, never()).evictConnection(Mockito.any(Connection.class));
+		Mockito.verify(prepared.get(INSERT), never()).close();
+	}
+}
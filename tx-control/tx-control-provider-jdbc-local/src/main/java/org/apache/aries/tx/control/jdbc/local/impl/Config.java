@@ -72,6 +72,11 @@ public @interface Config {
 	@AttributeDefinition(required=false, description="The maximum time (in ms) that a connection will stay in the pool before being discarded")
 	long osgi_connection_lifetime() default 10800000;
 	
+	// Statement configuration
+	
+	@AttributeDefinition(required=false, description="The maximum number of prepared statements cached for each pooled connection. Zero disables the cache")
+	int aries_statement_cache_size() default 0;
+	
 	// Detailed Configuration
 	
 	@AttributeDefinition(required=false, description="The filter to use when finding the DataSourceFactory service. This property need not be defined if osgi.jdbc.driver.class is defined.")
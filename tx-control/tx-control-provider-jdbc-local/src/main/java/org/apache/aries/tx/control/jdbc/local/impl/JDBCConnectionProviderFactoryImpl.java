@@ -21,6 +21,7 @@ package org.apache.aries.tx.control.jdbc.local.impl;
 import static java.util.Optional.ofNullable;
 import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.aries.tx.control.jdbc.common.impl.StatementCache.STATEMENT_CACHE_SIZE;
 import static org.osgi.service.jdbc.DataSourceFactory.JDBC_URL;
 
 import java.sql.Driver;
@@ -35,6 +36,7 @@ import javax.sql.XADataSource;
 import org.apache.aries.tx.control.jdbc.common.impl.AbstractJDBCConnectionProvider;
 import org.apache.aries.tx.control.jdbc.common.impl.DriverDataSource;
 import org.apache.aries.tx.control.jdbc.common.impl.InternalJDBCConnectionProviderFactory;
+import org.apache.aries.tx.control.jdbc.common.impl.StatementCache;
 import org.osgi.service.jdbc.DataSourceFactory;
 import org.osgi.service.transaction.control.TransactionException;
 import org.osgi.service.transaction.control.jdbc.JDBCConnectionProviderFactory;
@@ -64,7 +66,7 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 
 		DataSource toUse = poolIfNecessary(resourceProviderProperties, unpooled);
 
-		return new JDBCConnectionProviderImpl(toUse);
+		return new JDBCConnectionProviderImpl(toUse, getStatementCache(resourceProviderProperties));
 	}
 
 	@Override
@@ -72,7 +74,7 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 		checkEnlistment(resourceProviderProperties);
 		DataSource toUse = poolIfNecessary(resourceProviderProperties, ds);
 
-		return new JDBCConnectionProviderImpl(toUse);
+		return new JDBCConnectionProviderImpl(toUse, getStatementCache(resourceProviderProperties));
 	}
 
 	@Override
@@ -82,7 +84,7 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 		DataSource toUse = poolIfNecessary(resourceProviderProperties, 
 				new DriverDataSource(driver, jdbcProperties.getProperty(JDBC_URL), jdbcProperties));
 		
-		return new JDBCConnectionProviderImpl(toUse);
+		return new JDBCConnectionProviderImpl(toUse, getStatementCache(resourceProviderProperties));
 	}
 
 	@Override
@@ -97,7 +99,8 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 			throw new TransactionException("This resource Provider does not support XA transactions, and the supplied XADataSource is not a DataSource");
 		}
 		
-		return new JDBCConnectionProviderImpl(poolIfNecessary(resourceProviderProperties, unpooled));
+		return new JDBCConnectionProviderImpl(poolIfNecessary(resourceProviderProperties, unpooled),
+				getStatementCache(resourceProviderProperties));
 	}
 
 	private void checkEnlistment(Map<String, Object> resourceProviderProperties) {
@@ -133,6 +136,11 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 		return toUse;
 	}
 
+	private StatementCache getStatementCache(Map<String, Object> resourceProviderProperties) {
+		int size = toInt(resourceProviderProperties, STATEMENT_CACHE_SIZE, 0);
+		return size > 0 ? new StatementCache(size) : StatementCache.DISABLED;
+	}
+
 	private boolean toBoolean(Map<String, Object> props, String key, boolean defaultValue) {
 		Object o =  ofNullable(props)
 			.map(m -> m.get(key))
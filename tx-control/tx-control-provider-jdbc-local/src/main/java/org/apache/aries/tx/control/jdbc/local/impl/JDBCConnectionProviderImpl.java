@@ -24,6 +24,7 @@ import java.util.UUID;
 import javax.sql.DataSource;
 
 import org.apache.aries.tx.control.jdbc.common.impl.AbstractJDBCConnectionProvider;
+import org.apache.aries.tx.control.jdbc.common.impl.StatementCache;
 import org.osgi.service.transaction.control.TransactionControl;
 import org.osgi.service.transaction.control.TransactionException;
 
@@ -35,9 +36,13 @@ public class JDBCConnectionProviderImpl extends AbstractJDBCConnectionProvider {
 		super(dataSource);
 	}
 
+	public JDBCConnectionProviderImpl(DataSource dataSource, StatementCache statements) {
+		super(dataSource, statements);
+	}
+
 	@Override
 	public Connection getResource(TransactionControl txControl)
 			throws TransactionException {
-		return new TxContextBindingConnection(txControl, dataSource , uuid);
+		return new TxContextBindingConnection(txControl, dataSource , uuid, statements);
 	}
 }
@@ -26,8 +26,10 @@ import java.util.UUID;
 
 import javax.sql.DataSource;
 
+import org.apache.aries.tx.control.jdbc.common.impl.ConnectionReleaser;
 import org.apache.aries.tx.control.jdbc.common.impl.ConnectionWrapper;
 import org.apache.aries.tx.control.jdbc.common.impl.ScopedConnectionWrapper;
+import org.apache.aries.tx.control.jdbc.common.impl.StatementCache;
 import org.apache.aries.tx.control.jdbc.common.impl.TxConnectionWrapper;
 import org.osgi.service.transaction.control.LocalResource;
 import org.osgi.service.transaction.control.TransactionContext;
@@ -39,12 +41,19 @@ public class TxContextBindingConnection extends ConnectionWrapper {
 	private final TransactionControl	txControl;
 	private final UUID					resourceId;
 	private final DataSource			dataSource;
+	private final StatementCache		statements;
 
 	public TxContextBindingConnection(TransactionControl txControl,
 			DataSource dataSource, UUID resourceId) {
+		this(txControl, dataSource, resourceId, StatementCache.DISABLED);
+	}
+
+	public TxContextBindingConnection(TransactionControl txControl,
+			DataSource dataSource, UUID resourceId, StatementCache statements) {
 		this.txControl = txControl;
 		this.dataSource = dataSource;
 		this.resourceId = resourceId;
+		this.statements = statements;
 	}
 
 	@Override
@@ -65,14 +74,16 @@ public class TxContextBindingConnection extends ConnectionWrapper {
 
 		Connection toReturn;
 		Connection toClose;
+		boolean readOnly = txContext.isReadOnly()
+				&& txContext.getTransactionStatus() != NO_TRANSACTION;
 
 		try {
 			if (txContext.getTransactionStatus() == NO_TRANSACTION) {
 				toClose = dataSource.getConnection();
-				toReturn = new ScopedConnectionWrapper(toClose);
+				toReturn = statements.wrap(new ScopedConnectionWrapper(toClose), toClose, dataSource, txContext);
 			} else if (txContext.supportsLocal()) {
 				toClose = dataSource.getConnection();
-				toReturn = new TxConnectionWrapper(toClose);
+				toReturn = statements.wrap(new TxConnectionWrapper(toClose, readOnly), toClose, dataSource, txContext);
 				txContext.registerLocalResource(getLocalResource(toClose));
 			} else {
 				throw new TransactionException(
@@ -84,14 +95,7 @@ public class TxContextBindingConnection extends ConnectionWrapper {
 					sqle);
 		}
 
-		
-		txContext.postCompletion(x -> {
-				try {
-					toClose.close();
-				} catch (SQLException sqle) {
-					// TODO log this
-				}
-			});
+		txContext.postCompletion(x -> ConnectionReleaser.release(dataSource, toClose, readOnly));
 		
 		txContext.putScopedValue(resourceId, toReturn);
 		
@@ -20,6 +20,7 @@ package org.apache.aries.tx.control.jdbc.local.impl;
 
 import static org.mockito.Mockito.times;
 import static org.osgi.service.transaction.control.TransactionStatus.ACTIVE;
+import static org.osgi.service.transaction.control.TransactionStatus.COMMITTED;
 import static org.osgi.service.transaction.control.TransactionStatus.NO_TRANSACTION;
 
 import java.sql.Connection;
@@ -27,6 +28,7 @@ import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import javax.sql.DataSource;
 
@@ -34,6 +36,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -41,6 +44,7 @@ import org.osgi.service.transaction.control.LocalResource;
 import org.osgi.service.transaction.control.TransactionContext;
 import org.osgi.service.transaction.control.TransactionControl;
 import org.osgi.service.transaction.control.TransactionException;
+import org.osgi.service.transaction.control.TransactionStatus;
 
 @RunWith(MockitoJUnitRunner.class)
 public class TxContextBindingConnectionTest {
@@ -143,6 +147,46 @@ public class TxContextBindingConnectionTest {
 		Mockito.verify(rawConnection).rollback();
 	}
 
+	@Test
+	public void testReadOnlyTransaction() throws SQLException {
+		setupActiveTransaction();
+		Mockito.when(context.isReadOnly()).thenReturn(true);
+		
+		conn.isValid(500);
+		
+		Mockito.verify(rawConnection).setReadOnly(true);
+		
+		ArgumentCaptor<Consumer<TransactionStatus>> captor = ArgumentCaptor.forClass((Class) Consumer.class);
+		Mockito.verify(context).postCompletion(captor.capture());
+		captor.getValue().accept(COMMITTED);
+		
+		InOrder inOrder = Mockito.inOrder(rawConnection);
+		inOrder.verify(rawConnection).setReadOnly(false);
+		inOrder.verify(rawConnection).close();
+	}
+
+	@Test
+	public void testReadOnlyNotSupported() throws SQLException {
+		setupActiveTransaction();
+		Mockito.when(context.isReadOnly()).thenReturn(true);
+		Mockito.doThrow(new SQLException("Not supported")).when(rawConnection).setReadOnly(true);
+		
+		conn.isValid(500);
+		
+		Mockito.verify(rawConnection).isValid(500);
+		Mockito.verify(context).registerLocalResource(Mockito.any(LocalResource.class));
+	}
+
+	@Test
+	public void testReadOnlyNoTransaction() throws SQLException {
+		setupNoTransaction();
+		Mockito.when(context.isReadOnly()).thenReturn(true);
+		
+		conn.isValid(500);
+		
+		Mockito.verify(rawConnection, times(0)).setReadOnly(Mockito.anyBoolean());
+	}
+
 	@Test(expected=TransactionException.class)
 	public void testActiveTransactionNoLocal() throws SQLException {
 		setupActiveTransaction();
@@ -76,6 +76,11 @@ public @interface Config {
 	@AttributeDefinition(required=false, description="The maximum time (in ms) that a connection will stay in the pool before being discarded")
 	long osgi_connection_lifetime() default 10800000;
 	
+	// Statement configuration
+	
+	@AttributeDefinition(required=false, description="The maximum number of prepared statements cached for each pooled connection. Zero disables the cache")
+	int aries_statement_cache_size() default 0;
+	
 	// Recovery credential configuration
 	
 	@AttributeDefinition(required=false, description="The user that should be used for recovery. If not specified then recovery will use the same user credentials as normal operation")
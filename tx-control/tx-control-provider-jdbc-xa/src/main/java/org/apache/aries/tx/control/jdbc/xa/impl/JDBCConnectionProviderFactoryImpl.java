@@ -21,6 +21,7 @@ package org.apache.aries.tx.control.jdbc.xa.impl;
 import static java.util.Optional.ofNullable;
 import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.aries.tx.control.jdbc.common.impl.StatementCache.STATEMENT_CACHE_SIZE;
 import static org.osgi.service.jdbc.DataSourceFactory.JDBC_URL;
 
 import java.sql.Driver;
@@ -34,6 +35,7 @@ import javax.sql.XADataSource;
 
 import org.apache.aries.tx.control.jdbc.common.impl.DriverDataSource;
 import org.apache.aries.tx.control.jdbc.common.impl.InternalJDBCConnectionProviderFactory;
+import org.apache.aries.tx.control.jdbc.common.impl.StatementCache;
 import org.apache.aries.tx.control.jdbc.xa.connection.impl.XADataSourceMapper;
 import org.osgi.service.jdbc.DataSourceFactory;
 import org.osgi.service.transaction.control.TransactionException;
@@ -75,7 +77,8 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 		DataSource toUse = poolIfNecessary(resourceProviderProperties, unpooled);
 		
 		return new JDBCConnectionProviderImpl(toUse, xaEnabled, localEnabled, 
-				getRecoveryId(resourceProviderProperties, xaEnabled));
+				getRecoveryId(resourceProviderProperties, xaEnabled),
+				getStatementCache(resourceProviderProperties));
 	}
 
 	private String getRecoveryId(Map<String, Object> resourceProviderProps, boolean xaEnabled) {
@@ -101,7 +104,8 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 					new XADataSourceMapper(ds.unwrap(XADataSource.class)) : ds);
 	
 			return new JDBCConnectionProviderImpl(toUse, xaEnabled, localEnabled, 
-					getRecoveryId(resourceProviderProperties, xaEnabled));
+					getRecoveryId(resourceProviderProperties, xaEnabled),
+					getStatementCache(resourceProviderProperties));
 		} catch (SQLException sqle) {
 			throw new TransactionException("Unable to create the JDBC resource provider", sqle);
 		}
@@ -120,7 +124,8 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 				new DriverDataSource(driver, jdbcProperties.getProperty(JDBC_URL), jdbcProperties));
 		
 		return new JDBCConnectionProviderImpl(toUse, xaEnabled, localEnabled, 
-				getRecoveryId(resourceProviderProperties, xaEnabled));
+				getRecoveryId(resourceProviderProperties, xaEnabled),
+				getStatementCache(resourceProviderProperties));
 	}
 
 	@Override
@@ -134,7 +139,8 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 		DataSource unpooled = new XADataSourceMapper(ds);
 		
 		return new JDBCConnectionProviderImpl(poolIfNecessary(resourceProviderProperties, unpooled),
-				xaEnabled, localEnabled, getRecoveryId(resourceProviderProperties, xaEnabled));
+				xaEnabled, localEnabled, getRecoveryId(resourceProviderProperties, xaEnabled),
+				getStatementCache(resourceProviderProperties));
 	}
 
 	private void checkEnlistment(boolean xaEnabled, boolean localEnabled, boolean isXA) {
@@ -172,6 +178,11 @@ public class JDBCConnectionProviderFactoryImpl implements JDBCConnectionProvider
 		return toUse;
 	}
 
+	private StatementCache getStatementCache(Map<String, Object> resourceProviderProperties) {
+		int size = toInt(resourceProviderProperties, STATEMENT_CACHE_SIZE, 0);
+		return size > 0 ? new StatementCache(size) : StatementCache.DISABLED;
+	}
+
 	static boolean toBoolean(Map<String, Object> props, String key, boolean defaultValue) {
 		Object o =  ofNullable(props)
 			.map(m -> m.get(key))
@@ -24,6 +24,7 @@ import java.util.UUID;
 import javax.sql.DataSource;
 
 import org.apache.aries.tx.control.jdbc.common.impl.AbstractJDBCConnectionProvider;
+import org.apache.aries.tx.control.jdbc.common.impl.StatementCache;
 import org.osgi.service.transaction.control.TransactionControl;
 import org.osgi.service.transaction.control.TransactionException;
 
@@ -39,7 +40,12 @@ public class JDBCConnectionProviderImpl extends AbstractJDBCConnectionProvider {
 	
 	public JDBCConnectionProviderImpl(DataSource dataSource, boolean xaEnabled,
 			boolean localEnabled, String recoveryIdentifier) {
-		super(dataSource);
+		this(dataSource, xaEnabled, localEnabled, recoveryIdentifier, StatementCache.DISABLED);
+	}
+
+	public JDBCConnectionProviderImpl(DataSource dataSource, boolean xaEnabled,
+			boolean localEnabled, String recoveryIdentifier, StatementCache statements) {
+		super(dataSource, statements);
 		this.xaEnabled = xaEnabled;
 		this.localEnabled = localEnabled;
 		this.recoveryIdentifier = recoveryIdentifier;
@@ -49,7 +55,7 @@ public class JDBCConnectionProviderImpl extends AbstractJDBCConnectionProvider {
 	public Connection getResource(TransactionControl txControl)
 			throws TransactionException {
 		return new XAEnabledTxContextBindingConnection(txControl, dataSource , uuid,
-				xaEnabled, localEnabled, recoveryIdentifier);
+				xaEnabled, localEnabled, recoveryIdentifier, statements);
 	}
 
 	public DataSource getRawDataSource() {
@@ -27,8 +27,10 @@ import java.util.UUID;
 import javax.sql.DataSource;
 import javax.transaction.xa.XAResource;
 
+import org.apache.aries.tx.control.jdbc.common.impl.ConnectionReleaser;
 import org.apache.aries.tx.control.jdbc.common.impl.ConnectionWrapper;
 import org.apache.aries.tx.control.jdbc.common.impl.ScopedConnectionWrapper;
+import org.apache.aries.tx.control.jdbc.common.impl.StatementCache;
 import org.apache.aries.tx.control.jdbc.common.impl.TxConnectionWrapper;
 import org.apache.aries.tx.control.jdbc.xa.connection.impl.XAConnectionWrapper;
 import org.osgi.service.transaction.control.LocalResource;
@@ -44,16 +46,25 @@ public class XAEnabledTxContextBindingConnection extends ConnectionWrapper {
 	private final boolean				xaEnabled;
 	private final boolean				localEnabled;
 	private final String				recoveryIdentifier;
+	private final StatementCache		statements;
 
 	public XAEnabledTxContextBindingConnection(TransactionControl txControl,
 			DataSource dataSource, UUID resourceId, boolean xaEnabled, boolean localEnabled,
 			String recoveryIdentifier) {
+		this(txControl, dataSource, resourceId, xaEnabled, localEnabled, recoveryIdentifier,
+				StatementCache.DISABLED);
+	}
+
+	public XAEnabledTxContextBindingConnection(TransactionControl txControl,
+			DataSource dataSource, UUID resourceId, boolean xaEnabled, boolean localEnabled,
+			String recoveryIdentifier, StatementCache statements) {
 		this.txControl = txControl;
 		this.dataSource = dataSource;
 		this.resourceId = resourceId;
 		this.xaEnabled = xaEnabled;
 		this.localEnabled = localEnabled;
 		this.recoveryIdentifier = recoveryIdentifier;
+		this.statements = statements;
 	}
 
 	@Override
@@ -74,18 +85,20 @@ public class XAEnabledTxContextBindingConnection extends ConnectionWrapper {
 
 		Connection toReturn;
 		Connection toClose;
+		boolean readOnly = txContext.isReadOnly()
+				&& txContext.getTransactionStatus() != NO_TRANSACTION;
 
 		try {
 			if (txContext.getTransactionStatus() == NO_TRANSACTION) {
 				toClose = dataSource.getConnection();
-				toReturn = new ScopedConnectionWrapper(toClose);
+				toReturn = statements.wrap(new ScopedConnectionWrapper(toClose), toClose, dataSource, txContext);
 			} else if (txContext.supportsXA() && xaEnabled) {
 				toClose = dataSource.getConnection();
-				toReturn = new TxConnectionWrapper(toClose);
+				toReturn = statements.wrap(new TxConnectionWrapper(toClose, readOnly), toClose, dataSource, txContext);
 				txContext.registerXAResource(getXAResource(toClose), recoveryIdentifier);
 			} else if (txContext.supportsLocal() && localEnabled) {
 				toClose = dataSource.getConnection();
-				toReturn = new TxConnectionWrapper(toClose);
+				toReturn = statements.wrap(new TxConnectionWrapper(toClose, readOnly), toClose, dataSource, txContext);
 				txContext.registerLocalResource(getLocalResource(toClose));
 			} else {
 				throw new TransactionException(
@@ -97,14 +110,7 @@ public class XAEnabledTxContextBindingConnection extends ConnectionWrapper {
 					sqle);
 		}
 
-		
-		txContext.postCompletion(x -> {
-				try {
-					toClose.close();
-				} catch (SQLException sqle) {
-					// TODO log this
-				}
-			});
+		txContext.postCompletion(x -> ConnectionReleaser.release(dataSource, toClose, readOnly));
 		
 		txContext.putScopedValue(resourceId, toReturn);
 		
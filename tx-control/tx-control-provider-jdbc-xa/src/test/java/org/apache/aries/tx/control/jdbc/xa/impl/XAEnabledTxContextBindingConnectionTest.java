@@ -233,6 +233,17 @@ public class XAEnabledTxContextBindingConnectionTest {
 		Mockito.verify(rawConnection, times(0)).rollback();
 	}
 	
+	@Test
+	public void testXATransactionReadOnly() throws SQLException {
+		setupXATransaction();
+		Mockito.when(context.isReadOnly()).thenReturn(true);
+		
+		xaConn.isValid(500);
+		
+		Mockito.verify(rawConnection).setReadOnly(true);
+		Mockito.verify(context).registerXAResource(xaResource, null);
+	}
+	
 	@Test(expected=TransactionException.class)
 	public void testXAConnTransactionWithLocal() throws SQLException {
 		setupLocalTransaction();
@@ -19,69 +19,122 @@
 package org.apache.aries.tx.control.service.common.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
 
 import org.osgi.service.transaction.control.TransactionContext;
 import org.osgi.service.transaction.control.TransactionStatus;
 
+/**
+ * Most scopes never register callbacks, scoped values or see failures, so the
+ * collections holding them are only created when first needed.
+ */
 public abstract class AbstractTransactionContextImpl implements TransactionContext {
 
-	protected final AtomicReference<Throwable> firstUnexpectedException = new AtomicReference<>();
+	private static final AtomicReferenceFieldUpdater<AbstractTransactionContextImpl, Throwable> FIRST_UNEXPECTED_EXCEPTION = 
+			AtomicReferenceFieldUpdater.newUpdater(AbstractTransactionContextImpl.class, Throwable.class, "firstUnexpectedException");
+	
+	private volatile Throwable firstUnexpectedException;
 
-	protected final List<Throwable> subsequentExceptions = new ArrayList<>();
+	private List<Throwable> subsequentExceptions;
 
-	protected final List<Runnable> preCompletion = new ArrayList<>();
+	private List<Runnable> preCompletion;
 
-	protected final List<Consumer<TransactionStatus>> postCompletion = new ArrayList<>();
+	private List<Consumer<TransactionStatus>> postCompletion;
 	
-	protected final Map<Object, Object> scopedVariables = new HashMap<>();
+	private Map<Object, Object> scopedVariables;
 
 	@Override
 	public Object getScopedValue(Object key) {
-		return scopedVariables.get(key);
+		return scopedVariables == null ? null : scopedVariables.get(key);
 	}
 
 	@Override
 	public void putScopedValue(Object key, Object value) {
+		if (scopedVariables == null) {
+			scopedVariables = new HashMap<>();
+		}
 		scopedVariables.put(key, value);
 	}
 
+	protected void addPreCompletion(Runnable job) {
+		if (preCompletion == null) {
+			preCompletion = new ArrayList<>();
+		}
+		preCompletion.add(job);
+	}
+
+	protected void addPostCompletion(Consumer<TransactionStatus> job) {
+		if (postCompletion == null) {
+			postCompletion = new ArrayList<>();
+		}
+		postCompletion.add(job);
+	}
+
 	protected void beforeCompletion(Runnable onFirstError) {
-		preCompletion.stream().forEach(r -> {
+		if (preCompletion == null) {
+			return;
+		}
+		for (Runnable r : preCompletion) {
 			try {
 				r.run();
 			} catch (Exception e) {
-				if (firstUnexpectedException.compareAndSet(null, e)) {
+				if (setFirstUnexpectedException(e)) {
 					onFirstError.run();
 				} else {
-					subsequentExceptions.add(e);
+					addSubsequentException(e);
 				}
 				// TODO log this
 			}
-		});
+		}
 	}
 
 	protected void afterCompletion(TransactionStatus status) {
-		postCompletion.stream().forEach(c -> {
+		if (postCompletion == null) {
+			return;
+		}
+		for (Consumer<TransactionStatus> c : postCompletion) {
 			try {
 				c.accept(status);
 			} catch (Exception e) {
 				recordFailure(e);
 				// TODO log this
 			}
-		});
+		}
 	}
 
 	protected abstract boolean isAlive();
 
 	protected void recordFailure(Throwable failure) {
-		if (!firstUnexpectedException.compareAndSet(null, failure)) {
-			subsequentExceptions.add(failure);
+		if (!setFirstUnexpectedException(failure)) {
+			addSubsequentException(failure);
+		}
+	}
+
+	/**
+	 * @return true if this is the first unexpected failure of the context
+	 */
+	protected boolean setFirstUnexpectedException(Throwable failure) {
+		return FIRST_UNEXPECTED_EXCEPTION.compareAndSet(this, null, failure);
+	}
+
+	protected Throwable getFirstUnexpectedException() {
+		return firstUnexpectedException;
+	}
+
+	protected List<Throwable> getSubsequentExceptions() {
+		return subsequentExceptions == null ? Collections.emptyList() : subsequentExceptions;
+	}
+
+	private void addSubsequentException(Throwable failure) {
+		if (subsequentExceptions == null) {
+			subsequentExceptions = new ArrayList<>();
 		}
+		subsequentExceptions.add(failure);
 	}
 
 	protected abstract void safeSetRollbackOnly();
@@ -18,10 +18,12 @@
  */
 package org.apache.aries.tx.control.service.common.impl;
 
+import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 import static org.osgi.service.transaction.control.TransactionStatus.NO_TRANSACTION;
 import static org.osgi.service.transaction.control.TransactionStatus.ROLLED_BACK;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -37,9 +39,16 @@ import org.osgi.service.transaction.control.TransactionRolledBackException;
 
 public abstract class AbstractTransactionControlImpl implements TransactionControl {
 
-	private final class TransactionBuilderImpl extends TransactionBuilder {
+	private class TransactionBuilderImpl extends TransactionBuilder {
 
 		private boolean readOnly = false;
+
+		/**
+		 * Copies of the rollback rules that were last checked, so that the
+		 * same builder can be reused without validating them again
+		 */
+		private List<Class<? extends Throwable>> validRollbackFor = emptyList();
+		private List<Class<? extends Throwable>> validNoRollbackFor = emptyList();
 		
 		@Override
 		public TransactionBuilder readOnly() {
@@ -47,10 +56,13 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 			return this;
 		}
 
-		private void checkValid() {
+		void checkValid() {
+			
+			checkOpen();
 			
-			if(closed.get()) {
-				throw new TransactionException("The transaction control service is closed");
+			if(rollbackFor.isEmpty() || noRollbackFor.isEmpty() || 
+					(rollbackFor.equals(validRollbackFor) && noRollbackFor.equals(validNoRollbackFor))) {
+				return;
 			}
 			
 			List<Class<? extends Throwable>> duplicates = rollbackFor.stream()
@@ -60,6 +72,8 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 				throw new TransactionException("The transaction declares that the Exceptions " + 
 						duplicates + " must both trigger and not trigger rollback");
 			}
+			validRollbackFor = new ArrayList<>(rollbackFor);
+			validNoRollbackFor = new ArrayList<>(noRollbackFor);
 		}
 
 		@Override
@@ -186,11 +200,11 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 							t, toPropagate);
 				}
 				
-				Throwable throwable = currentTran.firstUnexpectedException.get();
+				Throwable throwable = currentTran.getFirstUnexpectedException();
 				if(throwable != null) {
 					workException.addSuppressed(throwable);
 				}
-				currentTran.subsequentExceptions.stream().forEach(workException::addSuppressed);
+				currentTran.getSubsequentExceptions().forEach(workException::addSuppressed);
 				
 				throw workException;
 			}
@@ -203,13 +217,13 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 				}
 			}
 			
-			Throwable throwable = currentTran.firstUnexpectedException.get();
+			Throwable throwable = currentTran.getFirstUnexpectedException();
 			if(throwable != null) {
 				TransactionException te = currentTran.getTransactionStatus() == ROLLED_BACK ?
 						new TransactionRolledBackException("The transaction rolled back due to a failure", throwable) :
 						new TransactionException("There was an error in the Transaction completion.", throwable);
 				
-				currentTran.subsequentExceptions.stream().forEach(te::addSuppressed);
+				currentTran.getSubsequentExceptions().forEach(te::addSuppressed);
 				
 				throw te;
 			}
@@ -218,6 +232,9 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 		}
 
 		private boolean requiresRollback(Throwable t) {
+			if(noRollbackFor.isEmpty()) {
+				return true;
+			}
 			return mostSpecificMatch(noRollbackFor, t)
 				.map(noRollbackType -> mostSpecificMatch(rollbackFor, t)
 						.map(rollbackType -> noRollbackType.isAssignableFrom(rollbackType))
@@ -236,10 +253,30 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 		}
 	}
 
+	/**
+	 * The builder for the scoped work started directly on the service. It is
+	 * shared by all the threads, so its settings never change: it is not handed
+	 * out, which keeps its rollback rules empty, and it refuses readOnly().
+	 */
+	private final class DefaultTransactionBuilder extends TransactionBuilderImpl {
+
+		@Override
+		public TransactionBuilder readOnly() {
+			throw new UnsupportedOperationException("The default transaction builder cannot be modified");
+		}
+
+		@Override
+		void checkValid() {
+			checkOpen();
+		}
+	}
+
 	private final ThreadLocal<AbstractTransactionContextImpl> existingTx = new ThreadLocal<>();
 	
 	private final AtomicBoolean closed = new AtomicBoolean();
 
+	private final TransactionBuilderImpl defaultBuilder = new DefaultTransactionBuilder();
+
 	protected abstract AbstractTransactionContextImpl startTransaction(boolean readOnly);
 
 	@Override
@@ -260,23 +297,23 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 	@Override
 	public <T> T required(Callable<T> work)
 			throws TransactionException, TransactionRolledBackException {
-		return build().required(work);
+		return defaultBuilder.required(work);
 	}
 
 	@Override
 	public <T> T requiresNew(Callable<T> work)
 			throws TransactionException, TransactionRolledBackException {
-		return build().requiresNew(work);
+		return defaultBuilder.requiresNew(work);
 	}
 
 	@Override
 	public <T> T notSupported(Callable<T> work) throws TransactionException {
-		return build().notSupported(work);
+		return defaultBuilder.notSupported(work);
 	}
 
 	@Override
 	public <T> T supports(Callable<T> work) throws TransactionException {
-		return build().supports(work);
+		return defaultBuilder.supports(work);
 	}
 
 	@Override
@@ -291,6 +328,12 @@ public abstract class AbstractTransactionControlImpl implements TransactionContr
 		return getCurrentContext() != null;
 	}
 
+	private void checkOpen() {
+		if(closed.get()) {
+			throw new TransactionException("The transaction control service is closed");
+		}
+	}
+
 	private TransactionContext getCurrentTranContextChecked() {
 		TransactionContext toUse = getCurrentContext();
 		if (toUse == null) {
@@ -20,7 +20,7 @@ package org.apache.aries.tx.control.service.common.impl;
 
 import static org.osgi.service.transaction.control.TransactionStatus.NO_TRANSACTION;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Consumer;
 
 import javax.transaction.xa.XAResource;
@@ -32,7 +32,10 @@ import org.osgi.service.transaction.control.TransactionStatus;
 public class NoTransactionContextImpl extends AbstractTransactionContextImpl
 		implements TransactionContext {
 
-	private final AtomicBoolean finished = new AtomicBoolean(false);
+	private static final AtomicIntegerFieldUpdater<NoTransactionContextImpl> FINISHED =
+			AtomicIntegerFieldUpdater.newUpdater(NoTransactionContextImpl.class, "finished");
+
+	private volatile int finished;
 
 	public NoTransactionContextImpl() {
 		super();
@@ -60,23 +63,23 @@ public class NoTransactionContextImpl extends AbstractTransactionContextImpl
 
 	@Override
 	public void preCompletion(Runnable job) throws IllegalStateException {
-		if (finished.get()) {
+		if (finished != 0) {
 			throw new IllegalStateException(
 					"The transaction context has finished");
 		}
 		
-		preCompletion.add(job);
+		addPreCompletion(job);
 	}
 
 	@Override
 	public void postCompletion(Consumer<TransactionStatus> job)
 			throws IllegalStateException {
-		if (finished.get()) {
+		if (finished != 0) {
 			throw new IllegalStateException(
 					"The transaction context has finished");
 		}
 
-		postCompletion.add(job);
+		addPostCompletion(job);
 	}
 
 	@Override
@@ -106,12 +109,12 @@ public class NoTransactionContextImpl extends AbstractTransactionContextImpl
 
 	@Override
 	protected boolean isAlive() {
-		return !finished.get();
+		return finished == 0;
 	}
 	
 	@Override
 	public void finish() {
-		if(finished.compareAndSet(false, true)) {
+		if(FINISHED.compareAndSet(this, 0, 1)) {
 			beforeCompletion(() -> {});
 			afterCompletion(NO_TRANSACTION);
 		}
@@ -119,7 +119,7 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 			throw new IllegalStateException("The current transaction is in state " + tranStatus);
 		}
 
-		preCompletion.add(job);
+		addPreCompletion(job);
 	}
 
 	@Override
@@ -129,7 +129,7 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 			throw new IllegalStateException("The current transaction is in state " + tranStatus);
 		}
 
-		postCompletion.add(job);
+		addPostCompletion(job);
 	}
 
 	@Override
@@ -192,7 +192,7 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 						committed.add(lr);
 					}
 				} catch (Exception e) {
-					firstUnexpectedException.compareAndSet(null, e);
+					setFirstUnexpectedException(e);
 					if (committed.isEmpty()) {
 						tranStatus.set(ROLLING_BACK);
 					}
@@ -26,6 +26,7 @@ import static org.junit.Assert.fail;
 import static org.osgi.service.transaction.control.TransactionStatus.COMMITTED;
 import static org.osgi.service.transaction.control.TransactionStatus.ROLLED_BACK;
 
+import java.io.IOException;
 import java.net.BindException;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -37,6 +38,8 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.osgi.service.transaction.control.LocalResource;
 import org.osgi.service.transaction.control.ResourceProvider;
 import org.osgi.service.transaction.control.ScopedWorkException;
+import org.osgi.service.transaction.control.TransactionBuilder;
+import org.osgi.service.transaction.control.TransactionException;
 import org.osgi.service.transaction.control.TransactionStatus;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -423,4 +426,31 @@ public class TransactionControlRunningTest {
 		
 	}
 	
+	@Test
+	public void testReusedBuilderRevalidatesRules() {
+		
+		TransactionBuilder builder = txControl.build()
+				.rollbackFor(BindException.class)
+				.noRollbackFor(IOException.class);
+		
+		assertEquals("A", builder.required(() -> "A"));
+		assertEquals("B", builder.required(() -> "B"));
+		
+		builder.noRollbackFor(BindException.class);
+		try {
+			builder.required(() -> "C");
+			fail("Should not be reached");
+		} catch (TransactionException te) {
+			// Expected
+		}
+	}
+	
+	@Test
+	public void testBuilderSettingsNotSharedWithService() {
+		
+		assertTrue(txControl.build().readOnly().required(() -> txControl.getCurrentContext().isReadOnly()));
+		assertFalse(txControl.required(() -> txControl.getCurrentContext().isReadOnly()));
+		assertFalse(txControl.requiresNew(() -> txControl.getCurrentContext().isReadOnly()));
+	}
+	
 }
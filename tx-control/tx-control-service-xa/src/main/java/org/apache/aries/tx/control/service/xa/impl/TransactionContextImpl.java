@@ -52,9 +52,13 @@ import org.osgi.service.transaction.control.LocalResource;
 import org.osgi.service.transaction.control.TransactionContext;
 import org.osgi.service.transaction.control.TransactionException;
 import org.osgi.service.transaction.control.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TransactionContextImpl extends AbstractTransactionContextImpl implements TransactionContext {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransactionContextImpl.class);
+
 	final List<LocalResource> resources = new ArrayList<>();
 
 	private final Transaction oldTran;
@@ -71,6 +75,13 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 
 	private LocalResourceSupport localResourceSupport;
 
+	/**
+	 * The branch of the local resources if they committed during the prepare
+	 * phase, as the last resource, before the outcome of the XA resources was
+	 * logged
+	 */
+	private volatile Xid lastResourceCommitted;
+
 	public TransactionContextImpl(RecoveryWorkAroundTransactionManager transactionManager, 
 			boolean readOnly, LocalResourceSupport localResourceSupport) {
 		this.transactionManager = transactionManager;
@@ -200,7 +211,7 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 			throw new IllegalStateException("The current transaction is in state " + status);
 		}
 
-		preCompletion.add(job);
+		addPreCompletion(job);
 	}
 
 	@Override
@@ -210,7 +221,7 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 			throw new IllegalStateException("The current transaction is in state " + status);
 		}
 
-		postCompletion.add(job);
+		addPostCompletion(job);
 	}
 
 	@Override
@@ -280,6 +291,14 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 	@Override
 	public void finish() {
 		
+		// The local resources are wrapped in a single branch which is enlisted
+		// last. On its own it is committed in one phase (no prepare, no log
+		// record). Alongside XA resources it is the last resource: all the XA
+		// branches have been prepared before it commits, and its outcome
+		// decides whether they commit or roll back. The local commit cannot be
+		// written to the recovery log, so the window between it and the log
+		// record of the XA branches is reported if the transaction is then
+		// rolled back.
 		if(!resources.isEmpty()) {
 			XAResource localResource = new LocalXAResourceImpl();
 			try {
@@ -329,10 +348,10 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 			if(!finished.compareAndSet(false, true)) {
 				return;
 			}
-			doCommit();
+			doCommit(xid);
 		}
 
-		private void doCommit() throws XAException {
+		private void doCommit(Xid xid) throws XAException {
 			AtomicBoolean commit = new AtomicBoolean(true);
 			
 			List<LocalResource> committed = new ArrayList<>(resources.size());
@@ -363,10 +382,12 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 			if(!rolledback.isEmpty()) {
 				if(committed.isEmpty()) {
 					throw (XAException) new XAException(XA_RBOTHER)
-						.initCause(firstUnexpectedException.get());
+						.initCause(getFirstUnexpectedException());
 				} else {
+					LOGGER.error("Only some of the local resources of the transaction {} committed", xid,
+							getFirstUnexpectedException());
 					throw (XAException) new XAException(XA_HEURMIX)
-						.initCause(firstUnexpectedException.get());
+						.initCause(getFirstUnexpectedException());
 				}
 			}
 		}
@@ -404,8 +425,9 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 				}
 			}
 			completionState.set(COMMITTING);
-			doCommit();
-			return XA_OK;
+			doCommit(xid);
+			lastResourceCommitted = xid;
+			return readOnly ? XA_RDONLY : XA_OK;
 		}
 
 		@Override
@@ -422,7 +444,7 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 				try {
 					lr.rollback();
 				} catch (Exception e) {
-					// TODO log this
+					LOGGER.warn("A local resource of the transaction {} failed to roll back", xid, e);
 					recordFailure(e);
 				}
 			});
@@ -450,6 +472,12 @@ public class TransactionContextImpl extends AbstractTransactionContextImpl imple
 		@Override
 		public void afterCompletion(int status) {
 			TransactionStatus ts = status == Status.STATUS_COMMITTED ? COMMITTED : ROLLED_BACK;
+			Xid xid = lastResourceCommitted;
+			if(ts == ROLLED_BACK && xid != null) {
+				LOGGER.error("The local resources of the transaction {} committed as the last resource, but the XA resources were then rolled back. They must be reconciled manually.", xid);
+				recordFailure(new TransactionException(
+						"The local resources committed, but the XA resources of the transaction rolled back"));
+			}
 			completionState.set(ts);
 			TransactionContextImpl.this.afterCompletion(ts);
 		}
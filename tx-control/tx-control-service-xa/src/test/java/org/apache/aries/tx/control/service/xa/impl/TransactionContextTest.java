@@ -42,6 +42,8 @@ import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
 import org.apache.aries.tx.control.service.common.impl.AbstractTransactionContextImpl;
+import org.apache.geronimo.transaction.log.HOWLLog;
+import org.apache.geronimo.transaction.manager.LogException;
 import org.apache.geronimo.transaction.manager.RecoveryWorkAroundTransactionManager;
 import org.apache.geronimo.transaction.manager.XidFactoryImpl;
 import org.junit.Before;
@@ -560,4 +562,134 @@ public class TransactionContextTest {
 		Mockito.verifyNoMoreInteractions(xaResource, localResource);
 	}
 	
+	@Test
+	public void testLastParticipantIsPreparedAfterAllXAResources() throws Exception {
+		
+		XAResource xaResource2 = Mockito.mock(XAResource.class);
+		
+		ctx.registerLocalResource(localResource);
+		ctx.registerXAResource(xaResource, null);
+		ctx.registerXAResource(xaResource2, null);
+		
+		ctx.finish();
+		
+		ArgumentCaptor<Xid> captor = ArgumentCaptor.forClass(Xid.class);
+		ArgumentCaptor<Xid> captor2 = ArgumentCaptor.forClass(Xid.class);
+		
+		InOrder inOrder = Mockito.inOrder(xaResource, xaResource2, localResource);
+		
+		inOrder.verify(xaResource).prepare(captor.capture());
+		inOrder.verify(xaResource2).prepare(captor2.capture());
+		inOrder.verify(localResource).commit();
+		inOrder.verify(xaResource).commit(Mockito.eq(captor.getValue()), Mockito.eq(false));
+		inOrder.verify(xaResource2).commit(Mockito.eq(captor2.getValue()), Mockito.eq(false));
+		
+		assertEquals(COMMITTED, ctx.getTransactionStatus());
+	}
+	
+	@Test
+	public void testXAResourcePrepareFailsSoLastParticipantRollsBack() throws Exception {
+		
+		ctx.registerLocalResource(localResource);
+		ctx.registerXAResource(xaResource, null);
+		
+		Mockito.doThrow(new XAException(XAException.XA_RBROLLBACK))
+			.when(xaResource).prepare(Mockito.any(Xid.class));
+		
+		ctx.finish();
+		
+		Mockito.verify(localResource).rollback();
+		Mockito.verify(localResource, Mockito.never()).commit();
+		
+		assertEquals(ROLLED_BACK, ctx.getTransactionStatus());
+	}
+	
+	@Test
+	public void testXAResourcesPreparedAndLogged() throws Exception {
+		HOWLLog log = Mockito.mock(HOWLLog.class);
+		ctx = new TransactionContextImpl(new RecoveryWorkAroundTransactionManager(30, 
+				new XidFactoryImpl(), log), false, ENABLED);
+		
+		XAResource xaResource2 = Mockito.mock(XAResource.class);
+		
+		ctx.registerXAResource(xaResource, null);
+		ctx.registerXAResource(xaResource2, null);
+		
+		ctx.finish();
+		
+		Mockito.verify(xaResource).prepare(Mockito.any(Xid.class));
+		Mockito.verify(xaResource2).prepare(Mockito.any(Xid.class));
+		Mockito.verify(log).prepare(Mockito.any(Xid.class), Mockito.anyList());
+		
+		assertEquals(COMMITTED, ctx.getTransactionStatus());
+	}
+	
+	@Test
+	public void testReadOnlyResourcesCommitWithoutLogging() throws Exception {
+		HOWLLog log = Mockito.mock(HOWLLog.class);
+		ctx = new TransactionContextImpl(new RecoveryWorkAroundTransactionManager(30, 
+				new XidFactoryImpl(), log), true, ENABLED);
+		
+		XAResource xaResource2 = Mockito.mock(XAResource.class);
+		Mockito.when(xaResource.prepare(Mockito.any(Xid.class))).thenReturn(XAResource.XA_RDONLY);
+		Mockito.when(xaResource2.prepare(Mockito.any(Xid.class))).thenReturn(XAResource.XA_RDONLY);
+		
+		ctx.registerLocalResource(localResource);
+		ctx.registerXAResource(xaResource, null);
+		ctx.registerXAResource(xaResource2, null);
+		
+		ctx.finish();
+		
+		Mockito.verify(xaResource).prepare(Mockito.any(Xid.class));
+		Mockito.verify(xaResource2).prepare(Mockito.any(Xid.class));
+		Mockito.verify(localResource).commit();
+		
+		Mockito.verify(xaResource, Mockito.never()).commit(Mockito.any(Xid.class), Mockito.anyBoolean());
+		Mockito.verify(xaResource2, Mockito.never()).commit(Mockito.any(Xid.class), Mockito.anyBoolean());
+		Mockito.verify(log, Mockito.never()).prepare(Mockito.any(Xid.class), Mockito.anyList());
+		
+		assertEquals(COMMITTED, ctx.getTransactionStatus());
+	}
+	
+	@Test
+	public void testReadOnlyResourceNotCommittedBeforeVote() throws Exception {
+		ctx = new TransactionContextImpl(getTxMgr(), true, ENABLED);
+		
+		XAResource xaResource2 = Mockito.mock(XAResource.class);
+		Mockito.doThrow(new XAException(XAException.XA_RBROLLBACK))
+			.when(xaResource2).prepare(Mockito.any(Xid.class));
+		
+		ctx.registerXAResource(xaResource, null);
+		ctx.registerXAResource(xaResource2, null);
+		
+		ctx.finish();
+		
+		Mockito.verify(xaResource).prepare(Mockito.any(Xid.class));
+		Mockito.verify(xaResource, Mockito.never()).commit(Mockito.any(Xid.class), Mockito.anyBoolean());
+		Mockito.verify(xaResource).rollback(Mockito.any(Xid.class));
+		
+		assertEquals(ROLLED_BACK, ctx.getTransactionStatus());
+	}
+	
+	@Test
+	public void testLogFailureAfterLastParticipantCommitted() throws Exception {
+		
+		HOWLLog log = Mockito.mock(HOWLLog.class);
+		Mockito.when(log.prepare(Mockito.any(Xid.class), Mockito.anyList()))
+			.thenThrow(new LogException("The log is full"));
+		ctx = new TransactionContextImpl(new RecoveryWorkAroundTransactionManager(30, new XidFactoryImpl(), log), 
+				false, ENFORCE_SINGLE);
+		
+		ctx.registerLocalResource(localResource);
+		ctx.registerXAResource(xaResource, null);
+		
+		ctx.finish();
+		
+		// The local commit cannot be undone, the XA branch is rolled back as it was never logged
+		Mockito.verify(localResource).commit();
+		Mockito.verify(xaResource).rollback(Mockito.any(Xid.class));
+		
+		assertEquals(ROLLED_BACK, ctx.getTransactionStatus());
+	}
+	
 }
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.util.tracker;
+
+import org.osgi.util.tracker.BundleTrackerCustomizer;
+
+/**
+ * A <code>BundleTrackerCustomizer</code> which is told when a batch of customizer callbacks begins and ends, so
+ * that it can defer work common to many bundles, like rescanning or publishing state, to the end of the batch.
+ * <p/>
+ * Batches are delimited by the trackers of this package when the initial bundles are tracked on open, and, when
+ * the tracker dispatches events on an <code>Executor</code>, around each run of queued events. Calls outside of a
+ * batch remain possible, for example when the tracker falls back to a standard <code>BundleTracker</code>.
+ *
+ * @see RecursiveBundleTracker
+ */
+public interface BatchingBundleTrackerCustomizer extends BundleTrackerCustomizer {
+
+    /**
+     * Called before the customizer callbacks of a batch, on the thread making them.
+     */
+    void beginBatch();
+
+    /**
+     * Called after the customizer callbacks of a batch, on the thread making them, even if one of them failed.
+     */
+    void endBatch();
+}
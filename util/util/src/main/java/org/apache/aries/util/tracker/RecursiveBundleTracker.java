@@ -18,7 +18,9 @@
  */
 package org.apache.aries.util.tracker;
 
-import org.apache.aries.util.tracker.hook.BundleHookBundleTracker;
+import java.util.concurrent.Executor;
+
+import org.apache.aries.util.tracker.hook.ConcurrentBundleHookBundleTracker;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
@@ -55,6 +57,26 @@ public final class RecursiveBundleTracker {
      *                                  flags
      */
     public RecursiveBundleTracker(BundleContext context, int stateMask, BundleTrackerCustomizer customizer) {
+        this(context, stateMask, customizer, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param context   - The <code>BundleContext</code> against which the tracking is done.
+     * @param stateMask - The bit mask of the ORing of the bundle states to be tracked. The
+     *                  mask must contain the flags <code>Bundle.INSTALLED | Bundle.RESOLVED | Bundle.STARTING | Bundle.ACTIVE | Bundle.STOPPING</code>
+     *                  as a minimum.
+     * @param executor  - The executor to call the customizer from, in batches of queued bundle events, or
+     *                  <code>null</code> to call it from the thread delivering the event. Only used when the
+     *                  framework supports bundle event hooks, the customizer must not rely on being called
+     *                  before the event completes.
+     * @throws IllegalArgumentException - If the provided bit mask does not contain required
+     *                                  flags
+     * @see BatchingBundleTrackerCustomizer
+     */
+    public RecursiveBundleTracker(BundleContext context, int stateMask, BundleTrackerCustomizer customizer,
+                                  Executor executor) {
         //This test only makes sense for composite bundles, but in the interests of more consistent behavior lets leave it.
         // We always need INSTALLED events so we can recursively listen to the frameworks
         if ((stateMask & COMPOSITE_BUNDLE_MASK) != COMPOSITE_BUNDLE_MASK)
@@ -62,7 +84,7 @@ public final class RecursiveBundleTracker {
         BundleTracker tracker = null;
         try {
             //R43, equinox composite bundles seem to produce appropriate bundle event hook notifications
-            tracker = new BundleHookBundleTracker(context, stateMask, customizer);
+            tracker = new ConcurrentBundleHookBundleTracker(context, stateMask, customizer, executor);
         } catch (Throwable e) {
         }
         if (areMultipleFrameworksAvailable(context)) {
@@ -0,0 +1,487 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.util.tracker.hook;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.aries.util.tracker.BatchingBundleTrackerCustomizer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.hooks.bundle.EventHook;
+import org.osgi.util.tracker.BundleTracker;
+import org.osgi.util.tracker.BundleTrackerCustomizer;
+
+/**
+ * A <code>BundleTracker</code> receiving the bundle events through an <code>EventHook</code>, like
+ * {@link BundleHookBundleTracker}, but without a lock shared by all bundles. The tracked bundles are kept in a
+ * concurrent map, the bookkeeping of a bundle is guarded by one of a set of striped locks, so events for different
+ * bundles do not contend, and queries do not lock at all. {@link #getTracked()} returns an immutable snapshot which
+ * is only copied again after bundles have been added or removed.
+ * <p/>
+ * When created with an <code>Executor</code>, the event hook only queues the events, and the customizer is called
+ * on the executor for the queued events in turn, against the state of the bundle when the event is processed. A
+ * {@link BatchingBundleTrackerCustomizer} is told when each run of queued events begins and ends. This mode must
+ * only be used when the customizer does not need to act before the event completes, for example to handle lazy
+ * activation on <code>STARTING</code>.
+ *
+ * @version $Rev$ $Date$
+ */
+public class ConcurrentBundleHookBundleTracker<T> extends BundleTracker {
+
+    static {
+        Class c = EventHook.class;
+    }
+
+    /* the number of locks guarding the bookkeeping of the bundles */
+    private static final int LOCK_STRIPES = 64;
+
+    private final BundleContext context;
+    private final int mask;
+    private final BundleTrackerCustomizer customizer;
+    private final Executor executor;
+    private volatile Tracked tracked;
+    private ServiceRegistration sr;
+
+    /**
+     * Create a tracker calling the customizer from the thread delivering the bundle event.
+     *
+     * @param context The <code>BundleContext</code> against which the tracking is done.
+     * @param stateMask The bit mask of the <code>OR</code>ing of the bundle states to be tracked.
+     * @param customizer The customizer object to call when bundles are added, modified, or removed, or
+     *        <code>null</code> to call the <code>BundleTrackerCustomizer</code> methods of this tracker.
+     */
+    public ConcurrentBundleHookBundleTracker(BundleContext context, int stateMask, BundleTrackerCustomizer customizer) {
+        this(context, stateMask, customizer, null);
+    }
+
+    /**
+     * Create a tracker calling the customizer from the given executor, in batches of queued events.
+     *
+     * @param context The <code>BundleContext</code> against which the tracking is done.
+     * @param stateMask The bit mask of the <code>OR</code>ing of the bundle states to be tracked.
+     * @param customizer The customizer object to call when bundles are added, modified, or removed, or
+     *        <code>null</code> to call the <code>BundleTrackerCustomizer</code> methods of this tracker.
+     * @param executor The executor to call the customizer from, or <code>null</code> to call it from the thread
+     *        delivering the bundle event.
+     */
+    public ConcurrentBundleHookBundleTracker(BundleContext context, int stateMask, BundleTrackerCustomizer customizer,
+                                             Executor executor) {
+        super(context, stateMask, customizer);
+        this.context = context;
+        this.mask = stateMask;
+        this.customizer = customizer == null ? this : customizer;
+        this.executor = executor;
+    }
+
+    /**
+     * Open this tracker and begin tracking bundles.
+     *
+     * @see BundleTracker#open()
+     */
+    @Override
+    public void open() {
+        final Tracked t;
+        synchronized (this) {
+            if (tracked != null) {
+                return;
+            }
+            t = new Tracked();
+            sr = context.registerService(EventHook.class.getName(), new BundleEventHook(t), null);
+            Bundle[] bundles = context.getBundles();
+            if (bundles != null) {
+                for (int i = 0; i < bundles.length; i++) {
+                    if ((bundles[i].getState() & mask) == 0) {
+                        /* null out bundles whose states are not interesting */
+                        bundles[i] = null;
+                    }
+                }
+                t.setInitial(bundles);
+            }
+            tracked = t;
+        }
+        /* Call tracked outside of synchronized region */
+        beginBatch();
+        try {
+            t.trackInitial();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Close this tracker, the bundles still tracked are removed.
+     *
+     * @see BundleTracker#close()
+     */
+    @Override
+    public void close() {
+        final Tracked outgoing;
+        synchronized (this) {
+            outgoing = tracked;
+            if (outgoing == null) {
+                return;
+            }
+            outgoing.close();
+            tracked = null;
+            try {
+                sr.unregister();
+            } catch (IllegalStateException e) {
+                /* In case the context was stopped. */
+            }
+        }
+        for (Bundle bundle : outgoing.tracked.keySet()) {
+            outgoing.untrack(bundle, null);
+        }
+    }
+
+    /**
+     * @return The tracked bundles or <code>null</code> if no bundles are being tracked.
+     * @see BundleTracker#getBundles()
+     */
+    @Override
+    public Bundle[] getBundles() {
+        final Tracked t = tracked;
+        if (t == null) {
+            return null;
+        }
+        Bundle[] bundles = t.tracked.keySet().toArray(new Bundle[0]);
+        return bundles.length == 0 ? null : bundles;
+    }
+
+    /**
+     * @see BundleTracker#getObject(Bundle)
+     */
+    @Override
+    public T getObject(Bundle bundle) {
+        final Tracked t = tracked;
+        return t == null ? null : t.tracked.get(bundle);
+    }
+
+    /**
+     * @see BundleTracker#remove(Bundle)
+     */
+    @Override
+    public void remove(Bundle bundle) {
+        final Tracked t = tracked;
+        if (t != null) {
+            t.untrack(bundle, null);
+        }
+    }
+
+    /**
+     * @see BundleTracker#size()
+     */
+    @Override
+    public int size() {
+        final Tracked t = tracked;
+        return t == null ? 0 : t.tracked.size();
+    }
+
+    /**
+     * @see BundleTracker#getTrackingCount()
+     */
+    @Override
+    public int getTrackingCount() {
+        final Tracked t = tracked;
+        return t == null ? -1 : t.trackingCount.get();
+    }
+
+    /**
+     * Return the tracked bundles and their customized objects. Unlike {@link BundleTracker#getTracked()}, the map
+     * returned is an immutable snapshot, shared by the callers until bundles are added or removed.
+     *
+     * @return An immutable map of the tracked bundles to their customized objects.
+     */
+    @Override
+    public Map<Bundle, T> getTracked() {
+        final Tracked t = tracked;
+        if (t == null) {
+            return Collections.emptyMap();
+        }
+        return t.snapshot();
+    }
+
+    /**
+     * @see BundleTracker#isEmpty()
+     */
+    @Override
+    public boolean isEmpty() {
+        final Tracked t = tracked;
+        return t == null || t.tracked.isEmpty();
+    }
+
+    private void beginBatch() {
+        if (customizer instanceof BatchingBundleTrackerCustomizer) {
+            ((BatchingBundleTrackerCustomizer) customizer).beginBatch();
+        }
+    }
+
+    private void endBatch() {
+        if (customizer instanceof BatchingBundleTrackerCustomizer) {
+            ((BatchingBundleTrackerCustomizer) customizer).endBatch();
+        }
+    }
+
+    private class BundleEventHook implements EventHook {
+        private final Tracked tracked;
+
+        private BundleEventHook(Tracked tracked) {
+            this.tracked = tracked;
+        }
+
+        public void event(BundleEvent bundleEvent, Collection bundleContexts) {
+            if (executor == null) {
+                tracked.bundleChanged(bundleEvent);
+            } else {
+                tracked.queue(bundleEvent);
+            }
+        }
+    }
+
+    /**
+     * Immutable copy of the tracked map, valid as long as the number of changes it was taken at is current.
+     */
+    private static final class Snapshot<T> {
+        final int changes;
+        final Map<Bundle, T> map;
+
+        Snapshot(int changes, Map<Bundle, T> map) {
+            this.changes = changes;
+            this.map = map;
+        }
+    }
+
+    /**
+     * The bundles tracked while the tracker is open. This follows the algorithm of the AbstractTracked class of
+     * {@link BundleHookBundleTracker}, but the bookkeeping of a bundle is guarded by the lock of its stripe rather
+     * than by a lock for all bundles.
+     */
+    private final class Tracked implements Runnable {
+
+        final ConcurrentMap<Bundle, T> tracked = new ConcurrentHashMap<Bundle, T>();
+        final AtomicInteger trackingCount = new AtomicInteger();
+
+        /* incremented when bundles are added to or removed from the map, after the change */
+        private final AtomicInteger changes = new AtomicInteger();
+        private volatile Snapshot<T> snapshot;
+
+        /* the bundles being added, guarded by the lock of their stripe */
+        private final Set<Bundle> adding = Collections.newSetFromMap(new ConcurrentHashMap<Bundle, Boolean>());
+
+        /* the initial bundles not tracked yet, guarded by the lock of their stripe */
+        private final Set<Bundle> initial = Collections.newSetFromMap(new ConcurrentHashMap<Bundle, Boolean>());
+        private Bundle[] initialOrder = new Bundle[0];
+
+        private final Object[] locks = new Object[LOCK_STRIPES];
+
+        /* events waiting to be processed on the executor */
+        private final Queue<BundleEvent> events = new ConcurrentLinkedQueue<BundleEvent>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        volatile boolean closed;
+
+        Tracked() {
+            for (int i = 0; i < locks.length; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        private Object lock(Bundle bundle) {
+            return locks[(System.identityHashCode(bundle) & 0x7fffffff) % locks.length];
+        }
+
+        void setInitial(Bundle[] bundles) {
+            initialOrder = bundles;
+            for (Bundle bundle : bundles) {
+                if (bundle != null) {
+                    initial.add(bundle);
+                }
+            }
+        }
+
+        void trackInitial() {
+            for (Bundle bundle : initialOrder) {
+                if (bundle == null) {
+                    continue;
+                }
+                synchronized (lock(bundle)) {
+                    if (closed) {
+                        return;
+                    }
+                    if (!initial.remove(bundle) || tracked.containsKey(bundle) || !adding.add(bundle)) {
+                        /* untracked, already tracked or being added since */
+                        continue;
+                    }
+                }
+                trackAdding(bundle, null);
+            }
+        }
+
+        void close() {
+            closed = true;
+        }
+
+        void bundleChanged(BundleEvent event) {
+            if (closed) {
+                return;
+            }
+            Bundle bundle = event.getBundle();
+            if ((bundle.getState() & mask) != 0) {
+                track(bundle, event);
+            } else {
+                untrack(bundle, event);
+            }
+        }
+
+        void queue(BundleEvent event) {
+            events.add(event);
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Process the queued events, one batch at a time.
+         */
+        public void run() {
+            RuntimeException failure = null;
+            do {
+                beginBatch();
+                try {
+                    BundleEvent event;
+                    while ((event = events.poll()) != null) {
+                        try {
+                            bundleChanged(event);
+                        } catch (RuntimeException e) {
+                            /* keep processing the batch, the first failure is rethrown */
+                            if (failure == null) {
+                                failure = e;
+                            }
+                        }
+                    }
+                } finally {
+                    endBatch();
+                    draining.set(false);
+                }
+            } while (!events.isEmpty() && draining.compareAndSet(false, true));
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void track(Bundle bundle, BundleEvent event) {
+            final T object;
+            synchronized (lock(bundle)) {
+                if (closed) {
+                    return;
+                }
+                object = tracked.get(bundle);
+                if (object == null) {
+                    if (!adding.add(bundle)) {
+                        /* already being added */
+                        return;
+                    }
+                } else {
+                    trackingCount.incrementAndGet();
+                }
+            }
+            if (object == null) {
+                trackAdding(bundle, event);
+            } else {
+                /* Call customizer outside of synchronized region */
+                customizer.modifiedBundle(bundle, event, object);
+            }
+        }
+
+        /*
+         * Adds a bundle placed in the adding set before
+         */
+        private void trackAdding(Bundle bundle, BundleEvent event) {
+            T object = null;
+            boolean becameUntracked = false;
+            /* Call customizer outside of synchronized region */
+            try {
+                object = (T) customizer.addingBundle(bundle, event);
+            } finally {
+                synchronized (lock(bundle)) {
+                    if (adding.remove(bundle) && !closed) {
+                        if (object != null) {
+                            tracked.put(bundle, object);
+                            trackingCount.incrementAndGet();
+                            changes.incrementAndGet();
+                        }
+                    } else {
+                        becameUntracked = true;
+                    }
+                }
+            }
+            if (becameUntracked && object != null) {
+                /* Call customizer outside of synchronized region */
+                customizer.removedBundle(bundle, event, object);
+            }
+        }
+
+        void untrack(Bundle bundle, BundleEvent event) {
+            final T object;
+            synchronized (lock(bundle)) {
+                if (initial.remove(bundle) || adding.remove(bundle)) {
+                    /* not tracked yet, it will not be */
+                    return;
+                }
+                object = tracked.remove(bundle);
+                if (object == null) {
+                    return;
+                }
+                trackingCount.incrementAndGet();
+                changes.incrementAndGet();
+            }
+            /* Call customizer outside of synchronized region */
+            customizer.removedBundle(bundle, event, object);
+        }
+
+        Map<Bundle, T> snapshot() {
+            Snapshot<T> current = snapshot;
+            int count = changes.get();
+            if (current == null || current.changes != count) {
+                current = new Snapshot<T>(count, Collections.unmodifiableMap(new HashMap<Bundle, T>(tracked)));
+                snapshot = current;
+            }
+            return current.map;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.aries.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.aries.util.tracker.BatchingBundleTrackerCustomizer;
+import org.apache.aries.util.tracker.hook.BundleHookBundleTracker;
+import org.apache.aries.util.tracker.hook.ConcurrentBundleHookBundleTracker;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.hooks.bundle.EventHook;
+import org.osgi.util.tracker.BundleTracker;
+
+public class ConcurrentBundleHookBundleTrackerTest {
+    private static final int MASK = Bundle.STARTING | Bundle.ACTIVE;
+
+    private final List<Bundle> bundles = Collections.synchronizedList(new ArrayList<Bundle>());
+    private final AtomicReference<EventHook> hook = new AtomicReference<EventHook>();
+    private final BundleContext context = proxy(BundleContext.class, new InvocationHandler() {
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("registerService")) {
+                hook.set((EventHook) args[1]);
+                return proxy(ServiceRegistration.class, null);
+            } else if (method.getName().equals("getBundles")) {
+                return bundles.toArray(new Bundle[0]);
+            }
+            return null;
+        }
+    });
+
+    @Test
+    public void testLifecycle() {
+        Bundle initial = install(1, Bundle.ACTIVE);
+        CountingCustomizer customizer = new CountingCustomizer();
+        ConcurrentBundleHookBundleTracker<Object> tracker =
+            new ConcurrentBundleHookBundleTracker<Object>(context, MASK, customizer);
+        tracker.open();
+        assertEquals(1, tracker.size());
+        assertEquals(1, customizer.batches.get());
+
+        Bundle bundle = install(2, Bundle.INSTALLED);
+        fire(bundle, Bundle.INSTALLED, BundleEvent.INSTALLED);
+        assertNull(tracker.getObject(bundle));
+        fire(bundle, Bundle.STARTING, BundleEvent.STARTING);
+        fire(bundle, Bundle.ACTIVE, BundleEvent.STARTED);
+        assertSame(bundle, tracker.getObject(bundle));
+        assertEquals(1, customizer.modified.get());
+
+        Map<Bundle, Object> tracked = tracker.getTracked();
+        assertEquals(2, tracked.size());
+        assertSame(tracked, tracker.getTracked());
+        try {
+            tracked.clear();
+            fail("The snapshot must be immutable");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        fire(bundle, Bundle.RESOLVED, BundleEvent.STOPPED);
+        assertEquals(1, customizer.removed.get());
+        assertEquals(1, tracker.getTracked().size());
+        assertEquals(2, tracked.size());
+
+        tracker.close();
+        assertEquals(2, customizer.removed.get());
+        assertTrue(tracker.isEmpty());
+        assertNull(tracker.getObject(initial));
+    }
+
+    @Test
+    public void testBatchedCallbacks() throws Exception {
+        CountingCustomizer customizer = new CountingCustomizer();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // hold the executor so that the events queue up
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            ConcurrentBundleHookBundleTracker<Object> tracker =
+                new ConcurrentBundleHookBundleTracker<Object>(context, MASK, customizer, executor);
+            tracker.open();
+            for (int i = 0; i < 100; i++) {
+                Bundle bundle = install(i, Bundle.INSTALLED);
+                fire(bundle, Bundle.INSTALLED, BundleEvent.INSTALLED);
+                fire(bundle, Bundle.STARTING, BundleEvent.STARTING);
+                fire(bundle, Bundle.ACTIVE, BundleEvent.STARTED);
+            }
+            assertEquals(0, tracker.size());
+            blocked.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(100, tracker.size());
+            assertEquals(100, customizer.added.get());
+            // the open and one run of the queued events
+            assertEquals(2, customizer.batches.get());
+            assertEquals(0, customizer.open.get());
+            tracker.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Installs and starts 2,000 bundles from several threads while other threads read the tracked bundles, with the
+     * tracker synchronized on a single lock and with the concurrent tracker.
+     */
+    @Test
+    public void testInstallAndStart2000Bundles() throws Exception {
+        installAndStart(false);
+        installAndStart(true);
+    }
+
+    private void installAndStart(boolean concurrent) throws Exception {
+        bundles.clear();
+        final int count = 2000;
+        final int threads = 4;
+        CountingCustomizer customizer = new CountingCustomizer();
+        final BundleTracker tracker = concurrent
+            ? new ConcurrentBundleHookBundleTracker<Object>(context, MASK, customizer)
+            : new BundleHookBundleTracker<Object>(context, MASK, customizer);
+        tracker.open();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            writers.add(new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = first; i < count; i += threads) {
+                            Bundle bundle = install(i, Bundle.INSTALLED);
+                            fire(bundle, Bundle.INSTALLED, BundleEvent.INSTALLED);
+                            fire(bundle, Bundle.RESOLVED, BundleEvent.RESOLVED);
+                            fire(bundle, Bundle.STARTING, BundleEvent.STARTING);
+                            fire(bundle, Bundle.ACTIVE, BundleEvent.STARTED);
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            });
+        }
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int t = 0; t < 2; t++) {
+            readers.add(new Thread() {
+                public void run() {
+                    while (!done.get()) {
+                        tracker.getTracked();
+                        tracker.size();
+                    }
+                }
+            });
+        }
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(count, tracker.size());
+        assertEquals(count, tracker.getTracked().size());
+        assertEquals(count, customizer.added.get());
+        assertEquals(count, customizer.modified.get());
+        tracker.close();
+        assertEquals(count, customizer.removed.get());
+    }
+
+    private Bundle install(final long id, int state) {
+        final AtomicInteger bundleState = new AtomicInteger(state);
+        Bundle bundle = proxy(Bundle.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getState")) {
+                    return bundleState.get();
+                } else if (name.equals("getBundleId")) {
+                    return id;
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("adapt")) {
+                    return bundleState;
+                }
+                return null;
+            }
+        });
+        bundles.add(bundle);
+        return bundle;
+    }
+
+    private void fire(Bundle bundle, int state, int type) {
+        ((AtomicInteger) bundle.adapt(AtomicInteger.class)).set(state);
+        hook.get().event(new BundleEvent(type, bundle), null);
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        if (handler == null) {
+            handler = new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    return null;
+                }
+            };
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static class CountingCustomizer implements BatchingBundleTrackerCustomizer {
+        final AtomicInteger added = new AtomicInteger();
+        final AtomicInteger modified = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger open = new AtomicInteger();
+
+        public Object addingBundle(Bundle bundle, BundleEvent event) {
+            added.incrementAndGet();
+            return bundle;
+        }
+
+        public void modifiedBundle(Bundle bundle, BundleEvent event, Object object) {
+            modified.incrementAndGet();
+        }
+
+        public void removedBundle(Bundle bundle, BundleEvent event, Object object) {
+            removed.incrementAndGet();
+        }
+
+        public void beginBatch() {
+            batches.incrementAndGet();
+            open.incrementAndGet();
+        }
+
+        public void endBatch() {
+            open.decrementAndGet();
+        }
+    }
+}